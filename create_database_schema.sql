@@ -13,6 +13,10 @@ CREATE DATABASE IF NOT EXISTS bulk_dispute_db;
 USE bulk_dispute_db;
 
 -- Create bulk_dispute_session table
+-- error_count is kept in step with bulk_dispute_session_errors when errors are stored. Existing databases:
+--   ALTER TABLE bulk_dispute_session ADD COLUMN error_count INT NOT NULL DEFAULT 0 AFTER invalid_rows,
+--     DROP INDEX idx_created_at, ADD INDEX idx_created_at_id (created_at, id);
+--   UPDATE bulk_dispute_session s SET error_count = (SELECT COUNT(*) FROM bulk_dispute_session_errors e WHERE e.session_id = s.id), updated_at = updated_at;
 CREATE TABLE bulk_dispute_session (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     institution_code VARCHAR(50) NOT NULL,
@@ -23,6 +27,7 @@ CREATE TABLE bulk_dispute_session (
     total_rows INT NOT NULL DEFAULT 0,
     valid_rows INT NOT NULL DEFAULT 0,
     invalid_rows INT NOT NULL DEFAULT 0,
+    error_count INT NOT NULL DEFAULT 0,
     status ENUM('UPLOADED','VALIDATED','PREVIEWED','CONFIRMED') NOT NULL DEFAULT 'UPLOADED',
     uploaded_by VARCHAR(100) NOT NULL,
     version INT NOT NULL DEFAULT 1,
@@ -32,10 +37,15 @@ CREATE TABLE bulk_dispute_session (
     INDEX idx_merchant_id (merchant_id),
     INDEX idx_status (status),
     INDEX idx_uploaded_by (uploaded_by),
-    INDEX idx_created_at (created_at)
+    INDEX idx_created_at_id (created_at, id)
 );
 
 -- Create bulk_dispute_job table
+-- The (column, id) indexes serve the job listing's sorts and keyset cursors; idx_status and idx_session_id
+-- already end in the primary key, so they serve the status and session sorts. Existing databases:
+--   ALTER TABLE bulk_dispute_job ADD INDEX idx_created_at_id (created_at, id), ADD INDEX idx_status_created_at_id (status, created_at, id),
+--     ADD INDEX idx_session_created_at_id (session_id, created_at, id), ADD INDEX idx_started_at_id (started_at, id),
+--     ADD INDEX idx_completed_at_id (completed_at, id);
 CREATE TABLE bulk_dispute_job (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     session_id BIGINT NOT NULL,
@@ -60,6 +70,11 @@ CREATE TABLE bulk_dispute_job (
     INDEX idx_session_id (session_id),
     INDEX idx_status (status),
     INDEX idx_job_ref (job_ref),
+    INDEX idx_created_at_id (created_at, id),
+    INDEX idx_status_created_at_id (status, created_at, id),
+    INDEX idx_session_created_at_id (session_id, created_at, id),
+    INDEX idx_started_at_id (started_at, id),
+    INDEX idx_completed_at_id (completed_at, id),
     INDEX idx_next_retry_at (next_retry_at),
     INDEX idx_failure_type (failure_type)
 );
@@ -79,11 +94,40 @@ CREATE TABLE bulk_dispute_job_audit (
     INDEX idx_created_at (created_at)
 );
 
+-- Create bulk_dispute_job_partition table
+-- Row ranges of a partitioned job, each with its own checkpoint (row numbers are absolute in the file).
+-- Fanned-out jobs publish one chunk message per partition; RUNNING partitions are claimed by a node.
+-- Existing databases: run this statement as is. A table created before chunks were claimed needs:
+--   ALTER TABLE bulk_dispute_job_partition MODIFY status ENUM('PENDING','RUNNING','COMPLETED') NOT NULL DEFAULT 'PENDING',
+--     ADD COLUMN error_report_path VARCHAR(500) AFTER failure_count, ADD INDEX idx_status_updated_at (status, updated_at);
+CREATE TABLE bulk_dispute_job_partition (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_id BIGINT NOT NULL,
+    partition_index INT NOT NULL,
+    start_offset BIGINT NOT NULL,
+    end_offset BIGINT NOT NULL,
+    first_row INT NOT NULL,
+    last_row INT NOT NULL,
+    status ENUM('PENDING','RUNNING','COMPLETED') NOT NULL DEFAULT 'PENDING',
+    last_processed_row INT NOT NULL DEFAULT 0,
+    processed_rows INT NOT NULL DEFAULT 0,
+    success_count INT NOT NULL DEFAULT 0,
+    failure_count INT NOT NULL DEFAULT 0,
+    error_report_path VARCHAR(500),
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (job_id) REFERENCES bulk_dispute_job(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_job_partition (job_id, partition_index),
+    INDEX idx_status_updated_at (status, updated_at)
+);
+
 
 -- Insert sample dispute data for testing
 
 -- Create bulk_dispute_session_errors table
 -- This table stores validation errors for each row in a session
+-- idx_session_row lets the error export read a session's errors in row order. Existing databases:
+--   ALTER TABLE bulk_dispute_session_errors ADD INDEX idx_session_row (session_id, `row_number`);
 CREATE TABLE bulk_dispute_session_errors (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     session_id BIGINT NOT NULL,
@@ -93,7 +137,29 @@ CREATE TABLE bulk_dispute_session_errors (
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (session_id) REFERENCES bulk_dispute_session(id) ON DELETE CASCADE,
     INDEX idx_session_id (session_id),
-    INDEX idx_row_number (row_number)
+    INDEX idx_row_number (row_number),
+    INDEX idx_session_row (session_id, row_number)
+);
+
+-- Create bulk_dispute_session_error_rows table
+-- Sorted row numbers with validation errors per session, stored as varint deltas, so preview
+-- pages and job error lookups never read the error messages to find them. Existing databases: run
+-- this statement as is; the rows of sessions stored before it are computed on first use
+CREATE TABLE bulk_dispute_session_error_rows (
+    session_id BIGINT PRIMARY KEY,
+    error_row_count INT NOT NULL,
+    error_rows MEDIUMBLOB NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (session_id) REFERENCES bulk_dispute_session(id) ON DELETE CASCADE
+);
+
+-- Create bulk_scheduler_lease table
+-- Named leases that let one node at a time run a scheduled task, such as the retention purge;
+-- an expired lease can be taken over by any node. Existing databases: run this statement as is
+CREATE TABLE bulk_scheduler_lease (
+    name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(255),
+    lease_until DATETIME NOT NULL
 );
 
 -- Show tables created
@@ -0,0 +1,222 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.benchmark;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobPartitionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SessionErrorIndex;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.AtomicJobUpdater;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.ProofService;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Synthetic input files and in-memory stand-ins for the database-backed collaborators
+ */
+final class BenchmarkSupport {
+
+    static final Path DATA_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "bulk-dispute-jmh");
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Get a CSV file shaped like sample_disputes.csv with the given number of data rows, generating it once
+     */
+    static Path csvFile(int rows) throws IOException {
+        Files.createDirectories(DATA_DIR);
+        Path file = DATA_DIR.resolve("disputes_" + rows + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+
+        Path tempFile = DATA_DIR.resolve("disputes_" + rows + ".csv.tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile)) {
+            writer.write("Unique Key,Action");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                writer.write(uniqueKey(i));
+                writer.write(',');
+                writer.write(action(i));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, file);
+        return file;
+    }
+
+    /**
+     * Unique key in the 26-character format used by tbl_disputes, e.g. 2214B8JO003524000000003524
+     */
+    static String uniqueKey(int index) {
+        String terminal = Integer.toString(index % 1_679_616, 36).toUpperCase();
+        return String.format("%04d%4s%06d%012d", 2000 + index % 300, terminal, index % 1_000_000, index)
+                .replace(' ', '0');
+    }
+
+    static String action(int index) {
+        return index % 2 == 0 ? "ACCEPT" : "REJECT";
+    }
+
+    /**
+     * Proof service that reports a stored proof for every dispute
+     */
+    static ProofService proofServiceWithAllProofs() {
+        return new ProofService() {
+            @Override
+            public String uploadProof(String uniqueCode, MultipartFile file) {
+                return getProofFilePath(uniqueCode);
+            }
+
+            @Override
+            public String uploadProofWithoutValidation(String uniqueCode, MultipartFile file) {
+                return getProofFilePath(uniqueCode);
+            }
+
+            @Override
+            public String uploadProofWithoutValidation(String uniqueCode, MultipartFile file, boolean replaceExisting) {
+                return getProofFilePath(uniqueCode);
+            }
+
+            @Override
+            public String getProofFilePath(String uniqueCode) {
+                return "proofs/" + uniqueCode + ".pdf";
+            }
+
+            @Override
+            public boolean proofExists(String uniqueCode) {
+                return true;
+            }
+
+            @Override
+            public boolean deleteProof(String uniqueCode) {
+                return false;
+            }
+
+            @Override
+            public Resource getProofResource(String uniqueCode) {
+                return new ByteArrayResource(new byte[0]);
+            }
+
+            @Override
+            public List<String> findProofsOlderThan(Instant cutoff) {
+                return List.of();
+            }
+
+            @Override
+            public boolean deleteProofIfOlderThan(String uniqueCode, Instant cutoff) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * tbl_disputes held in a map, with the same status = -1 guard as the real update.
+     * Partitions of a job update disjoint keys, so a concurrent map is enough.
+     */
+    static class InMemoryDisputeRepository extends DisputeRepository {
+        private final Map<String, Integer> statuses = new ConcurrentHashMap<>();
+
+        void reset(int rows) {
+            statuses.clear();
+            for (int i = 0; i < rows; i++) {
+                statuses.put(uniqueKey(i), -1);
+            }
+        }
+
+        @Override
+        public int updateDisputeStatus(String uniqueKey, String resolvedBy, int status, int resolved, String proofUri) {
+            Integer current = statuses.get(uniqueKey);
+            if (current == null || current != -1) {
+                return 0;
+            }
+            statuses.put(uniqueKey, status);
+            return 1;
+        }
+
+        @Override
+        public int[] batchUpdateDisputeStatus(List<DisputeStatusUpdate> updates) {
+            int[] counts = new int[updates.size()];
+            for (int i = 0; i < updates.size(); i++) {
+                DisputeStatusUpdate update = updates.get(i);
+                counts[i] = updateDisputeStatus(update.getUniqueKey(), update.getResolvedBy(),
+                        update.getStatus(), update.getResolved(), update.getProofUri());
+            }
+            return counts;
+        }
+    }
+
+    static class NoErrorsSessionErrorRepository extends BulkDisputeSessionErrorRepository {
+        @Override
+        public SessionErrorIndex loadErrorIndex(Long sessionId) {
+            return new SessionErrorIndex(new int[0], rows -> List.of());
+        }
+    }
+
+    static class NoOpAtomicJobUpdater extends AtomicJobUpdater {
+        @Override
+        public boolean checkpointProgress(Long jobId, int lastProcessedRow, int processedRows, int successCount, int failureCount) {
+            return true;
+        }
+    }
+
+    static class NoOpJobRepository extends BulkDisputeJobRepository {
+        @Override
+        public BulkDisputeJob save(BulkDisputeJob job) {
+            return job;
+        }
+    }
+
+    /**
+     * Nothing is stored between invocations, so every run plans its partitions afresh
+     */
+    static class NoOpPartitionRepository extends BulkDisputeJobPartitionRepository {
+        @Override
+        public List<BulkDisputeJobPartition> findByJobId(Long jobId) {
+            return List.of();
+        }
+
+        @Override
+        public List<BulkDisputeJobPartition> saveAll(Long jobId, List<BulkDisputeJobPartition> partitions) {
+            for (int i = 0; i < partitions.size(); i++) {
+                partitions.get(i).setId(i + 1L);
+            }
+            return partitions;
+        }
+
+        @Override
+        public boolean checkpoint(Long partitionId, int lastProcessedRow, int processedRows, int successCount, int failureCount) {
+            return true;
+        }
+
+        @Override
+        public void markCompleted(Long partitionId, String errorReportPath) {
+        }
+
+        @Override
+        public void rollUpJobProgress(Long jobId) {
+        }
+    }
+
+    static class NoOpAuditRepository extends BulkDisputeJobAuditRepository {
+        @Override
+        public int saveAll(List<BulkDisputeJobAudit> audits) {
+            return audits.size();
+        }
+    }
+}
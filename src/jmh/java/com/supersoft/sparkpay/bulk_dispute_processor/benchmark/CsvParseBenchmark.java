@@ -0,0 +1,59 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.benchmark;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizing a whole file, line by line with CsvParser and streamed with CsvReader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvParseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private Path file;
+    private List<String> lines;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkSupport.csvFile(rows);
+        lines = Files.readAllLines(file);
+    }
+
+    @Benchmark
+    public void parseCsvLine(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(CsvParser.parseCsvLine(line));
+        }
+    }
+
+    @Benchmark
+    public void csvReader(Blackhole blackhole) throws IOException {
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            List<String> row = new ArrayList<>();
+            while (csv.nextRecord()) {
+                blackhole.consume(csv.getFields(row));
+            }
+        }
+    }
+}
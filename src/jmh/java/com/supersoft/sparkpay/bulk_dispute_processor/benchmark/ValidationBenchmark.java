@@ -0,0 +1,73 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.benchmark;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.service.CombinedValidationService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.CombinedValidationServiceImpl;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.CsvValidationService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.CsvValidationServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload-time validation of a whole file. Every REJECT row has a proof, so all rows are valid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValidationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private MockMultipartFile csvFile;
+    private List<MultipartFile> proofFiles;
+    private CsvValidationServiceImpl csvValidationService;
+    private CombinedValidationServiceImpl combinedValidationService;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = Files.readAllBytes(BenchmarkSupport.csvFile(rows));
+        csvFile = new MockMultipartFile("file", "disputes.csv", "text/csv", content);
+
+        proofFiles = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            if ("REJECT".equals(BenchmarkSupport.action(i))) {
+                String fileName = BenchmarkSupport.uniqueKey(i) + ".pdf";
+                proofFiles.add(new MockMultipartFile("proofFiles", fileName, "application/pdf", new byte[] {1}));
+            }
+        }
+
+        csvValidationService = new CsvValidationServiceImpl();
+        ReflectionTestUtils.setField(csvValidationService, "proofService", BenchmarkSupport.proofServiceWithAllProofs());
+
+        combinedValidationService = new CombinedValidationServiceImpl();
+        ReflectionTestUtils.setField(combinedValidationService, "proofService", BenchmarkSupport.proofServiceWithAllProofs());
+        ReflectionTestUtils.setField(combinedValidationService, "maxSizeMb", 10);
+        ReflectionTestUtils.setField(combinedValidationService, "allowedExtensions", "pdf,jpg,jpeg,png,doc,docx");
+        ReflectionTestUtils.setField(combinedValidationService, "replaceExisting", true);
+    }
+
+    @Benchmark
+    public CsvValidationService.ValidationResult validateCsv() {
+        return csvValidationService.validateCsv(csvFile);
+    }
+
+    @Benchmark
+    public CombinedValidationService.CombinedValidationResult validateCsvWithProofs() {
+        return combinedValidationService.validateCsvWithProofs(csvFile, proofFiles);
+    }
+}
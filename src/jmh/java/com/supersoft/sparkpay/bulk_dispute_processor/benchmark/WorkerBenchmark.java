@@ -0,0 +1,110 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.benchmark;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.DisputeUpdaterImpl;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.FailureClassifier;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.FileServiceImpl;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobAuditWriter;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobFanOutService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobMessagePublisher;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobPartitionPlanner;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.LiveStatusService;
+import com.supersoft.sparkpay.bulk_dispute_processor.worker.BulkJobWorker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The job worker's per-row loop (parse, stored-error check, real-time validation, batched update)
+ * over a whole file, against an in-memory tbl_disputes, sequentially and in concurrent partitions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"500"})
+    private int batchSize;
+
+    @Param({"1", "4"})
+    private int partitions;
+
+    private String filePath;
+    private BulkJobWorker worker;
+    private BenchmarkSupport.InMemoryDisputeRepository disputeRepository;
+    private BulkDisputeJob job;
+    private JobMessagePublisher.JobMessage jobMessage;
+
+    @Setup
+    public void setUp() throws IOException {
+        filePath = BenchmarkSupport.csvFile(rows).toString();
+        disputeRepository = new BenchmarkSupport.InMemoryDisputeRepository();
+
+        DisputeUpdaterImpl disputeUpdater = new DisputeUpdaterImpl();
+        ReflectionTestUtils.setField(disputeUpdater, "disputeRepository", disputeRepository);
+        ReflectionTestUtils.setField(disputeUpdater, "proofService", BenchmarkSupport.proofServiceWithAllProofs());
+        ReflectionTestUtils.setField(disputeUpdater, "liveStatusService", new LiveStatusService());
+
+        // Not started, so entries are written straight to the no-op repository
+        JobAuditWriter auditWriter = new JobAuditWriter();
+        ReflectionTestUtils.setField(auditWriter, "auditRepository", new BenchmarkSupport.NoOpAuditRepository());
+
+        FileServiceImpl fileService = new FileServiceImpl();
+        ReflectionTestUtils.setField(fileService, "basePath", BenchmarkSupport.DATA_DIR.toString());
+
+        worker = new BulkJobWorker();
+        ReflectionTestUtils.setField(worker, "jobRepository", new BenchmarkSupport.NoOpJobRepository());
+        ReflectionTestUtils.setField(worker, "partitionRepository", new BenchmarkSupport.NoOpPartitionRepository());
+        ReflectionTestUtils.setField(worker, "auditWriter", auditWriter);
+        ReflectionTestUtils.setField(worker, "disputeUpdater", disputeUpdater);
+        ReflectionTestUtils.setField(worker, "failureClassifier", new FailureClassifier());
+        ReflectionTestUtils.setField(worker, "errorRepository", new BenchmarkSupport.NoErrorsSessionErrorRepository());
+        ReflectionTestUtils.setField(worker, "atomicJobUpdater", new BenchmarkSupport.NoOpAtomicJobUpdater());
+        ReflectionTestUtils.setField(worker, "partitionPlanner", new JobPartitionPlanner());
+        ReflectionTestUtils.setField(worker, "fanOutService", new JobFanOutService());
+        ReflectionTestUtils.setField(worker, "fileService", fileService);
+        ReflectionTestUtils.setField(worker, "batchSize", batchSize);
+        ReflectionTestUtils.setField(worker, "checkpointRows", 1000);
+        ReflectionTestUtils.setField(worker, "checkpointIntervalMs", 5000L);
+        ReflectionTestUtils.setField(worker, "partitions", partitions);
+        worker.startPartitionPool();
+
+        jobMessage = new JobMessagePublisher.JobMessage(1L, 1L, filePath, "benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        worker.stopPartitionPool();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetDisputes() {
+        disputeRepository.reset(rows);
+        job = BulkDisputeJob.builder()
+                .id(1L)
+                .sessionId(1L)
+                .status(BulkDisputeJob.JobStatus.RUNNING)
+                .totalRows(rows)
+                .build();
+    }
+
+    @Benchmark
+    public BulkDisputeJob processCsvFile() {
+        ReflectionTestUtils.invokeMethod(worker, "processCsvFile", job, filePath, jobMessage);
+        return job;
+    }
+}
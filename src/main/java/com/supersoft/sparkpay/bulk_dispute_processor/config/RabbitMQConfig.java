@@ -6,8 +6,15 @@ import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RabbitMQConfig {
@@ -15,6 +22,10 @@ public class RabbitMQConfig {
     public static final String BULK_JOBS_QUEUE = "bulk.jobs";
     public static final String BULK_JOBS_DLQ = "bulk.jobs.dlq";
     public static final String BULK_JOBS_EXCHANGE = "bulk.jobs.exchange";
+    public static final String BULK_JOB_CHUNKS_QUEUE = "bulk.jobs.chunks";
+    public static final String BULK_JOBS_RETRY_QUEUE_PREFIX = "bulk.jobs.retry.";
+    public static final String BULK_JOBS_LISTENER_ID = "bulkJobsListener";
+    public static final String BULK_JOB_CHUNKS_LISTENER_ID = "bulkJobChunksListener";
 
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -37,6 +48,66 @@ public class RabbitMQConfig {
         return factory;
     }
 
+    /**
+     * Consumers of bulk.jobs; each runs one job at a time
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory bulkJobsListenerContainerFactory(ConnectionFactory connectionFactory,
+            @Value("${bulk.listener.jobs.concurrency:1}") int concurrency,
+            @Value("${bulk.listener.jobs.max-concurrency:1}") int maxConcurrency,
+            @Value("${bulk.listener.jobs.prefetch:1}") int prefetch,
+            @Value("${bulk.listener.executor:pool}") String executor) {
+        return scaledListenerContainerFactory(connectionFactory, "bulk-jobs-", concurrency, maxConcurrency, prefetch, executor);
+    }
+
+    /**
+     * Consumers of bulk.jobs.chunks; each runs one chunk of a fanned-out job at a time
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory bulkJobChunksListenerContainerFactory(ConnectionFactory connectionFactory,
+            @Value("${bulk.listener.chunks.concurrency:1}") int concurrency,
+            @Value("${bulk.listener.chunks.max-concurrency:1}") int maxConcurrency,
+            @Value("${bulk.listener.chunks.prefetch:1}") int prefetch,
+            @Value("${bulk.listener.executor:pool}") String executor) {
+        return scaledListenerContainerFactory(connectionFactory, "bulk-chunks-", concurrency, maxConcurrency, prefetch, executor);
+    }
+
+    /**
+     * Listener factory starting with the given number of consumers. The ListenerScaler adds consumers
+     * up to maxConcurrency while messages wait in the queue.
+     * Messages take minutes to process, so a prefetch above 1 only holds back work other consumers could take.
+     */
+    private SimpleRabbitListenerContainerFactory scaledListenerContainerFactory(ConnectionFactory connectionFactory,
+            String threadNamePrefix, int concurrency, int maxConcurrency, int prefetch, String executor) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setConcurrentConsumers(Math.max(1, concurrency));
+        factory.setPrefetchCount(Math.max(1, prefetch));
+        factory.setTaskExecutor(listenerExecutor(threadNamePrefix, Math.max(concurrency, maxConcurrency), executor));
+        return factory;
+    }
+
+    /**
+     * Threads for the consumers of one queue: "pool" keeps up to maxConsumers threads for reuse
+     * as consumers are added and removed, "simple" starts a new thread per consumer
+     */
+    private static TaskExecutor listenerExecutor(String threadNamePrefix, int maxConsumers, String executor) {
+        if ("simple".equalsIgnoreCase(executor)) {
+            return new SimpleAsyncTaskExecutor(threadNamePrefix);
+        }
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix(threadNamePrefix);
+        pool.setCorePoolSize(Math.max(1, maxConsumers));
+        // A consumer restarted after a connection failure is started before its old thread exits
+        pool.setMaxPoolSize(Math.max(1, maxConsumers) * 2);
+        pool.setQueueCapacity(0);
+        pool.setDaemon(true);
+        pool.initialize();
+        return pool;
+    }
+
     @Bean
     public Queue bulkJobsQueue() {
         return QueueBuilder.durable(BULK_JOBS_QUEUE)
@@ -45,6 +116,14 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    @Bean
+    public Queue bulkJobChunksQueue() {
+        return QueueBuilder.durable(BULK_JOB_CHUNKS_QUEUE)
+                .withArgument("x-dead-letter-exchange", BULK_JOBS_EXCHANGE)
+                .withArgument("x-dead-letter-routing-key", "dlq")
+                .build();
+    }
+
     @Bean
     public Queue bulkJobsDlq() {
         return QueueBuilder.durable(BULK_JOBS_DLQ).build();
@@ -60,8 +139,71 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(bulkJobsQueue()).to(bulkJobsExchange()).with("job");
     }
 
+    @Bean
+    public Binding bulkJobChunksBinding() {
+        return BindingBuilder.bind(bulkJobChunksQueue()).to(bulkJobsExchange()).with("chunk");
+    }
+
     @Bean
     public Binding bulkJobsDlqBinding() {
         return BindingBuilder.bind(bulkJobsDlq()).to(bulkJobsExchange()).with("dlq");
     }
+
+    /**
+     * One delay queue per retry backoff tier, e.g. bulk.jobs.retry.30000. Nothing consumes them: a job message
+     * waits out the queue's TTL and is dead-lettered back to bulk.jobs. With one TTL per queue, messages expire
+     * in the order they were queued. Queues are named after their delay, so changing the backoff adds new
+     * queues instead of clashing with the arguments of existing ones.
+     */
+    @Bean
+    public Declarables bulkJobsRetryQueues(
+            @Value("${bulk.retry.initial-delay-ms:30000}") long initialDelayMs,
+            @Value("${bulk.retry.multiplier:2.0}") double multiplier,
+            @Value("${bulk.retry.max-delay-ms:300000}") long maxDelayMs) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long delayMs : retryDelayTiers(initialDelayMs, multiplier, maxDelayMs)) {
+            Queue queue = QueueBuilder.durable(BULK_JOBS_RETRY_QUEUE_PREFIX + delayMs)
+                    .ttl((int) Math.min(delayMs, Integer.MAX_VALUE))
+                    .deadLetterExchange(BULK_JOBS_EXCHANGE)
+                    .deadLetterRoutingKey("job")
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(bulkJobsExchange()).with(retryRoutingKey(delayMs)));
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Delays of the retry backoff: initial, initial * multiplier, ... up to and including the maximum
+     */
+    public static List<Long> retryDelayTiers(long initialDelayMs, double multiplier, long maxDelayMs) {
+        List<Long> tiers = new ArrayList<>();
+        long delay = Math.max(1, Math.min(initialDelayMs, maxDelayMs));
+        // Bounded in case of a multiplier barely above 1
+        while (tiers.size() < 32) {
+            tiers.add(delay);
+            long next = Math.min((long) (delay * multiplier), maxDelayMs);
+            if (next <= delay) {
+                break;
+            }
+            delay = next;
+        }
+        return tiers;
+    }
+
+    /**
+     * The shortest tier that waits at least the given delay, or the longest tier
+     */
+    public static long retryTierFor(List<Long> tiers, long delayMs) {
+        for (long tier : tiers) {
+            if (tier >= delayMs) {
+                return tier;
+            }
+        }
+        return tiers.get(tiers.size() - 1);
+    }
+
+    public static String retryRoutingKey(long tierMs) {
+        return "retry." + tierMs;
+    }
 }
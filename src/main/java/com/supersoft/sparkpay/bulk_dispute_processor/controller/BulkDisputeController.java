@@ -9,6 +9,9 @@ import com.supersoft.sparkpay.bulk_dispute_processor.service.EnhancedJobProcesso
 import com.supersoft.sparkpay.bulk_dispute_processor.service.JobResumeService;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.JobRetryService;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.CombinedValidationService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.LiveStatusService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.RetentionService;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -20,13 +23,22 @@ import io.swagger.v3.oas.annotations.media.Encoding;
 import org.springframework.http.MediaType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -61,6 +73,19 @@ public class BulkDisputeController {
     @Autowired
     private CombinedValidationService combinedValidationService;
 
+    @Autowired
+    private LiveStatusService liveStatusService;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    // Listing pages asked for by number without a cursor skip rows with OFFSET; past this many rows the cursor is required
+    @Value("${bulk.listing.max-offset-rows:10000}")
+    private long maxOffsetRows;
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType TEXT_CSV_UTF8 = MediaType.parseMediaType("text/csv; charset=UTF-8");
+
     @Operation(summary = "Upload CSV file and create session", 
                description = "Upload a CSV file containing dispute data and create a new processing session")
     @ApiResponses(value = {
@@ -463,7 +488,8 @@ public class BulkDisputeController {
                         "currentPage": 0,
                         "pageSize": 20,
                         "totalPages": 3,
-                        "totalElements": 45
+                        "totalElements": 45,
+                        "nextCursor": "am9iczpjcmVhdGVkX2F0OkRFU0N8NDU3fD0yMDI1LTEwLTEwVDE0OjU5OjMw"
                       }
                     }
                     """))),
@@ -491,7 +517,11 @@ public class BulkDisputeController {
             @Parameter(description = "Sort by field (id, status, createdAt, completedAt)")
             @RequestParam(value = "sortBy", defaultValue = "createdAt") String sortBy,
             @Parameter(description = "Sort direction (asc, desc)")
-            @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir) {
+            @RequestParam(value = "sortDir", defaultValue = "desc") String sortDir,
+            @Parameter(description = "Cursor from the previous page's nextCursor, for the same sort; takes precedence over page and is required past bulk.listing.max-offset-rows rows")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Whether to count the total")
+            @RequestParam(value = "includeTotal", defaultValue = "true") boolean includeTotal) {
         try {
             // Parse date filters
             LocalDateTime startDateTime = null;
@@ -504,13 +534,32 @@ public class BulkDisputeController {
                 endDateTime = LocalDateTime.parse(endDate);
             }
             
-            // Get jobs with filters
-            List<BulkDisputeJob> jobs = jobRepository.findJobsWithFilters(
-                    page, size, status, sessionId, startDateTime, endDateTime, sortBy, sortDir);
+            if (offsetTooDeep(page, size, cursor)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", offsetTooDeepMessage()));
+            }
             
-            // Get total count for pagination
-            long totalElements = jobRepository.countJobsWithFilters(status, sessionId, startDateTime, endDateTime);
-            int totalPages = (int) Math.ceil((double) totalElements / size);
+            // Get jobs with filters; the first page and cursor pages seek on the sort index, shallow page numbers skip an offset
+            List<BulkDisputeJob> jobs;
+            if (cursor != null && !cursor.trim().isEmpty() || page == 0) {
+                try {
+                    KeysetCursor after = cursor != null && !cursor.trim().isEmpty()
+                            ? KeysetCursor.parse(cursor, BulkDisputeJobRepository.jobOrdering(sortBy, sortDir))
+                            : null;
+                    jobs = jobRepository.findJobsAfter(after, size, status, sessionId, startDateTime, endDateTime, sortBy, sortDir);
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(Map.of("error", "Invalid cursor"));
+                }
+            } else {
+                jobs = jobRepository.findJobsWithFilters(
+                        page, size, status, sessionId, startDateTime, endDateTime, sortBy, sortDir);
+            }
+            
+            String nextCursor = null;
+            if (!jobs.isEmpty() && jobs.size() == size) {
+                nextCursor = BulkDisputeJobRepository.cursorOf(jobs.get(jobs.size() - 1), sortBy, sortDir).encode();
+            }
             
             // Convert jobs to response format
             List<Map<String, Object>> jobResponses = jobs.stream()
@@ -532,14 +581,19 @@ public class BulkDisputeController {
                     })
                     .collect(java.util.stream.Collectors.toList());
             
+            Map<String, Object> pagination = new LinkedHashMap<>();
+            pagination.put("currentPage", page);
+            pagination.put("pageSize", size);
+            if (includeTotal) {
+                long totalElements = jobRepository.countJobsWithFilters(status, sessionId, startDateTime, endDateTime);
+                pagination.put("totalPages", (int) Math.ceil((double) totalElements / size));
+                pagination.put("totalElements", totalElements);
+            }
+            pagination.put("nextCursor", nextCursor);
+            
             return ResponseEntity.ok(Map.of(
                     "jobs", jobResponses,
-                    "pagination", Map.of(
-                            "currentPage", page,
-                            "pageSize", size,
-                            "totalPages", totalPages,
-                            "totalElements", totalElements
-                    )
+                    "pagination", pagination
             ));
             
         } catch (Exception e) {
@@ -608,12 +662,8 @@ public class BulkDisputeController {
     @GetMapping(value = "/sessions/preview/blob/{sessionId}", produces = "text/csv")
     public ResponseEntity<?> previewFileBlob(@PathVariable Long sessionId) {
         try {
-            byte[] fileContent = sessionService.getSessionFileBlob(sessionId);
-            
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"disputes.csv\"")
-                    .header("Content-Type", "text/csv")
-                    .body(fileContent);
+            Path sessionFile = getSessionFile(sessionId);
+            return fileDownload(new FileSystemResource(sessionFile), "disputes.csv", TEXT_CSV);
 
         } catch (Exception e) {
             log.error("Error getting file blob for session {}", sessionId, e);
@@ -623,7 +673,8 @@ public class BulkDisputeController {
     }
 
     @Operation(summary = "Download session CSV with errors", 
-               description = "Download the session CSV file with an optional errors column")
+               description = "Download the session CSV file with an optional errors column. Each row carries the errors of its "
+                       + "validation row number (header is row 1), the numbering validation and preview errors use")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "CSV file downloaded successfully",
                     content = @Content(schema = @Schema(example = """
@@ -649,9 +700,6 @@ public class BulkDisputeController {
             @Parameter(description = "Include errors column in CSV")
             @RequestParam(value = "withErrors", defaultValue = "false") boolean withErrors) {
         try {
-            byte[] fileContent;
-            String filename;
-            
             if (withErrors) {
                 // Get session file path
                 String filePath = sessionService.getSessionFilePath(sessionId);
@@ -659,19 +707,25 @@ public class BulkDisputeController {
                     return ResponseEntity.notFound().build();
                 }
                 
-                // Export with errors
-                fileContent = csvExportService.exportCsvWithErrors(sessionId, filePath);
-                filename = "disputes_with_errors.csv";
-            } else {
-                // Export original file
-                fileContent = sessionService.getSessionFileBlob(sessionId);
-                filename = "disputes.csv";
+                // Export with errors, merged and written to the response as the file is read
+                StreamingResponseBody body = outputStream -> {
+                    try {
+                        csvExportService.exportCsvWithErrors(sessionId, filePath, outputStream);
+                    } catch (Exception e) {
+                        // The response is already committed, so the client sees a truncated file
+                        log.error("Error streaming CSV with errors for session {}", sessionId, e);
+                        throw e;
+                    }
+                };
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"disputes_with_errors.csv\"")
+                        .contentType(TEXT_CSV)
+                        .body(body);
             }
             
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                    .header("Content-Type", "text/csv")
-                    .body(fileContent);
+            // Stream the original file
+            Path sessionFile = getSessionFile(sessionId);
+            return fileDownload(new FileSystemResource(sessionFile), "disputes.csv", TEXT_CSV);
 
         } catch (Exception e) {
             log.error("Error downloading CSV for session {} withErrors={}", sessionId, withErrors, e);
@@ -714,7 +768,8 @@ public class BulkDisputeController {
                         "currentPage": 0,
                         "pageSize": 20,
                         "totalPages": 5,
-                        "totalElements": 100
+                        "totalElements": 100,
+                        "nextCursor": "Y3JlYXRlZF9hdHwxMjR8PTIwMjUtMTAtMTBUMDg6MzA6MTU"
                       }
                     }
                     """))),
@@ -738,23 +793,47 @@ public class BulkDisputeController {
             @Parameter(description = "Filter by institution code")
             @RequestParam(value = "institutionCode", required = false) String institutionCode,
             @Parameter(description = "Filter by merchant ID")
-            @RequestParam(value = "merchantId", required = false) String merchantId) {
+            @RequestParam(value = "merchantId", required = false) String merchantId,
+            @Parameter(description = "Cursor from the previous page's nextCursor; takes precedence over page and is required past bulk.listing.max-offset-rows rows")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Whether to count the total (cached briefly per filter combination)")
+            @RequestParam(value = "includeTotal", defaultValue = "true") boolean includeTotal) {
         try {
-            BulkDisputeSessionService.SessionListResult result = sessionService.getSessions(page, size, status, uploadedBy, institutionCode, merchantId);
+            if (offsetTooDeep(page, size, cursor)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", offsetTooDeepMessage()));
+            }
+            
+            KeysetCursor after = null;
+            if (cursor != null && !cursor.trim().isEmpty()) {
+                try {
+                    after = KeysetCursor.parse(cursor);
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(Map.of("error", "Invalid cursor"));
+                }
+            }
+            
+            BulkDisputeSessionService.SessionListResult result = sessionService.getSessions(after, page, size, includeTotal,
+                    status, uploadedBy, institutionCode, merchantId);
             
             if (!result.isSuccess()) {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                         .body(Map.of("error", result.getError()));
             }
             
+            Map<String, Object> pagination = new LinkedHashMap<>();
+            pagination.put("currentPage", result.getCurrentPage());
+            pagination.put("pageSize", result.getPageSize());
+            if (result.hasTotal()) {
+                pagination.put("totalPages", result.getTotalPages());
+                pagination.put("totalElements", result.getTotalElements());
+            }
+            pagination.put("nextCursor", result.getNextCursor());
+            
             return ResponseEntity.ok(Map.of(
                     "sessions", result.getSessions(),
-                    "pagination", Map.of(
-                            "currentPage", result.getCurrentPage(),
-                            "pageSize", result.getPageSize(),
-                            "totalPages", result.getTotalPages(),
-                            "totalElements", result.getTotalElements()
-                    )
+                    "pagination", pagination
             ));
             
         } catch (Exception e) {
@@ -764,6 +843,18 @@ public class BulkDisputeController {
         }
     }
 
+    /**
+     * Whether a listing page asked for by number, without a cursor, would skip more than maxOffsetRows rows
+     */
+    private boolean offsetTooDeep(int page, int size, String cursor) {
+        boolean hasCursor = cursor != null && !cursor.trim().isEmpty();
+        return !hasCursor && maxOffsetRows > 0 && (long) page * size > maxOffsetRows;
+    }
+
+    private String offsetTooDeepMessage() {
+        return "Pages past the first " + maxOffsetRows + " rows must be read with the previous page's nextCursor";
+    }
+
     // ===============================
     // PROOF UPLOAD ENDPOINTS
     // ===============================
@@ -865,15 +956,10 @@ public class BulkDisputeController {
             @PathVariable String uniqueCode) {
         
         try {
-            byte[] fileContent = proofService.downloadProof(uniqueCode);
-            String filePath = proofService.getProofFilePath(uniqueCode);
-            
-            // Extract filename from path
-            String filename = filePath.substring(filePath.lastIndexOf("/") + 1);
+            Resource proof = proofService.getProofResource(uniqueCode);
             
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                    .body(fileContent);
+            // Content type follows the file extension
+            return fileDownload(proof, proof.getFilename(), null);
             
         } catch (IOException e) {
             log.warn("Proof file not found for uniqueCode: {}", uniqueCode);
@@ -926,6 +1012,115 @@ public class BulkDisputeController {
         }
     }
 
+    @Operation(summary = "Get live status cache statistics", 
+               description = "Hit, miss, load and eviction counts of this node's live dispute status cache since startup")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Cache statistics retrieved successfully",
+                    content = @Content(schema = @Schema(example = """
+                    {
+                      "hits": 18250,
+                      "misses": 1230,
+                      "hitRate": 0.9369,
+                      "loads": 64,
+                      "evictions": 0,
+                      "size": 1230
+                    }
+                    """)))
+    })
+    @GetMapping("/live-status/cache-stats")
+    public ResponseEntity<?> getLiveStatusCacheStats() {
+        LiveStatusService.CacheStats stats = liveStatusService.getCacheStats();
+        return ResponseEntity.ok(Map.of(
+                "hits", stats.getHits(),
+                "misses", stats.getMisses(),
+                "hitRate", stats.getHitRate(),
+                "loads", stats.getLoads(),
+                "evictions", stats.getEvictions(),
+                "size", stats.getSize()
+        ));
+    }
+
+    @Operation(summary = "Get retention purge statistics",
+               description = "Rows and files deleted by this node's retention purge since startup, and the last run's counts")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Retention statistics retrieved successfully",
+                    content = @Content(schema = @Schema(example = """
+                    {
+                      "runs": 12,
+                      "skippedRuns": 3,
+                      "failedRuns": 0,
+                      "sessionsPurged": 140,
+                      "sessionErrorsDeleted": 52310,
+                      "auditRowsDeleted": 8120,
+                      "filesDeleted": 431,
+                      "bytesDeleted": 918273645,
+                      "proofsDeleted": 0,
+                      "lastRun": {
+                        "dryRun": false,
+                        "startedAt": "2024-01-15T10:30:00",
+                        "durationMs": 8410,
+                        "sessions": 9,
+                        "sessionErrors": 2210,
+                        "auditRows": 540,
+                        "files": 27,
+                        "bytes": 48120934,
+                        "proofs": 0
+                      }
+                    }
+                    """)))
+    })
+    @GetMapping("/retention/stats")
+    public ResponseEntity<?> getRetentionStats() {
+        RetentionService.RetentionStats stats = retentionService.getStats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("runs", stats.getRuns());
+        response.put("skippedRuns", stats.getSkippedRuns());
+        response.put("failedRuns", stats.getFailedRuns());
+        response.put("sessionsPurged", stats.getSessionsPurged());
+        response.put("sessionErrorsDeleted", stats.getSessionErrorsDeleted());
+        response.put("auditRowsDeleted", stats.getAuditRowsDeleted());
+        response.put("filesDeleted", stats.getFilesDeleted());
+        response.put("bytesDeleted", stats.getBytesDeleted());
+        response.put("proofsDeleted", stats.getProofsDeleted());
+        response.put("lastRun", stats.getLastRun() != null ? retentionRunToMap(stats.getLastRun()) : null);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Dry-run the retention purge",
+               description = "Count what the retention purge would delete now, without deleting anything")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Dry run completed"),
+        @ApiResponse(responseCode = "409", description = "The purge is already running on this or another node",
+                    content = @Content(schema = @Schema(example = """
+                    {
+                      "error": "Retention purge is already running"
+                    }
+                    """)))
+    })
+    @PostMapping("/retention/dry-run")
+    public ResponseEntity<?> dryRunRetention() {
+        RetentionService.RunResult result = retentionService.run(true);
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Retention purge is already running"));
+        }
+        return ResponseEntity.ok(retentionRunToMap(result));
+    }
+
+    private static Map<String, Object> retentionRunToMap(RetentionService.RunResult run) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("dryRun", run.isDryRun());
+        map.put("startedAt", run.getStartedAt());
+        map.put("durationMs", run.getDurationMs());
+        map.put("sessions", run.getSessions());
+        map.put("sessionErrors", run.getSessionErrors());
+        map.put("auditRows", run.getAuditRows());
+        map.put("files", run.getFiles());
+        map.put("bytes", run.getBytes());
+        map.put("proofs", run.getProofs());
+        return map;
+    }
+
     @Operation(summary = "Delete proof file for dispute", 
                description = "Delete the proof file for a specific dispute")
     @ApiResponses(value = {
@@ -1276,19 +1471,14 @@ public class BulkDisputeController {
                         .body(Map.of("error", "Error report file not found"));
             }
             
-            // Read the error report file
-            byte[] fileContent = java.nio.file.Files.readAllBytes(errorReportFile.toPath());
-            
+
             // Generate filename with job ID and timestamp
             String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
             String filename = String.format("error_report_job_%d_%s.csv", jobId, timestamp);
             
             log.info("Successfully prepared error report download for job: {}, file: {}", jobId, filename);
             
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                    .header("Content-Type", "text/csv; charset=UTF-8")
-                    .body(fileContent);
+            return fileDownload(new FileSystemResource(errorReportFile), filename, TEXT_CSV_UTF8);
             
         } catch (Exception e) {
             log.error("Error downloading error report for job {}: {}", jobId, e.getMessage(), e);
@@ -1297,4 +1487,33 @@ public class BulkDisputeController {
         }
     }
 
+    /**
+     * Session file on disk, failing if the session or its file is gone
+     */
+    private Path getSessionFile(Long sessionId) throws IOException {
+        String filePath = sessionService.getSessionFilePath(sessionId);
+        if (filePath == null) {
+            throw new IOException("Session not found");
+        }
+        Path sessionFile = Paths.get(filePath);
+        if (!Files.isRegularFile(sessionFile)) {
+            throw new IOException("File not found");
+        }
+        return sessionFile;
+    }
+
+    /**
+     * Attachment response that streams the file from disk with a fixed-size buffer.
+     * Spring answers Range requests on resource bodies with 206 partial content and
+     * advertises Accept-Ranges, so interrupted downloads can be resumed.
+     */
+    private ResponseEntity<Resource> fileDownload(Resource file, String filename, MediaType contentType) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (contentType != null) {
+            response.contentType(contentType);
+        }
+        return response.body(file);
+    }
+
 }
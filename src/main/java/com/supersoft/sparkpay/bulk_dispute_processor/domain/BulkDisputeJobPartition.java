@@ -0,0 +1,39 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A range of rows of a job's file, processed concurrently with the job's other partitions.
+ * Each partition covers whole records between two byte offsets and keeps its own checkpoint;
+ * row numbers are absolute within the file, as in {@link BulkDisputeJob#getLastProcessedRow()}.
+ * When a job is fanned out, each partition is a chunk message that any node may claim and run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDisputeJobPartition {
+    private Long id;
+    private Long jobId;
+    private int partitionIndex;
+    private long startOffset;
+    private long endOffset;
+    private int firstRow;
+    private int lastRow;
+    private PartitionStatus status;
+    private int lastProcessedRow;
+    private int processedRows;
+    private int successCount;
+    private int failureCount;
+    private String errorReportPath;
+    private LocalDateTime updatedAt;
+
+    public enum PartitionStatus {
+        PENDING, RUNNING, COMPLETED
+    }
+}
@@ -23,6 +23,8 @@ public class BulkDisputeSession {
     private int totalRows;
     private int validRows;
     private int invalidRows;
+    // Stored validation errors; maintained by the session error repository, not written by save
+    private int errorCount;
     private int version;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -9,6 +9,8 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -18,7 +20,7 @@ public class BulkDisputeJobAuditRepository {
     private JdbcTemplate jdbcTemplate;
 
     public BulkDisputeJobAudit save(BulkDisputeJobAudit audit) {
-        String sql = "INSERT INTO bulk_dispute_job_audit (job_id, action, message) VALUES (?, ?, ?)";
+        String sql = "INSERT INTO bulk_dispute_job_audit (job_id, action, message, created_at) VALUES (?, ?, ?, ?)";
         
         KeyHolder keyHolder = new GeneratedKeyHolder();
         
@@ -27,6 +29,7 @@ public class BulkDisputeJobAuditRepository {
             ps.setLong(1, audit.getJobId());
             ps.setString(2, audit.getAction());
             ps.setString(3, audit.getMessage());
+            ps.setTimestamp(4, createdAt(audit));
             return ps;
         }, keyHolder);
         
@@ -34,8 +37,35 @@ public class BulkDisputeJobAuditRepository {
         return audit;
     }
 
+    /**
+     * Insert several audit entries with a single multi-row INSERT. Generated ids are not read back.
+     * Each entry keeps the time it was recorded, however long it waited to be written.
+     */
+    public int saveAll(List<BulkDisputeJobAudit> audits) {
+        if (audits == null || audits.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder("INSERT INTO bulk_dispute_job_audit (job_id, action, message, created_at) VALUES ");
+        Object[] params = new Object[audits.size() * 4];
+        for (int i = 0; i < audits.size(); i++) {
+            BulkDisputeJobAudit audit = audits.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?)");
+            params[i * 4] = audit.getJobId();
+            params[i * 4 + 1] = audit.getAction();
+            params[i * 4 + 2] = audit.getMessage();
+            params[i * 4 + 3] = createdAt(audit);
+        }
+
+        return jdbcTemplate.update(sql.toString(), params);
+    }
+
     public List<BulkDisputeJobAudit> findByJobId(Long jobId) {
-        String sql = "SELECT * FROM bulk_dispute_job_audit WHERE job_id = ? ORDER BY created_at ASC";
+        // Entries recorded within the same second share created_at; id keeps them in insertion order
+        String sql = "SELECT * FROM bulk_dispute_job_audit WHERE job_id = ? ORDER BY created_at ASC, id ASC";
         return jdbcTemplate.query(sql, (rs, rowNum) -> BulkDisputeJobAudit.builder()
                 .id(rs.getLong("id"))
                 .jobId(rs.getLong("job_id"))
@@ -44,4 +74,8 @@ public class BulkDisputeJobAuditRepository {
                 .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
                 .build(), jobId);
     }
+
+    private static Timestamp createdAt(BulkDisputeJobAudit audit) {
+        return Timestamp.valueOf(audit.getCreatedAt() != null ? audit.getCreatedAt() : LocalDateTime.now());
+    }
 }
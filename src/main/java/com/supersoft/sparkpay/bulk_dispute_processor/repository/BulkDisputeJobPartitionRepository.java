@@ -0,0 +1,145 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class BulkDisputeJobPartitionRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final RowMapper<BulkDisputeJobPartition> ROW_MAPPER = (rs, rowNum) -> BulkDisputeJobPartition.builder()
+            .id(rs.getLong("id"))
+            .jobId(rs.getLong("job_id"))
+            .partitionIndex(rs.getInt("partition_index"))
+            .startOffset(rs.getLong("start_offset"))
+            .endOffset(rs.getLong("end_offset"))
+            .firstRow(rs.getInt("first_row"))
+            .lastRow(rs.getInt("last_row"))
+            .status(BulkDisputeJobPartition.PartitionStatus.valueOf(rs.getString("status")))
+            .lastProcessedRow(rs.getInt("last_processed_row"))
+            .processedRows(rs.getInt("processed_rows"))
+            .successCount(rs.getInt("success_count"))
+            .failureCount(rs.getInt("failure_count"))
+            .errorReportPath(rs.getString("error_report_path"))
+            .updatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null)
+            .build();
+
+    /**
+     * Partitions of a job in file order, empty if the job is not partitioned
+     */
+    public List<BulkDisputeJobPartition> findByJobId(Long jobId) {
+        String sql = "SELECT * FROM bulk_dispute_job_partition WHERE job_id = ? ORDER BY partition_index";
+        return jdbcTemplate.query(sql, ROW_MAPPER, jobId);
+    }
+
+    public Optional<BulkDisputeJobPartition> findById(Long id) {
+        String sql = "SELECT * FROM bulk_dispute_job_partition WHERE id = ?";
+        List<BulkDisputeJobPartition> partitions = jdbcTemplate.query(sql, ROW_MAPPER, id);
+        return partitions.isEmpty() ? Optional.empty() : Optional.of(partitions.get(0));
+    }
+
+    /**
+     * Store the partition plan of a job and return it with generated ids
+     */
+    public List<BulkDisputeJobPartition> saveAll(Long jobId, List<BulkDisputeJobPartition> partitions) {
+        String sql = "INSERT INTO bulk_dispute_job_partition (job_id, partition_index, start_offset, end_offset, first_row, last_row, status, last_processed_row) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate(sql, partitions, partitions.size(), (ps, partition) -> {
+            ps.setLong(1, jobId);
+            ps.setInt(2, partition.getPartitionIndex());
+            ps.setLong(3, partition.getStartOffset());
+            ps.setLong(4, partition.getEndOffset());
+            ps.setInt(5, partition.getFirstRow());
+            ps.setInt(6, partition.getLastRow());
+            ps.setString(7, partition.getStatus().name());
+            ps.setInt(8, partition.getLastProcessedRow());
+        });
+
+        // Read back rather than rely on batch generated keys
+        return findByJobId(jobId);
+    }
+
+    /**
+     * Persist a partition checkpoint: the last fully processed row and the partition's counters at that row.
+     * A checkpoint never moves the row backwards, and it refreshes updated_at so a claim stays live.
+     */
+    public boolean checkpoint(Long partitionId, int lastProcessedRow, int processedRows, int successCount, int failureCount) {
+        String sql = "UPDATE bulk_dispute_job_partition SET last_processed_row = ?, processed_rows = ?, success_count = ?, failure_count = ?, " +
+                "updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ? AND last_processed_row <= ?";
+        return jdbcTemplate.update(sql, lastProcessedRow, processedRows, successCount, failureCount,
+                partitionId, lastProcessedRow) > 0;
+    }
+
+    /**
+     * Mark a partition completed along with the error report of its failed rows, if any
+     */
+    public void markCompleted(Long partitionId, String errorReportPath) {
+        String sql = "UPDATE bulk_dispute_job_partition SET status = 'COMPLETED', error_report_path = ? WHERE id = ?";
+        jdbcTemplate.update(sql, errorReportPath, partitionId);
+    }
+
+    /**
+     * Atomically claim a partition for this node. A RUNNING partition can be taken over once it
+     * has not checkpointed since staleBefore, as its node is assumed to be gone.
+     */
+    public boolean claim(Long partitionId, LocalDateTime staleBefore) {
+        String sql = "UPDATE bulk_dispute_job_partition SET status = 'RUNNING', updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ? AND (status = 'PENDING' OR (status = 'RUNNING' AND updated_at < ?))";
+        return jdbcTemplate.update(sql, partitionId, Timestamp.valueOf(staleBefore)) > 0;
+    }
+
+    /**
+     * Give up a claimed partition so it can be dispatched again; its checkpoint is kept
+     */
+    public void release(Long partitionId) {
+        String sql = "UPDATE bulk_dispute_job_partition SET status = 'PENDING' WHERE id = ? AND status = 'RUNNING'";
+        jdbcTemplate.update(sql, partitionId);
+    }
+
+    /**
+     * Give up a claim whose node has not checkpointed since staleBefore, unless it was taken over meanwhile
+     */
+    public boolean releaseStale(Long partitionId, LocalDateTime staleBefore) {
+        String sql = "UPDATE bulk_dispute_job_partition SET status = 'PENDING' WHERE id = ? AND status = 'RUNNING' AND updated_at < ?";
+        return jdbcTemplate.update(sql, partitionId, Timestamp.valueOf(staleBefore)) > 0;
+    }
+
+    public int countUnfinished(Long jobId) {
+        String sql = "SELECT COUNT(*) FROM bulk_dispute_job_partition WHERE job_id = ? AND status <> 'COMPLETED'";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, jobId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Claimed partitions of running jobs that have not checkpointed since staleBefore
+     */
+    public List<BulkDisputeJobPartition> findStaleRunning(LocalDateTime staleBefore) {
+        String sql = "SELECT p.* FROM bulk_dispute_job_partition p JOIN bulk_dispute_job j ON j.id = p.job_id " +
+                "WHERE p.status = 'RUNNING' AND p.updated_at < ? AND j.status = 'RUNNING'";
+        return jdbcTemplate.query(sql, ROW_MAPPER, Timestamp.valueOf(staleBefore));
+    }
+
+    /**
+     * Set the job's progress counters to the sum of its partitions' checkpoints, so progress
+     * reads the same for partitioned and sequential jobs. A job without partitions is left alone.
+     */
+    public void rollUpJobProgress(Long jobId) {
+        String sql = "UPDATE bulk_dispute_job j, " +
+                "(SELECT COUNT(*) partitions, COALESCE(SUM(processed_rows), 0) processed, COALESCE(SUM(success_count), 0) success, " +
+                "COALESCE(SUM(failure_count), 0) failure FROM bulk_dispute_job_partition WHERE job_id = ?) p " +
+                "SET j.processed_rows = p.processed, j.success_count = p.success, j.failure_count = p.failure " +
+                "WHERE j.id = ? AND p.partitions > 0";
+        jdbcTemplate.update(sql, jobId, jobId);
+    }
+}
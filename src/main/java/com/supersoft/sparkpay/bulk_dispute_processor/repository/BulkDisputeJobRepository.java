@@ -1,6 +1,7 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.repository;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -50,6 +51,24 @@ public class BulkDisputeJobRepository {
         }
     };
 
+    // Columns shown in job listings; leaves out failure_reason (TEXT) and the retry bookkeeping
+    private static final String LIST_COLUMNS = "id, session_id, job_ref, status, total_rows, processed_rows, success_count, failure_count, error_report_path, started_at, completed_at, created_at";
+
+    private static final RowMapper<BulkDisputeJob> LIST_ROW_MAPPER = (rs, rowNum) -> BulkDisputeJob.builder()
+            .id(rs.getLong("id"))
+            .sessionId(rs.getLong("session_id"))
+            .jobRef(rs.getString("job_ref"))
+            .status(BulkDisputeJob.JobStatus.valueOf(rs.getString("status")))
+            .totalRows(rs.getInt("total_rows"))
+            .processedRows(rs.getInt("processed_rows"))
+            .successCount(rs.getInt("success_count"))
+            .failureCount(rs.getInt("failure_count"))
+            .errorReportPath(rs.getString("error_report_path"))
+            .startedAt(rs.getTimestamp("started_at") != null ? rs.getTimestamp("started_at").toLocalDateTime() : null)
+            .completedAt(rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toLocalDateTime() : null)
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
     public BulkDisputeJob save(BulkDisputeJob job) {
         if (job.getId() == null) {
             return insert(job);
@@ -119,10 +138,94 @@ public class BulkDisputeJobRepository {
         return jdbcTemplate.query(sql, ROW_MAPPER, sessionId);
     }
 
+    /**
+     * Page of jobs for a listing, with only the listed columns
+     */
     public List<BulkDisputeJob> findJobsWithFilters(int page, int size, String status, Long sessionId, 
             LocalDateTime startDate, LocalDateTime endDate, String sortBy, String sortDir) {
-        StringBuilder sql = new StringBuilder("SELECT * FROM bulk_dispute_job WHERE 1=1");
         List<Object> params = new java.util.ArrayList<>();
+        StringBuilder sql = jobListQuery(params, status, sessionId, startDate, endDate);
+        
+        // Add sorting, with id as tie-breaker so pages do not overlap
+        String sortColumn = sortColumn(sortBy);
+        String direction = sortDirection(sortDir);
+        sql.append(" ORDER BY ").append(sortColumn).append(" ").append(direction).append(", id ").append(direction);
+        
+        // Add pagination
+        sql.append(" LIMIT ? OFFSET ?");
+        params.add(size);
+        params.add(page * size);
+        
+        return jdbcTemplate.query(sql.toString(), LIST_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Page of jobs after the cursor, seeking on the (sort column, id) index so every page costs the same.
+     * NULL sort values (jobs not started or completed yet) come first ascending and last descending, as MySQL orders them.
+     * @param cursor Cursor of the last job of the previous page, made by {@link #cursorOf}, or null for the first page
+     */
+    public List<BulkDisputeJob> findJobsAfter(KeysetCursor cursor, int size, String status, Long sessionId,
+            LocalDateTime startDate, LocalDateTime endDate, String sortBy, String sortDir) {
+        List<Object> params = new java.util.ArrayList<>();
+        StringBuilder sql = jobListQuery(params, status, sessionId, startDate, endDate);
+        
+        String sortColumn = sortColumn(sortBy);
+        String direction = sortDirection(sortDir);
+        boolean descending = "DESC".equals(direction);
+        String after = descending ? "<" : ">";
+        if (cursor != null) {
+            Object value = cursor.getValue() != null ? sortValue(sortColumn, cursor.getValue()) : null;
+            if (value == null && descending) {
+                sql.append(" AND (").append(sortColumn).append(" IS NULL AND id < ?)");
+                params.add(cursor.getId());
+            } else if (value == null) {
+                sql.append(" AND ((").append(sortColumn).append(" IS NULL AND id > ?) OR ").append(sortColumn).append(" IS NOT NULL)");
+                params.add(cursor.getId());
+            } else {
+                sql.append(" AND (").append(sortColumn).append(" ").append(after).append(" ? OR (")
+                        .append(sortColumn).append(" = ? AND id ").append(after).append(" ?)");
+                if (descending && isNullable(sortColumn)) {
+                    sql.append(" OR ").append(sortColumn).append(" IS NULL");
+                }
+                sql.append(")");
+                params.add(value);
+                params.add(value);
+                params.add(cursor.getId());
+            }
+        }
+        
+        sql.append(" ORDER BY ").append(sortColumn).append(" ").append(direction).append(", id ").append(direction);
+        sql.append(" LIMIT ?");
+        params.add(size);
+        
+        return jdbcTemplate.query(sql.toString(), LIST_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Cursor pointing after the given job in a listing with this sort
+     */
+    public static KeysetCursor cursorOf(BulkDisputeJob job, String sortBy, String sortDir) {
+        String sortColumn = sortColumn(sortBy);
+        Object value = switch (sortColumn) {
+            case "id" -> job.getId();
+            case "status" -> job.getStatus().name();
+            case "session_id" -> job.getSessionId();
+            case "started_at" -> job.getStartedAt();
+            case "completed_at" -> job.getCompletedAt();
+            default -> job.getCreatedAt();
+        };
+        return new KeysetCursor(jobOrdering(sortBy, sortDir), value != null ? value.toString() : null, job.getId());
+    }
+
+    /**
+     * Name of a listing's ordering, which its cursors are tied to
+     */
+    public static String jobOrdering(String sortBy, String sortDir) {
+        return "jobs:" + sortColumn(sortBy) + ":" + sortDirection(sortDir);
+    }
+
+    private StringBuilder jobListQuery(List<Object> params, String status, Long sessionId, LocalDateTime startDate, LocalDateTime endDate) {
+        StringBuilder sql = new StringBuilder("SELECT " + LIST_COLUMNS + " FROM bulk_dispute_job WHERE 1=1");
         
         // Add filters
         if (status != null && !status.trim().isEmpty()) {
@@ -145,17 +248,7 @@ public class BulkDisputeJobRepository {
             params.add(java.sql.Timestamp.valueOf(endDate));
         }
         
-        // Add sorting
-        String validSortBy = isValidSortField(sortBy) ? sortBy : "created_at";
-        String validSortDir = "desc".equalsIgnoreCase(sortDir) ? "DESC" : "ASC";
-        sql.append(" ORDER BY ").append(validSortBy).append(" ").append(validSortDir);
-        
-        // Add pagination
-        sql.append(" LIMIT ? OFFSET ?");
-        params.add(size);
-        params.add(page * size);
-        
-        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, params.toArray());
+        return sql;
     }
     
     public long countJobsWithFilters(String status, Long sessionId, LocalDateTime startDate, LocalDateTime endDate) {
@@ -194,6 +287,24 @@ public class BulkDisputeJobRepository {
         return jdbcTemplate.query(sql, ROW_MAPPER, Timestamp.valueOf(now), maxRetryAttempts);
     }
 
+    /**
+     * PENDING retries that were due before the given time but have not been picked up, oldest first.
+     * Their delayed message should have reached a worker by then, so it is presumed lost.
+     */
+    public List<BulkDisputeJob> findOverdueRetries(LocalDateTime dueBefore, int limit) {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM bulk_dispute_job WHERE status = 'PENDING' AND next_retry_at IS NOT NULL " +
+                "AND next_retry_at <= ? ORDER BY next_retry_at ASC LIMIT ?";
+        return jdbcTemplate.query(sql, LIST_ROW_MAPPER, Timestamp.valueOf(dueBefore), limit);
+    }
+
+    /**
+     * Ids of the jobs in a status, read from idx_status alone
+     */
+    public List<Long> findIdsByStatus(BulkDisputeJob.JobStatus status, int limit) {
+        String sql = "SELECT id FROM bulk_dispute_job WHERE status = ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.queryForList(sql, Long.class, status.name(), limit);
+    }
+
     /**
      * Find jobs by status
      */
@@ -202,9 +313,45 @@ public class BulkDisputeJobRepository {
         return jdbcTemplate.query(sql, ROW_MAPPER, status.name());
     }
 
-    private boolean isValidSortField(String sortBy) {
-        return sortBy != null && (sortBy.equals("id") || sortBy.equals("status") || 
-                sortBy.equals("created_at") || sortBy.equals("completed_at") || 
-                sortBy.equals("started_at") || sortBy.equals("session_id"));
+    /**
+     * Column for a sort field, given as the column or its camelCase name; anything else sorts by created_at
+     */
+    private static String sortColumn(String sortBy) {
+        if (sortBy == null) {
+            return "created_at";
+        }
+        return switch (sortBy) {
+            case "id" -> "id";
+            case "status" -> "status";
+            case "session_id", "sessionId" -> "session_id";
+            case "started_at", "startedAt" -> "started_at";
+            case "completed_at", "completedAt" -> "completed_at";
+            default -> "created_at";
+        };
+    }
+
+    private static String sortDirection(String sortDir) {
+        return "desc".equalsIgnoreCase(sortDir) ? "DESC" : "ASC";
+    }
+
+    private static boolean isNullable(String sortColumn) {
+        return sortColumn.equals("started_at") || sortColumn.equals("completed_at");
+    }
+
+    /**
+     * Cursor value of a sort column as a query parameter.
+     * The status ENUM sorts by its position in the column definition, which matches JobStatus, so it is compared by position too.
+     * @throws IllegalArgumentException if the cursor value does not fit the column
+     */
+    private static Object sortValue(String sortColumn, String value) {
+        try {
+            return switch (sortColumn) {
+                case "id", "session_id" -> Long.parseLong(value);
+                case "status" -> BulkDisputeJob.JobStatus.valueOf(value).ordinal() + 1;
+                default -> Timestamp.valueOf(LocalDateTime.parse(value));
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor value for " + sortColumn + ": " + value, e);
+        }
     }
 }
@@ -5,13 +5,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 @Slf4j
 @Repository
 public class BulkDisputeSessionErrorRepository {
 
+    private static final int SAVE_BATCH_SIZE = 1000;
+
+    // Connector/J streams a result row by row for this fetch size; any other is ignored without useCursorFetch
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -19,6 +29,14 @@ public class BulkDisputeSessionErrorRepository {
      * Save validation errors for a session
      */
     public void saveErrors(Long sessionId, List<SessionError> errors) {
+        saveErrors(sessionId, errors, SessionError::getRowNumber, SessionError::getColumnName, SessionError::getErrorMessage);
+    }
+
+    /**
+     * Save validation errors for a session straight from the validator's error list, in batches
+     */
+    public <E> void saveErrors(Long sessionId, List<E> errors, ToIntFunction<E> rowNumber,
+                               Function<E, String> columnName, Function<E, String> errorMessage) {
         if (errors == null || errors.isEmpty()) {
             return;
         }
@@ -26,17 +44,24 @@ public class BulkDisputeSessionErrorRepository {
         String sql = "INSERT INTO bulk_dispute_session_errors (session_id, `row_number`, column_name, error_message) VALUES (?, ?, ?, ?)";
         
         try {
-            jdbcTemplate.batchUpdate(sql, errors, errors.size(),
+            jdbcTemplate.batchUpdate(sql, errors, SAVE_BATCH_SIZE,
                     (ps, error) -> {
                         ps.setLong(1, sessionId);
-                        ps.setInt(2, error.getRowNumber());
-                        ps.setString(3, error.getColumnName());
-                        ps.setString(4, error.getErrorMessage());
+                        ps.setInt(2, rowNumber.applyAsInt(error));
+                        ps.setString(3, columnName.apply(error));
+                        ps.setString(4, errorMessage.apply(error));
                     });
             log.info("Saved {} validation errors for session {}", errors.size(), sessionId);
         } catch (Exception e) {
             log.error("Error saving validation errors for session {}: {}", sessionId, e.getMessage());
         }
+
+        try {
+            saveErrorRows(sessionId);
+            updateErrorCount(sessionId);
+        } catch (Exception e) {
+            log.error("Error storing error rows for session {}: {}", sessionId, e.getMessage());
+        }
     }
 
     /**
@@ -58,10 +83,45 @@ public class BulkDisputeSessionErrorRepository {
         }
     }
 
+    /**
+     * Walk all errors for a session in row order without loading them into memory.
+     * Rows are streamed from a forward-only result set, so the connection is busy until the walk ends;
+     * failures are propagated so a caller streaming an export can abort instead of writing partial results.
+     */
+    public void forEachErrorBySessionId(Long sessionId, Consumer<SessionError> action) {
+        String sql = "SELECT `row_number`, column_name, error_message FROM bulk_dispute_session_errors WHERE session_id = ? ORDER BY `row_number`, id";
+
+        jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(STREAMING_FETCH_SIZE);
+                    ps.setLong(1, sessionId);
+                    return ps;
+                },
+                rs -> {
+                    action.accept(new SessionError(
+                            rs.getInt("row_number"),
+                            rs.getString("column_name"),
+                            rs.getString("error_message")));
+                });
+    }
+
     /**
      * Get errors for specific rows (for pagination)
      */
     public List<SessionError> getErrorsForRows(Long sessionId, List<Integer> rowNumbers) {
+        try {
+            return findErrorsForRows(sessionId, rowNumbers);
+        } catch (Exception e) {
+            log.error("Error getting validation errors for session {} rows {}: {}", sessionId, rowNumbers, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Get errors for specific rows, propagating database errors so callers can tell a failed lookup
+     * from rows without stored errors
+     */
+    public List<SessionError> findErrorsForRows(Long sessionId, List<Integer> rowNumbers) {
         if (rowNumbers == null || rowNumbers.isEmpty()) {
             return List.of();
         }
@@ -78,17 +138,12 @@ public class BulkDisputeSessionErrorRepository {
             params[i + 1] = rowNumbers.get(i);
         }
         
-        try {
-            return jdbcTemplate.query(sql, (rs, rowNum) -> 
-                new SessionError(
-                    rs.getInt("row_number"),
-                    rs.getString("column_name"),
-                    rs.getString("error_message")
-                ), params);
-        } catch (Exception e) {
-            log.error("Error getting validation errors for session {} rows {}: {}", sessionId, rowNumbers, e.getMessage());
-            return List.of();
-        }
+        return jdbcTemplate.query(sql, (rs, rowNum) -> 
+            new SessionError(
+                rs.getInt("row_number"),
+                rs.getString("column_name"),
+                rs.getString("error_message")
+            ), params);
     }
 
     /**
@@ -115,6 +170,49 @@ public class BulkDisputeSessionErrorRepository {
         }
     }
 
+    /**
+     * Load the index of rows with errors for a session from its stored error rows, without reading the messages.
+     * Sessions stored before error rows were kept get them computed and stored on first use.
+     * Unlike the per-row lookups, failures are propagated so a job never runs against an incomplete index,
+     * and so are failures to load the messages of a page of error rows later.
+     */
+    public SessionErrorIndex loadErrorIndex(Long sessionId) {
+        String sql = "SELECT error_row_count, error_rows FROM bulk_dispute_session_error_rows WHERE session_id = ?";
+
+        List<int[]> stored = jdbcTemplate.query(sql,
+                (rs, rowNum) -> SessionErrorIndex.decodeRows(rs.getBytes("error_rows"), rs.getInt("error_row_count")),
+                sessionId);
+        int[] errorRows = stored.isEmpty() ? saveErrorRows(sessionId) : stored.get(0);
+        log.debug("Loaded error index for session {}: {} rows with errors", sessionId, errorRows.length);
+
+        return new SessionErrorIndex(errorRows, rowNumbers -> findErrorsForRows(sessionId, rowNumbers));
+    }
+
+    /**
+     * Store the sorted, distinct row numbers with errors for a session, read from the (session_id, row_number) index
+     * @return The stored row numbers
+     */
+    private int[] saveErrorRows(Long sessionId) {
+        String selectSql = "SELECT DISTINCT `row_number` FROM bulk_dispute_session_errors WHERE session_id = ? ORDER BY `row_number`";
+        String upsertSql = "INSERT INTO bulk_dispute_session_error_rows (session_id, error_row_count, error_rows) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE error_row_count = VALUES(error_row_count), error_rows = VALUES(error_rows)";
+
+        int[] errorRows = jdbcTemplate.queryForList(selectSql, Integer.class, sessionId).stream().mapToInt(Integer::intValue).toArray();
+        jdbcTemplate.update(upsertSql, sessionId, errorRows.length, SessionErrorIndex.encodeRows(errorRows));
+        log.info("Stored error rows for session {}: {} rows with errors", sessionId, errorRows.length);
+        return errorRows;
+    }
+
+    /**
+     * Recount the session's stored errors into its error_count column, which the sessions listing reads
+     * instead of the error table. Leaves the session's version and updated_at alone.
+     */
+    private void updateErrorCount(Long sessionId) {
+        String sql = "UPDATE bulk_dispute_session SET error_count = (SELECT COUNT(*) FROM bulk_dispute_session_errors WHERE session_id = ?), " +
+                "updated_at = updated_at WHERE id = ?";
+        jdbcTemplate.update(sql, sessionId, sessionId);
+    }
+
     /**
      * Check if a session has any errors
      */
@@ -138,6 +236,8 @@ public class BulkDisputeSessionErrorRepository {
         
         try {
             int deleted = jdbcTemplate.update(sql, sessionId);
+            jdbcTemplate.update("DELETE FROM bulk_dispute_session_error_rows WHERE session_id = ?", sessionId);
+            updateErrorCount(sessionId);
             log.info("Deleted {} validation errors for session {}", deleted, sessionId);
         } catch (Exception e) {
             log.error("Error deleting validation errors for session {}: {}", sessionId, e.getMessage());
@@ -2,6 +2,7 @@ package com.supersoft.sparkpay.bulk_dispute_processor.repository;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.BulkDisputeSessionService;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
@@ -39,6 +40,7 @@ public class BulkDisputeSessionRepository {
                     .totalRows(rs.getInt("total_rows"))
                     .validRows(rs.getInt("valid_rows"))
                     .invalidRows(rs.getInt("invalid_rows"))
+                    .errorCount(rs.getInt("error_count"))
                     .version(rs.getInt("version"))
                     .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
                     .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
@@ -46,6 +48,31 @@ public class BulkDisputeSessionRepository {
         }
     };
 
+    private static final RowMapper<BulkDisputeSessionService.SessionSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) -> {
+        Long jobId = rs.getLong("job_id");
+        if (rs.wasNull()) jobId = null;
+        
+        return new BulkDisputeSessionService.SessionSummary(
+            rs.getLong("id"),
+            rs.getString("institution_code"),
+            rs.getString("merchant_id"),
+            rs.getString("uploaded_by"),
+            rs.getString("file_name"),
+            rs.getString("status"),
+            rs.getInt("total_rows"),
+            rs.getInt("valid_rows"),
+            rs.getInt("invalid_rows"),
+            rs.getTimestamp("created_at").toLocalDateTime().toString(),
+            rs.getTimestamp("updated_at").toLocalDateTime().toString(),
+            jobId,
+            rs.getString("job_status"),
+            rs.getInt("processed_rows"),
+            rs.getInt("success_count"),
+            rs.getInt("failure_count"),
+            rs.getInt("error_count")
+        );
+    };
+
     public BulkDisputeSession save(BulkDisputeSession session) {
         if (session.getId() == null) {
             return insert(session);
@@ -118,8 +145,43 @@ public class BulkDisputeSessionRepository {
     }
 
     public List<BulkDisputeSessionService.SessionSummary> findSessionsWithPagination(int page, int size, String status, String uploadedBy, String institutionCode, String merchantId) {
-        StringBuilder sql = new StringBuilder("SELECT s.id, s.institution_code, s.merchant_id, s.uploaded_by, s.file_name, s.status, s.total_rows, s.valid_rows, s.invalid_rows, s.created_at, s.updated_at, j.id as job_id, j.status as job_status, j.processed_rows, j.success_count, j.failure_count, CASE WHEN e.session_id IS NOT NULL THEN 1 ELSE 0 END as has_errors FROM bulk_dispute_session s LEFT JOIN bulk_dispute_job j ON s.id = j.session_id LEFT JOIN (SELECT DISTINCT session_id FROM bulk_dispute_session_errors) e ON s.id = e.session_id WHERE 1=1");
         List<Object> params = new ArrayList<>();
+        StringBuilder sql = sessionSummaryQuery(params, status, uploadedBy, institutionCode, merchantId);
+        
+        sql.append(" ORDER BY s.created_at DESC, s.id DESC LIMIT ? OFFSET ?");
+        params.add(size);
+        params.add(page * size);
+        
+        return jdbcTemplate.query(sql.toString(), SUMMARY_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Page of sessions after the cursor, newest first, seeking on the (created_at, id) index
+     * @param cursor Position of the last session of the previous page, or null for the first page
+     */
+    public List<BulkDisputeSessionService.SessionSummary> findSessionsAfter(KeysetCursor cursor, int size, String status, String uploadedBy, String institutionCode, String merchantId) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = sessionSummaryQuery(params, status, uploadedBy, institutionCode, merchantId);
+        
+        if (cursor != null) {
+            sql.append(" AND (s.created_at < ? OR (s.created_at = ? AND s.id < ?))");
+            params.add(cursor.getCreatedAt());
+            params.add(cursor.getCreatedAt());
+            params.add(cursor.getId());
+        }
+        
+        sql.append(" ORDER BY s.created_at DESC, s.id DESC LIMIT ?");
+        params.add(size);
+        
+        return jdbcTemplate.query(sql.toString(), SUMMARY_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Session listing query with the given filters applied, ready for ordering and paging.
+     * Errors come from the session's error_count, so the error table is never scanned.
+     */
+    private StringBuilder sessionSummaryQuery(List<Object> params, String status, String uploadedBy, String institutionCode, String merchantId) {
+        StringBuilder sql = new StringBuilder("SELECT s.id, s.institution_code, s.merchant_id, s.uploaded_by, s.file_name, s.status, s.total_rows, s.valid_rows, s.invalid_rows, s.error_count, s.created_at, s.updated_at, j.id as job_id, j.status as job_status, j.processed_rows, j.success_count, j.failure_count FROM bulk_dispute_session s LEFT JOIN bulk_dispute_job j ON s.id = j.session_id WHERE 1=1");
         
         if (status != null && !status.trim().isEmpty()) {
             sql.append(" AND s.status = ?");
@@ -141,34 +203,7 @@ public class BulkDisputeSessionRepository {
             params.add(merchantId);
         }
         
-        sql.append(" ORDER BY s.created_at DESC LIMIT ? OFFSET ?");
-        params.add(size);
-        params.add(page * size);
-        
-        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
-            Long jobId = rs.getLong("job_id");
-            if (rs.wasNull()) jobId = null;
-            
-            return new BulkDisputeSessionService.SessionSummary(
-                rs.getLong("id"),
-                rs.getString("institution_code"),
-                rs.getString("merchant_id"),
-                rs.getString("uploaded_by"),
-                rs.getString("file_name"),
-                rs.getString("status"),
-                rs.getInt("total_rows"),
-                rs.getInt("valid_rows"),
-                rs.getInt("invalid_rows"),
-                rs.getTimestamp("created_at").toLocalDateTime().toString(),
-                rs.getTimestamp("updated_at").toLocalDateTime().toString(),
-                jobId,
-                rs.getString("job_status"),
-                rs.getInt("processed_rows"),
-                rs.getInt("success_count"),
-                rs.getInt("failure_count"),
-                rs.getInt("has_errors") == 1
-            );
-        }, params.toArray());
+        return sql;
     }
 
     public long countSessions(String status, String uploadedBy, String institutionCode, String merchantId) {
@@ -2,9 +2,12 @@ package com.supersoft.sparkpay.bulk_dispute_processor.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 
@@ -15,16 +18,16 @@ public class DisputeRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    public int updateDisputeStatus(String uniqueKey, String resolvedBy, int status, int resolved, String proofUri) {
-        String sql = "UPDATE tbl_disputes " +
-                "SET resolved_by = ?, status = ?, resolved = ?, " +
-                "date_modified = now(), proof_of_reject_uri = ? " +
-                "WHERE unique_log_code = ? AND status = -1 AND resolved = 0";
+    private static final String UPDATE_DISPUTE_STATUS_SQL = "UPDATE tbl_disputes " +
+            "SET resolved_by = ?, status = ?, resolved = ?, " +
+            "date_modified = now(), proof_of_reject_uri = ? " +
+            "WHERE unique_log_code = ? AND status = -1 AND resolved = 0";
 
+    public int updateDisputeStatus(String uniqueKey, String resolvedBy, int status, int resolved, String proofUri) {
         log.info("Updating dispute: uniqueKey={}, resolvedBy={}, status={}, resolved={}, proofUri={}",
                 uniqueKey, resolvedBy, status, resolved, proofUri);
         try {
-            int result = jdbcTemplate.update(sql,
+            int result = jdbcTemplate.update(UPDATE_DISPUTE_STATUS_SQL,
                     resolvedBy, status, resolved, proofUri, uniqueKey);
 
             log.info("Update result: {} rows affected", result);
@@ -35,12 +38,73 @@ public class DisputeRepository {
         }
     }
 
+    /**
+     * Point the stored proof of a dispute at the proof's new location, if it still names the old one
+     * @return Number of disputes updated
+     */
+    public int updateProofUri(String uniqueKey, String oldProofUri, String newProofUri) {
+        String sql = "UPDATE tbl_disputes SET proof_of_reject_uri = ? WHERE unique_log_code = ? AND proof_of_reject_uri = ?";
+        return jdbcTemplate.update(sql, newProofUri, uniqueKey, oldProofUri);
+    }
+
+    /**
+     * Update many disputes in a single JDBC batch (one round trip per chunk instead of per row)
+     * @param updates The dispute updates to apply, in order
+     * @return Affected row count per update, in the same order as the input list
+     */
+    public int[] batchUpdateDisputeStatus(List<DisputeStatusUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return new int[0];
+        }
+
+        log.debug("Batch updating {} disputes", updates.size());
+        try {
+            int[] results = jdbcTemplate.batchUpdate(UPDATE_DISPUTE_STATUS_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    DisputeStatusUpdate update = updates.get(i);
+                    ps.setString(1, update.getResolvedBy());
+                    ps.setInt(2, update.getStatus());
+                    ps.setInt(3, update.getResolved());
+                    ps.setString(4, update.getProofUri());
+                    ps.setString(5, update.getUniqueKey());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return updates.size();
+                }
+            });
+
+            log.debug("Batch update of {} disputes completed", updates.size());
+            return results;
+        } catch (Exception e) {
+            log.error("Error executing batch update of {} disputes", updates.size(), e);
+            throw e;
+        }
+    }
+
     /**
      * Get live dispute statuses for multiple unique keys
      * @param uniqueKeys List of unique keys to check
      * @return Map of unique key to dispute status information
      */
     public Map<String, DisputeStatusInfo> getDisputeStatuses(List<String> uniqueKeys) {
+        try {
+            return findDisputeStatuses(uniqueKeys);
+        } catch (Exception e) {
+            log.error("Error getting dispute statuses", e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Get live dispute statuses for multiple unique keys, propagating database errors
+     * so callers can tell a failed lookup from disputes that do not exist
+     * @param uniqueKeys List of unique keys to check
+     * @return Map of unique key to dispute status information
+     */
+    public Map<String, DisputeStatusInfo> findDisputeStatuses(List<String> uniqueKeys) {
         if (uniqueKeys == null || uniqueKeys.isEmpty()) {
             return Map.of();
         }
@@ -53,42 +117,62 @@ public class DisputeRepository {
         log.info("DisputeRepository: Getting dispute statuses for {} unique keys: {}", uniqueKeys.size(), uniqueKeys);
         log.info("DisputeRepository: Executing SQL: {}", sql);
         
-        try {
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, uniqueKeys.toArray());
-            log.info("DisputeRepository: SQL query returned {} rows", results.size());
+        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, uniqueKeys.toArray());
+        log.info("DisputeRepository: SQL query returned {} rows", results.size());
+        
+        Map<String, DisputeStatusInfo> statusMap = new java.util.HashMap<>();
+        for (Map<String, Object> row : results) {
+            String uniqueKey = (String) row.get("unique_log_code");
+            Integer status = (Integer) row.get("status");
+            Integer resolved = (Integer) row.get("resolved");
+            String resolvedBy = (String) row.get("resolved_by");
             
-            Map<String, DisputeStatusInfo> statusMap = new java.util.HashMap<>();
-            for (Map<String, Object> row : results) {
-                String uniqueKey = (String) row.get("unique_log_code");
-                Integer status = (Integer) row.get("status");
-                Integer resolved = (Integer) row.get("resolved");
-                String resolvedBy = (String) row.get("resolved_by");
-                
-                // Handle both LocalDateTime and Timestamp
-                java.sql.Timestamp dateModified = null;
-                Object dateModifiedObj = row.get("date_modified");
-                if (dateModifiedObj instanceof java.sql.Timestamp) {
-                    dateModified = (java.sql.Timestamp) dateModifiedObj;
-                } else if (dateModifiedObj instanceof java.time.LocalDateTime) {
-                    dateModified = java.sql.Timestamp.valueOf((java.time.LocalDateTime) dateModifiedObj);
-                }
-                
-                String proofUri = (String) row.get("proof_of_reject_uri");
-                
-                log.info("DisputeRepository: Found dispute {} - status: {}, resolved: {}, resolvedBy: {}", 
-                        uniqueKey, status, resolved, resolvedBy);
-                
-                statusMap.put(uniqueKey, new DisputeStatusInfo(
-                    uniqueKey, status, resolved, resolvedBy, dateModified, proofUri
-                ));
+            // Handle both LocalDateTime and Timestamp
+            java.sql.Timestamp dateModified = null;
+            Object dateModifiedObj = row.get("date_modified");
+            if (dateModifiedObj instanceof java.sql.Timestamp) {
+                dateModified = (java.sql.Timestamp) dateModifiedObj;
+            } else if (dateModifiedObj instanceof java.time.LocalDateTime) {
+                dateModified = java.sql.Timestamp.valueOf((java.time.LocalDateTime) dateModifiedObj);
             }
             
-            log.info("DisputeRepository: Found {} dispute statuses out of {} requested", statusMap.size(), uniqueKeys.size());
-            return statusMap;
-        } catch (Exception e) {
-            log.error("Error getting dispute statuses", e);
-            return Map.of();
+            String proofUri = (String) row.get("proof_of_reject_uri");
+            
+            log.info("DisputeRepository: Found dispute {} - status: {}, resolved: {}, resolvedBy: {}", 
+                    uniqueKey, status, resolved, resolvedBy);
+            
+            statusMap.put(uniqueKey, new DisputeStatusInfo(
+                uniqueKey, status, resolved, resolvedBy, dateModified, proofUri
+            ));
         }
+        
+        log.info("DisputeRepository: Found {} dispute statuses out of {} requested", statusMap.size(), uniqueKeys.size());
+        return statusMap;
+    }
+
+    /**
+     * A single pending dispute status update for batch execution
+     */
+    public static class DisputeStatusUpdate {
+        private final String uniqueKey;
+        private final String resolvedBy;
+        private final int status;
+        private final int resolved;
+        private final String proofUri;
+
+        public DisputeStatusUpdate(String uniqueKey, String resolvedBy, int status, int resolved, String proofUri) {
+            this.uniqueKey = uniqueKey;
+            this.resolvedBy = resolvedBy;
+            this.status = status;
+            this.resolved = resolved;
+            this.proofUri = proofUri;
+        }
+
+        public String getUniqueKey() { return uniqueKey; }
+        public String getResolvedBy() { return resolvedBy; }
+        public int getStatus() { return status; }
+        public int getResolved() { return resolved; }
+        public String getProofUri() { return proofUri; }
     }
 
     /**
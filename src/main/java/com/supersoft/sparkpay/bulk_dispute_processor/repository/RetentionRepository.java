@@ -0,0 +1,183 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Queries of the retention purge. Rows are deleted a bounded batch at a time from the head of an index,
+ * so each statement holds its locks briefly, and every delete is safe to repeat or to run on several nodes.
+ * A session counts as expired once both its creation and its last update are older than the cutoff of its
+ * {@link SessionKind}: a session that was never confirmed expires with the session TTL, while a confirmed one
+ * is kept with its job history until all its jobs are finished and untouched for the audit retention. The deletes
+ * re-check this, so a session that is confirmed or retried meanwhile is left alone.
+ */
+@Repository
+public class RetentionRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Next expired sessions after the given position, in (created_at, id) order
+     * @param after Last session of the previous batch, or null to start from the oldest
+     */
+    public List<ExpiredSession> findExpiredSessions(SessionKind kind, LocalDateTime cutoff, ExpiredSession after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT s.id, s.created_at FROM bulk_dispute_session s WHERE ").append(kind.expired());
+        List<Object> params = new ArrayList<>(kind.params(cutoff));
+
+        if (after != null) {
+            sql.append(" AND (s.created_at > ? OR (s.created_at = ? AND s.id > ?))");
+            params.add(after.getCreatedAt());
+            params.add(after.getCreatedAt());
+            params.add(after.getId());
+        }
+        sql.append(" ORDER BY s.created_at ASC, s.id ASC LIMIT ?");
+        params.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) ->
+                new ExpiredSession(rs.getLong("id"), rs.getTimestamp("created_at").toLocalDateTime()), params.toArray());
+    }
+
+    /**
+     * Error report files of the session's jobs and job partitions
+     */
+    public List<String> findErrorReportPaths(Long sessionId) {
+        String sql = "SELECT error_report_path FROM bulk_dispute_job WHERE session_id = ? AND error_report_path IS NOT NULL " +
+                "UNION SELECT p.error_report_path FROM bulk_dispute_job_partition p JOIN bulk_dispute_job j ON j.id = p.job_id " +
+                "WHERE j.session_id = ? AND p.error_report_path IS NOT NULL";
+        return jdbcTemplate.queryForList(sql, String.class, sessionId, sessionId);
+    }
+
+    public long countSessionErrors(Long sessionId) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bulk_dispute_session_errors WHERE session_id = ?", Long.class, sessionId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Delete up to limit of the session's validation errors, lowest ids first
+     * @return Number of rows deleted; less than limit once none are left
+     */
+    public int deleteSessionErrors(SessionKind kind, Long sessionId, LocalDateTime cutoff, int limit) {
+        String sql = "DELETE FROM bulk_dispute_session_errors WHERE session_id = ? AND EXISTS " +
+                "(SELECT 1 FROM bulk_dispute_session s WHERE s.id = ? AND " + kind.expired() + ") ORDER BY id LIMIT ?";
+        List<Object> params = new ArrayList<>();
+        params.add(sessionId);
+        params.add(sessionId);
+        params.addAll(kind.params(cutoff));
+        params.add(limit);
+        return jdbcTemplate.update(sql, params.toArray());
+    }
+
+    public long countSessionAudit(Long sessionId) {
+        String sql = "SELECT COUNT(*) FROM bulk_dispute_job_audit WHERE job_id IN (SELECT id FROM bulk_dispute_job WHERE session_id = ?)";
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, sessionId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Delete up to limit audit entries of the session's jobs, lowest ids first. Only finished jobs untouched
+     * since the cutoff qualify, the same ones {@link SessionKind#FINISHED} requires.
+     */
+    public int deleteSessionAudit(Long sessionId, LocalDateTime cutoff, int limit) {
+        String sql = "DELETE FROM bulk_dispute_job_audit WHERE job_id IN (SELECT id FROM bulk_dispute_job WHERE session_id = ? " +
+                "AND status IN ('COMPLETED','FAILED') AND updated_at < ?) ORDER BY id LIMIT ?";
+        return jdbcTemplate.update(sql, sessionId, cutoff, limit);
+    }
+
+    /**
+     * Delete the session row once its errors and audit entries are gone. Its jobs, partitions and stored
+     * error rows are few and go with it through their foreign keys.
+     * @return true if this call deleted the session
+     */
+    public boolean deleteSession(SessionKind kind, Long sessionId, LocalDateTime cutoff) {
+        String sql = "DELETE s FROM bulk_dispute_session s WHERE s.id = ? AND " + kind.expired();
+        List<Object> params = new ArrayList<>();
+        params.add(sessionId);
+        params.addAll(kind.params(cutoff));
+        return jdbcTemplate.update(sql, params.toArray()) == 1;
+    }
+
+    public long countAuditBefore(LocalDateTime cutoff) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bulk_dispute_job_audit WHERE created_at < ?", Long.class, cutoff);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Delete up to limit audit entries older than the cutoff, oldest first along idx_created_at
+     */
+    public int deleteAuditBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM bulk_dispute_job_audit WHERE created_at < ? ORDER BY created_at, id LIMIT ?", cutoff, limit);
+    }
+
+    /**
+     * Which of the given session ids still have a session row
+     */
+    public Set<Long> findExistingSessionIds(Collection<Long> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return Set.of();
+        }
+        String placeholders = String.join(",", sessionIds.stream().map(id -> "?").toList());
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM bulk_dispute_session WHERE id IN (" + placeholders + ")",
+                Long.class, sessionIds.toArray()));
+    }
+
+    /**
+     * Sessions that expire together under one cutoff
+     */
+    public enum SessionKind {
+        // Never confirmed, so no job was created for it; expires after the session TTL
+        UNCONFIRMED("s.status IN ('UPLOADED','VALIDATED','PREVIEWED') " +
+                "AND NOT EXISTS (SELECT 1 FROM bulk_dispute_job j WHERE j.session_id = s.id)", 0),
+        // Confirmed, with every job COMPLETED or FAILED and not updated since the cutoff; expires with the job audit
+        FINISHED("(s.status = 'CONFIRMED' OR EXISTS (SELECT 1 FROM bulk_dispute_job j WHERE j.session_id = s.id)) " +
+                "AND NOT EXISTS (SELECT 1 FROM bulk_dispute_job j WHERE j.session_id = s.id " +
+                "AND (j.status NOT IN ('COMPLETED','FAILED') OR j.updated_at >= ?))", 1);
+
+        private final String condition;
+        private final int conditionCutoffs;
+
+        SessionKind(String condition, int conditionCutoffs) {
+            this.condition = condition;
+            this.conditionCutoffs = conditionCutoffs;
+        }
+
+        /**
+         * Condition on the session row, aliased s, that holds while it is expired
+         */
+        private String expired() {
+            return "s.created_at < ? AND s.updated_at < ? AND " + condition;
+        }
+
+        /**
+         * Parameters of {@link #expired()}
+         */
+        private List<Object> params(LocalDateTime cutoff) {
+            return Collections.nCopies(2 + conditionCutoffs, cutoff);
+        }
+    }
+
+    /**
+     * Position of an expired session in the (created_at, id) order
+     */
+    public static class ExpiredSession {
+        private final long id;
+        private final LocalDateTime createdAt;
+
+        public ExpiredSession(long id, LocalDateTime createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+
+        public long getId() { return id; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+}
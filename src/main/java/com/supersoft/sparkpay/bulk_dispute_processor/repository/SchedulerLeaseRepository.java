@@ -0,0 +1,36 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Named leases that let one node at a time run a scheduled task.
+ * A lease is taken with a conditional UPDATE, the same way partitions are claimed, and expires on its own
+ * if its owner dies. Expiry is checked against the database clock, so the nodes' clocks do not matter.
+ */
+@Repository
+public class SchedulerLeaseRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Take the lease if it is free or expired, or extend it if the owner already holds it
+     * @return true if the owner holds the lease for the next leaseSeconds
+     */
+    public boolean tryAcquire(String name, String owner, long leaseSeconds) {
+        jdbcTemplate.update("INSERT INTO bulk_scheduler_lease (name, owner, lease_until) VALUES (?, NULL, NOW()) " +
+                "ON DUPLICATE KEY UPDATE name = name", name);
+        String sql = "UPDATE bulk_scheduler_lease SET owner = ?, lease_until = NOW() + INTERVAL ? SECOND " +
+                "WHERE name = ? AND (owner = ? OR owner IS NULL OR lease_until <= NOW())";
+        return jdbcTemplate.update(sql, owner, leaseSeconds, name, owner) == 1;
+    }
+
+    /**
+     * Give the lease up so another node can take it straight away
+     */
+    public void release(String name, String owner) {
+        jdbcTemplate.update("UPDATE bulk_scheduler_lease SET owner = NULL, lease_until = NOW() WHERE name = ? AND owner = ?", name, owner);
+    }
+}
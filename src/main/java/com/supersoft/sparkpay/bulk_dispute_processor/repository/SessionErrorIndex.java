@@ -0,0 +1,149 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory index of the rows that have stored validation errors for a session.
+ * Row numbers are held as a sorted int array so membership checks need no database call;
+ * error messages are loaded lazily, one page of error rows at a time, as rows are looked up;
+ * a failed load is thrown to the caller rather than cached as rows without messages.
+ * The row numbers are stored per session in delta-encoded form, so loading the index never reads the messages.
+ */
+public class SessionErrorIndex {
+
+    private static final int MESSAGE_PAGE_SIZE = 500;
+
+    private final int[] errorRows;
+    private final Function<List<Integer>, List<BulkDisputeSessionErrorRepository.SessionError>> messageLoader;
+    private final Map<Integer, List<BulkDisputeSessionErrorRepository.SessionError>> loadedMessages = new HashMap<>();
+
+    /**
+     * @param errorRows Row numbers with errors, sorted ascending without duplicates
+     * @param messageLoader Loads the stored errors for a list of row numbers
+     */
+    public SessionErrorIndex(int[] errorRows, Function<List<Integer>, List<BulkDisputeSessionErrorRepository.SessionError>> messageLoader) {
+        this.errorRows = errorRows;
+        this.messageLoader = messageLoader;
+    }
+
+    /**
+     * Check if a row has stored validation errors
+     */
+    public boolean hasRowErrors(int rowNumber) {
+        return Arrays.binarySearch(errorRows, rowNumber) >= 0;
+    }
+
+    /**
+     * Get the stored errors for a row, loading the page of error rows that contains it if needed
+     */
+    public List<BulkDisputeSessionErrorRepository.SessionError> getErrors(int rowNumber) {
+        int position = Arrays.binarySearch(errorRows, rowNumber);
+        if (position < 0) {
+            return List.of();
+        }
+
+        if (!loadedMessages.containsKey(rowNumber)) {
+            loadPage(position);
+        }
+        return loadedMessages.getOrDefault(rowNumber, List.of());
+    }
+
+    /**
+     * An index over the same error rows with its own message page, for another thread walking
+     * a different part of the file. The loaded page is not shared, so each reader needs its own copy.
+     */
+    public SessionErrorIndex copy() {
+        return new SessionErrorIndex(errorRows, messageLoader);
+    }
+
+    public int getErrorRowCount() {
+        return errorRows.length;
+    }
+
+    public boolean hasErrors() {
+        return errorRows.length > 0;
+    }
+
+    /**
+     * 0-based pages of the given size that contain rows with errors. Validation numbers the header as row 1,
+     * so the first data row is row 2; file-level (row 0) and header errors count on page 0.
+     */
+    public List<Integer> getPagesWithErrors(int pageSize) {
+        List<Integer> pages = new ArrayList<>();
+        if (pageSize <= 0) {
+            return pages;
+        }
+        for (int rowNumber : errorRows) {
+            int page = Math.max(rowNumber - 2, 0) / pageSize;
+            if (pages.isEmpty() || pages.get(pages.size() - 1) != page) {
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Encode sorted row numbers as varint deltas, one or two bytes per row for typical error densities
+     */
+    static byte[] encodeRows(int[] rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.length * 2);
+        int previous = 0;
+        for (int row : rows) {
+            int delta = row - previous;
+            previous = row;
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+        }
+        return out.toByteArray();
+    }
+
+    static int[] decodeRows(byte[] encoded, int count) {
+        int[] rows = new int[count];
+        int previous = 0;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += delta;
+            rows[i] = previous;
+        }
+        return rows;
+    }
+
+    /**
+     * Replace the loaded messages with the page of error rows starting at the given position.
+     * Only one page is kept so memory stays bounded while the worker walks the file forward.
+     * A failed load propagates and leaves nothing cached for the page, so the next lookup tries again.
+     */
+    private void loadPage(int fromPosition) {
+        int toPosition = Math.min(errorRows.length, fromPosition + MESSAGE_PAGE_SIZE);
+        List<Integer> rowNumbers = new ArrayList<>(toPosition - fromPosition);
+        for (int i = fromPosition; i < toPosition; i++) {
+            rowNumbers.add(errorRows[i]);
+        }
+
+        List<BulkDisputeSessionErrorRepository.SessionError> errors = messageLoader.apply(rowNumbers);
+        loadedMessages.clear();
+        for (Integer rowNumber : rowNumbers) {
+            loadedMessages.put(rowNumber, new ArrayList<>());
+        }
+        for (BulkDisputeSessionErrorRepository.SessionError error : errors) {
+            loadedMessages.computeIfAbsent(error.getRowNumber(), k -> new ArrayList<>()).add(error);
+        }
+    }
+}
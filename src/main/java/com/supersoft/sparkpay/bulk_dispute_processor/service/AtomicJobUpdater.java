@@ -8,7 +8,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -67,6 +69,36 @@ public class AtomicJobUpdater {
         }
     }
 
+    /**
+     * Persist a progress checkpoint: the last fully processed row and the counters at that row,
+     * written in one statement so a resumed job never sees one without the other.
+     * Returns false only if the job is missing or its checkpoint has already moved past this row.
+     */
+    @Transactional
+    public boolean checkpointProgress(Long jobId, int lastProcessedRow, int processedRows, int successCount, int failureCount) {
+        try {
+            String sql = "UPDATE bulk_dispute_job SET last_processed_row = ?, processed_rows = ?, success_count = ?, failure_count = ? " +
+                    "WHERE id = ? AND last_processed_row <= ?";
+            int updated = jdbcTemplate.update(sql, lastProcessedRow, processedRows, successCount, failureCount, jobId, lastProcessedRow);
+            if (updated > 0) {
+                return true;
+            }
+
+            // MySQL reports no affected rows when the checkpoint repeats the stored values, so
+            // only a checkpoint that has moved past this row means another worker got there first
+            List<Integer> stored = jdbcTemplate.queryForList("SELECT last_processed_row FROM bulk_dispute_job WHERE id = ?",
+                    Integer.class, jobId);
+            if (!stored.isEmpty() && stored.get(0) <= lastProcessedRow) {
+                log.debug("Checkpoint for job {} at row {} is unchanged", jobId, lastProcessedRow);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            log.error("Error checkpointing job {} at row {}: {}", jobId, lastProcessedRow, e.getMessage(), e);
+            return false;
+        }
+    }
+
     /**
      * Atomically update job status with optimistic locking
      */
@@ -90,6 +122,24 @@ public class AtomicJobUpdater {
         }
     }
 
+    /**
+     * Atomically complete a running job together with its completion time and error report, if any.
+     * Returns false if the job is no longer running; unlike the other updates, database errors are
+     * thrown so the caller does not take them for another worker having completed the job.
+     */
+    @Transactional
+    public boolean completeJob(Long jobId, String errorReportPath, LocalDateTime completedAt) {
+        String sql = "UPDATE bulk_dispute_job SET status = 'COMPLETED', completed_at = ?, " +
+                "error_report_path = COALESCE(?, error_report_path) WHERE id = ? AND status = 'RUNNING'";
+        int updated = jdbcTemplate.update(sql, Timestamp.valueOf(completedAt), errorReportPath, jobId);
+        if (updated > 0) {
+            log.info("Completed job {}", jobId);
+            return true;
+        }
+        log.info("Job {} is no longer running - it may have been completed by another worker", jobId);
+        return false;
+    }
+
     /**
      * Check if a job can be processed (not already being processed by another worker)
      */
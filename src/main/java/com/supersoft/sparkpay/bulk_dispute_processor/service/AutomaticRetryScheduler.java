@@ -2,8 +2,6 @@ package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,8 +12,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 /**
- * Automatic retry scheduler that handles failed jobs and paused jobs
- * Runs on a configurable schedule to retry failed jobs and resume paused jobs
+ * Automatic retry scheduler that handles failed jobs and paused jobs.
+ * Retries and resumes are event-driven: their job messages go through the retry delay queues and reach
+ * the workers when due. These polls are a low-frequency safety net for jobs whose message was never
+ * published or was lost; a duplicate message is harmless, since only one worker can claim a PENDING job.
  */
 @Slf4j
 @Service
@@ -25,7 +25,7 @@ public class AutomaticRetryScheduler {
     private BulkDisputeJobRepository jobRepository;
     
     @Autowired
-    private BulkDisputeJobAuditRepository auditRepository;
+    private JobAuditWriter auditWriter;
     
     @Autowired
     private JobRetryService jobRetryService;
@@ -52,15 +52,22 @@ public class AutomaticRetryScheduler {
     @Value("${bulk.retry.multiplier:2.0}")
     private double retryMultiplier;
 
+    // A PENDING retry still waiting this long after it was due is republished
+    @Value("${bulk.retry.safety-net-grace-ms:600000}")
+    private long safetyNetGraceMs;
+
+    @Value("${bulk.retry.safety-net-batch-size:100}")
+    private int safetyNetBatchSize;
+
     // Resume configuration
     @Value("${bulk.resume.enabled:true}")
     private boolean resumeEnabled;
 
     /**
-     * Scheduled method to process failed jobs for retry
-     * Runs every minute by default (configurable via properties)
+     * Scheduled method to process failed jobs for retry and republish overdue retries
+     * Runs every 10 minutes by default (configurable via properties)
      */
-    @Scheduled(fixedDelayString = "${bulk.retry.schedule-interval-ms:60000}")
+    @Scheduled(fixedDelayString = "${bulk.retry.schedule-interval-ms:600000}")
     public void processFailedJobsForRetry() {
         if (!retryEnabled) {
             log.debug("Automatic retry is disabled");
@@ -79,17 +86,32 @@ public class AutomaticRetryScheduler {
             for (BulkDisputeJob job : jobsToRetry) {
                 processJobForRetry(job);
             }
+
+            republishOverdueRetries();
             
         } catch (Exception e) {
             log.error("Error in automatic retry processing", e);
         }
     }
 
+    /**
+     * Republish PENDING retries whose delayed message should have been picked up long ago
+     */
+    void republishOverdueRetries() {
+        List<BulkDisputeJob> overdue = jobRepository.findOverdueRetries(
+            LocalDateTime.now().minusNanos(safetyNetGraceMs * 1_000_000), safetyNetBatchSize);
+        for (BulkDisputeJob job : overdue) {
+            if (jobRetryService.publishRetry(job, 0, false)) {
+                log.warn("Republished overdue retry of job {}", job.getId());
+            }
+        }
+    }
+
     /**
      * Scheduled method to process paused jobs for resume
-     * Runs every 30 seconds by default (configurable via properties)
+     * Runs every 5 minutes by default (configurable via properties)
      */
-    @Scheduled(fixedDelayString = "${bulk.resume.schedule-interval-ms:30000}")
+    @Scheduled(fixedDelayString = "${bulk.resume.schedule-interval-ms:300000}")
     public void processPausedJobsForResume() {
         if (!resumeEnabled) {
             log.debug("Automatic resume is disabled");
@@ -100,12 +122,12 @@ public class AutomaticRetryScheduler {
             log.debug("Starting automatic resume processing");
             
             // Find paused jobs that can be resumed
-            List<BulkDisputeJob> pausedJobs = jobRepository.findByStatus(BulkDisputeJob.JobStatus.PAUSED);
+            List<Long> pausedJobIds = jobRepository.findIdsByStatus(BulkDisputeJob.JobStatus.PAUSED, safetyNetBatchSize);
             
-            log.info("Found {} paused jobs for resume", pausedJobs.size());
+            log.info("Found {} paused jobs for resume", pausedJobIds.size());
             
-            for (BulkDisputeJob job : pausedJobs) {
-                processJobForResume(job);
+            for (Long jobId : pausedJobIds) {
+                processJobForResume(jobId);
             }
             
         } catch (Exception e) {
@@ -138,9 +160,10 @@ public class AutomaticRetryScheduler {
             job.setNextRetryAt(nextRetryAt);
             job.setStatus(BulkDisputeJob.JobStatus.PENDING);
             jobRepository.save(job);
+            jobRetryService.publishRetry(job, retryDelay, false);
             
             // Add audit entry
-            addAuditEntry(job.getId(), "AUTO_RETRY_SCHEDULED", 
+            auditWriter.record(job.getId(), "AUTO_RETRY_SCHEDULED", 
                 String.format("Automatic retry scheduled for attempt %d/%d (delay: %dms)", 
                     job.getRetryCount(), maxRetryAttempts, retryDelay));
             
@@ -154,21 +177,21 @@ public class AutomaticRetryScheduler {
     /**
      * Process a specific job for resume
      */
-    private void processJobForResume(BulkDisputeJob job) {
+    private void processJobForResume(Long jobId) {
         try {
-            log.info("Processing job {} for resume", job.getId());
+            log.info("Processing job {} for resume", jobId);
             
             // Attempt to resume the job
-            boolean resumed = jobResumeService.resumeJob(job.getId());
+            boolean resumed = jobResumeService.resumeJob(jobId);
             
             if (resumed) {
-                log.info("Job {} automatically resumed", job.getId());
+                log.info("Job {} automatically resumed", jobId);
             } else {
-                log.warn("Failed to automatically resume job {}", job.getId());
+                log.warn("Failed to automatically resume job {}", jobId);
             }
             
         } catch (Exception e) {
-            log.error("Error processing job {} for resume", job.getId(), e);
+            log.error("Error processing job {} for resume", jobId, e);
         }
     }
 
@@ -208,21 +231,4 @@ public class AutomaticRetryScheduler {
         // Cap at maximum delay
         return Math.min(delay, maxDelayMs);
     }
-
-    /**
-     * Add audit entry for retry operations
-     */
-    private void addAuditEntry(Long jobId, String action, String message) {
-        try {
-            BulkDisputeJobAudit audit = BulkDisputeJobAudit.builder()
-                    .jobId(jobId)
-                    .action(action)
-                    .message(message)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            auditRepository.save(audit);
-        } catch (Exception e) {
-            log.error("Error adding audit entry for job {}: {}", jobId, e.getMessage(), e);
-        }
-    }
 }
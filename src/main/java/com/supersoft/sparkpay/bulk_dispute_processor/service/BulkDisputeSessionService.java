@@ -1,9 +1,9 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -30,11 +30,6 @@ public interface BulkDisputeSessionService {
      */
     SessionConfirmResult confirmSession(Long sessionId);
     
-    /**
-     * Get session file as blob
-     */
-    byte[] getSessionFileBlob(Long sessionId) throws IOException;
-    
     /**
      * Get session file path (for download)
      */
@@ -45,6 +40,13 @@ public interface BulkDisputeSessionService {
      */
     SessionListResult getSessions(int page, int size, String status, String uploadedBy, String institutionCode, String merchantId);
     
+    /**
+     * Get a page of sessions after the cursor, or at the page offset when there is no cursor.
+     * The total is only counted when asked for, and is then served from a short-lived cache.
+     */
+    SessionListResult getSessions(KeysetCursor cursor, int page, int size, boolean includeTotal,
+                                  String status, String uploadedBy, String institutionCode, String merchantId);
+    
     class SessionUploadResult {
         private final boolean success;
         private final Long sessionId;
@@ -193,16 +195,23 @@ public interface BulkDisputeSessionService {
         private final long totalElements;
         private final int currentPage;
         private final int pageSize;
+        private final String nextCursor;
         private final String error;
         
         public SessionListResult(boolean success, List<SessionSummary> sessions, int totalPages, 
                                long totalElements, int currentPage, int pageSize, String error) {
+            this(success, sessions, totalPages, totalElements, currentPage, pageSize, null, error);
+        }
+        
+        public SessionListResult(boolean success, List<SessionSummary> sessions, int totalPages, 
+                               long totalElements, int currentPage, int pageSize, String nextCursor, String error) {
             this.success = success;
             this.sessions = sessions;
             this.totalPages = totalPages;
             this.totalElements = totalElements;
             this.currentPage = currentPage;
             this.pageSize = pageSize;
+            this.nextCursor = nextCursor;
             this.error = error;
         }
         
@@ -211,6 +220,14 @@ public interface BulkDisputeSessionService {
             return new SessionListResult(true, sessions, totalPages, totalElements, currentPage, pageSize, null);
         }
         
+        /**
+         * A page with the cursor of the next one (null on the last page); a negative total means it was not counted
+         */
+        public static SessionListResult success(List<SessionSummary> sessions, int totalPages, 
+                                              long totalElements, int currentPage, int pageSize, String nextCursor) {
+            return new SessionListResult(true, sessions, totalPages, totalElements, currentPage, pageSize, nextCursor, null);
+        }
+        
         public static SessionListResult failure(String error) {
             return new SessionListResult(false, null, 0, 0, 0, 0, error);
         }
@@ -222,6 +239,8 @@ public interface BulkDisputeSessionService {
         public long getTotalElements() { return totalElements; }
         public int getCurrentPage() { return currentPage; }
         public int getPageSize() { return pageSize; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean hasTotal() { return totalElements >= 0; }
         public String getError() { return error; }
     }
     
@@ -238,11 +257,11 @@ public interface BulkDisputeSessionService {
         private final String createdAt;
         private final String updatedAt;
         private final JobSummary job;
-        private final boolean hasErrors;
+        private final int errorCount;
         
         public SessionSummary(Long id, String institutionCode, String merchantId, String uploadedBy, String fileName, String status, 
                             int totalRows, int validRows, int invalidRows, String createdAt, String updatedAt,
-                            Long jobId, String jobStatus, int processedRows, int successCount, int failureCount, boolean hasErrors) {
+                            Long jobId, String jobStatus, int processedRows, int successCount, int failureCount, int errorCount) {
             this.id = id;
             this.institutionCode = institutionCode;
             this.merchantId = merchantId;
@@ -255,7 +274,7 @@ public interface BulkDisputeSessionService {
             this.createdAt = createdAt;
             this.updatedAt = updatedAt;
             this.job = jobId != null ? new JobSummary(jobId, jobStatus, processedRows, successCount, failureCount) : null;
-            this.hasErrors = hasErrors;
+            this.errorCount = errorCount;
         }
         
         // Getters
@@ -271,7 +290,8 @@ public interface BulkDisputeSessionService {
         public String getCreatedAt() { return createdAt; }
         public String getUpdatedAt() { return updatedAt; }
         public JobSummary getJob() { return job; }
-        public boolean isHasErrors() { return hasErrors; }
+        public int getErrorCount() { return errorCount; }
+        public boolean isHasErrors() { return errorCount > 0; }
     }
     
     class JobSummary {
@@ -6,22 +6,33 @@ import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRe
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SessionErrorIndex;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService {
 
+    private static final int PREVIEW_ROWS = 200;
+    private static final int MAX_CACHED_SESSION_COUNTS = 1000;
+
     @Autowired
     private BulkDisputeSessionRepository sessionRepository;
     
@@ -43,6 +54,12 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
     @Autowired
     private BulkDisputeSessionErrorRepository errorRepository;
 
+    // Session totals are counted at most once per TTL for each filter combination; 0 counts every time
+    @Value("${bulk.sessions.count-cache-ttl-ms:30000}")
+    private long countCacheTtlMs;
+
+    private final Map<String, CachedCount> sessionCounts = new ConcurrentHashMap<>();
+
     @Override
     public SessionUploadResult uploadSession(MultipartFile file, String uploadedBy, String institutionCode, String merchantId) {
         try {
@@ -66,11 +83,16 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
 
             session = sessionRepository.save(session);
 
-            String finalFilePath = fileService.saveSessionFile(session.getId(), file);
+            // Validate while the upload is copied to disk, keeping the first rows for the preview
+            PreviewCollector previewCollector = new PreviewCollector(PREVIEW_ROWS);
+            CsvValidationService.ValidationResult validationResult;
+            String finalFilePath;
+            try (SessionFileUpload upload = fileService.beginSessionUpload(file)) {
+                validationResult = validationService.validateCsv(upload.getInputStream(), previewCollector);
+                finalFilePath = fileService.saveSessionUpload(session.getId(), upload);
+            }
             session.setFilePath(finalFilePath);
             sessionRepository.save(session);
-
-            CsvValidationService.ValidationResult validationResult = validationService.validateCsv(file);
             
             // Check format validation first
             if (!validationResult.isFormatValid()) {
@@ -91,7 +113,8 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
             session.setInvalidRows(validationResult.getInvalidRows());
             sessionRepository.save(session);
 
-            List<Map<String, String>> preview = getPreviewData(finalFilePath, 200);
+            List<Map<String, String>> preview = previewCollector.getRows();
+            addLiveStatuses(preview);
 
             return SessionUploadResult.success(session.getId(), preview, session.getTotalRows(), session.getVersion());
 
@@ -115,16 +138,18 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
             }
 
             BulkDisputeSession session = sessionOpt.get();
-            List<Map<String, String>> preview = getPreviewData(session.getFilePath(), rows);
+            List<Map<String, String>> preview = getPreviewData(session.getFilePath(), offset, rows);
+
+            // Error rows come from the stored per-session list, never from the messages
+            SessionErrorIndex errorIndex = loadErrorIndex(sessionId);
 
             // Add error information if requested
             if (includeErrors) {
-                addErrorInformationToPreview(sessionId, preview, offset, rows);
+                addErrorInformationToPreview(sessionId, errorIndex, preview, offset, rows);
             }
 
-            // Calculate error information
-            boolean hasErrors = errorRepository.hasAnyErrors(sessionId);
-            List<Integer> pagesWithErrors = calculatePagesWithErrors(sessionId, session.getTotalRows(), rows);
+            boolean hasErrors = errorIndex.hasErrors();
+            List<Integer> pagesWithErrors = errorIndex.getPagesWithErrors(rows);
 
             return SessionPreviewResult.success(sessionId, preview, session.getTotalRows(), session.getVersion(), hasErrors, pagesWithErrors);
 
@@ -148,12 +173,16 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
                 return SessionOverwriteResult.failure("Version mismatch. Expected: " + session.getVersion() + ", Got: " + ifMatch);
             }
 
-            CsvValidationService.ValidationResult validationResult = validationService.validateCsv(file);
-            if (!validationResult.isValid()) {
-                return SessionOverwriteResult.failure("Validation failed: " + validationResult.getErrorSummary());
-            }
+            CsvValidationService.ValidationResult validationResult;
+            String filePath;
+            try (SessionFileUpload upload = fileService.beginSessionUpload(file)) {
+                validationResult = validationService.validateCsv(upload.getInputStream(), null);
+                if (!validationResult.isValid()) {
+                    return SessionOverwriteResult.failure("Validation failed: " + validationResult.getErrorSummary());
+                }
 
-            String filePath = fileService.overwriteSessionFile(sessionId, file);
+                filePath = fileService.overwriteSessionUpload(sessionId, upload);
+            }
             session.setFilePath(filePath);
             session.setTotalRows(validationResult.getTotalRows());
             session.setValidRows(validationResult.getTotalRows());
@@ -210,17 +239,6 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
         }
     }
 
-    @Override
-    public byte[] getSessionFileBlob(Long sessionId) throws IOException {
-        Optional<BulkDisputeSession> sessionOpt = sessionRepository.findById(sessionId);
-        if (sessionOpt.isEmpty()) {
-            throw new IOException("Session not found");
-        }
-        
-        BulkDisputeSession session = sessionOpt.get();
-        return Files.readAllBytes(Paths.get(session.getFilePath()));
-    }
-
     @Override
     public String getSessionFilePath(Long sessionId) {
         Optional<BulkDisputeSession> sessionOpt = sessionRepository.findById(sessionId);
@@ -233,50 +251,129 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
 
     @Override
     public SessionListResult getSessions(int page, int size, String status, String uploadedBy, String institutionCode, String merchantId) {
+        return getSessions(null, page, size, true, status, uploadedBy, institutionCode, merchantId);
+    }
+
+    @Override
+    public SessionListResult getSessions(KeysetCursor cursor, int page, int size, boolean includeTotal,
+                                         String status, String uploadedBy, String institutionCode, String merchantId) {
         try {
-            List<SessionSummary> sessions = sessionRepository.findSessionsWithPagination(page, size, status, uploadedBy, institutionCode, merchantId);
-            long totalElements = sessionRepository.countSessions(status, uploadedBy, institutionCode, merchantId);
-            int totalPages = (int) Math.ceil((double) totalElements / size);
+            // The first page and cursor pages seek on (created_at, id); other page numbers skip an offset, which the
+            // controller bounds by bulk.listing.max-offset-rows
+            List<SessionSummary> sessions = cursor != null || page == 0
+                    ? sessionRepository.findSessionsAfter(cursor, size, status, uploadedBy, institutionCode, merchantId)
+                    : sessionRepository.findSessionsWithPagination(page, size, status, uploadedBy, institutionCode, merchantId);
+            
+            String nextCursor = null;
+            if (!sessions.isEmpty() && sessions.size() == size) {
+                SessionSummary last = sessions.get(sessions.size() - 1);
+                nextCursor = new KeysetCursor(LocalDateTime.parse(last.getCreatedAt()), last.getId()).encode();
+            }
             
-            return SessionListResult.success(sessions, totalPages, totalElements, page, size);
+            long totalElements = -1;
+            int totalPages = -1;
+            if (includeTotal) {
+                totalElements = countSessions(status, uploadedBy, institutionCode, merchantId);
+                totalPages = (int) Math.ceil((double) totalElements / size);
+            }
+            
+            return SessionListResult.success(sessions, totalPages, totalElements, page, size, nextCursor);
         } catch (Exception e) {
             log.error("Error getting sessions", e);
             return SessionListResult.failure("Failed to retrieve sessions: " + e.getMessage());
         }
     }
 
-    private List<Map<String, String>> getPreviewData(String filePath, int maxRows) throws IOException {
+    /**
+     * Count sessions matching the filters, reusing a count taken within the cache TTL
+     */
+    private long countSessions(String status, String uploadedBy, String institutionCode, String merchantId) {
+        if (countCacheTtlMs <= 0) {
+            return sessionRepository.countSessions(status, uploadedBy, institutionCode, merchantId);
+        }
+        
+        String key = String.join("|", String.valueOf(status), String.valueOf(uploadedBy), String.valueOf(institutionCode), String.valueOf(merchantId));
+        long now = System.currentTimeMillis();
+        CachedCount cached = sessionCounts.get(key);
+        if (cached != null && now - cached.countedAt < countCacheTtlMs) {
+            return cached.count;
+        }
+        
+        long count = sessionRepository.countSessions(status, uploadedBy, institutionCode, merchantId);
+        if (sessionCounts.size() >= MAX_CACHED_SESSION_COUNTS) {
+            sessionCounts.clear();
+        }
+        sessionCounts.put(key, new CachedCount(count, now));
+        return count;
+    }
+
+    private static class CachedCount {
+        private final long count;
+        private final long countedAt;
+
+        CachedCount(long count, long countedAt) {
+            this.count = count;
+            this.countedAt = countedAt;
+        }
+    }
+
+    /**
+     * Read one page of the session file, seeking through the row index to the page instead of parsing the rows before it
+     */
+    private List<Map<String, String>> getPreviewData(String filePath, int offset, int maxRows) throws IOException {
         List<Map<String, String>> preview = new ArrayList<>();
         List<String> headers = new ArrayList<>();
-        List<String> uniqueKeys = new ArrayList<>();
+        Path file = Paths.get(filePath);
         
-        try (var reader = Files.newBufferedReader(Paths.get(filePath))) {
-            String headerLine = reader.readLine();
-            if (headerLine != null) {
-                headers = parseCsvLine(headerLine);
-                // Clean headers by removing BOM from each header
-                headers = headers.stream()
-                        .map(header -> CsvParser.hasBom(header) ? header.substring(1) : header)
-                        .collect(java.util.stream.Collectors.toList());
+        // The reader strips the BOM from the first header
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            if (csv.nextRecord()) {
+                headers = csv.getFields();
             }
-            
-            String line;
-            int rowCount = 0;
-            while ((line = reader.readLine()) != null && rowCount < maxRows) {
-                List<String> row = parseCsvLine(line);
-                Map<String, String> rowMap = new HashMap<>();
-                for (int i = 0; i < headers.size() && i < row.size(); i++) {
-                    rowMap.put(headers.get(i), row.get(i));
+        }
+        
+        CsvRowIndex index = fileService.getRowIndex(file);
+        Reader page = index.openAt(file, offset);
+        if (page != null) {
+            try (CsvReader csv = new CsvReader(page)) {
+                // At most one index interval of rows lies between the indexed row and the page
+                long toSkip = Math.max(offset, 0) - index.indexedRowBefore(offset);
+                while (toSkip > 0 && csv.nextRecord()) {
+                    toSkip--;
                 }
-                preview.add(rowMap);
                 
-                // Collect unique keys for live status lookup
-                String uniqueKey = rowMap.get("Unique Key");
-                if (uniqueKey != null && !uniqueKey.trim().isEmpty()) {
-                    uniqueKeys.add(uniqueKey.trim());
+                List<String> row = new ArrayList<>();
+                int rowCount = 0;
+                while (toSkip == 0 && rowCount < maxRows && csv.nextRecord()) {
+                    csv.getFields(row);
+                    preview.add(toRowMap(headers, row));
+                    rowCount++;
                 }
-                
-                rowCount++;
+            }
+        }
+        
+        addLiveStatuses(preview);
+        return preview;
+    }
+
+    private static Map<String, String> toRowMap(List<String> headers, List<String> row) {
+        Map<String, String> rowMap = new HashMap<>();
+        for (int i = 0; i < headers.size() && i < row.size(); i++) {
+            rowMap.put(headers.get(i), row.get(i));
+        }
+        return rowMap;
+    }
+
+    /**
+     * Add the live dispute status to each preview row
+     */
+    private void addLiveStatuses(List<Map<String, String>> preview) {
+        // Collect unique keys for live status lookup
+        List<String> uniqueKeys = new ArrayList<>();
+        for (Map<String, String> row : preview) {
+            String uniqueKey = row.get("Unique Key");
+            if (uniqueKey != null && !uniqueKey.trim().isEmpty()) {
+                uniqueKeys.add(uniqueKey.trim());
             }
         }
         
@@ -314,8 +411,32 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
         } else {
             log.info("No unique keys found for live status lookup");
         }
-        
-        return preview;
+    }
+
+    /**
+     * Keeps the first rows seen during upload validation for the preview
+     */
+    private static class PreviewCollector implements CsvValidationService.RowConsumer {
+        private final int maxRows;
+        private final List<Map<String, String>> rows = new ArrayList<>();
+        private List<String> headers = List.of();
+
+        PreviewCollector(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        @Override
+        public void accept(int rowNumber, List<String> fields) {
+            if (rowNumber == 1) {
+                headers = new ArrayList<>(fields);
+            } else if (rows.size() < maxRows) {
+                rows.add(toRowMap(headers, fields));
+            }
+        }
+
+        List<Map<String, String>> getRows() {
+            return rows;
+        }
     }
 
     /**
@@ -323,15 +444,9 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
      */
     private void storeValidationErrors(Long sessionId, CsvValidationService.ValidationResult validationResult) {
         try {
-            List<BulkDisputeSessionErrorRepository.SessionError> errors = validationResult.getErrors().stream()
-                    .map(error -> new BulkDisputeSessionErrorRepository.SessionError(
-                            error.getRow(),
-                            error.getColumn(),
-                            error.getReason()
-                    ))
-                    .collect(java.util.stream.Collectors.toList());
-            
-            errorRepository.saveErrors(sessionId, errors);
+            List<CsvValidationService.ValidationError> errors = validationResult.getErrors();
+            errorRepository.saveErrors(sessionId, errors, CsvValidationService.ValidationError::getRow,
+                    CsvValidationService.ValidationError::getColumn, CsvValidationService.ValidationError::getReason);
             log.info("Stored {} validation errors for session {}", errors.size(), sessionId);
         } catch (Exception e) {
             log.error("Error storing validation errors for session {}: {}", sessionId, e.getMessage());
@@ -341,12 +456,15 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
     /**
      * Add error information to preview data
      */
-    private void addErrorInformationToPreview(Long sessionId, List<Map<String, String>> preview, int offset, int rows) {
+    private void addErrorInformationToPreview(Long sessionId, SessionErrorIndex errorIndex, List<Map<String, String>> preview, int offset, int rows) {
         try {
-            // Get row numbers for current page
+            // Get row numbers with errors on the current page
             List<Integer> rowNumbers = new ArrayList<>();
             for (int i = 0; i < preview.size(); i++) {
-                rowNumbers.add(offset + i + 1); // +1 because rows are 1-indexed
+                int rowNumber = offset + i + 2; // Validation numbers the header as row 1
+                if (errorIndex.hasRowErrors(rowNumber)) {
+                    rowNumbers.add(rowNumber);
+                }
             }
             
             // Get errors for these rows
@@ -357,7 +475,7 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
             // Add error information to each row
             for (int i = 0; i < preview.size(); i++) {
                 Map<String, String> row = preview.get(i);
-                int rowNumber = offset + i + 1;
+                int rowNumber = offset + i + 2;
                 
                 List<BulkDisputeSessionErrorRepository.SessionError> rowErrors = errorsByRow.get(rowNumber);
                 if (rowErrors != null && !rowErrors.isEmpty()) {
@@ -376,54 +494,15 @@ public class BulkDisputeSessionServiceImpl implements BulkDisputeSessionService
         }
     }
 
-    private List<String> parseCsvLine(String line) {
-        List<String> result = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder currentField = new StringBuilder();
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                result.add(currentField.toString().trim());
-                currentField = new StringBuilder();
-            } else {
-                currentField.append(c);
-            }
-        }
-        
-        result.add(currentField.toString().trim());
-        return result;
-    }
-
     /**
-     * Calculate which pages have errors based on pagination
+     * Load the rows with errors for a session; on failure the preview is shown without error information
      */
-    private List<Integer> calculatePagesWithErrors(Long sessionId, int totalRows, int pageSize) {
+    private SessionErrorIndex loadErrorIndex(Long sessionId) {
         try {
-            // Get all rows with errors
-            List<BulkDisputeSessionErrorRepository.SessionError> allErrors = errorRepository.getErrorsBySessionId(sessionId);
-            Set<Integer> rowsWithErrors = allErrors.stream()
-                    .map(BulkDisputeSessionErrorRepository.SessionError::getRowNumber)
-                    .collect(java.util.stream.Collectors.toSet());
-            
-            if (rowsWithErrors.isEmpty()) {
-                return List.of();
-            }
-            
-            // Calculate which pages contain rows with errors
-            Set<Integer> pagesWithErrors = new HashSet<>();
-            for (int rowNumber : rowsWithErrors) {
-                int pageNumber = (rowNumber - 1) / pageSize; // Convert to 0-based page number
-                pagesWithErrors.add(pageNumber);
-            }
-            
-            return pagesWithErrors.stream().sorted().collect(java.util.stream.Collectors.toList());
+            return errorRepository.loadErrorIndex(sessionId);
         } catch (Exception e) {
-            log.error("Error calculating pages with errors for session {}: {}", sessionId, e.getMessage());
-            return List.of();
+            log.error("Error loading error rows for session {}: {}", sessionId, e.getMessage());
+            return new SessionErrorIndex(new int[0], rows -> List.of());
         }
     }
 }
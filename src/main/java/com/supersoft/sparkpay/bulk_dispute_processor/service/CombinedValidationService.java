@@ -42,7 +42,7 @@ public interface CombinedValidationService {
     class CombinedValidationResult {
         private boolean valid;
         private boolean formatValid = true;
-        private List<ValidationError> errors;
+        private ValidationErrorCollector<ValidationError> errors;
         private List<String> headers;
         private int totalRows;
         private int validRows;
@@ -71,7 +71,7 @@ public interface CombinedValidationService {
         // Constructors
         public CombinedValidationResult() {
             this.valid = true;
-            this.errors = new java.util.ArrayList<>();
+            this.errors = new ValidationErrorCollector<>(ValidationError::getRow, ValidationError::getColumn);
             this.headers = new java.util.ArrayList<>();
             this.totalRows = 0;
             this.validRows = 0;
@@ -101,6 +101,10 @@ public interface CombinedValidationService {
             return addError(new ValidationError(row, column, reason));
         }
         
+        public boolean hasError(int row, String column) {
+            return errors.hasError(row, column);
+        }
+        
         public CombinedValidationResult setHeaders(List<String> headers) {
             this.headers = headers;
             return this;
@@ -183,7 +187,7 @@ public interface CombinedValidationService {
         
         // Getters
         public boolean isValid() { return valid; }
-        public List<ValidationError> getErrors() { return errors; }
+        public ValidationErrorCollector<ValidationError> getErrors() { return errors; }
         public List<String> getHeaders() { return headers; }
         public int getTotalRows() { return totalRows; }
         public int getValidRows() { return validRows; }
@@ -4,17 +4,25 @@ import com.supersoft.sparkpay.bulk_dispute_processor.config.ValidationConstants;
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvChunker;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -44,9 +52,49 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
     
     @Value("${bulk.proofs.replace-existing:true}")
     private boolean replaceExisting;
+    
+    @Value("${bulk.validation.parallel-threshold-mb:20}")
+    private int parallelThresholdMb;
+    
+    @Value("${bulk.validation.parallel-chunk-size-kb:4096}")
+    private int parallelChunkSizeKb;
+    
+    @Value("${bulk.validation.parallelism:0}")
+    private int parallelism;
+    
+    private ForkJoinPool validationPool;
+    
+    @PostConstruct
+    public void startValidationPool() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        validationPool = new ForkJoinPool(threads);
+        log.info("Parallel validation enabled for uploads of {}MB or more with {} threads", parallelThresholdMb, threads);
+    }
+    
+    @PreDestroy
+    public void stopValidationPool() {
+        if (validationPool != null) {
+            validationPool.shutdown();
+        }
+    }
 
     @Override
     public CombinedValidationResult validateCsvWithProofs(MultipartFile csvFile, List<MultipartFile> proofFiles) {
+        long startTime = System.currentTimeMillis();
+        try {
+            return validateCsvWithProofs(csvFile.getInputStream(), proofFiles);
+        } catch (IOException e) {
+            log.error("Error reading CSV file", e);
+            CombinedValidationResult result = new CombinedValidationResult();
+            result.addError(0, "FILE", "Error reading file: " + e.getMessage());
+            return result.setElapsedMs(System.currentTimeMillis() - startTime);
+        }
+    }
+    
+    /**
+     * Validate CSV content read from a stream, which is closed afterwards
+     */
+    private CombinedValidationResult validateCsvWithProofs(InputStream csvStream, List<MultipartFile> proofFiles) {
         long startTime = System.currentTimeMillis();
         CombinedValidationResult result = new CombinedValidationResult();
         
@@ -55,80 +103,19 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
             Map<String, MultipartFile> proofFileMap = createProofFileMap(proofFiles);
             
             // Parse CSV and validate
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(csvFile.getInputStream(), "UTF-8"))) {
-                String headerLine = reader.readLine();
-                if (headerLine == null) {
-                    result.addError(0, "FILE", "File is empty");
-                    return result.setElapsedMs(System.currentTimeMillis() - startTime);
-                }
-                
-                List<String> headers = CsvParser.parseCsvLine(headerLine);
-                headers = headers.stream()
-                        .map(String::trim)
-                        .collect(Collectors.toList());
-                result.setHeaders(headers);
-                
-                // Format validation - check CSV structure and required columns
-                if (!validateFormat(headers, result)) {
-                    result.setFormatValid(false);
+            try (CsvReader csv = new CsvReader(new InputStreamReader(csvStream, StandardCharsets.UTF_8))) {
+                List<String> headers = readAndValidateHeader(csv, result);
+                if (headers == null) {
                     return result.setElapsedMs(System.currentTimeMillis() - startTime);
                 }
                 
                 // Business validation - check data rules
                 // Track unique codes for duplicate validation
-                Set<String> uniqueCodes = new HashSet<>();
-                
-                String line;
-                int rowNumber = 1;
-                int acceptedCount = 0;
-                int rejectedCount = 0;
-                int acceptedValid = 0;
-                int rejectedValid = 0;
-                int missingReceiptCount = 0;
-                
-                while ((line = reader.readLine()) != null) {
-                    rowNumber++;
-                    List<String> row = CsvParser.parseCsvLine(line);
-                    row = row.stream()
-                            .map(String::trim)
-                            .collect(Collectors.toList());
-                    
-                    boolean rowValid = validateRowWithProofs(row, headers, rowNumber, result, proofFileMap, uniqueCodes);
-                    
-                    if (rowValid) {
-                        result.setValidRows(result.getValidRows() + 1);
-                        
-                        // Determine action and count accordingly
-                        String action = getCaseInsensitiveValue(row, headers, "action");
-                        if ("ACCEPT".equalsIgnoreCase(action)) {
-                            acceptedCount++;
-                            acceptedValid++;
-                        } else if ("REJECT".equalsIgnoreCase(action)) {
-                            rejectedCount++;
-                            rejectedValid++;
-                        }
-                    } else {
-                        result.setInvalidRows(result.getInvalidRows() + 1);
-                        
-                        // Count missing receipts for rejected rows
-                        String action = getCaseInsensitiveValue(row, headers, "action");
-                        if ("REJECT".equalsIgnoreCase(action)) {
-                            String uniqueKey = getCaseInsensitiveValue(row, headers, "unique key");
-                            if (uniqueKey != null && !proofFileMap.containsKey(uniqueKey.trim())) {
-                                missingReceiptCount++;
-                            }
-                        }
-                    }
-                }
+                RowTally tally = new RowTally();
+                int lastRowNumber = validateRows(csv, headers, 1, result, proofFileMap, new HashSet<>(), tally, null);
                 
-                result.setTotalRows(rowNumber - 1); // Subtract header row
-                result.setAcceptedSlated(acceptedCount);
-                result.setAcceptedSucceeded(acceptedValid);
-                result.setAcceptedFailed(acceptedCount - acceptedValid);
-                result.setRejectedSlated(rejectedCount);
-                result.setRejectedSucceeded(rejectedValid);
-                result.setRejectedFailed(rejectedCount - rejectedValid);
-                result.setMissingReceipt(missingReceiptCount);
+                result.setTotalRows(lastRowNumber - 1); // Subtract header row
+                tally.applyTo(result);
             }
             
         } catch (IOException e) {
@@ -140,6 +127,280 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
         return result;
     }
     
+    /**
+     * Validate a CSV file on disk by splitting it into chunks of whole records and validating them on the
+     * validation pool. The chunk results are merged in file order, including the duplicate check across chunks,
+     * so the result is the same as validating the file sequentially.
+     */
+    CombinedValidationResult validateCsvWithProofsInParallel(Path csvPath, List<MultipartFile> proofFiles) {
+        long startTime = System.currentTimeMillis();
+        CombinedValidationResult result = new CombinedValidationResult();
+        
+        try {
+            Map<String, MultipartFile> proofFileMap = createProofFileMap(proofFiles);
+            
+            List<CsvChunker.Chunk> chunks = CsvChunker.split(csvPath, parallelChunkSizeKb * 1024L);
+            List<String> headers;
+            try (CsvReader csv = new CsvReader(CsvChunker.openChunk(csvPath, chunks.get(0)))) {
+                headers = readAndValidateHeader(csv, result);
+            }
+            if (headers == null) {
+                return result.setElapsedMs(System.currentTimeMillis() - startTime);
+            }
+            log.info("Validating {} in {} chunks", csvPath, chunks.size());
+            
+            List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                boolean firstChunk = i == 0;
+                CsvChunker.Chunk chunk = chunks.get(i);
+                tasks.add(validationPool.submit(() -> validateChunk(csvPath, chunk, firstChunk, headers, proofFileMap)));
+            }
+            
+            List<ChunkResult> chunkResults = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<ChunkResult> task : tasks) {
+                chunkResults.add(task.join());
+            }
+            
+            mergeChunkResults(chunkResults, result);
+            
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error reading CSV file", e);
+            result.addError(0, "FILE", "Error reading file: " + e.getMessage());
+        }
+        
+        result.setElapsedMs(System.currentTimeMillis() - startTime);
+        return result;
+    }
+    
+    /**
+     * Read the header record and check the required columns.
+     * Returns the headers, or null if the file is empty or the format is invalid.
+     */
+    private List<String> readAndValidateHeader(CsvReader csv, CombinedValidationResult result) throws IOException {
+        if (!csv.nextRecord()) {
+            result.addError(0, "FILE", "File is empty");
+            return null;
+        }
+        
+        // Fields come back trimmed from the reader
+        List<String> headers = csv.getFields();
+        result.setHeaders(headers);
+        
+        // Format validation - check CSV structure and required columns
+        if (!validateFormat(headers, result)) {
+            result.setFormatValid(false);
+            return null;
+        }
+        return headers;
+    }
+    
+    /**
+     * Validate the remaining records of the reader, numbering them from rowNumber + 1.
+     * When firstOccurrences is given, the first row of each unique code is recorded in it.
+     * Returns the number of the last row.
+     */
+    private int validateRows(CsvReader csv, List<String> headers, int rowNumber, CombinedValidationResult result,
+                             Map<String, MultipartFile> proofFileMap, Set<String> uniqueCodes, RowTally tally,
+                             List<FirstOccurrence> firstOccurrences) throws IOException {
+        List<String> row = new ArrayList<>(headers.size());
+        while (csv.nextRecord()) {
+            rowNumber++;
+            csv.getFields(row);
+            
+            String firstKey = null;
+            if (firstOccurrences != null) {
+                String uniqueKey = getCaseInsensitiveValue(row, headers, "unique key");
+                if (uniqueKey != null && !uniqueKey.trim().isEmpty() && !uniqueCodes.contains(uniqueKey.trim())) {
+                    firstKey = uniqueKey.trim();
+                }
+            }
+            
+            boolean rowValid = validateRowWithProofs(row, headers, rowNumber, result, proofFileMap, uniqueCodes);
+            String action = getCaseInsensitiveValue(row, headers, "action");
+            
+            if (rowValid) {
+                tally.validRows++;
+                
+                // Determine action and count accordingly
+                if ("ACCEPT".equalsIgnoreCase(action)) {
+                    tally.acceptedCount++;
+                    tally.acceptedValid++;
+                } else if ("REJECT".equalsIgnoreCase(action)) {
+                    tally.rejectedCount++;
+                    tally.rejectedValid++;
+                }
+            } else {
+                tally.invalidRows++;
+                
+                // Count missing receipts for rejected rows
+                if ("REJECT".equalsIgnoreCase(action)) {
+                    String uniqueKey = getCaseInsensitiveValue(row, headers, "unique key");
+                    if (uniqueKey != null && !proofFileMap.containsKey(uniqueKey.trim())) {
+                        tally.missingReceipt++;
+                    }
+                }
+            }
+            
+            if (firstKey != null) {
+                firstOccurrences.add(new FirstOccurrence(firstKey, rowNumber, rowValid, action));
+            }
+        }
+        return rowNumber;
+    }
+    
+    /**
+     * Validate one chunk against chunk-local duplicate tracking, numbering its rows from 1
+     * (the first chunk keeps the header as row 1)
+     */
+    private ChunkResult validateChunk(Path csvPath, CsvChunker.Chunk chunk, boolean firstChunk, List<String> headers,
+                                      Map<String, MultipartFile> proofFileMap) {
+        CombinedValidationResult chunkResult = new CombinedValidationResult();
+        RowTally tally = new RowTally();
+        List<FirstOccurrence> firstOccurrences = new ArrayList<>();
+        
+        try (CsvReader csv = new CsvReader(CsvChunker.openChunk(csvPath, chunk))) {
+            int rowNumber = 0;
+            if (firstChunk) {
+                csv.nextRecord();
+                rowNumber = 1;
+            }
+            int lastRowNumber = validateRows(csv, headers, rowNumber, chunkResult, proofFileMap, new HashSet<>(),
+                    tally, firstOccurrences);
+            return new ChunkResult(chunkResult.getErrors(), tally, firstOccurrences, lastRowNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Merge chunk results in file order. A unique code first seen in a chunk but already present in an
+     * earlier one gets the duplicate error sequential validation would have given it - always the first
+     * error of its row - and the row's counts move from valid to invalid.
+     */
+    private void mergeChunkResults(List<ChunkResult> chunkResults, CombinedValidationResult result) {
+        Set<String> uniqueCodes = new HashSet<>();
+        RowTally total = new RowTally();
+        int rowOffset = 0;
+        
+        for (ChunkResult chunk : chunkResults) {
+            List<FirstOccurrence> duplicates = new ArrayList<>();
+            for (FirstOccurrence first : chunk.firstOccurrences) {
+                if (!uniqueCodes.add(first.uniqueKey)) {
+                    duplicates.add(first);
+                    chunk.tally.markDuplicate(first);
+                }
+            }
+            
+            int next = 0;
+            for (ValidationError error : chunk.errors) {
+                while (next < duplicates.size() && duplicates.get(next).rowNumber <= error.getRow()) {
+                    FirstOccurrence duplicate = duplicates.get(next++);
+                    result.addError(rowOffset + duplicate.rowNumber, "Unique Key", duplicateMessage(duplicate.uniqueKey));
+                }
+                result.addError(rowOffset + error.getRow(), error.getColumn(), error.getReason());
+            }
+            while (next < duplicates.size()) {
+                FirstOccurrence duplicate = duplicates.get(next++);
+                result.addError(rowOffset + duplicate.rowNumber, "Unique Key", duplicateMessage(duplicate.uniqueKey));
+            }
+            
+            total.add(chunk.tally);
+            rowOffset += chunk.lastRowNumber;
+        }
+        
+        result.setTotalRows(rowOffset - 1); // Subtract header row
+        total.applyTo(result);
+    }
+    
+    private static String duplicateMessage(String uniqueKey) {
+        return "Duplicate unique code '" + uniqueKey + "'. Each unique code must appear only once in the file.";
+    }
+    
+    /**
+     * Row counts gathered while validating, applied to the result at the end
+     */
+    private static class RowTally {
+        int validRows;
+        int invalidRows;
+        int acceptedCount;
+        int acceptedValid;
+        int rejectedCount;
+        int rejectedValid;
+        int missingReceipt;
+        
+        void add(RowTally other) {
+            validRows += other.validRows;
+            invalidRows += other.invalidRows;
+            acceptedCount += other.acceptedCount;
+            acceptedValid += other.acceptedValid;
+            rejectedCount += other.rejectedCount;
+            rejectedValid += other.rejectedValid;
+            missingReceipt += other.missingReceipt;
+        }
+        
+        /**
+         * A row found to be a duplicate after its chunk was validated is invalid.
+         * A valid REJECT row had its proof, so the missing receipt count does not change.
+         */
+        void markDuplicate(FirstOccurrence row) {
+            if (!row.valid) {
+                return;
+            }
+            validRows--;
+            invalidRows++;
+            if ("ACCEPT".equalsIgnoreCase(row.action)) {
+                acceptedCount--;
+                acceptedValid--;
+            } else if ("REJECT".equalsIgnoreCase(row.action)) {
+                rejectedCount--;
+                rejectedValid--;
+            }
+        }
+        
+        void applyTo(CombinedValidationResult result) {
+            result.setValidRows(validRows);
+            result.setInvalidRows(invalidRows);
+            result.setAcceptedSlated(acceptedCount);
+            result.setAcceptedSucceeded(acceptedValid);
+            result.setAcceptedFailed(acceptedCount - acceptedValid);
+            result.setRejectedSlated(rejectedCount);
+            result.setRejectedSucceeded(rejectedValid);
+            result.setRejectedFailed(rejectedCount - rejectedValid);
+            result.setMissingReceipt(missingReceipt);
+        }
+    }
+    
+    /**
+     * First row of a unique code within a chunk
+     */
+    private static class FirstOccurrence {
+        private final String uniqueKey;
+        private final int rowNumber;
+        private final boolean valid;
+        private final String action;
+        
+        FirstOccurrence(String uniqueKey, int rowNumber, boolean valid, String action) {
+            this.uniqueKey = uniqueKey;
+            this.rowNumber = rowNumber;
+            this.valid = valid;
+            this.action = action;
+        }
+    }
+    
+    private static class ChunkResult {
+        private final List<ValidationError> errors;
+        private final RowTally tally;
+        private final List<FirstOccurrence> firstOccurrences;
+        private final int lastRowNumber;
+        
+        ChunkResult(List<ValidationError> errors, RowTally tally, List<FirstOccurrence> firstOccurrences, int lastRowNumber) {
+            this.errors = errors;
+            this.tally = tally;
+            this.firstOccurrences = firstOccurrences;
+            this.lastRowNumber = lastRowNumber;
+        }
+    }
+    
     private Map<String, MultipartFile> createProofFileMap(List<MultipartFile> proofFiles) {
         Map<String, MultipartFile> proofFileMap = new HashMap<>();
         
@@ -254,7 +515,7 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
             
             // Check for duplicate unique codes (business rule)
             if (uniqueCodes.contains(trimmedKey)) {
-                result.addError(rowNumber, "Unique Key", "Duplicate unique code '" + trimmedKey + "'. Each unique code must appear only once in the file.");
+                result.addError(rowNumber, "Unique Key", duplicateMessage(trimmedKey));
                 rowIsValid = false; // Mark as invalid for counting purposes
             } else {
                 // Add to set for future duplicate checking
@@ -288,7 +549,7 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
                 MultipartFile proofFile = proofFileMap.get(uniqueKey.trim());
                 validateProofFile(proofFile, uniqueKey.trim(), rowNumber, result);
                 // Check if proof file validation failed
-                if (result.getErrors().stream().anyMatch(error -> error.getRow() == rowNumber && "Proof".equals(error.getColumn()))) {
+                if (result.hasError(rowNumber, "Proof")) {
                     rowIsValid = false; // Mark as invalid for counting purposes
                 }
             }
@@ -302,12 +563,19 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
                                                                String uploadedBy, String institutionCode, String merchantId) {
         long startTime = System.currentTimeMillis();
         CombinedValidationResult result = new CombinedValidationResult();
+        SessionFileUpload upload = null;
         
         try {
             log.info("Starting CSV validation for file: {}", csvFile.getOriginalFilename());
             
-            // First, perform validation
-            result = validateCsvWithProofs(csvFile, proofFiles);
+            // Validate while the upload is copied to a temp file, so the CSV is read only once
+            upload = fileService.beginSessionUpload(csvFile);
+            if (validationPool != null && csvFile.getSize() >= parallelThresholdMb * 1024L * 1024L) {
+                // Large uploads are copied to disk first and validated in chunks
+                result = validateCsvWithProofsInParallel(upload.spool(), proofFiles);
+            } else {
+                result = validateCsvWithProofs(upload.getInputStream(), proofFiles);
+            }
             
             // Check format validation first
             if (!result.isFormatValid()) {
@@ -360,7 +628,7 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
             
             // Save CSV file and update session with actual file path
             try {
-                String csvFilePath = fileService.saveSessionFile(session.getId(), csvFile);
+                String csvFilePath = fileService.saveSessionUpload(session.getId(), upload);
                 session.setFilePath(csvFilePath);
                 sessionRepository.save(session);
                 result.setCsvFilePath(csvFilePath);
@@ -409,6 +677,11 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
         } catch (Exception e) {
             log.error("Unexpected error during validation and file saving", e);
             result.addError(0, "SYSTEM", "Unexpected error: " + e.getMessage());
+        } finally {
+            // Discards the temp file unless it was saved as the session file
+            if (upload != null) {
+                upload.close();
+            }
         }
         
         result.setElapsedMs(System.currentTimeMillis() - startTime);
@@ -492,15 +765,8 @@ public class CombinedValidationServiceImpl implements CombinedValidationService
      */
     private void storeValidationErrors(Long sessionId, CombinedValidationResult result) {
         try {
-            List<BulkDisputeSessionErrorRepository.SessionError> errors = result.getErrors().stream()
-                    .map(error -> new BulkDisputeSessionErrorRepository.SessionError(
-                            error.getRow(),
-                            error.getColumn(),
-                            error.getReason()
-                    ))
-                    .collect(Collectors.toList());
-            
-            errorRepository.saveErrors(sessionId, errors);
+            List<ValidationError> errors = result.getErrors();
+            errorRepository.saveErrors(sessionId, errors, ValidationError::getRow, ValidationError::getColumn, ValidationError::getReason);
             log.info("Stored {} validation errors for session {}", errors.size(), sessionId);
         } catch (Exception e) {
             log.error("Failed to store validation errors for session {}: {}", sessionId, e.getMessage());
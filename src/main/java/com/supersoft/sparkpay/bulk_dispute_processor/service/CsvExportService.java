@@ -2,92 +2,129 @@ package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class CsvExportService {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private BulkDisputeSessionErrorRepository errorRepository;
 
     /**
-     * Export CSV with errors column
+     * Write the CSV with an errors column to the output stream as it is read.
+     * The file is read record by record and merged with the session's errors, which are walked
+     * in row order from a database cursor, so neither is held in memory.
      */
-    public byte[] exportCsvWithErrors(Long sessionId, String filePath) {
-        try {
-            log.info("Exporting CSV with errors for session {} from file {}", sessionId, filePath);
-            
-            // Read original CSV
-            List<String> lines = Files.readAllLines(Paths.get(filePath));
-            if (lines.isEmpty()) {
+    public void exportCsvWithErrors(Long sessionId, String filePath, OutputStream outputStream) throws IOException {
+        log.info("Exporting CSV with errors for session {} from file {}", sessionId, filePath);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8))) {
+            // Process header row
+            if (!csv.nextRecord()) {
                 throw new IOException("File is empty");
             }
-            
-            // Get all errors for the session
-            List<BulkDisputeSessionErrorRepository.SessionError> allErrors = errorRepository.getErrorsBySessionId(sessionId);
-            Map<Integer, List<BulkDisputeSessionErrorRepository.SessionError>> errorsByRow = allErrors.stream()
-                    .collect(Collectors.groupingBy(BulkDisputeSessionErrorRepository.SessionError::getRowNumber));
-            
-            // Create new CSV with errors column
-            List<String> newLines = new ArrayList<>();
-            
-            // Process header row
-            String headerLine = lines.get(0);
-            List<String> headers = CsvParser.parseCsvLine(headerLine);
+            List<String> headers = csv.getFields();
             headers.add("Errors"); // Add Errors column
-            newLines.add(String.join(",", headers));
-            
-            // Process data rows
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i);
-                List<String> row = CsvParser.parseCsvLine(line);
-                
-                // Get errors for this row
-                List<BulkDisputeSessionErrorRepository.SessionError> rowErrors = errorsByRow.get(i);
-                String errorMessages = "";
-                
-                if (rowErrors != null && !rowErrors.isEmpty()) {
-                    errorMessages = rowErrors.stream()
-                            .map(BulkDisputeSessionErrorRepository.SessionError::getErrorMessage)
-                            .collect(Collectors.joining(" | "));
-                } else {
-                    errorMessages = "No errors";
-                }
-                
-                // Add error messages to row
-                row.add(errorMessages);
-                newLines.add(String.join(",", row));
+            out.write(CsvParser.formatCsvLine(headers));
+
+            ErrorMerger merger = new ErrorMerger(csv, out, headers.size());
+            try {
+                errorRepository.forEachErrorBySessionId(sessionId, merger);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
-            
-            // Convert to byte array
-            String csvContent = String.join("\n", newLines);
-            return csvContent.getBytes("UTF-8");
-            
-        } catch (Exception e) {
-            log.error("Error exporting CSV with errors for session {}: {}", sessionId, e.getMessage());
-            throw new RuntimeException("Failed to export CSV with errors: " + e.getMessage());
+            merger.finish();
         }
+        out.flush();
     }
 
     /**
-     * Export original CSV without errors
+     * Writes data rows with their error messages while errors arrive in row order.
+     * Each error moves the CSV forward to its row; rows passed on the way have no errors.
+     * Record numbers match validation row numbering (header is row 1), so file-level errors
+     * (row 0) and errors for rows not in the file are skipped.
      */
-    public byte[] exportOriginalCsv(String filePath) {
-        try {
-            log.info("Exporting original CSV from file {}", filePath);
-            return Files.readAllBytes(Paths.get(filePath));
-        } catch (Exception e) {
-            log.error("Error exporting original CSV from file {}: {}", filePath, e.getMessage());
-            throw new RuntimeException("Failed to export original CSV: " + e.getMessage());
+    private static class ErrorMerger implements Consumer<BulkDisputeSessionErrorRepository.SessionError> {
+        private final CsvReader csv;
+        private final Writer out;
+        private final List<String> row;
+        private final StringBuilder errorMessages = new StringBuilder();
+        private boolean rowPending;
+
+        ErrorMerger(CsvReader csv, Writer out, int columnCount) {
+            this.csv = csv;
+            this.out = out;
+            this.row = new ArrayList<>(columnCount);
+        }
+
+        @Override
+        public void accept(BulkDisputeSessionErrorRepository.SessionError error) {
+            try {
+                while (true) {
+                    if (rowPending) {
+                        long rowNumber = csv.getRecordNumber();
+                        if (rowNumber == error.getRowNumber()) {
+                            if (errorMessages.length() > 0) {
+                                errorMessages.append(" | ");
+                            }
+                            errorMessages.append(error.getErrorMessage());
+                            return;
+                        }
+                        if (rowNumber > error.getRowNumber()) {
+                            return;
+                        }
+                        writeRow();
+                    }
+                    if (!nextRow()) {
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Write the row in hand and every remaining row
+         */
+        void finish() throws IOException {
+            if (rowPending) {
+                writeRow();
+            }
+            while (nextRow()) {
+                writeRow();
+            }
+        }
+
+        private boolean nextRow() throws IOException {
+            if (!csv.nextRecord()) {
+                return false;
+            }
+            csv.getFields(row);
+            errorMessages.setLength(0);
+            rowPending = true;
+            return true;
+        }
+
+        private void writeRow() throws IOException {
+            row.add(errorMessages.length() > 0 ? errorMessages.toString() : "No errors");
+            out.write('\n');
+            out.write(CsvParser.formatCsvLine(row));
+            rowPending = false;
         }
     }
 }
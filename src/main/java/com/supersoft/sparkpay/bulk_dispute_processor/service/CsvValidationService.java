@@ -5,11 +5,36 @@ import org.springframework.web.multipart.MultipartFile;
 public interface CsvValidationService {
     ValidationResult validateCsv(MultipartFile file);
     
+    /**
+     * Validate the file in a single streaming pass, handing every record (header first) to the consumer as it is read
+     * @param file The CSV file to validate
+     * @param rowConsumer Receives each record, or null to only validate
+     * @return ValidationResult with format and business validation results
+     */
+    ValidationResult validateCsv(MultipartFile file, RowConsumer rowConsumer);
+    
+    /**
+     * Validate CSV content read from a stream, which is closed afterwards
+     * @param in The CSV content
+     * @param rowConsumer Receives each record, or null to only validate
+     * @return ValidationResult with format and business validation results
+     */
+    ValidationResult validateCsv(java.io.InputStream in, RowConsumer rowConsumer);
+    
+    /**
+     * Downstream receiver of the records read during validation.
+     * The fields list is reused between calls and must be copied if kept.
+     */
+    @FunctionalInterface
+    interface RowConsumer {
+        void accept(int rowNumber, java.util.List<String> fields) throws java.io.IOException;
+    }
+    
     class ValidationResult {
         private java.util.List<String> headers = new java.util.ArrayList<>();
-        private java.util.List<ValidationError> errors = new java.util.ArrayList<>();
+        private ValidationErrorCollector<ValidationError> errors =
+                new ValidationErrorCollector<>(ValidationError::getRow, ValidationError::getColumn);
         private java.util.List<String> warnings = new java.util.ArrayList<>();
-        private java.util.Map<Integer, java.util.List<ValidationError>> rowErrors = new java.util.HashMap<>();
         private int totalRows = 0;
         private int validRows = 0;
         private int invalidRows = 0;
@@ -17,13 +42,14 @@ public interface CsvValidationService {
 
         public void addError(ValidationError error) {
             errors.add(error);
-            rowErrors.computeIfAbsent(error.getRow(), k -> new java.util.ArrayList<>()).add(error);
         }
 
         public void addError(int row, String column, String reason) {
-            ValidationError error = new ValidationError(row, column, reason);
-            errors.add(error);
-            rowErrors.computeIfAbsent(row, k -> new java.util.ArrayList<>()).add(error);
+            errors.add(new ValidationError(row, column, reason));
+        }
+
+        public boolean hasError(int row, String column) {
+            return errors.hasError(row, column);
         }
 
         public void addWarning(String warning) {
@@ -57,9 +83,9 @@ public interface CsvValidationService {
         // Getters and setters
         public java.util.List<String> getHeaders() { return headers; }
         public void setHeaders(java.util.List<String> headers) { this.headers = headers; }
-        public java.util.List<ValidationError> getErrors() { return errors; }
+        public ValidationErrorCollector<ValidationError> getErrors() { return errors; }
         public java.util.List<String> getWarnings() { return warnings; }
-        public java.util.Map<Integer, java.util.List<ValidationError>> getRowErrors() { return rowErrors; }
+        public java.util.Map<Integer, java.util.List<ValidationError>> getRowErrors() { return errors.getErrorsByRow(); }
         public int getTotalRows() { return totalRows; }
         public void setTotalRows(int totalRows) { this.totalRows = totalRows; }
         public int getValidRows() { return validRows; }
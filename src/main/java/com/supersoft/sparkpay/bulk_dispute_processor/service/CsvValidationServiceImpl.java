@@ -1,15 +1,16 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.config.ValidationConstants;
-import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Slf4j
@@ -20,31 +21,73 @@ public class CsvValidationServiceImpl implements CsvValidationService {
     private ProofService proofService;
 
     public ValidationResult validateCsv(MultipartFile file) {
+        return validateCsv(file, null);
+    }
+
+    public ValidationResult validateCsv(MultipartFile file, RowConsumer rowConsumer) {
+        InputStream in;
+        try {
+            in = file.getInputStream();
+        } catch (IOException e) {
+            log.error("Error reading CSV file", e);
+            ValidationResult result = new ValidationResult();
+            result.addError(0, "FILE", "Error reading file: " + e.getMessage());
+            result.setFormatValid(false);
+            return result;
+        }
+        return validateCsv(in, rowConsumer);
+    }
+
+    /**
+     * Format and business validation in one pass over the file.
+     * Records are still handed to the consumer when the format is invalid, but are not validated.
+     */
+    public ValidationResult validateCsv(InputStream in, RowConsumer rowConsumer) {
         ValidationResult result = new ValidationResult();
         
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), "UTF-8"))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        try (CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            if (!csv.nextRecord()) {
                 result.addError(0, "FILE", "File is empty");
                 result.setFormatValid(false);
                 return result;
             }
             
-            List<String> headers = CsvParser.parseCsvLine(headerLine);
-            // Ensure all headers are properly trimmed
-            headers = headers.stream()
-                    .map(String::trim)
-                    .collect(java.util.stream.Collectors.toList());
+            // Fields come back trimmed from the reader
+            List<String> headers = csv.getFields();
             result.setHeaders(headers);
+            if (rowConsumer != null) {
+                rowConsumer.accept(1, headers);
+            }
             
             // Format validation - check CSV structure and required columns
-            if (!validateFormat(headers, result)) {
+            boolean formatValid = validateFormat(headers, result);
+            if (!formatValid) {
                 result.setFormatValid(false);
-                return result;
+                if (rowConsumer == null) {
+                    return result;
+                }
             }
             
-            // Business validation - check data rules
-            validateBusinessRules(file, result);
+            // Business validation - check data rules on the same pass
+            // Track unique codes for duplicate validation
+            Set<String> uniqueCodes = new HashSet<>();
+            
+            List<String> row = new ArrayList<>(headers.size());
+            int rowNumber = 1;
+            while (csv.nextRecord()) {
+                rowNumber++;
+                csv.getFields(row);
+                if (formatValid) {
+                    validateRow(row, headers, rowNumber, result, uniqueCodes);
+                }
+                if (rowConsumer != null) {
+                    rowConsumer.accept(rowNumber, row);
+                }
+            }
+            
+            if (formatValid) {
+                result.setTotalRows(rowNumber - 1); // Subtract header row
+            }
             
         } catch (IOException e) {
             log.error("Error reading CSV file", e);
@@ -91,42 +134,6 @@ public class CsvValidationServiceImpl implements CsvValidationService {
         return formatValid;
     }
 
-    /**
-     * Business validation - check data rules
-     */
-    private void validateBusinessRules(MultipartFile file, ValidationResult result) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), "UTF-8"))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) return;
-            
-            List<String> headers = CsvParser.parseCsvLine(headerLine);
-            headers = headers.stream()
-                    .map(String::trim)
-                    .collect(java.util.stream.Collectors.toList());
-            
-            // Track unique codes for duplicate validation
-            Set<String> uniqueCodes = new HashSet<>();
-            
-            String line;
-            int rowNumber = 1;
-            while ((line = reader.readLine()) != null) {
-                rowNumber++;
-                List<String> row = CsvParser.parseCsvLine(line);
-                // Ensure all row data is properly trimmed
-                row = row.stream()
-                        .map(String::trim)
-                        .collect(java.util.stream.Collectors.toList());
-                validateRow(row, headers, rowNumber, result, uniqueCodes);
-            }
-            
-            result.setTotalRows(rowNumber - 1); // Subtract header row
-            
-        } catch (IOException e) {
-            log.error("Error reading CSV file for business validation", e);
-            result.addError(0, "FILE", "Error reading file: " + e.getMessage());
-        }
-    }
-
     private void validateHeaders(List<String> headers, ValidationResult result) {
         log.info("Parsed headers: {}", headers);
         log.info("Required columns: {}", ValidationConstants.REQUIRED_COLUMNS);
@@ -1,9 +1,17 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public interface DisputeUpdater {
     
+    /**
+     * Row key set to "true" by the job worker on rows an earlier run of the job recorded as applied after its
+     * last checkpoint; such a row that matches no pending dispute succeeds if the dispute still has its status
+     */
+    String REPLAYED_ROW = "replayed";
+    
     /**
      * Process a single dispute row
      * @param row The dispute data as a map of column names to values
@@ -11,6 +19,20 @@ public interface DisputeUpdater {
      */
     ProcessingResult processRow(Map<String, String> row);
     
+    /**
+     * Process a chunk of dispute rows
+     * Implementations may apply the chunk in a single batch; the default processes rows one at a time
+     * @param rows The dispute rows, each as a map of column names to values
+     * @return One ProcessingResult per input row, in the same order
+     */
+    default List<ProcessingResult> processRows(List<Map<String, String>> rows) {
+        List<ProcessingResult> results = new ArrayList<>(rows.size());
+        for (Map<String, String> row : rows) {
+            results.add(processRow(row));
+        }
+        return results;
+    }
+    
     class ProcessingResult {
         private final boolean success;
         private final String errorMessage;
@@ -5,69 +5,258 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 public class DisputeUpdaterImpl implements DisputeUpdater {
 
+    private static final String NOT_MATCHED = "No matching dispute found or already processed";
+
     @Autowired
     DisputeRepository disputeRepository;
-    
+
     @Autowired
     ProofService proofService;
 
+    @Autowired
+    LiveStatusService liveStatusService;
+
     @Override
     public ProcessingResult processRow(Map<String, String> row) {
+        PreparedUpdate prepared = prepareUpdate(row);
+        if (prepared.failure != null) {
+            return prepared.failure;
+        }
+
+        ProcessingResult[] results = { applyUpdate(row, prepared) };
+        confirmReplayedRows(List.of(row), new DisputeRepository.DisputeStatusUpdate[]{ prepared.update }, results);
+        return results[0];
+    }
+
+    /**
+     * Run the single-row update of a prepared row
+     */
+    private ProcessingResult applyUpdate(Map<String, String> row, PreparedUpdate prepared) {
+        String uniqueKey = row.get("Unique Key");
+        String action = row.get("Action");
+
+        try {
+            DisputeRepository.DisputeStatusUpdate update = prepared.update;
+            log.info("Processing dispute: uniqueKey={}, action={}, status={}, resolved={}, resolvedBy={}, proofUri={}",
+                    uniqueKey, action, update.getStatus(), update.getResolved(), update.getResolvedBy(), update.getProofUri());
+
+            int rows = disputeRepository.updateDisputeStatus(uniqueKey, update.getResolvedBy(),
+                    update.getStatus(), update.getResolved(), update.getProofUri());
+
+            if (rows > 0) {
+                liveStatusService.invalidate(List.of(uniqueKey));
+                log.info("Successfully updated dispute: {} with action: {}", uniqueKey, action);
+                return ProcessingResult.success();
+            } else {
+                log.warn("No matching dispute found or already processed: {}", uniqueKey);
+                return ProcessingResult.failure(NOT_MATCHED);
+            }
+
+        } catch (Exception e) {
+            log.error("Database error processing dispute: {}", uniqueKey, e);
+            return ProcessingResult.failure("Database error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Process a chunk of rows with a single JDBC batch update.
+     * Rows that fail pre-checks are reported without touching the database; if a statement
+     * in the batch fails, the statements the driver reports as executed keep their results and
+     * the rest fall back to row-by-row processing, so every row still gets its own result.
+     */
+    @Override
+    public List<ProcessingResult> processRows(List<Map<String, String>> rows) {
+        ProcessingResult[] results = new ProcessingResult[rows.size()];
+        PreparedUpdate[] prepared = new PreparedUpdate[rows.size()];
+        DisputeRepository.DisputeStatusUpdate[] rowUpdates = new DisputeRepository.DisputeStatusUpdate[rows.size()];
+        List<DisputeRepository.DisputeStatusUpdate> updates = new ArrayList<>();
+        List<Integer> updateIndexes = new ArrayList<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            prepared[i] = prepareUpdate(rows.get(i));
+            if (prepared[i].failure != null) {
+                results[i] = prepared[i].failure;
+            } else {
+                rowUpdates[i] = prepared[i].update;
+                updates.add(prepared[i].update);
+                updateIndexes.add(i);
+            }
+        }
+
+        if (updates.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        try {
+            int[] counts = disputeRepository.batchUpdateDisputeStatus(updates);
+            recordBatchResults(updates, updateIndexes, counts, updates.size(), results);
+
+        } catch (Exception e) {
+            BatchUpdateException batchFailure = findBatchUpdateCause(e);
+            if (batchFailure != null) {
+                // Statements that ran before the failure are committed; record them from their update counts
+                // and retry only the failed and unexecuted ones, which would otherwise match 0 rows
+                int[] counts = batchFailure.getUpdateCounts() != null ? batchFailure.getUpdateCounts() : new int[0];
+                int executed = Math.min(counts.length, updates.size());
+                log.warn("Batch update of {} disputes failed after {} statements, retrying the rest row by row: {}",
+                        updates.size(), executed, e.getMessage());
+                recordBatchResults(updates, updateIndexes, counts, executed, results);
+                for (int j = 0; j < updates.size(); j++) {
+                    int index = updateIndexes.get(j);
+                    if (results[index] == null) {
+                        results[index] = applyUpdate(rows.get(index), prepared[index]);
+                    }
+                }
+            } else {
+                log.error("Database error processing batch of {} disputes", updates.size(), e);
+                for (int index : updateIndexes) {
+                    results[index] = ProcessingResult.failure("Database error: " + e.getMessage());
+                }
+            }
+        }
+
+        confirmReplayedRows(rows, rowUpdates, results);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Count replayed rows that matched no pending dispute as successes when their dispute still has the
+     * status, resolution and resolver the row sets. The worker only marks rows an earlier run of the job
+     * recorded as applied after its last checkpoint, so a dispute resolved outside the job is not credited
+     * to it. If the lookup fails the rows keep their failures.
+     */
+    private void confirmReplayedRows(List<Map<String, String>> rows, DisputeRepository.DisputeStatusUpdate[] updates,
+                                     ProcessingResult[] results) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updates[i] != null && results[i] != null && !results[i].isSuccess()
+                    && NOT_MATCHED.equals(results[i].getErrorMessage())
+                    && "true".equals(rows.get(i).get(REPLAYED_ROW))) {
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Map<String, DisputeRepository.DisputeStatusInfo> statuses;
+        try {
+            statuses = disputeRepository.findDisputeStatuses(candidates.stream().map(i -> updates[i].getUniqueKey()).toList());
+        } catch (Exception e) {
+            log.warn("Could not check {} replayed rows against their disputes: {}", candidates.size(), e.getMessage());
+            return;
+        }
+
+        int confirmed = 0;
+        for (int i : candidates) {
+            DisputeRepository.DisputeStatusUpdate update = updates[i];
+            DisputeRepository.DisputeStatusInfo current = statuses.get(update.getUniqueKey());
+            if (current != null && Integer.valueOf(update.getStatus()).equals(current.getStatus())
+                    && Integer.valueOf(update.getResolved()).equals(current.getResolved())
+                    && Objects.equals(update.getResolvedBy(), current.getResolvedBy())) {
+                results[i] = ProcessingResult.success();
+                confirmed++;
+            }
+        }
+        log.info("{} of {} replayed rows were already applied by an earlier run", confirmed, candidates.size());
+    }
+
+    /**
+     * Resolve the target status and proof for a row, or the failure that prevents the update
+     */
+    private PreparedUpdate prepareUpdate(Map<String, String> row) {
         String uniqueKey = row.get("Unique Key");
         String action = row.get("Action");
         String proofUri = row.get("Proof(Optional)");
         String resolvedBy = row.get("uploadedBy"); // From session context
-        
+
         if (uniqueKey == null || uniqueKey.trim().isEmpty()) {
-            return ProcessingResult.failure("Unique Key is required");
+            return PreparedUpdate.failed(ProcessingResult.failure("Unique Key is required"));
         }
-        
+
         if (action == null || action.trim().isEmpty()) {
-            return ProcessingResult.failure("Action is required");
+            return PreparedUpdate.failed(ProcessingResult.failure("Action is required"));
         }
-        
+
         try {
             int status = mapActionToStatus(action);
             int resolved = (status == 0) ? 0 : 1;
-            
+
             // For REJECT actions, check if proof file exists
             String finalProofUri = proofUri;
             if ("REJECT".equalsIgnoreCase(action)) {
-                if (proofService.proofExists(uniqueKey)) {
+                String uploadedProofPath = proofService.getProofFilePath(uniqueKey);
+                if (uploadedProofPath != null) {
                     // Use the uploaded proof file path
-                    finalProofUri = proofService.getProofFilePath(uniqueKey);
-                    log.info("Using uploaded proof file for dispute: {} -> {}", uniqueKey, finalProofUri);
+                    finalProofUri = uploadedProofPath;
+                    log.debug("Using uploaded proof file for dispute: {} -> {}", uniqueKey, finalProofUri);
                 } else if (proofUri == null || proofUri.trim().isEmpty()) {
                     log.warn("No proof provided for REJECT action on dispute: {}", uniqueKey);
-                    return ProcessingResult.failure("Proof is required for REJECT actions. Please upload proof file or provide proof URI.");
+                    return PreparedUpdate.failed(ProcessingResult.failure("Proof is required for REJECT actions. Please upload proof file or provide proof URI."));
                 }
             }
-            
-            log.info("Processing dispute: uniqueKey={}, action={}, status={}, resolved={}, resolvedBy={}, proofUri={}", 
-                    uniqueKey, action, status, resolved, resolvedBy, finalProofUri);
-            
-            int rows = disputeRepository.updateDisputeStatus(uniqueKey, resolvedBy, status, resolved, finalProofUri);
-            
-            if (rows > 0) {
-                log.info("Successfully updated dispute: {} with action: {}", uniqueKey, action);
-                return ProcessingResult.success();
-            } else {
-                log.warn("No matching dispute found or already processed: {}", uniqueKey);
-                return ProcessingResult.failure("No matching dispute found or already processed");
-            }
-            
+
+            return PreparedUpdate.of(new DisputeRepository.DisputeStatusUpdate(uniqueKey, resolvedBy, status, resolved, finalProofUri));
+
         } catch (Exception e) {
             log.error("Database error processing dispute: {}", uniqueKey, e);
-            return ProcessingResult.failure("Database error: " + e.getMessage());
+            return PreparedUpdate.failed(ProcessingResult.failure("Database error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Record the results of the first executed statements of a batch from their update counts.
+     * Statements the driver reports as failed are left without a result.
+     */
+    private void recordBatchResults(List<DisputeRepository.DisputeStatusUpdate> updates, List<Integer> updateIndexes,
+                                    int[] counts, int executed, ProcessingResult[] results) {
+        List<String> updatedKeys = new ArrayList<>(executed);
+        int matched = 0;
+        for (int j = 0; j < executed; j++) {
+            int index = updateIndexes.get(j);
+            int count = j < counts.length ? counts[j] : 0;
+            if (count == Statement.EXECUTE_FAILED) {
+                continue;
+            }
+            // SUCCESS_NO_INFO is only reported when the driver rewrites batches; treat it as applied
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                log.debug("Successfully updated dispute: {}", updates.get(j).getUniqueKey());
+                results[index] = ProcessingResult.success();
+                updatedKeys.add(updates.get(j).getUniqueKey());
+                matched++;
+            } else {
+                log.debug("No matching dispute found or already processed: {}", updates.get(j).getUniqueKey());
+                results[index] = ProcessingResult.failure(NOT_MATCHED);
+            }
+        }
+        if (!updatedKeys.isEmpty()) {
+            liveStatusService.invalidate(updatedKeys);
+        }
+        log.info("Batch processed {} disputes: {} updated, {} not matched",
+                executed, matched, executed - matched);
+    }
+
+    private BatchUpdateException findBatchUpdateCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchUpdateException) {
+                return (BatchUpdateException) cause;
+            }
         }
+        return null;
     }
-    
+
     private int mapActionToStatus(String action) {
         if ("ACCEPT".equalsIgnoreCase(action)) {
             return 0;  // ACCEPTED: status 0, resolved 0
@@ -77,4 +266,25 @@ public class DisputeUpdaterImpl implements DisputeUpdater {
             throw new IllegalArgumentException("Invalid action: " + action + ". Must be ACCEPT or REJECT");
         }
     }
+
+    /**
+     * Either a ready-to-run update or the reason the row cannot be updated
+     */
+    private static class PreparedUpdate {
+        private final DisputeRepository.DisputeStatusUpdate update;
+        private final ProcessingResult failure;
+
+        private PreparedUpdate(DisputeRepository.DisputeStatusUpdate update, ProcessingResult failure) {
+            this.update = update;
+            this.failure = failure;
+        }
+
+        static PreparedUpdate of(DisputeRepository.DisputeStatusUpdate update) {
+            return new PreparedUpdate(update, null);
+        }
+
+        static PreparedUpdate failed(ProcessingResult failure) {
+            return new PreparedUpdate(null, failure);
+        }
+    }
 }
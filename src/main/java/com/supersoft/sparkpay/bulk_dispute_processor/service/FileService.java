@@ -1,5 +1,6 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -8,8 +9,13 @@ import java.nio.file.Path;
 public interface FileService {
     String saveSessionFile(Long sessionId, MultipartFile file) throws IOException;
     String overwriteSessionFile(Long sessionId, MultipartFile file) throws IOException;
+    SessionFileUpload beginSessionUpload(MultipartFile file) throws IOException;
+    String saveSessionUpload(Long sessionId, SessionFileUpload upload) throws IOException;
+    String overwriteSessionUpload(Long sessionId, SessionFileUpload upload) throws IOException;
     Path getSessionFilePath(Long sessionId);
+    CsvRowIndex getRowIndex(Path sessionFile) throws IOException;
     boolean sessionFileExists(Long sessionId);
     void deleteSessionFile(Long sessionId);
     String createErrorReportPath(Long sessionId);
+    Path getAppliedRowsPath(Long sessionId, Long jobId, Integer partitionIndex);
 }
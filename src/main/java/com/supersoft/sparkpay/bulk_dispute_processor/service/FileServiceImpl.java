@@ -1,14 +1,17 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
 
 @Slf4j
 @Service
@@ -17,6 +20,10 @@ public class FileServiceImpl implements FileService {
     @Value("${bulk.files.base-path:C:/Users/USER/Downloads/sparkpay.bulk_dispute_processor/sparkpay.bulk_dispute_processor/uploads}")
     private String basePath;
 
+    // Preview can seek to every this many rows of a session file
+    @Value("${bulk.preview.index-interval-rows:1000}")
+    private int indexIntervalRows;
+
     public String saveSessionFile(Long sessionId, MultipartFile file) throws IOException {
         Path baseDir = Paths.get(basePath);
         Files.createDirectories(baseDir);
@@ -39,6 +46,7 @@ public class FileServiceImpl implements FileService {
             throw e;
         }
         
+        indexSessionFile(filePath, null);
         log.info("Saved session file: {}", filePath);
         return filePath.toString();
     }
@@ -48,13 +56,7 @@ public class FileServiceImpl implements FileService {
         String fileName = sessionId + ".csv";
         Path filePath = baseDir.resolve(fileName);
         
-        // Backup the existing file before overwriting
-        if (Files.exists(filePath)) {
-            String backupFileName = sessionId + "_backup_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
-            Path backupPath = baseDir.resolve(backupFileName);
-            Files.copy(filePath, backupPath, StandardCopyOption.REPLACE_EXISTING);
-            log.info("Created backup: {}", backupPath);
-        }
+        backupSessionFile(sessionId, baseDir, filePath);
         Path tempPath = baseDir.resolve(fileName + ".tmp");
         
         try {
@@ -69,16 +71,78 @@ public class FileServiceImpl implements FileService {
             throw e;
         }
         
+        indexSessionFile(filePath, null);
         log.info("Overwritten session file: {}", filePath);
         return filePath.toString();
     }
 
+    /**
+     * Start copying an upload to a temp file in the upload directory as it is read
+     */
+    public SessionFileUpload beginSessionUpload(MultipartFile file) throws IOException {
+        Path baseDir = Paths.get(basePath);
+        Files.createDirectories(baseDir);
+        
+        Path tempPath = baseDir.resolve("upload_" + UUID.randomUUID() + ".csv.tmp");
+        InputStream source = file.getInputStream();
+        try {
+            return new SessionFileUpload(source, tempPath, indexIntervalRows);
+        } catch (IOException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finish an upload and move it into place as the session file
+     */
+    public String saveSessionUpload(Long sessionId, SessionFileUpload upload) throws IOException {
+        Path filePath = getSessionFilePath(sessionId);
+        moveUpload(upload, filePath);
+        
+        log.info("Saved session file: {} ({} bytes)", filePath, upload.getBytesWritten());
+        return filePath.toString();
+    }
+
+    /**
+     * Finish an upload and replace the session file with it, keeping a backup of the old one
+     */
+    public String overwriteSessionUpload(Long sessionId, SessionFileUpload upload) throws IOException {
+        Path baseDir = Paths.get(basePath);
+        Path filePath = getSessionFilePath(sessionId);
+        backupSessionFile(sessionId, baseDir, filePath);
+        moveUpload(upload, filePath);
+        
+        log.info("Overwritten session file: {} ({} bytes)", filePath, upload.getBytesWritten());
+        return filePath.toString();
+    }
+
     public Path getSessionFilePath(Long sessionId) {
         Path baseDir = Paths.get(basePath);
         String fileName = sessionId + ".csv";
         return baseDir.resolve(fileName);
     }
 
+    /**
+     * Row index of a session file, rebuilt if it is missing or older than the file
+     */
+    public CsvRowIndex getRowIndex(Path sessionFile) throws IOException {
+        Path indexPath = rowIndexPath(sessionFile);
+        if (Files.exists(indexPath)) {
+            try {
+                CsvRowIndex index = CsvRowIndex.read(indexPath);
+                if (index != null && index.isCurrent(sessionFile)) {
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warn("Unreadable row index {}, rebuilding it: {}", indexPath, e.getMessage());
+            }
+        }
+        CsvRowIndex index = CsvRowIndex.build(sessionFile, indexIntervalRows);
+        writeRowIndex(sessionFile, index);
+        return index;
+    }
+
     public boolean sessionFileExists(Long sessionId) {
         Path filePath = getSessionFilePath(sessionId);
         return Files.exists(filePath);
@@ -88,6 +152,7 @@ public class FileServiceImpl implements FileService {
         Path filePath = getSessionFilePath(sessionId);
         try {
             Files.deleteIfExists(filePath);
+            Files.deleteIfExists(rowIndexPath(filePath));
             log.info("Deleted session file: {}", filePath);
         } catch (IOException e) {
             log.error("Failed to delete session file: {}", filePath, e);
@@ -99,4 +164,65 @@ public class FileServiceImpl implements FileService {
         String fileName = sessionId + "_errors_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
         return baseDir.resolve(fileName).toString();
     }
+
+    /**
+     * Journal of the rows a job, or one partition or chunk of it, applied after its last checkpoint
+     * @param partitionIndex Index of the partition or chunk, or null for a job processed start to end
+     */
+    public Path getAppliedRowsPath(Long sessionId, Long jobId, Integer partitionIndex) {
+        Path baseDir = Paths.get(basePath);
+        String fileName = sessionId + "_applied_job" + jobId + (partitionIndex != null ? "_part" + partitionIndex : "") + ".log";
+        return baseDir.resolve(fileName);
+    }
+
+    private void moveUpload(SessionFileUpload upload, Path filePath) throws IOException {
+        Path tempPath = upload.finish();
+        try {
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException cleanupException) {
+                log.warn("Failed to clean up temp file: {}", tempPath, cleanupException);
+            }
+            throw e;
+        }
+        indexSessionFile(filePath, upload.getRowIndex());
+    }
+
+    /**
+     * Store the row index of a saved session file, scanning the file unless the index was built as it was written.
+     * A failure only costs the next preview a rebuild.
+     */
+    private void indexSessionFile(Path filePath, CsvRowIndex.Builder builder) {
+        try {
+            writeRowIndex(filePath, builder != null ? builder.build(filePath) : CsvRowIndex.build(filePath, indexIntervalRows));
+        } catch (IOException e) {
+            log.warn("Failed to index session file {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private void writeRowIndex(Path filePath, CsvRowIndex index) {
+        try {
+            index.write(rowIndexPath(filePath));
+        } catch (IOException e) {
+            log.warn("Failed to write row index for {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static Path rowIndexPath(Path sessionFile) {
+        return sessionFile.resolveSibling(sessionFile.getFileName() + ".idx");
+    }
+
+    /**
+     * Backup the existing file before overwriting
+     */
+    private void backupSessionFile(Long sessionId, Path baseDir, Path filePath) throws IOException {
+        if (Files.exists(filePath)) {
+            String backupFileName = sessionId + "_backup_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
+            Path backupPath = baseDir.resolve(backupFileName);
+            Files.copy(filePath, backupPath, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Created backup: {}", backupPath);
+        }
+    }
 }
@@ -0,0 +1,226 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous audit sink for job audit entries.
+ * Entries are buffered in a bounded queue and written by a background thread with multi-row inserts.
+ * When the queue is full, callers wait up to the offer timeout and then write their entry directly,
+ * so audit entries are never dropped. A failed batch is retried with backoff and then written entry by
+ * entry, so one bad entry does not take the others with it; entries that still fail are queued again.
+ * An entry that cannot be written after all of that is logged in full. Remaining entries are drained on shutdown.
+ */
+@Slf4j
+@Service
+public class JobAuditWriter {
+
+    @Autowired
+    private BulkDisputeJobAuditRepository auditRepository;
+
+    @Value("${bulk.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${bulk.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${bulk.audit.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${bulk.audit.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    // Attempts per write, with a backoff doubling from retry-backoff-ms between them
+    @Value("${bulk.audit.write-attempts:3}")
+    private int writeAttempts;
+
+    @Value("${bulk.audit.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    // Times an entry that failed every attempt is queued again before it is given up and logged
+    @Value("${bulk.audit.max-requeues:5}")
+    private int maxRequeues;
+
+    private BlockingQueue<BulkDisputeJobAudit> queue;
+    private Thread drainThread;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private final Map<BulkDisputeJobAudit, Integer> requeues = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        stopped = false;
+        drainThread = new Thread(this::drainLoop, "job-audit-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        log.info("Job audit writer started: queueCapacity={}, batchSize={}, flushIntervalMs={}",
+                queueCapacity, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * Queue an audit entry for a job
+     */
+    public void record(Long jobId, String action, String message) {
+        BulkDisputeJobAudit audit = BulkDisputeJobAudit.builder()
+                .jobId(jobId)
+                .action(action)
+                .message(message)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        try {
+            if (running && queue.offer(audit, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            if (running) {
+                log.warn("Audit queue full for {}ms, writing entry for job {} directly", offerTimeoutMs, jobId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write(List.of(audit));
+    }
+
+    /**
+     * Stop accepting queued entries and write whatever is still buffered
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            drainThread.join(Math.max(flushIntervalMs * 2, 5000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the drain thread did not get to is written on the caller's thread,
+        // including entries queued again by a failed write; the requeue limit bounds this
+        drainRemaining();
+        stopped = true;
+        drainRemaining();
+        log.info("Job audit writer stopped");
+    }
+
+    private void drainRemaining() {
+        List<BulkDisputeJobAudit> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, Math.max(1, batchSize)) > 0) {
+            write(remaining);
+            remaining.clear();
+        }
+    }
+
+    private void drainLoop() {
+        List<BulkDisputeJobAudit> batch = new ArrayList<>(Math.max(1, batchSize));
+        while (running || !queue.isEmpty()) {
+            try {
+                BulkDisputeJobAudit first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Collect entries until the batch is full or the flush interval since the first entry has passed
+     */
+    private void fillBatch(List<BulkDisputeJobAudit> batch) throws InterruptedException {
+        int limit = Math.max(1, batchSize);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < limit && running) {
+            queue.drainTo(batch, limit - batch.size());
+            long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() >= limit || remainingNanos <= 0) {
+                return;
+            }
+            BulkDisputeJobAudit next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+        queue.drainTo(batch, limit - batch.size());
+    }
+
+    private void write(List<BulkDisputeJobAudit> batch) {
+        if (trySave(batch)) {
+            return;
+        }
+        if (batch.size() > 1) {
+            log.warn("Writing {} audit entries one by one after their batch failed", batch.size());
+        }
+        for (BulkDisputeJobAudit audit : batch) {
+            if (batch.size() == 1 || !trySave(List.of(audit))) {
+                requeue(audit);
+            }
+        }
+    }
+
+    /**
+     * Insert the entries, retrying with backoff. Returns false if every attempt failed.
+     */
+    private boolean trySave(List<BulkDisputeJobAudit> entries) {
+        int attempts = Math.max(1, writeAttempts);
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                auditRepository.saveAll(entries);
+                log.debug("Wrote {} audit entries", entries.size());
+                if (!requeues.isEmpty()) {
+                    entries.forEach(requeues::remove);
+                }
+                return true;
+            } catch (Exception e) {
+                log.warn("Error writing {} audit entries (attempt {} of {}): {}", entries.size(), attempt, attempts, e.getMessage());
+            }
+            if (attempt < attempts) {
+                try {
+                    Thread.sleep(retryBackoffMs << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queue an entry that could not be written again, or log it in full once that is no longer possible
+     */
+    private void requeue(BulkDisputeJobAudit audit) {
+        int times = requeues.merge(audit, 1, Integer::sum);
+        if (!stopped && times <= maxRequeues && queue.offer(audit)) {
+            log.warn("Queued audit entry for job {} again after a failed write ({} of {})", audit.getJobId(), times, maxRequeues);
+            return;
+        }
+        requeues.remove(audit);
+        log.error("Audit entry could not be written: jobId={}, action={}, createdAt={}, message={}",
+                audit.getJobId(), audit.getAction(), audit.getCreatedAt(), audit.getMessage());
+    }
+}
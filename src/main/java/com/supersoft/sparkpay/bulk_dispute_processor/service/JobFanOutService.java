@@ -0,0 +1,150 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobPartitionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Fans large jobs out into chunk messages so every worker node shares the rows of one file.
+ * Chunks are job partitions published to the chunk queue; a node claims a chunk before processing it,
+ * and a chunk whose node stops checkpointing is released and published again.
+ * The files base path must be storage shared by all nodes.
+ */
+@Slf4j
+@Service
+public class JobFanOutService {
+
+    @Autowired
+    private BulkDisputeJobPartitionRepository partitionRepository;
+
+    @Autowired
+    private BulkDisputeJobRepository jobRepository;
+
+    @Autowired
+    private BulkDisputeSessionRepository sessionRepository;
+
+    @Autowired
+    private JobPartitionPlanner partitionPlanner;
+
+    @Autowired
+    private JobMessagePublisher messagePublisher;
+
+    @Autowired
+    private JobAuditWriter auditWriter;
+
+    @Value("${bulk.worker.fan-out.enabled:false}")
+    private boolean enabled;
+
+    // Files of at least this size are fanned out
+    @Value("${bulk.worker.fan-out.threshold-mb:20}")
+    private long thresholdMb;
+
+    @Value("${bulk.worker.fan-out.chunk-size-mb:8}")
+    private long chunkSizeMb;
+
+    // A claimed chunk that has not checkpointed for this long is taken over by another node
+    @Value("${bulk.worker.fan-out.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a job over this file should be fanned out to chunk messages
+     */
+    public boolean shouldFanOut(Path file) throws IOException {
+        return enabled && Files.size(file) >= thresholdMb * 1024 * 1024;
+    }
+
+    /**
+     * Claims made before this time are stale
+     */
+    public LocalDateTime claimStaleBefore() {
+        return LocalDateTime.now().minusNanos(claimTimeoutMs * 1_000_000);
+    }
+
+    /**
+     * Plan the job's chunks unless it already has a plan, and publish a message for each pending chunk.
+     * Chunks claimed by a live node are left to it.
+     * @return Number of chunk messages published, or -1 if the file fits in one chunk and was not fanned out
+     */
+    public int dispatch(BulkDisputeJob job, JobMessagePublisher.JobMessage jobMessage) throws IOException {
+        List<BulkDisputeJobPartition> plan = partitionRepository.findByJobId(job.getId());
+        if (plan.isEmpty()) {
+            plan = partitionPlanner.plan(job.getId(), Paths.get(jobMessage.getFilePath()), chunkSizeMb * 1024 * 1024);
+            if (plan.isEmpty()) {
+                return -1;
+            }
+            plan = partitionRepository.saveAll(job.getId(), plan);
+            int rows = plan.get(plan.size() - 1).getLastRow();
+            auditWriter.record(job.getId(), "JOB_FANNED_OUT",
+                    String.format("Job split into %d chunks covering %d rows", plan.size(), rows));
+        }
+
+        int published = 0;
+        for (BulkDisputeJobPartition partition : plan) {
+            if (partition.getStatus() == BulkDisputeJobPartition.PartitionStatus.PENDING) {
+                messagePublisher.publishChunkMessage(
+                        new JobMessagePublisher.ChunkMessage(jobMessage, partition.getId(), partition.getPartitionIndex()));
+                published++;
+            }
+        }
+        log.info("Job {} fanned out: published {} of {} chunks", job.getId(), published, plan.size());
+        return published;
+    }
+
+    /**
+     * Publish again the chunks whose node stopped checkpointing, e.g. because it was shut down mid-chunk.
+     * Runs on every node; only the node that releases a chunk publishes it.
+     */
+    @Scheduled(fixedDelayString = "${bulk.worker.fan-out.requeue-interval-ms:60000}")
+    public void requeueStaleChunks() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime staleBefore = claimStaleBefore();
+            for (BulkDisputeJobPartition partition : partitionRepository.findStaleRunning(staleBefore)) {
+                Optional<JobMessagePublisher.JobMessage> jobMessage = jobMessageOf(partition.getJobId());
+                if (jobMessage.isEmpty() || !partitionRepository.releaseStale(partition.getId(), staleBefore)) {
+                    continue;
+                }
+                messagePublisher.publishChunkMessage(
+                        new JobMessagePublisher.ChunkMessage(jobMessage.get(), partition.getId(), partition.getPartitionIndex()));
+                auditWriter.record(partition.getJobId(), "CHUNK_REQUEUED",
+                        String.format("Chunk %d requeued after its worker stopped responding at row %d",
+                                partition.getPartitionIndex(), partition.getLastProcessedRow()));
+                log.warn("Requeued stale chunk {} of job {}", partition.getPartitionIndex(), partition.getJobId());
+            }
+        } catch (Exception e) {
+            log.error("Error requeuing stale chunks", e);
+        }
+    }
+
+    private Optional<JobMessagePublisher.JobMessage> jobMessageOf(Long jobId) {
+        Optional<BulkDisputeJob> job = jobRepository.findById(jobId);
+        if (job.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<BulkDisputeSession> session = sessionRepository.findById(job.get().getSessionId());
+        return session.map(s -> new JobMessagePublisher.JobMessage(jobId, s.getId(), s.getFilePath(), s.getUploadedBy()));
+    }
+}
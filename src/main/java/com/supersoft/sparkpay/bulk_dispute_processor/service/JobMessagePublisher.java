@@ -3,11 +3,24 @@ package com.supersoft.sparkpay.bulk_dispute_processor.service;
 public interface JobMessagePublisher {
     void publishJobMessage(JobMessage jobMessage);
     
+    /**
+     * Publish a job message that reaches bulk.jobs after at least the given delay, through the retry queue
+     * of the matching backoff tier; without a delay it is published straight away
+     */
+    void publishDelayedJobMessage(JobMessage jobMessage, long delayMs);
+    
+    /**
+     * Publish one chunk of a fanned-out job to the chunk queue, for any worker node to process
+     */
+    void publishChunkMessage(ChunkMessage chunkMessage);
+    
     class JobMessage {
         private Long jobId;
         private Long sessionId;
         private String filePath;
         private String uploadedBy;
+        // Set on the delayed message that resumes a job paused by an infrastructure failure
+        private boolean resume;
 
         public JobMessage() {}
 
@@ -27,5 +40,28 @@ public interface JobMessagePublisher {
         public void setFilePath(String filePath) { this.filePath = filePath; }
         public String getUploadedBy() { return uploadedBy; }
         public void setUploadedBy(String uploadedBy) { this.uploadedBy = uploadedBy; }
+        public boolean isResume() { return resume; }
+        public void setResume(boolean resume) { this.resume = resume; }
+    }
+    
+    /**
+     * A partition of a job's file; the row range and checkpoint are read from the partition table
+     */
+    class ChunkMessage extends JobMessage {
+        private Long partitionId;
+        private int partitionIndex;
+
+        public ChunkMessage() {}
+
+        public ChunkMessage(JobMessage jobMessage, Long partitionId, int partitionIndex) {
+            super(jobMessage.getJobId(), jobMessage.getSessionId(), jobMessage.getFilePath(), jobMessage.getUploadedBy());
+            this.partitionId = partitionId;
+            this.partitionIndex = partitionIndex;
+        }
+
+        public Long getPartitionId() { return partitionId; }
+        public void setPartitionId(Long partitionId) { this.partitionId = partitionId; }
+        public int getPartitionIndex() { return partitionIndex; }
+        public void setPartitionIndex(int partitionIndex) { this.partitionIndex = partitionIndex; }
     }
 }
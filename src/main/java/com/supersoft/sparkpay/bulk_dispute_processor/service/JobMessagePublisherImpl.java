@@ -4,6 +4,7 @@ import com.supersoft.sparkpay.bulk_dispute_processor.config.RabbitMQConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -13,6 +14,16 @@ public class JobMessagePublisherImpl implements JobMessagePublisher {
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    // The backoff the retry queues were declared with
+    @Value("${bulk.retry.initial-delay-ms:30000}")
+    private long initialDelayMs;
+
+    @Value("${bulk.retry.multiplier:2.0}")
+    private double retryMultiplier;
+
+    @Value("${bulk.retry.max-delay-ms:300000}")
+    private long maxDelayMs;
+
     @Override
     public void publishJobMessage(JobMessage jobMessage) {
         try {
@@ -24,4 +35,33 @@ public class JobMessagePublisherImpl implements JobMessagePublisher {
             throw new RuntimeException("Failed to publish job message", e);
         }
     }
+
+    @Override
+    public void publishDelayedJobMessage(JobMessage jobMessage, long delayMs) {
+        if (delayMs <= 0) {
+            publishJobMessage(jobMessage);
+            return;
+        }
+        long tier = RabbitMQConfig.retryTierFor(RabbitMQConfig.retryDelayTiers(initialDelayMs, retryMultiplier, maxDelayMs), delayMs);
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.BULK_JOBS_EXCHANGE, RabbitMQConfig.retryRoutingKey(tier), jobMessage);
+            log.info("Published job message for jobId: {} with a delay of {}ms", jobMessage.getJobId(), tier);
+        } catch (Exception e) {
+            log.error("Failed to publish delayed job message for jobId: {}", jobMessage.getJobId(), e);
+            throw new RuntimeException("Failed to publish delayed job message", e);
+        }
+    }
+
+    @Override
+    public void publishChunkMessage(ChunkMessage chunkMessage) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.BULK_JOBS_EXCHANGE, "chunk", chunkMessage);
+            log.debug("Published chunk message for jobId: {}, partition: {}", 
+                    chunkMessage.getJobId(), chunkMessage.getPartitionIndex());
+        } catch (Exception e) {
+            log.error("Failed to publish chunk message for jobId: {}, partition: {}", 
+                    chunkMessage.getJobId(), chunkMessage.getPartitionIndex(), e);
+            throw new RuntimeException("Failed to publish chunk message", e);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvChunker;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Splits a job's file into partitions of whole records, numbered as a sequential run numbers its rows
+ * (the first data row is row 1). Used both for partitions run on one node and for chunks fanned out
+ * to all nodes; the caller stores the plan.
+ */
+@Component
+public class JobPartitionPlanner {
+
+    /**
+     * Plan partitions of about targetBytes each, or an empty plan if the file fits in one
+     */
+    public List<BulkDisputeJobPartition> plan(Long jobId, Path path, long targetBytes) throws IOException {
+        return plan(jobId, path, targetBytes, Runnable::run);
+    }
+
+    /**
+     * Plan partitions of about targetBytes each, counting the rows of each partition on the executor
+     */
+    public List<BulkDisputeJobPartition> plan(Long jobId, Path path, long targetBytes, Executor executor) throws IOException {
+        List<CsvChunker.Chunk> chunks = CsvChunker.split(path, targetBytes);
+        if (chunks.size() < 2) {
+            return List.of();
+        }
+
+        List<FutureTask<Integer>> rowCounts = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            boolean firstChunk = i == 0;
+            CsvChunker.Chunk chunk = chunks.get(i);
+            FutureTask<Integer> rowCount = new FutureTask<>(() -> countDataRows(path, chunk, firstChunk));
+            executor.execute(rowCount);
+            rowCounts.add(rowCount);
+        }
+
+        List<BulkDisputeJobPartition> plan = new ArrayList<>(chunks.size());
+        int nextRow = 1;
+        for (int i = 0; i < chunks.size(); i++) {
+            CsvChunker.Chunk chunk = chunks.get(i);
+            int rows = await(rowCounts.get(i));
+            plan.add(BulkDisputeJobPartition.builder()
+                    .jobId(jobId)
+                    .partitionIndex(i)
+                    .startOffset(chunk.getStart())
+                    .endOffset(chunk.getEnd())
+                    .firstRow(nextRow)
+                    .lastRow(nextRow + rows - 1)
+                    .status(BulkDisputeJobPartition.PartitionStatus.PENDING)
+                    .lastProcessedRow(nextRow - 1)
+                    .build());
+            nextRow += rows;
+        }
+        return plan;
+    }
+
+    /**
+     * Open a reader over one partition of the file
+     */
+    public static CsvReader openPartition(Path path, BulkDisputeJobPartition partition) throws IOException {
+        return new CsvReader(CsvChunker.openChunk(path, new CsvChunker.Chunk(partition.getStartOffset(), partition.getEndOffset())));
+    }
+
+    private static int await(FutureTask<Integer> rowCount) throws IOException {
+        try {
+            return rowCount.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting partition rows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to count partition rows", e.getCause());
+        }
+    }
+
+    private static int countDataRows(Path path, CsvChunker.Chunk chunk, boolean firstChunk) throws IOException {
+        try (CsvReader csv = new CsvReader(CsvChunker.openChunk(path, chunk))) {
+            int records = 0;
+            while (csv.nextRecord()) {
+                records++;
+            }
+            // The first chunk starts with the header
+            return firstChunk ? Math.max(0, records - 1) : records;
+        }
+    }
+}
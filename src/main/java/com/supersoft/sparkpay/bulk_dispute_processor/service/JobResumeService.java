@@ -4,13 +4,10 @@ import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Slf4j
@@ -24,11 +21,14 @@ public class JobResumeService {
     private BulkDisputeSessionRepository sessionRepository;
     
     @Autowired
-    private BulkDisputeJobAuditRepository auditRepository;
+    private JobAuditWriter auditWriter;
     
     @Autowired
     private AtomicJobUpdater atomicJobUpdater;
 
+    @Autowired
+    private JobRetryService jobRetryService;
+
     /**
      * Resume a paused job from where it left off
      * This is different from retry - it continues from the last processed row
@@ -49,20 +49,22 @@ public class JobResumeService {
                 return false;
             }
 
-            // Atomically update job status to RUNNING
+            // Atomically put the job back to PENDING and queue it; the worker that claims it
+            // continues from the last checkpoint
             boolean statusUpdated = atomicJobUpdater.updateJobStatus(jobId, 
-                BulkDisputeJob.JobStatus.RUNNING, BulkDisputeJob.JobStatus.PAUSED);
+                BulkDisputeJob.JobStatus.PENDING, BulkDisputeJob.JobStatus.PAUSED);
             
             if (!statusUpdated) {
                 log.warn("Failed to update job status for resume: jobId={}", jobId);
                 return false;
             }
+            jobRetryService.publishRetry(job, 0, false);
 
             // Check session status (sessions end at CONFIRMED)
             updateSessionStatus(job.getSessionId(), BulkDisputeSession.SessionStatus.CONFIRMED);
 
             // Add audit entry
-            addAuditEntry(jobId, "JOB_RESUMED", 
+            auditWriter.record(jobId, "JOB_RESUMED", 
                 String.format("Job resumed from row %d", job.getLastProcessedRow() + 1));
 
             log.info("Job {} resumed successfully from row {}", jobId, job.getLastProcessedRow() + 1);
@@ -106,7 +108,7 @@ public class JobResumeService {
             updateSessionStatus(job.getSessionId(), BulkDisputeSession.SessionStatus.CONFIRMED);
 
             // Add audit entry
-            addAuditEntry(jobId, "JOB_PAUSED", String.format("Job paused: %s", reason));
+            auditWriter.record(jobId, "JOB_PAUSED", String.format("Job paused: %s", reason));
 
             log.info("Job {} paused successfully. Reason: {}", jobId, reason);
             return true;
@@ -176,21 +178,4 @@ public class JobResumeService {
             log.error("Error checking session status for session {}: {}", sessionId, e.getMessage(), e);
         }
     }
-
-    /**
-     * Add audit entry for resume operations
-     */
-    private void addAuditEntry(Long jobId, String action, String message) {
-        try {
-            BulkDisputeJobAudit audit = BulkDisputeJobAudit.builder()
-                    .jobId(jobId)
-                    .action(action)
-                    .message(message)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            auditRepository.save(audit);
-        } catch (Exception e) {
-            log.error("Error adding audit entry for job {}: {}", jobId, e.getMessage(), e);
-        }
-    }
 }
@@ -1,9 +1,9 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
-import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,11 +20,17 @@ public class JobRetryService {
     private BulkDisputeJobRepository jobRepository;
     
     @Autowired
-    private BulkDisputeJobAuditRepository auditRepository;
+    private JobAuditWriter auditWriter;
     
     @Autowired
     private FailureClassifier failureClassifier;
 
+    @Autowired
+    private BulkDisputeSessionRepository sessionRepository;
+
+    @Autowired
+    private JobMessagePublisher messagePublisher;
+
     // Configuration properties
     @Value("${bulk.retry.max-attempts:3}")
     private int maxRetryAttempts;
@@ -60,7 +66,7 @@ public class JobRetryService {
             }
 
             // Add audit entry for retry attempt
-            addAuditEntry(jobId, "RETRY_ATTEMPT", 
+            auditWriter.record(jobId, "RETRY_ATTEMPT", 
                 String.format("Retrying row %d (attempt %d/%d)", rowNumber, getRetryCount(jobId) + 1, maxRetries));
 
             log.info("Retrying failed row {} for job {}", rowNumber, jobId);
@@ -132,9 +138,10 @@ public class JobRetryService {
             job.setNextRetryAt(nextRetryAt);
             job.setStatus(BulkDisputeJob.JobStatus.PENDING);
             jobRepository.save(job);
+            publishRetry(job, retryDelay, false);
 
             // Add audit entry
-            addAuditEntry(jobId, "AUTO_RETRY_SCHEDULED", 
+            auditWriter.record(jobId, "AUTO_RETRY_SCHEDULED", 
                 String.format("Automatic retry scheduled for attempt %d/%d (delay: %dms, reason: %s)", 
                     job.getRetryCount(), maxRetryAttempts, retryDelay, failureReason));
 
@@ -148,6 +155,30 @@ public class JobRetryService {
         }
     }
 
+    /**
+     * Queue the job's message to reach the workers after the delay. A message that cannot be published
+     * is left to the retry safety net, which republishes overdue PENDING jobs.
+     * @param resume Whether the message resumes a job paused by an infrastructure failure
+     * @return true if the message was published
+     */
+    public boolean publishRetry(BulkDisputeJob job, long delayMs, boolean resume) {
+        try {
+            Optional<BulkDisputeSession> session = sessionRepository.findById(job.getSessionId());
+            if (session.isEmpty()) {
+                log.error("Session {} not found for retry of job {}", job.getSessionId(), job.getId());
+                return false;
+            }
+            JobMessagePublisher.JobMessage jobMessage = new JobMessagePublisher.JobMessage(
+                    job.getId(), session.get().getId(), session.get().getFilePath(), session.get().getUploadedBy());
+            jobMessage.setResume(resume);
+            messagePublisher.publishDelayedJobMessage(jobMessage, delayMs);
+            return true;
+        } catch (Exception e) {
+            log.error("Error publishing retry of job {}; left to the retry safety net", job.getId(), e);
+            return false;
+        }
+    }
+
     /**
      * Calculate retry delay using exponential backoff
      */
@@ -182,21 +213,4 @@ public class JobRetryService {
             return false;
         }
     }
-
-    /**
-     * Add audit entry for retry operations
-     */
-    private void addAuditEntry(Long jobId, String action, String message) {
-        try {
-            BulkDisputeJobAudit audit = BulkDisputeJobAudit.builder()
-                    .jobId(jobId)
-                    .action(action)
-                    .message(message)
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            auditRepository.save(audit);
-        } catch (Exception e) {
-            log.error("Error adding audit entry for job {}: {}", jobId, e.getMessage(), e);
-        }
-    }
 }
@@ -3,13 +3,29 @@ package com.supersoft.sparkpay.bulk_dispute_processor.service;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Service for retrieving live dispute statuses
+ * Service for retrieving live dispute statuses.
+ * Statuses are cached per unique key for a short TTL, including keys with no dispute, since previews
+ * are polled and show the same rows over and over. A key missing from the cache is loaded by one
+ * request only; concurrent requests for it wait for that load instead of querying again.
+ * The worker invalidates keys as it updates their disputes; other nodes see the change once the TTL expires.
  */
 @Slf4j
 @Service
@@ -18,6 +34,32 @@ public class LiveStatusService {
     @Autowired
     private DisputeRepository disputeRepository;
 
+    @Value("${bulk.live-status.cache.max-entries:10000}")
+    private int maxEntries;
+
+    // 0 disables the cache
+    @Value("${bulk.live-status.cache.ttl-ms:15000}")
+    private long ttlMs;
+
+    // Access-ordered, so the least recently read entries are evicted first
+    private final Map<String, CachedStatus> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatus> eldest) {
+            if (size() > Math.max(1, maxEntries)) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
     /**
      * Get live status information for a list of unique keys
      * @param uniqueKeys List of unique keys to check
@@ -28,11 +70,66 @@ public class LiveStatusService {
             log.debug("No unique keys provided for live status check");
             return Map.of();
         }
+        if (ttlMs <= 0) {
+            return disputeRepository.getDisputeStatuses(uniqueKeys);
+        }
 
-        log.info("LiveStatusService: Getting live statuses for {} unique keys: {}", uniqueKeys.size(), uniqueKeys);
-        Map<String, DisputeRepository.DisputeStatusInfo> statuses = disputeRepository.getDisputeStatuses(uniqueKeys);
-        
-        log.info("LiveStatusService: Retrieved live statuses for {} out of {} requested keys", statuses.size(), uniqueKeys.size());
+        Set<String> keys = new LinkedHashSet<>(uniqueKeys);
+        Map<String, DisputeRepository.DisputeStatusInfo> statuses = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (cache) {
+            for (String uniqueKey : keys) {
+                CachedStatus cached = cache.get(uniqueKey);
+                if (cached != null && cached.isFresh(now, ttlMs)) {
+                    if (cached.info != null) {
+                        statuses.put(uniqueKey, cached.info);
+                    }
+                } else {
+                    missing.add(uniqueKey);
+                }
+            }
+        }
+        hits.add(keys.size() - missing.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            log.debug("LiveStatusService: All {} live statuses served from cache", uniqueKeys.size());
+            return statuses;
+        }
+
+        // Load the keys no other request is loading, and wait for the others
+        Map<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> loading = new HashMap<>();
+        for (String uniqueKey : missing) {
+            CompletableFuture<DisputeRepository.DisputeStatusInfo> load = new CompletableFuture<>();
+            CompletableFuture<DisputeRepository.DisputeStatusInfo> existing = inFlight.putIfAbsent(uniqueKey, load);
+            if (existing == null) {
+                owned.put(uniqueKey, load);
+            } else {
+                loading.put(uniqueKey, existing);
+            }
+        }
+        if (!owned.isEmpty()) {
+            load(owned);
+        }
+        owned.putAll(loading);
+
+        for (Map.Entry<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> entry : owned.entrySet()) {
+            try {
+                DisputeRepository.DisputeStatusInfo info = entry.getValue().get();
+                if (info != null) {
+                    statuses.put(entry.getKey(), info);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Logged by the loading request; the row is shown without a live status
+            }
+        }
+
+        log.info("LiveStatusService: Retrieved live statuses for {} out of {} requested keys ({} loaded)",
+                statuses.size(), uniqueKeys.size(), missing.size());
         return statuses;
     }
 
@@ -64,4 +161,122 @@ public class LiveStatusService {
         }
         return status.getStatusDescription();
     }
+
+    /**
+     * Drop cached statuses of disputes that were just updated. A load that started before
+     * the invalidation does not put its older result back. Keys that are neither cached nor
+     * being loaded are skipped, so a large job does not push the previewed keys out of the cache.
+     */
+    public void invalidate(Collection<String> uniqueKeys) {
+        if (ttlMs <= 0 || uniqueKeys.isEmpty()) {
+            return;
+        }
+        // Taken before checking for loads, so a load registered after the check queries the updated rows
+        long invalidation = invalidations.incrementAndGet();
+        synchronized (cache) {
+            for (String uniqueKey : uniqueKeys) {
+                if (cache.containsKey(uniqueKey) || inFlight.containsKey(uniqueKey)) {
+                    cache.put(uniqueKey, CachedStatus.invalidated(invalidation));
+                }
+            }
+        }
+    }
+
+    public CacheStats getCacheStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), loads.sum(), evictions.sum(), size);
+    }
+
+    /**
+     * Query the given keys in one statement and complete their loads, caching what was found
+     * and that the rest have no dispute
+     */
+    private void load(Map<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> owned) {
+        long invalidation = invalidations.get();
+        loads.increment();
+        try {
+            Map<String, DisputeRepository.DisputeStatusInfo> loaded = disputeRepository.findDisputeStatuses(new ArrayList<>(owned.keySet()));
+            long loadedAt = System.nanoTime();
+            synchronized (cache) {
+                for (String uniqueKey : owned.keySet()) {
+                    CachedStatus current = cache.get(uniqueKey);
+                    if (current == null || current.invalidation <= invalidation) {
+                        cache.put(uniqueKey, new CachedStatus(loaded.get(uniqueKey), loadedAt, invalidation));
+                    }
+                }
+            }
+            for (Map.Entry<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> entry : owned.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+                entry.getValue().complete(loaded.get(entry.getKey()));
+            }
+        } catch (RuntimeException e) {
+            log.error("Error getting dispute statuses", e);
+            for (Map.Entry<String, CompletableFuture<DisputeRepository.DisputeStatusInfo>> entry : owned.entrySet()) {
+                inFlight.remove(entry.getKey(), entry.getValue());
+                entry.getValue().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Cached status of one key; info is null for a key with no dispute
+     */
+    private static class CachedStatus {
+        private final DisputeRepository.DisputeStatusInfo info;
+        private final long loadedAt;
+        private final long invalidation;
+        private final boolean valid;
+
+        CachedStatus(DisputeRepository.DisputeStatusInfo info, long loadedAt, long invalidation) {
+            this(info, loadedAt, invalidation, true);
+        }
+
+        private CachedStatus(DisputeRepository.DisputeStatusInfo info, long loadedAt, long invalidation, boolean valid) {
+            this.info = info;
+            this.loadedAt = loadedAt;
+            this.invalidation = invalidation;
+            this.valid = valid;
+        }
+
+        static CachedStatus invalidated(long invalidation) {
+            return new CachedStatus(null, 0, invalidation, false);
+        }
+
+        boolean isFresh(long now, long ttlMs) {
+            return valid && now - loadedAt < ttlMs * 1_000_000;
+        }
+    }
+
+    /**
+     * Cache counters since startup; hits and misses count unique keys, loads count queries
+     */
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long loads;
+        private final long evictions;
+        private final int size;
+
+        public CacheStats(long hits, long misses, long loads, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getLoads() { return loads; }
+        public long getEvictions() { return evictions; }
+        public int getSize() { return size; }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests : 0;
+        }
+    }
 }
@@ -0,0 +1,245 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory map of unique code to proof file, so lookups do not list the proofs directory.
+ * Proof files are named {@code <uniqueCode>_<yyyyMMdd>_<HHmmss>.<ext>}; when a code has several files
+ * the latest name wins. The owner keeps it current on upload and delete, and {@link #reconcile()}
+ * picks up files added or removed outside the service.
+ * Files are found both in the flat base directory and in the sharded layout
+ * {@code <aa>/<bb>/} from {@link #shardDirectory(Path, String)}, so either layout can be in use.
+ * Lookups on disk list one shard directory; the flat base directory is listed at most once per
+ * recheck interval, and only when its modification time has changed since it was last listed.
+ */
+@Slf4j
+public class ProofIndex {
+
+    private static final Pattern PROOF_FILE_NAME = Pattern.compile("^(.+)_\\d{8}_\\d{6}\\.[^.]+$");
+    private static final Pattern SHARD_NAME = Pattern.compile("^[0-9a-f]{2}$");
+
+    private final Path baseDir;
+    private final long flatRecheckMs;
+    private final Map<String, Path> proofs = new ConcurrentHashMap<>();
+
+    // Modification time of the flat base directory when it was last listed, and when that was
+    private FileTime flatListedModified;
+    private long flatListedAt;
+
+    public ProofIndex(Path baseDir) {
+        this(baseDir, 0);
+    }
+
+    /**
+     * @param flatRecheckMs Minimum time between two listings of the flat base directory for lookups on disk
+     */
+    public ProofIndex(Path baseDir, long flatRecheckMs) {
+        this.baseDir = baseDir;
+        this.flatRecheckMs = flatRecheckMs;
+    }
+
+    public Path get(String uniqueCode) {
+        return proofs.get(uniqueCode);
+    }
+
+    public void put(String uniqueCode, Path proofFile) {
+        proofs.put(uniqueCode, proofFile);
+    }
+
+    /**
+     * Point the entry at a moved file, unless it has been replaced meanwhile
+     */
+    public boolean replace(String uniqueCode, Path oldFile, Path newFile) {
+        return proofs.replace(uniqueCode, oldFile, newFile);
+    }
+
+    /**
+     * Remove the entry only if it still points at the given file
+     */
+    public void remove(String uniqueCode, Path proofFile) {
+        proofs.remove(uniqueCode, proofFile);
+    }
+
+    /**
+     * Point-in-time copy of the entries, for scans that must not see concurrent updates
+     */
+    public Map<String, Path> snapshot() {
+        return new HashMap<>(proofs);
+    }
+
+    public int size() {
+        return proofs.size();
+    }
+
+    /**
+     * Bring the index in line with the proofs directory.
+     * Entries are only dropped once their file is gone, so uploads made during the scan are kept.
+     * @return Number of entries added, changed or removed
+     */
+    public int reconcile() throws IOException {
+        Map<String, Path> onDisk = new HashMap<>();
+        if (Files.isDirectory(baseDir)) {
+            FileTime modified = Files.getLastModifiedTime(baseDir);
+            scan(baseDir, 2, onDisk);
+            markFlatListed(modified);
+        }
+
+        int changes = 0;
+        for (Map.Entry<String, Path> entry : onDisk.entrySet()) {
+            Path current = proofs.get(entry.getKey());
+            Path reconciled = current == null || !Files.exists(current) ? entry.getValue() : latest(current, entry.getValue());
+            if (!reconciled.equals(current)) {
+                proofs.put(entry.getKey(), reconciled);
+                changes++;
+            }
+        }
+        for (Map.Entry<String, Path> entry : proofs.entrySet()) {
+            if (!onDisk.containsKey(entry.getKey()) && !Files.exists(entry.getValue())) {
+                if (proofs.remove(entry.getKey(), entry.getValue())) {
+                    changes++;
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Look a unique code up on disk, for a proof another node has written or moved since the last scan,
+     * and index what is found. Only the code's shard directory is listed, plus the flat base directory
+     * if includeFlat is set and it is due for a listing; a listing indexes every flat proof, so until
+     * the next one a flat proof missing from the index is taken to be missing from disk.
+     * @return The indexed proof file, or null if there is none on disk
+     */
+    public Path find(String uniqueCode, boolean includeFlat) throws IOException {
+        Path found = latestIn(shardDirectory(baseDir, uniqueCode), uniqueCode, null);
+        if (includeFlat) {
+            Path flat = listFlatIfDue(uniqueCode);
+            if (flat != null) {
+                found = found == null ? flat : latest(found, flat);
+            }
+        }
+        if (found == null) {
+            return null;
+        }
+        Path onDisk = found;
+        return proofs.compute(uniqueCode, (code, current) ->
+                current == null || !Files.exists(current) ? onDisk : latest(current, onDisk));
+    }
+
+    /**
+     * Directory of a proof in the sharded layout: two levels named after the first
+     * four hex digits of the SHA-256 of the unique code, e.g. {@code base/3f/a2/}
+     */
+    public static Path shardDirectory(Path baseDir, String uniqueCode) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(uniqueCode.getBytes(StandardCharsets.UTF_8));
+            return baseDir.resolve(String.format("%02x", hash[0])).resolve(String.format("%02x", hash[1]));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * List the flat base directory if it has changed since its last listing and the recheck interval has
+     * passed, and index the proofs in it. Concurrent misses share one listing.
+     * @return The flat proof file of the unique code, or null if there is none or no listing was due
+     */
+    private synchronized Path listFlatIfDue(String uniqueCode) throws IOException {
+        if (!Files.isDirectory(baseDir) || System.currentTimeMillis() - flatListedAt < flatRecheckMs) {
+            return null;
+        }
+        FileTime modified = Files.getLastModifiedTime(baseDir);
+        if (modified.equals(flatListedModified)) {
+            return null;
+        }
+
+        Map<String, Path> onDisk = new HashMap<>();
+        scan(baseDir, 0, onDisk);
+        markFlatListed(modified);
+        for (Map.Entry<String, Path> entry : onDisk.entrySet()) {
+            proofs.merge(entry.getKey(), entry.getValue(), ProofIndex::latest);
+        }
+        log.debug("Listed flat proofs directory {}: {} proof files", baseDir, onDisk.size());
+        return onDisk.get(uniqueCode);
+    }
+
+    private synchronized void markFlatListed(FileTime modified) {
+        flatListedModified = modified;
+        flatListedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Collect proof files in the directory, descending into shard directories up to the given depth
+     */
+    private static void scan(Path dir, int shardLevels, Map<String, Path> onDisk) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (Files.isDirectory(file)) {
+                    if (shardLevels > 0 && SHARD_NAME.matcher(fileName).matches()) {
+                        scan(file, shardLevels - 1, onDisk);
+                    }
+                    continue;
+                }
+                String uniqueCode = uniqueCodeOf(fileName);
+                if (uniqueCode != null && Files.isRegularFile(file)) {
+                    onDisk.merge(uniqueCode, file, ProofIndex::latest);
+                }
+            }
+        }
+    }
+
+    private static Path latestIn(Path dir, String uniqueCode, Path found) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return found;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                file -> uniqueCode.equals(uniqueCodeOf(file.getFileName().toString())))) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    found = found == null ? file : latest(found, file);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Unique code a proof file belongs to, or null if the name does not carry one
+     */
+    static String uniqueCodeOf(String fileName) {
+        Matcher matcher = PROOF_FILE_NAME.matcher(fileName);
+        if (matcher.matches()) {
+            return matcher.group(1);
+        }
+        // Not written by the service; lookups used to match on "<uniqueCode>_"
+        int separator = fileName.indexOf('_');
+        return separator > 0 ? fileName.substring(0, separator) : null;
+    }
+
+    /**
+     * The later of two proof files; of two copies of the same file, the one in a shard directory,
+     * so a node rescanning while a migrated flat copy is still kept switches to the new location
+     */
+    private static Path latest(Path a, Path b) {
+        int order = a.getFileName().toString().compareTo(b.getFileName().toString());
+        if (order == 0) {
+            return a.getNameCount() >= b.getNameCount() ? a : b;
+        }
+        return order > 0 ? a : b;
+    }
+}
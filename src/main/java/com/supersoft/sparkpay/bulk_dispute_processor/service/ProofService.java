@@ -1,8 +1,11 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
 
 public interface ProofService {
     
@@ -56,10 +59,25 @@ public interface ProofService {
     boolean deleteProof(String uniqueCode);
     
     /**
-     * Download a proof file
+     * Get a proof file as a resource that is read from disk while it is sent
      * @param uniqueCode The dispute's unique code
-     * @return The file content as bytes
-     * @throws IOException if file operations fail
+     * @return The proof file resource
+     * @throws IOException if no proof file exists
+     */
+    Resource getProofResource(String uniqueCode) throws IOException;
+
+    /**
+     * Find proofs whose file was last written before the cutoff
+     * @param cutoff Proofs written before this time are returned
+     * @return Unique codes of the proofs
+     */
+    List<String> findProofsOlderThan(Instant cutoff);
+
+    /**
+     * Delete the proof for a dispute if its file is still older than the cutoff, so a proof replaced meanwhile is kept
+     * @param uniqueCode The dispute's unique code
+     * @param cutoff Only a proof written before this time is deleted
+     * @return true if the proof was deleted
      */
-    byte[] downloadProof(String uniqueCode) throws IOException;
+    boolean deleteProofIfOlderThan(String uniqueCode, Instant cutoff);
 }
@@ -1,21 +1,35 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 public class ProofServiceImpl implements ProofService {
 
+    @Autowired
+    private DisputeRepository disputeRepository;
+
     @Value("${bulk.proofs.base-path:C:/Users/USER/Downloads/sparkpay.bulk_dispute_processor/sparkpay.bulk_dispute_processor/proofs}")
     private String basePath;
 
@@ -28,6 +42,54 @@ public class ProofServiceImpl implements ProofService {
     @Value("${bulk.proofs.replace-existing:true}")
     private boolean replaceExisting;
 
+    @Value("${bulk.proofs.sharded-layout:true}")
+    private boolean shardedLayout;
+
+    // With the flat layout, an index miss lists the base directory at most this often
+    @Value("${bulk.proofs.flat-recheck-interval-ms:10000}")
+    private long flatRecheckIntervalMs;
+
+    @Value("${bulk.proofs.migration.enabled:false}")
+    private boolean migrationEnabled;
+
+    @Value("${bulk.proofs.migration.batch-size:500}")
+    private int migrationBatchSize;
+
+    // A migrated proof's flat copy is kept this long, so every node rescans before it disappears
+    @Value("${bulk.proofs.migration.flat-copy-grace-ms:600000}")
+    private long flatCopyGraceMs;
+
+    private ProofIndex proofIndex;
+
+    // Flat proofs moved by this node, by the time they were moved; their flat copies are removed after the grace period
+    private final Map<Path, Instant> migratedFlatProofs = new ConcurrentHashMap<>();
+
+    /**
+     * Index the proofs directory before the first lookup
+     */
+    @PostConstruct
+    public void buildProofIndex() throws IOException {
+        proofIndex = new ProofIndex(Paths.get(basePath), flatRecheckIntervalMs);
+        proofIndex.reconcile();
+        log.info("Indexed {} proof files in {}", proofIndex.size(), basePath);
+    }
+
+    /**
+     * Pick up proof files added or removed outside the service
+     */
+    @Scheduled(fixedDelayString = "${bulk.proofs.index-rescan-interval-ms:300000}",
+            initialDelayString = "${bulk.proofs.index-rescan-interval-ms:300000}")
+    public void reconcileProofIndex() {
+        try {
+            int changes = proofIndex.reconcile();
+            if (changes > 0) {
+                log.info("Proof index reconciled with {} changes, {} proof files indexed", changes, proofIndex.size());
+            }
+        } catch (IOException e) {
+            log.error("Error rescanning proofs directory {}", basePath, e);
+        }
+    }
+
     @Override
     public String uploadProof(String uniqueCode, MultipartFile file) throws IOException {
         if (file.isEmpty()) {
@@ -61,6 +123,7 @@ public class ProofServiceImpl implements ProofService {
             if (replaceExisting) {
                 try {
                     Files.deleteIfExists(Paths.get(existingFilePath));
+                    proofIndex.remove(uniqueCode, Paths.get(existingFilePath));
                     log.info("Deleted existing proof file: {}", existingFilePath);
                 } catch (IOException e) {
                     log.warn("Failed to delete existing proof file: {}", existingFilePath, e);
@@ -73,10 +136,11 @@ public class ProofServiceImpl implements ProofService {
         // Generate filename using unique code and timestamp
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String filename = uniqueCode + "_" + timestamp + "." + fileExtension;
-        Path filePath = baseDir.resolve(filename);
+        Path filePath = proofDirectory(uniqueCode).resolve(filename);
 
         // Save file
         Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        proofIndex.put(uniqueCode, filePath);
 
         log.info("Proof uploaded successfully: uniqueCode={}, filename={}, size={} bytes", 
                 uniqueCode, filename, file.getSize());
@@ -101,6 +165,7 @@ public class ProofServiceImpl implements ProofService {
             if (replaceExisting) {
                 try {
                     Files.deleteIfExists(Paths.get(existingFilePath));
+                    proofIndex.remove(uniqueCode, Paths.get(existingFilePath));
                     log.info("Deleted existing proof file: {}", existingFilePath);
                 } catch (IOException e) {
                     log.warn("Failed to delete existing proof file: {}", existingFilePath, e);
@@ -115,10 +180,11 @@ public class ProofServiceImpl implements ProofService {
         String fileExtension = getFileExtension(originalFilename);
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String filename = uniqueCode + "_" + timestamp + "." + fileExtension;
-        Path filePath = baseDir.resolve(filename);
+        Path filePath = proofDirectory(uniqueCode).resolve(filename);
 
         // Save file
         Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        proofIndex.put(uniqueCode, filePath);
 
         log.info("Proof uploaded successfully: uniqueCode={}, filename={}, size={} bytes", 
                 uniqueCode, filename, file.getSize());
@@ -143,6 +209,7 @@ public class ProofServiceImpl implements ProofService {
             if (replaceExisting) {
                 try {
                     Files.deleteIfExists(Paths.get(existingFilePath));
+                    proofIndex.remove(uniqueCode, Paths.get(existingFilePath));
                     log.info("Deleted existing proof file: {}", existingFilePath);
                 } catch (IOException e) {
                     log.warn("Failed to delete existing proof file: {}", existingFilePath, e);
@@ -157,10 +224,11 @@ public class ProofServiceImpl implements ProofService {
         String fileExtension = getFileExtension(originalFilename);
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String filename = uniqueCode + "_" + timestamp + "." + fileExtension;
-        Path filePath = baseDir.resolve(filename);
+        Path filePath = proofDirectory(uniqueCode).resolve(filename);
 
         // Save file
         Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        proofIndex.put(uniqueCode, filePath);
 
         log.info("Proof uploaded successfully: uniqueCode={}, filename={}, size={} bytes", 
                 uniqueCode, filename, file.getSize());
@@ -168,22 +236,29 @@ public class ProofServiceImpl implements ProofService {
         return filePath.toString();
     }
 
+    /**
+     * Proof file of the unique code. The index is per node and only rescanned periodically, so a miss
+     * or an entry whose file is gone is checked on disk: a proof uploaded, moved or deleted by another
+     * node is seen straight away. The flat base directory is only listed when new proofs are written there,
+     * and then at most once per flat recheck interval, so a proof written there by another node may take
+     * that long to be seen.
+     */
     @Override
     public String getProofFilePath(String uniqueCode) {
-        Path baseDir = Paths.get(basePath);
-        if (!Files.exists(baseDir)) {
-            return null;
+        Path proofFile = proofIndex.get(uniqueCode);
+        if (proofFile != null && Files.exists(proofFile)) {
+            return proofFile.toString();
         }
 
         try {
-            return Files.list(baseDir)
-                    .filter(path -> path.getFileName().toString().startsWith(uniqueCode + "_"))
-                    .findFirst()
-                    .map(Path::toString)
-                    .orElse(null);
+            Path found = proofIndex.find(uniqueCode, !shardedLayout);
+            if (found == null && proofFile != null) {
+                proofIndex.remove(uniqueCode, proofFile);
+            }
+            return found != null ? found.toString() : null;
         } catch (IOException e) {
-            log.error("Error finding proof file for uniqueCode: {}", uniqueCode, e);
-            return null;
+            log.warn("Error looking up proof file for uniqueCode: {}", uniqueCode, e);
+            return proofFile != null ? proofFile.toString() : null;
         }
     }
 
@@ -201,6 +276,7 @@ public class ProofServiceImpl implements ProofService {
 
         try {
             Files.deleteIfExists(Paths.get(filePath));
+            proofIndex.remove(uniqueCode, Paths.get(filePath));
             log.info("Proof deleted successfully: uniqueCode={}", uniqueCode);
             return true;
         } catch (IOException e) {
@@ -210,13 +286,170 @@ public class ProofServiceImpl implements ProofService {
     }
 
     @Override
-    public byte[] downloadProof(String uniqueCode) throws IOException {
+    public List<String> findProofsOlderThan(Instant cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Path> entry : proofIndex.snapshot().entrySet()) {
+            if (isOlderThan(entry.getValue(), cutoff)) {
+                expired.add(entry.getKey());
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public boolean deleteProofIfOlderThan(String uniqueCode, Instant cutoff) {
+        Path proofFile = proofIndex.get(uniqueCode);
+        if (proofFile == null || !isOlderThan(proofFile, cutoff)) {
+            return false;
+        }
+
+        try {
+            boolean deleted = Files.deleteIfExists(proofFile);
+            proofIndex.remove(uniqueCode, proofFile);
+            log.info("Expired proof deleted: uniqueCode={}", uniqueCode);
+            return deleted;
+        } catch (IOException e) {
+            log.error("Error deleting expired proof file for uniqueCode: {}", uniqueCode, e);
+            return false;
+        }
+    }
+
+    @Override
+    public Resource getProofResource(String uniqueCode) throws IOException {
         String filePath = getProofFilePath(uniqueCode);
         if (filePath == null) {
             throw new IOException("Proof file not found for uniqueCode: " + uniqueCode);
         }
 
-        return Files.readAllBytes(Paths.get(filePath));
+        Path proofFile = Paths.get(filePath);
+        if (!Files.isRegularFile(proofFile)) {
+            // The file may have just been moved into its shard directory
+            String movedPath = getProofFilePath(uniqueCode);
+            if (movedPath == null || movedPath.equals(filePath)) {
+                throw new NoSuchFileException(filePath);
+            }
+            proofFile = Paths.get(movedPath);
+        }
+        return new FileSystemResource(proofFile);
+    }
+
+    /**
+     * Move the next batch of flat-layout proofs into their shard directories while the service is running
+     */
+    @Scheduled(fixedDelayString = "${bulk.proofs.migration.interval-ms:10000}",
+            initialDelayString = "${bulk.proofs.migration.interval-ms:10000}")
+    public void migrateProofLayout() {
+        if (!migrationEnabled || !shardedLayout) {
+            return;
+        }
+        try {
+            int moved = migrateFlatProofs(migrationBatchSize);
+            if (moved > 0) {
+                log.info("Moved {} proof files into the sharded layout", moved);
+            }
+        } catch (IOException e) {
+            log.error("Error migrating proofs directory {} to the sharded layout", basePath, e);
+        }
+    }
+
+    /**
+     * Move up to maxFiles proofs from the flat base directory into their shard directories.
+     * Each file is linked (or copied) into place first, the index is switched to it and the disputes
+     * storing its flat path are pointed at the new one. The flat copy stays readable for the grace
+     * period, for nodes that have not rescanned yet, and is removed by a later run, which updates
+     * disputes stored from a stale index meanwhile first.
+     * @return Number of proofs moved
+     */
+    public int migrateFlatProofs(int maxFiles) throws IOException {
+        Path baseDir = Paths.get(basePath);
+        if (!Files.isDirectory(baseDir)) {
+            return 0;
+        }
+
+        Instant graceEnd = Instant.now().minusMillis(flatCopyGraceMs);
+        List<Path> flatProofs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDir)) {
+            for (Path file : files) {
+                if (flatProofs.size() >= maxFiles) {
+                    break;
+                }
+                Instant migratedAt = migratedFlatProofs.get(file);
+                if (migratedAt != null && migratedAt.isAfter(graceEnd)) {
+                    continue;
+                }
+                if (Files.isRegularFile(file) && ProofIndex.uniqueCodeOf(file.getFileName().toString()) != null) {
+                    flatProofs.add(file);
+                }
+            }
+        }
+
+        int moved = 0;
+        for (Path flatFile : flatProofs) {
+            String uniqueCode = ProofIndex.uniqueCodeOf(flatFile.getFileName().toString());
+            try {
+                Path shardDir = ProofIndex.shardDirectory(baseDir, uniqueCode);
+                Path target = shardDir.resolve(flatFile.getFileName());
+                if (migratedFlatProofs.containsKey(flatFile)) {
+                    disputeRepository.updateProofUri(uniqueCode, flatFile.toString(), target.toString());
+                    Files.deleteIfExists(flatFile);
+                    migratedFlatProofs.remove(flatFile);
+                    continue;
+                }
+
+                Files.createDirectories(shardDir);
+                if (!Files.exists(target)) {
+                    placeProofCopy(flatFile, target);
+                }
+                proofIndex.replace(uniqueCode, flatFile, target);
+                int disputes = disputeRepository.updateProofUri(uniqueCode, flatFile.toString(), target.toString());
+                log.debug("Moved proof {} to {}, {} disputes updated", flatFile, target, disputes);
+                migratedFlatProofs.put(flatFile, Instant.now());
+                moved++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to move proof file {} into the sharded layout", flatFile, e);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Hard link the file into place, or copy it through a temp file when links are not supported
+     */
+    private void placeProofCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Path tempPath = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                Files.copy(source, tempPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException copyException) {
+                Files.deleteIfExists(tempPath);
+                throw copyException;
+            }
+        }
+    }
+
+    /**
+     * Directory new proofs for the unique code are written to
+     */
+    private Path proofDirectory(String uniqueCode) throws IOException {
+        Path baseDir = Paths.get(basePath);
+        if (!shardedLayout) {
+            return baseDir;
+        }
+        Path shardDir = ProofIndex.shardDirectory(baseDir, uniqueCode);
+        Files.createDirectories(shardDir);
+        return shardDir;
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(FileTime.from(cutoff)) < 0;
+        } catch (IOException e) {
+            // Gone or unreadable; the index rescan drops missing files
+            return false;
+        }
     }
 
     private String getFileExtension(String filename) {
@@ -0,0 +1,501 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.config.ValidationConstants;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.RetentionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SchedulerLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Purges data that has outlived its retention: sessions never confirmed within the session TTL with their errors and files,
+ * confirmed sessions whose jobs finished longer ago than the audit retention with their jobs, audit entries and files,
+ * old audit entries, backups, abandoned temp files, files of sessions that no longer exist and, if enabled, old proofs.
+ * Rows are deleted in small batches with a pause between them, so the purge never holds locks for long.
+ * One pass at a time runs it, guarded on each node and held across nodes by a database lease, renewed after every batch; the deletes are idempotent,
+ * so a run cut short by a lost lease or a crash is simply finished by the next one.
+ * A dry run reports what would be deleted without deleting anything.
+ */
+@Slf4j
+@Service
+public class RetentionService {
+
+    static final String LEASE_NAME = "retention";
+
+    // Session files, their row index, backups, error reports and applied row journals all start with the session id
+    private static final Pattern SESSION_FILE_NAME = Pattern.compile("^(\\d{1,18})(\\.csv|\\.csv\\.idx|_backup_.+|_errors_.+|_applied_.+)$");
+
+    @Autowired
+    private RetentionRepository retentionRepository;
+
+    @Autowired
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private ProofService proofService;
+
+    @Value("${bulk.files.base-path:C:/Users/USER/Downloads/sparkpay.bulk_dispute_processor/sparkpay.bulk_dispute_processor/uploads}")
+    private String basePath;
+
+    @Value("${bulk.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bulk.retention.dry-run:true}")
+    private boolean dryRun;
+
+    // Retention periods; 0 keeps the data forever
+    @Value("${bulk.validation.session-ttl-days:" + ValidationConstants.SESSION_TTL_DAYS + "}")
+    private int sessionTtlDays;
+
+    @Value("${bulk.retention.audit-days:90}")
+    private int auditDays;
+
+    @Value("${bulk.retention.backup-days:7}")
+    private int backupDays;
+
+    @Value("${bulk.retention.proof-days:0}")
+    private int proofDays;
+
+    // Temp files and files of missing sessions are only removed once untouched for this long
+    @Value("${bulk.retention.stale-file-hours:24}")
+    private int staleFileHours;
+
+    @Value("${bulk.retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bulk.retention.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${bulk.retention.lease-seconds:900}")
+    private long leaseSeconds;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    // One pass per node at a time; the scheduled purge and a dry-run request would otherwise share the lease
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Lease owner of the current pass, unique per run so only that pass can renew or release the lease
+    private volatile String leaseOwner;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder skippedRuns = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    private final LongAdder sessionsPurged = new LongAdder();
+    private final LongAdder sessionErrorsDeleted = new LongAdder();
+    private final LongAdder auditRowsDeleted = new LongAdder();
+    private final LongAdder filesDeleted = new LongAdder();
+    private final LongAdder bytesDeleted = new LongAdder();
+    private final LongAdder proofsDeleted = new LongAdder();
+    private volatile RunResult lastRun;
+
+    /**
+     * Scheduled purge, hourly by default (configurable via properties)
+     */
+    @Scheduled(fixedDelayString = "${bulk.retention.interval-ms:3600000}",
+            initialDelayString = "${bulk.retention.initial-delay-ms:300000}")
+    public void purgeExpiredData() {
+        if (!enabled) {
+            log.debug("Retention purge is disabled");
+            return;
+        }
+        run(dryRun);
+    }
+
+    /**
+     * Run one purge pass if no other one is running, on this node or another
+     * @param dryRun Only count what would be deleted
+     * @return What was deleted (or would be, in a dry run), or null if a pass is already running or the run failed to start
+     */
+    public RunResult run(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            skippedRuns.increment();
+            log.debug("Retention purge is already running on this node");
+            return null;
+        }
+        try {
+            return runLeased(dryRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private RunResult runLeased(boolean dryRun) {
+        leaseOwner = nodeId + ":" + UUID.randomUUID();
+        try {
+            if (!leaseRepository.tryAcquire(LEASE_NAME, leaseOwner, leaseSeconds)) {
+                skippedRuns.increment();
+                log.debug("Retention purge is running on another node");
+                return null;
+            }
+        } catch (Exception e) {
+            failedRuns.increment();
+            log.error("Error taking the retention lease", e);
+            return null;
+        }
+
+        RunResult result = new RunResult(dryRun, LocalDateTime.now());
+        long started = System.nanoTime();
+        try {
+            purgeSessions(result);
+            purgeAudit(result);
+            purgeFiles(result);
+            purgeProofs(result);
+            runs.increment();
+        } catch (RunAbortedException e) {
+            log.warn("Retention purge stopped early: {}", e.getMessage());
+        } catch (Exception e) {
+            failedRuns.increment();
+            log.error("Error in retention purge", e);
+        } finally {
+            result.durationMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+            if (!dryRun) {
+                sessionsPurged.add(result.sessions);
+                sessionErrorsDeleted.add(result.sessionErrors);
+                auditRowsDeleted.add(result.auditRows);
+                filesDeleted.add(result.files);
+                bytesDeleted.add(result.bytes);
+                proofsDeleted.add(result.proofs);
+            }
+            lastRun = result;
+            releaseLease();
+        }
+
+        log.info("Retention {}: {} sessions, {} session errors, {} audit entries, {} files ({} bytes), {} proofs in {} ms",
+                dryRun ? "dry run would delete" : "purge deleted", result.sessions, result.sessionErrors,
+                result.auditRows, result.files, result.bytes, result.proofs, result.durationMs);
+        return result;
+    }
+
+    public RetentionStats getStats() {
+        return new RetentionStats(runs.sum(), skippedRuns.sum(), failedRuns.sum(), sessionsPurged.sum(),
+                sessionErrorsDeleted.sum(), auditRowsDeleted.sum(), filesDeleted.sum(), bytesDeleted.sum(),
+                proofsDeleted.sum(), lastRun);
+    }
+
+    /**
+     * Purge unconfirmed sessions past the session TTL, and confirmed ones with their job history past the audit retention
+     */
+    private void purgeSessions(RunResult result) {
+        if (sessionTtlDays > 0) {
+            purgeSessions(RetentionRepository.SessionKind.UNCONFIRMED, LocalDateTime.now().minusDays(sessionTtlDays), result);
+        }
+        if (auditDays > 0) {
+            purgeSessions(RetentionRepository.SessionKind.FINISHED, LocalDateTime.now().minusDays(auditDays), result);
+        }
+    }
+
+    /**
+     * Purge the expired sessions of one kind, walking them in (created_at, id) order a batch at a time
+     */
+    private void purgeSessions(RetentionRepository.SessionKind kind, LocalDateTime cutoff, RunResult result) {
+        RetentionRepository.ExpiredSession after = null;
+        while (true) {
+            List<RetentionRepository.ExpiredSession> sessions = retentionRepository.findExpiredSessions(kind, cutoff, after, batchSize);
+            for (RetentionRepository.ExpiredSession session : sessions) {
+                purgeSession(kind, session.getId(), cutoff, result);
+            }
+            if (sessions.size() < batchSize) {
+                return;
+            }
+            after = sessions.get(sessions.size() - 1);
+            pause();
+        }
+    }
+
+    /**
+     * Delete the session's large child tables in batches, then the session row, then its files.
+     * Files go last, so a failed run never leaves a session whose file is missing.
+     */
+    private void purgeSession(RetentionRepository.SessionKind kind, Long sessionId, LocalDateTime cutoff, RunResult result) {
+        Path sessionFile = fileService.getSessionFilePath(sessionId);
+        List<Path> files = new ArrayList<>();
+        files.add(sessionFile);
+        files.add(sessionFile.resolveSibling(sessionFile.getFileName() + ".idx"));
+        for (String reportPath : retentionRepository.findErrorReportPaths(sessionId)) {
+            files.add(Paths.get(reportPath));
+        }
+
+        if (result.dryRun) {
+            result.sessions++;
+            result.sessionErrors += retentionRepository.countSessionErrors(sessionId);
+            if (kind == RetentionRepository.SessionKind.FINISHED) {
+                result.auditRows += retentionRepository.countSessionAudit(sessionId);
+            }
+        } else {
+            result.sessionErrors += deleteInBatches(limit -> retentionRepository.deleteSessionErrors(kind, sessionId, cutoff, limit));
+            if (kind == RetentionRepository.SessionKind.FINISHED) {
+                result.auditRows += deleteInBatches(limit -> retentionRepository.deleteSessionAudit(sessionId, cutoff, limit));
+            }
+            if (!retentionRepository.deleteSession(kind, sessionId, cutoff)) {
+                log.info("Session {} was not purged; it is in use again or already gone", sessionId);
+                return;
+            }
+            result.sessions++;
+        }
+        for (Path file : files) {
+            removeFile(file, result);
+        }
+    }
+
+    private void purgeAudit(RunResult result) {
+        if (auditDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(auditDays);
+        if (result.dryRun) {
+            result.auditRows += retentionRepository.countAuditBefore(cutoff);
+        } else {
+            result.auditRows += deleteInBatches(limit -> retentionRepository.deleteAuditBefore(cutoff, limit));
+        }
+    }
+
+    /**
+     * Remove abandoned temp files, old backups and the files of sessions that no longer exist from the files directory
+     */
+    private void purgeFiles(RunResult result) throws IOException {
+        Path baseDir = Paths.get(basePath);
+        if (!Files.isDirectory(baseDir)) {
+            return;
+        }
+        Instant now = Instant.now();
+        FileTime staleBefore = FileTime.from(now.minus(Duration.ofHours(staleFileHours)));
+        FileTime backupBefore = backupDays > 0 ? FileTime.from(now.minus(Duration.ofDays(backupDays))) : null;
+
+        List<Path> expired = new ArrayList<>();
+        Map<Long, List<Path>> filesBySession = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDir)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                FileTime modified;
+                try {
+                    if (!Files.isRegularFile(file)) {
+                        continue;
+                    }
+                    modified = Files.getLastModifiedTime(file);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (modified.compareTo(staleBefore) >= 0) {
+                    // Recent files are kept, which covers uploads and sessions still being created
+                    continue;
+                }
+                if (fileName.endsWith(".tmp")) {
+                    expired.add(file);
+                    continue;
+                }
+                Matcher matcher = SESSION_FILE_NAME.matcher(fileName);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                if (backupBefore != null && fileName.contains("_backup_") && modified.compareTo(backupBefore) < 0) {
+                    expired.add(file);
+                    continue;
+                }
+                filesBySession.computeIfAbsent(Long.parseLong(matcher.group(1)), id -> new ArrayList<>()).add(file);
+            }
+        }
+
+        List<Long> sessionIds = new ArrayList<>(filesBySession.keySet());
+        for (int from = 0; from < sessionIds.size(); from += batchSize) {
+            List<Long> batch = sessionIds.subList(from, Math.min(from + batchSize, sessionIds.size()));
+            Set<Long> existing = retentionRepository.findExistingSessionIds(batch);
+            for (Long sessionId : batch) {
+                if (!existing.contains(sessionId)) {
+                    expired.addAll(filesBySession.get(sessionId));
+                }
+            }
+        }
+
+        for (int i = 0; i < expired.size(); i++) {
+            if (i > 0 && i % batchSize == 0) {
+                pause();
+            }
+            removeFile(expired.get(i), result);
+        }
+    }
+
+    private void purgeProofs(RunResult result) {
+        if (proofDays <= 0) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofDays(proofDays));
+        List<String> expired = proofService.findProofsOlderThan(cutoff);
+        if (result.dryRun) {
+            result.proofs += expired.size();
+            return;
+        }
+        for (int i = 0; i < expired.size(); i++) {
+            if (i > 0 && i % batchSize == 0) {
+                pause();
+            }
+            if (proofService.deleteProofIfOlderThan(expired.get(i), cutoff)) {
+                result.proofs++;
+            }
+        }
+    }
+
+    /**
+     * Repeat a bounded delete until it comes back short, pausing between batches
+     * @return Total rows deleted
+     */
+    private long deleteInBatches(IntUnaryOperator deleteBatch) {
+        long total = 0;
+        while (true) {
+            int deleted = deleteBatch.applyAsInt(batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                return total;
+            }
+            pause();
+        }
+    }
+
+    /**
+     * Count the file as removed, deleting it unless this is a dry run. A file already gone,
+     * e.g. removed by another node, is skipped.
+     */
+    private void removeFile(Path file, RunResult result) {
+        try {
+            long size = Files.size(file);
+            if (result.dryRun || Files.deleteIfExists(file)) {
+                result.files++;
+                result.bytes += size;
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing to delete
+        } catch (IOException e) {
+            log.warn("Failed to delete expired file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Wait between batches and renew the lease, stopping the run if another node has taken it over
+     */
+    private void pause() {
+        if (batchPauseMs > 0) {
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RunAbortedException("interrupted");
+            }
+        }
+        if (!leaseRepository.tryAcquire(LEASE_NAME, leaseOwner, leaseSeconds)) {
+            throw new RunAbortedException("retention lease lost");
+        }
+    }
+
+    private void releaseLease() {
+        try {
+            leaseRepository.release(LEASE_NAME, leaseOwner);
+        } catch (Exception e) {
+            // The lease expires on its own
+            log.warn("Failed to release the retention lease: {}", e.getMessage());
+        }
+    }
+
+    private static class RunAbortedException extends RuntimeException {
+        RunAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Counts of one purge run; in a dry run, of what would have been deleted
+     */
+    public static class RunResult {
+        private final boolean dryRun;
+        private final LocalDateTime startedAt;
+        private long durationMs;
+        private long sessions;
+        private long sessionErrors;
+        private long auditRows;
+        private long files;
+        private long bytes;
+        private long proofs;
+
+        RunResult(boolean dryRun, LocalDateTime startedAt) {
+            this.dryRun = dryRun;
+            this.startedAt = startedAt;
+        }
+
+        public boolean isDryRun() { return dryRun; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public long getDurationMs() { return durationMs; }
+        public long getSessions() { return sessions; }
+        public long getSessionErrors() { return sessionErrors; }
+        public long getAuditRows() { return auditRows; }
+        public long getFiles() { return files; }
+        public long getBytes() { return bytes; }
+        public long getProofs() { return proofs; }
+    }
+
+    /**
+     * Purge counters of this node since startup; dry runs are only reflected in the last run
+     */
+    public static class RetentionStats {
+        private final long runs;
+        private final long skippedRuns;
+        private final long failedRuns;
+        private final long sessionsPurged;
+        private final long sessionErrorsDeleted;
+        private final long auditRowsDeleted;
+        private final long filesDeleted;
+        private final long bytesDeleted;
+        private final long proofsDeleted;
+        private final RunResult lastRun;
+
+        public RetentionStats(long runs, long skippedRuns, long failedRuns, long sessionsPurged, long sessionErrorsDeleted,
+                              long auditRowsDeleted, long filesDeleted, long bytesDeleted, long proofsDeleted, RunResult lastRun) {
+            this.runs = runs;
+            this.skippedRuns = skippedRuns;
+            this.failedRuns = failedRuns;
+            this.sessionsPurged = sessionsPurged;
+            this.sessionErrorsDeleted = sessionErrorsDeleted;
+            this.auditRowsDeleted = auditRowsDeleted;
+            this.filesDeleted = filesDeleted;
+            this.bytesDeleted = bytesDeleted;
+            this.proofsDeleted = proofsDeleted;
+            this.lastRun = lastRun;
+        }
+
+        public long getRuns() { return runs; }
+        public long getSkippedRuns() { return skippedRuns; }
+        public long getFailedRuns() { return failedRuns; }
+        public long getSessionsPurged() { return sessionsPurged; }
+        public long getSessionErrorsDeleted() { return sessionErrorsDeleted; }
+        public long getAuditRowsDeleted() { return auditRowsDeleted; }
+        public long getFilesDeleted() { return filesDeleted; }
+        public long getBytesDeleted() { return bytesDeleted; }
+        public long getProofsDeleted() { return proofsDeleted; }
+        public RunResult getLastRun() { return lastRun; }
+    }
+}
@@ -0,0 +1,181 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An uploaded session file being copied to a temp file while it is read.
+ * Every byte read through {@link #getInputStream()} is also written to the temp file,
+ * so the upload can be validated, saved and indexed for preview in one pass. {@link FileService} moves the
+ * temp file into place once the session is known; closing without that discards it.
+ */
+@Slf4j
+public class SessionFileUpload implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final InputStream teeStream;
+    private final CsvRowIndex.Builder rowIndex;
+    private Path tempPath;
+    private OutputStream out;
+    private long bytesWritten;
+
+    SessionFileUpload(InputStream source, Path tempPath, int indexInterval) throws IOException {
+        this.source = source;
+        this.tempPath = tempPath;
+        this.rowIndex = new CsvRowIndex.Builder(indexInterval);
+        this.out = new BufferedOutputStream(Files.newOutputStream(tempPath), BUFFER_SIZE);
+        this.teeStream = new TeeInputStream(source);
+    }
+
+    /**
+     * Stream over the upload that copies what is read to the temp file.
+     * Closing it leaves the upload open, so it can be handed to readers that close their input.
+     */
+    public InputStream getInputStream() {
+        return teeStream;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Row index of the bytes copied so far; complete once the upload is finished
+     */
+    CsvRowIndex.Builder getRowIndex() {
+        return rowIndex;
+    }
+
+    /**
+     * Copy whatever has not been read yet and close the temp file, which stays owned by the upload.
+     * Lets a large upload be read back from disk, e.g. in parallel chunks, before it is saved.
+     */
+    public Path spool() throws IOException {
+        if (tempPath == null) {
+            throw new IOException("Upload is already finished");
+        }
+        if (out != null) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (teeStream.read(buffer) != -1) {
+                // Drained into the temp file by the tee
+            }
+            out.close();
+            out = null;
+            source.close();
+        }
+        return tempPath;
+    }
+
+    /**
+     * Spool the rest of the upload and hand the temp file over to the caller
+     */
+    Path finish() throws IOException {
+        Path finished = spool();
+        tempPath = null;
+        return finished;
+    }
+
+    /**
+     * Discard the temp file if the upload was not finished
+     */
+    @Override
+    public void close() {
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("Failed to close upload stream", e);
+        }
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Failed to close upload temp file: {}", tempPath, e);
+            }
+            out = null;
+        }
+        if (tempPath != null) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException cleanupException) {
+                log.warn("Failed to clean up temp file: {}", tempPath, cleanupException);
+            }
+            tempPath = null;
+        }
+    }
+
+    private class TeeInputStream extends FilterInputStream {
+
+        TeeInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                out.write(b);
+                rowIndex.update(new byte[] {(byte) b}, 0, 1);
+                bytesWritten++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                out.write(b, off, n);
+                rowIndex.update(b, off, n);
+                bytesWritten += n;
+            }
+            return n;
+        }
+
+        /**
+         * Skipped bytes still belong in the file, so read them through
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        @Override
+        public void close() {
+            // The upload owns the source and the temp file
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Validation errors in the order they were added, indexed by row so per-row checks do not scan the list.
+ * Validators add a row's errors while validating that row, so the list is in row order apart from
+ * file-level errors (row 0). It is append-only; the list view can be handed to the session error
+ * repository or serialized as is.
+ */
+public class ValidationErrorCollector<E> extends AbstractList<E> implements RandomAccess {
+
+    private final ToIntFunction<E> rowOf;
+    private final Function<E, String> columnOf;
+    private final List<E> errors = new ArrayList<>();
+    private final Map<Integer, List<E>> errorsByRow = new HashMap<>();
+
+    public ValidationErrorCollector(ToIntFunction<E> rowOf, Function<E, String> columnOf) {
+        this.rowOf = rowOf;
+        this.columnOf = columnOf;
+    }
+
+    @Override
+    public boolean add(E error) {
+        errors.add(error);
+        int row = rowOf.applyAsInt(error);
+        List<E> rowErrors = errorsByRow.get(row);
+        if (rowErrors == null) {
+            // Most rows have a single error
+            rowErrors = new ArrayList<>(1);
+            errorsByRow.put(row, rowErrors);
+        }
+        rowErrors.add(error);
+        return true;
+    }
+
+    @Override
+    public E get(int index) {
+        return errors.get(index);
+    }
+
+    @Override
+    public int size() {
+        return errors.size();
+    }
+
+    public boolean hasErrors(int row) {
+        return errorsByRow.containsKey(row);
+    }
+
+    /**
+     * Whether the row has an error in the given column, looking only at that row's errors
+     */
+    public boolean hasError(int row, String column) {
+        List<E> rowErrors = errorsByRow.get(row);
+        if (rowErrors == null) {
+            return false;
+        }
+        for (E error : rowErrors) {
+            if (column.equals(columnOf.apply(error))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<E> getErrors(int row) {
+        List<E> rowErrors = errorsByRow.get(row);
+        return rowErrors != null ? Collections.unmodifiableList(rowErrors) : List.of();
+    }
+
+    /**
+     * Number of distinct rows with errors, file-level errors included as row 0
+     */
+    public int getErrorRowCount() {
+        return errorsByRow.size();
+    }
+
+    public Map<Integer, List<E>> getErrorsByRow() {
+        return Collections.unmodifiableMap(errorsByRow);
+    }
+}
@@ -0,0 +1,149 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV file into byte ranges that each hold whole records, so they can be parsed independently.
+ * Ranges end after a line feed that is outside quotes, tracked the same way {@link CsvReader} does,
+ * so a quoted field with line breaks is never cut in two. The first range starts with the header.
+ */
+public final class CsvChunker {
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private CsvChunker() {
+    }
+
+    /**
+     * Byte range [start, end) of a file
+     */
+    public static class Chunk {
+        private final long start;
+        private final long end;
+
+        public Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public long getLength() { return end - start; }
+    }
+
+    /**
+     * Split the file into chunks of at least targetChunkBytes, except the last
+     */
+    public static List<Chunk> split(Path file, long targetChunkBytes) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long chunkStart = 0;
+            long position = 0;
+            boolean inQuotes = false;
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                byte[] bytes = buffer.array();
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    byte b = bytes[i];
+                    if (b == '"') {
+                        // An escaped quote toggles twice, so parity is enough
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n' && !inQuotes && position + i + 1 - chunkStart >= targetChunkBytes) {
+                        chunks.add(new Chunk(chunkStart, position + i + 1));
+                        chunkStart = position + i + 1;
+                    }
+                }
+                position += limit;
+                buffer.clear();
+            }
+
+            if (position > chunkStart || chunks.isEmpty()) {
+                chunks.add(new Chunk(chunkStart, position));
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Open a UTF-8 reader over one chunk of the file
+     */
+    public static Reader openChunk(Path file, Chunk chunk) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(chunk.getStart());
+            InputStream in = new RangeInputStream(Channels.newInputStream(channel), chunk.getLength());
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), SCAN_BUFFER_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
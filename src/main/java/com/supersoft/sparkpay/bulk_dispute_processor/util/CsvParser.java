@@ -8,35 +8,79 @@ import java.util.List;
 public class CsvParser {
     
     /**
-     * Parse a CSV line into a list of fields, handling quotes and commas correctly
+     * Parse a CSV line into a list of fields, handling quotes and commas correctly.
+     * Follows the same rules as {@link CsvReader} for a single record, scanning the string directly
+     * so no reader or buffer is allocated per line.
      * @param line The CSV line to parse
      * @return List of parsed fields
      */
     public static List<String> parseCsvLine(String line) {
-        List<String> result = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder(Math.min(line.length(), 64));
         boolean inQuotes = false;
-        StringBuilder currentField = new StringBuilder();
-        
-        // Remove BOM if present
-        if (line.startsWith("\uFEFF")) {
-            line = line.substring(1);
-        }
-        
-        for (int i = 0; i < line.length(); i++) {
+        int length = line.length();
+        for (int i = !line.isEmpty() && line.charAt(0) == '\uFEFF' ? 1 : 0; i < length; i++) {
             char c = line.charAt(i);
-            
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                result.add(currentField.toString().trim());
-                currentField = new StringBuilder();
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < length && line.charAt(i + 1) == '"') {
+                    // Escaped quote inside a quoted field
+                    field.append('"');
+                    i++;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(trimmed(field));
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                // Only the first record of the string is parsed
+                break;
             } else {
-                currentField.append(c);
+                field.append(c);
             }
         }
-        
-        result.add(currentField.toString().trim());
-        return result;
+        fields.add(trimmed(field));
+        return fields;
+    }
+
+    /**
+     * Field value without leading and trailing whitespace, trimmed as by {@link String#trim()}
+     */
+    private static String trimmed(StringBuilder field) {
+        int start = 0;
+        int end = field.length();
+        while (start < end && field.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && field.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return field.substring(start, end);
+    }
+    
+    /**
+     * Format fields as a CSV line, quoting fields that contain commas, quotes or line breaks
+     * @param fields The field values
+     * @return The CSV line without a line terminator
+     */
+    public static String formatCsvLine(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields.get(i) == null ? "" : fields.get(i);
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+        return line.toString();
     }
     
     /**
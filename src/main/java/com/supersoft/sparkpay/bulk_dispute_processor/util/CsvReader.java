@@ -0,0 +1,226 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV tokenizer.
+ * Reads one record at a time into reused buffers. Quoted fields may contain commas, line breaks
+ * and escaped quotes (""); a leading BOM is skipped once at the start of the stream.
+ * Field values are trimmed, as {@link CsvParser#parseCsvLine(String)} always did.
+ * Views returned by {@link #field(int)} are only valid until the next call to {@link #nextRecord()}.
+ */
+public class CsvReader implements Closeable {
+
+    private static final char BOM = '\uFEFF';
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+    private boolean atStart = true;
+
+    // Field content of the current record, stored back to back
+    private char[] fieldChars = new char[256];
+    private int fieldLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    private final StringBuilder rawRecord = new StringBuilder(256);
+    private long recordNumber;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advance to the next record
+     * @return false when the end of the input has been reached
+     */
+    public boolean nextRecord() throws IOException {
+        fieldLength = 0;
+        fieldCount = 0;
+        rawRecord.setLength(0);
+
+        int c = read();
+        if (atStart) {
+            atStart = false;
+            if (c == BOM) {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return false;
+        }
+
+        boolean inQuotes = false;
+        int fieldStart = 0;
+        while (c != -1) {
+            if (inQuotes) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        // Escaped quote inside a quoted field
+                        read();
+                        rawRecord.append('"');
+                        appendFieldChar('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    appendFieldChar((char) c);
+                }
+                rawRecord.append((char) c);
+            } else if (c == '"') {
+                inQuotes = true;
+                rawRecord.append('"');
+            } else if (c == ',') {
+                endField(fieldStart);
+                fieldStart = fieldLength;
+                rawRecord.append(',');
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    read();
+                }
+                break;
+            } else {
+                appendFieldChar((char) c);
+                rawRecord.append((char) c);
+            }
+            c = read();
+        }
+
+        endField(fieldStart);
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * Number of fields in the current record
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * View of a field in the current record, without copying
+     */
+    public CharSequence field(int index) {
+        checkIndex(index);
+        return CharBuffer.wrap(fieldChars, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * Value of a field in the current record
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        return new String(fieldChars, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * Values of all fields in the current record as a new list
+     */
+    public List<String> getFields() {
+        return getFields(new ArrayList<>(fieldCount));
+    }
+
+    /**
+     * Values of all fields in the current record, written into a reusable list
+     */
+    public List<String> getFields(List<String> target) {
+        target.clear();
+        for (int i = 0; i < fieldCount; i++) {
+            target.add(new String(fieldChars, fieldStarts[i], fieldEnds[i] - fieldStarts[i]));
+        }
+        return target;
+    }
+
+    /**
+     * Original text of the current record, without its line terminator
+     */
+    public String getRawRecord() {
+        return rawRecord.toString();
+    }
+
+    /**
+     * Number of records read so far, including the header record
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void appendFieldChar(char c) {
+        if (fieldLength == fieldChars.length) {
+            fieldChars = Arrays.copyOf(fieldChars, fieldChars.length * 2);
+        }
+        fieldChars[fieldLength++] = c;
+    }
+
+    /**
+     * Record the trimmed bounds of the field that started at the given offset
+     */
+    private void endField(int start) {
+        int end = fieldLength;
+        while (start < end && fieldChars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && fieldChars[end - 1] <= ' ') {
+            end--;
+        }
+
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldStarts.length * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of range for record with " + fieldCount + " fields");
+        }
+    }
+
+    private int read() throws IOException {
+        if (readPosition == readLimit && !fill()) {
+            return -1;
+        }
+        return readBuffer[readPosition++];
+    }
+
+    private int peek() throws IOException {
+        if (readPosition == readLimit && !fill()) {
+            return -1;
+        }
+        return readBuffer[readPosition];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = reader.read(readBuffer, 0, readBuffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        readPosition = 0;
+        readLimit = read;
+        return true;
+    }
+}
@@ -0,0 +1,196 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Sparse index of where data rows start in a CSV file, so a page can be read without parsing the rows before it.
+ * Holds the byte offset of every interval-th data row; the header is not a data row.
+ * Record boundaries are tracked over the raw bytes the same way {@link CsvReader} splits records,
+ * so quoted line breaks are skipped and CRLF or CR line endings count once.
+ * The file size and modification time it was built from are kept to tell when it is stale.
+ */
+public final class CsvRowIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final int interval;
+    private final long rowCount;
+    private final long fileSize;
+    private final long lastModified;
+    private final long[] offsets;
+
+    private CsvRowIndex(int interval, long rowCount, long fileSize, long lastModified, long[] offsets) {
+        this.interval = interval;
+        this.rowCount = rowCount;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.offsets = offsets;
+    }
+
+    public int getInterval() { return interval; }
+    public long getRowCount() { return rowCount; }
+    public long getFileSize() { return fileSize; }
+
+    /**
+     * Whether the index was built from the file as it is now
+     */
+    public boolean isCurrent(Path file) throws IOException {
+        return Files.size(file) == fileSize && Files.getLastModifiedTime(file).toMillis() == lastModified;
+    }
+
+    /**
+     * Open a UTF-8 reader positioned at the nearest indexed row at or before the given data row
+     * @return Reader whose first record is data row {@link #indexedRowBefore(long)}, or null if the file has no such row
+     */
+    public Reader openAt(Path file, long row) throws IOException {
+        int slot = (int) Math.min(Math.max(row, 0) / interval, offsets.length - 1L);
+        if (slot < 0) {
+            return null;
+        }
+        return CsvChunker.openChunk(file, new CsvChunker.Chunk(offsets[slot], fileSize));
+    }
+
+    /**
+     * The data row {@link #openAt(Path, long)} starts at for the given row
+     */
+    public long indexedRowBefore(long row) {
+        if (offsets.length == 0) {
+            return 0;
+        }
+        return Math.min(Math.max(row, 0) / interval, offsets.length - 1L) * interval;
+    }
+
+    /**
+     * Scan a file and index its rows
+     */
+    public static CsvRowIndex build(Path file, int interval) throws IOException {
+        Builder builder = new Builder(interval);
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                builder.update(buffer, 0, n);
+            }
+        }
+        return builder.build(file);
+    }
+
+    /**
+     * Read an index written by {@link #write(Path)}
+     * @return The index, or null if the file is not an index this version can read
+     */
+    public static CsvRowIndex read(Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), SCAN_BUFFER_SIZE))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int interval = in.readInt();
+            long rowCount = in.readLong();
+            long fileSize = in.readLong();
+            long lastModified = in.readLong();
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            return new CsvRowIndex(interval, rowCount, fileSize, lastModified, offsets);
+        }
+    }
+
+    /**
+     * Write the index through a temp file, so readers never see a partial index
+     */
+    public void write(Path indexFile) throws IOException {
+        Path tempPath = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), SCAN_BUFFER_SIZE))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(interval);
+                out.writeLong(rowCount);
+                out.writeLong(fileSize);
+                out.writeLong(lastModified);
+                out.writeInt(offsets.length);
+                for (long offset : offsets) {
+                    out.writeLong(offset);
+                }
+            }
+            Files.move(tempPath, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds an index from the bytes of a file as they are written or read, in order
+     */
+    public static class Builder {
+        private final int interval;
+        private long[] offsets = new long[16];
+        private int offsetCount;
+        private long position;
+        private long records;
+        private boolean inQuotes;
+        private boolean afterCr;
+        private boolean atRecordStart = true;
+
+        public Builder(int interval) {
+            this.interval = Math.max(1, interval);
+        }
+
+        public void update(byte[] bytes, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                byte b = bytes[i];
+                boolean crlf = afterCr && b == '\n';
+                afterCr = false;
+                if (crlf) {
+                    // The record already ended at the CR
+                    position++;
+                    continue;
+                }
+                if (atRecordStart) {
+                    startRecord(position);
+                }
+                if (b == '"') {
+                    // An escaped quote toggles twice, so parity is enough
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && (b == '\n' || b == '\r')) {
+                    atRecordStart = true;
+                    afterCr = b == '\r';
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Finish the index of a file that now holds exactly the bytes passed to {@link #update(byte[], int, int)}
+         */
+        public CsvRowIndex build(Path file) throws IOException {
+            return new CsvRowIndex(interval, Math.max(0, records - 1), position,
+                    Files.getLastModifiedTime(file).toMillis(), Arrays.copyOf(offsets, offsetCount));
+        }
+
+        private void startRecord(long start) {
+            atRecordStart = false;
+            // Record 0 is the header
+            long row = records - 1;
+            records++;
+            if (row >= 0 && row % interval == 0) {
+                if (offsetCount == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsetCount * 2);
+                }
+                offsets[offsetCount++] = start;
+            }
+        }
+    }
+}
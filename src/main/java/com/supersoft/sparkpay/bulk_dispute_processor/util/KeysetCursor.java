@@ -0,0 +1,87 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by a sort column and id, handed to clients as an opaque token.
+ * The next page holds the rows strictly after this position, so pages stay stable while rows are added
+ * and the database seeks on the (sort column, id) index instead of skipping an offset.
+ * The token names the ordering it was made for, so it cannot be replayed against another one.
+ */
+public final class KeysetCursor {
+
+    private static final String CREATED_AT = "created_at";
+
+    private final String ordering;
+    private final String value;
+    private final long id;
+
+    /**
+     * @param ordering Ordering the cursor belongs to, e.g. the sort column and direction
+     * @param value Sort column value of the last row, or null if it had none
+     * @param id Id of the last row
+     */
+    public KeysetCursor(String ordering, String value, long id) {
+        this.ordering = ordering;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * Cursor of a listing ordered by creation time
+     */
+    public KeysetCursor(LocalDateTime createdAt, long id) {
+        this(CREATED_AT, createdAt.toString(), id);
+    }
+
+    public String getOrdering() { return ordering; }
+    public String getValue() { return value; }
+    public long getId() { return id; }
+
+    public LocalDateTime getCreatedAt() {
+        return LocalDateTime.parse(value);
+    }
+
+    public String encode() {
+        String token = ordering + "|" + id + "|" + (value != null ? "=" + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token made by {@link #encode()} for the given ordering
+     * @throws IllegalArgumentException if the token is not a valid cursor of that ordering
+     */
+    public static KeysetCursor parse(String token, String ordering) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(ordering)) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            String value = parts[2].startsWith("=") ? parts[2].substring(1) : null;
+            return new KeysetCursor(ordering, value, Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Decode a token of a listing ordered by creation time
+     * @throws IllegalArgumentException if the token is not a valid cursor of that ordering
+     */
+    public static KeysetCursor parse(String token) {
+        KeysetCursor cursor = parse(token, CREATED_AT);
+        if (cursor.getValue() == null) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            cursor.getCreatedAt();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+        return cursor;
+    }
+}
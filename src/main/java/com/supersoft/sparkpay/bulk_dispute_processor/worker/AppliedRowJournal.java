@@ -0,0 +1,124 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.worker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Rows a job, or one partition or chunk of it, applied after its last checkpoint.
+ * The rows of each batch that updated their dispute are appended and flushed before the batch is counted,
+ * and {@link #checkpoint(int)} drops the rows a checkpoint covers, so the file never holds much more than
+ * a checkpoint interval. A re-run opens the journal left by the earlier run and can tell the rows that run
+ * applied from disputes resolved some other way. The journal is deleted once no rows are left in it.
+ */
+@Slf4j
+public class AppliedRowJournal implements Closeable {
+
+    private final Path path;
+    private final TreeSet<Integer> rows = new TreeSet<>();
+    private BufferedWriter writer;
+
+    private AppliedRowJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Open the journal at the given path, reading the rows an earlier run left in it
+     */
+    public static AppliedRowJournal open(Path path) throws IOException {
+        AppliedRowJournal journal = new AppliedRowJournal(path);
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    journal.rows.add(Integer.parseInt(line.trim()));
+                } catch (NumberFormatException e) {
+                    // A line cut short by a crash; its row is treated as not applied
+                    log.warn("Ignoring malformed line in applied row journal {}: {}", path, line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No earlier run left rows past its checkpoint
+        }
+        return journal;
+    }
+
+    /**
+     * Whether the row was recorded as applied after the last checkpoint
+     */
+    public synchronized boolean contains(int row) {
+        return rows.contains(row);
+    }
+
+    /**
+     * Record rows whose update was applied
+     */
+    public synchronized void record(List<Integer> appliedRows) throws IOException {
+        if (appliedRows.isEmpty()) {
+            return;
+        }
+        if (writer == null) {
+            writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        for (int row : appliedRows) {
+            writer.write(Integer.toString(row));
+            writer.newLine();
+        }
+        writer.flush();
+        rows.addAll(appliedRows);
+    }
+
+    /**
+     * Drop the rows up to and including the checkpointed row, rewriting the file with the rest or deleting it
+     */
+    public synchronized void checkpoint(int checkpointedRow) throws IOException {
+        if (rows.isEmpty() || rows.first() > checkpointedRow) {
+            return;
+        }
+        rows.headSet(checkpointedRow, true).clear();
+        closeWriter();
+        if (rows.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter rewrite = Files.newBufferedWriter(tempPath)) {
+            for (int row : rows) {
+                rewrite.write(Integer.toString(row));
+                rewrite.newLine();
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Close the file, keeping the rows recorded so far for a re-run
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            closeWriter();
+        } catch (IOException e) {
+            log.warn("Failed to close applied row journal: {}", path, e);
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            BufferedWriter closing = writer;
+            writer = null;
+            closing.close();
+        }
+    }
+}
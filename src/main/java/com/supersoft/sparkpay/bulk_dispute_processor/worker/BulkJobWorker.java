@@ -1,42 +1,66 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.worker;
 
+import com.supersoft.sparkpay.bulk_dispute_processor.config.RabbitMQConfig;
 import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
-import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
-import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobPartitionRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
 import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SessionErrorIndex;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.CsvValidationService;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.DisputeUpdater;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.JobMessagePublisher;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.EnhancedJobProcessor;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.FailureClassifier;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.FileService;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.AtomicJobUpdater;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.JobRetryService;
 import com.supersoft.sparkpay.bulk_dispute_processor.service.JobResumeService;
-import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvParser;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobAuditWriter;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobFanOutService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobPartitionPlanner;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
 public class BulkJobWorker {
 
+    // Partitions smaller than this are not worth a thread of their own
+    private static final long MIN_PARTITION_BYTES = 1024 * 1024;
+
     @Autowired
     private BulkDisputeJobRepository jobRepository;
     
     @Autowired
-    private BulkDisputeJobAuditRepository auditRepository;
+    private BulkDisputeJobPartitionRepository partitionRepository;
+    
+    @Autowired
+    private JobAuditWriter auditWriter;
     
     @Autowired
     private DisputeUpdater disputeUpdater;
@@ -61,8 +85,68 @@ public class BulkJobWorker {
     
     @Autowired
     private JobResumeService jobResumeService;
+    
+    @Autowired
+    private JobPartitionPlanner partitionPlanner;
+    
+    @Autowired
+    private JobFanOutService fanOutService;
+
+    @Autowired
+    private FileService fileService;
+
+    // Number of parsed rows sent to the dispute updater as one batch
+    @Value("${bulk.worker.batch-size:500}")
+    private int batchSize;
+
+    // Progress is checkpointed after this many rows or this much time, whichever comes first
+    @Value("${bulk.worker.checkpoint-rows:1000}")
+    private int checkpointRows;
+
+    @Value("${bulk.worker.checkpoint-interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    // Row partitions processed concurrently per job; 1 processes each file start to end on the listener thread
+    @Value("${bulk.worker.partitions:1}")
+    private int partitions;
+
+    // Threads shared by the partitions of all running jobs, 0 uses one per partition
+    @Value("${bulk.worker.partition-threads:0}")
+    private int partitionThreads;
+
+    // A job paused by an infrastructure failure is resumed by a message delayed this long
+    @Value("${bulk.resume.enabled:true}")
+    private boolean resumeEnabled;
+
+    @Value("${bulk.resume.delay-ms:30000}")
+    private long resumeDelayMs;
+
+    private ExecutorService partitionPool;
+
+    @PostConstruct
+    public void startPartitionPool() {
+        if (partitions <= 1) {
+            return;
+        }
+        int threads = partitionThreads > 0 ? partitionThreads : partitions;
+        AtomicInteger threadNumber = new AtomicInteger();
+        partitionPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "job-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Partitioned job processing enabled: {} partitions per job on {} threads", partitions, threads);
+    }
 
-    @RabbitListener(queues = "bulk.jobs")
+    @PreDestroy
+    public void stopPartitionPool() {
+        if (partitionPool != null) {
+            partitionPool.shutdown();
+        }
+    }
+
+    @RabbitListener(id = RabbitMQConfig.BULK_JOBS_LISTENER_ID, queues = RabbitMQConfig.BULK_JOBS_QUEUE,
+            containerFactory = "bulkJobsListenerContainerFactory")
     public void processJob(JobMessagePublisher.JobMessage jobMessage) {
         log.info("Processing job: jobId={}, sessionId={}, filePath={}", 
                 jobMessage.getJobId(), jobMessage.getSessionId(), jobMessage.getFilePath());
@@ -73,20 +157,34 @@ public class BulkJobWorker {
             return;
         }
 
-        BulkDisputeJob job = jobOpt.get();
-        
-        // Atomically claim the job for processing to prevent race conditions
-        if (!atomicJobUpdater.claimJobForProcessing(job.getId())) {
-            log.warn("Job {} is already being processed by another worker", job.getId());
+        // The delayed resume message of a job paused by an infrastructure failure puts it back to PENDING
+        if (jobMessage.isResume() && jobOpt.get().getStatus() == BulkDisputeJob.JobStatus.PAUSED
+                && atomicJobUpdater.updateJobStatus(jobOpt.get().getId(), BulkDisputeJob.JobStatus.PENDING, BulkDisputeJob.JobStatus.PAUSED)) {
+            auditWriter.record(jobOpt.get().getId(), "AUTO_RESUMED",
+                    String.format("Job resumed automatically from row %d", jobOpt.get().getLastProcessedRow() + 1));
+        }
+
+        // Atomically claim the job for processing to prevent race conditions; several consumers
+        // may hold messages for the same job, and only the one whose claim succeeds runs it
+        if (!atomicJobUpdater.claimJobForProcessing(jobOpt.get().getId())) {
+            log.warn("Job {} is already being processed by another worker", jobOpt.get().getId());
             return;
         }
         
+        // Read again after claiming: the copy read before may predate a resume or retry,
+        // and saving it would roll back the checkpoint
+        BulkDisputeJob job = jobRepository.findById(jobMessage.getJobId()).orElse(jobOpt.get());
+        
         try {
+            job.setStatus(BulkDisputeJob.JobStatus.RUNNING);
             job.setStartedAt(LocalDateTime.now());
             jobRepository.save(job);
             
-            addAuditEntry(job.getId(), "JOB_STARTED", "Job processing started");
-            processCsvFile(job, jobMessage.getFilePath(), jobMessage);
+            auditWriter.record(job.getId(), "JOB_STARTED", "Job processing started");
+            if (!processCsvFile(job, jobMessage.getFilePath(), jobMessage)) {
+                // Fanned out: the node that completes the last chunk finishes the job
+                return;
+            }
 
             job.setStatus(BulkDisputeJob.JobStatus.COMPLETED);
             job.setCompletedAt(LocalDateTime.now());
@@ -95,7 +193,7 @@ public class BulkJobWorker {
             // Update session status based on job completion
             enhancedJobProcessor.updateSessionStatus(jobMessage.getSessionId(), job);
             
-            addAuditEntry(job.getId(), "JOB_COMPLETED", 
+            auditWriter.record(job.getId(), "JOB_COMPLETED", 
                     String.format("Job completed successfully. Processed: %d, Success: %d, Failed: %d", 
                             job.getProcessedRows(), job.getSuccessCount(), job.getFailureCount()));
 
@@ -103,209 +201,702 @@ public class BulkJobWorker {
 
         } catch (Exception e) {
             log.error("Job processing failed: jobId={}", job.getId(), e);
-            
-            // Classify the failure
-            FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(e, e.getMessage());
-            String failureReason = e.getMessage();
-            String failureTypeStr = failureType.name();
-            
-            if (failureType == FailureClassifier.FailureType.INFRASTRUCTURE) {
-                // Pause job for infrastructure issues using the resume service
-                boolean paused = jobResumeService.pauseJob(job.getId(), "Infrastructure failure: " + failureReason);
-                if (paused) {
-                    log.warn("Job paused due to infrastructure issue: jobId={}", job.getId());
-                    // Store failure information for potential retry
-                    job.setFailureReason(failureReason);
-                    job.setFailureType(failureTypeStr);
-                    jobRepository.save(job);
-                } else {
-                    log.error("Failed to pause job {} for infrastructure issue", job.getId());
-                    // Fallback to failed status with automatic retry
-                    handleJobFailureWithRetry(job, failureReason, failureTypeStr);
-                }
-            } else if (failureType == FailureClassifier.FailureType.TRANSIENT) {
-                // Handle transient failures with automatic retry
-                handleJobFailureWithRetry(job, failureReason, failureTypeStr);
-            } else {
-                // Mark as permanently failed for business logic errors
-                job.setStatus(BulkDisputeJob.JobStatus.FAILED);
-                job.setCompletedAt(LocalDateTime.now());
+            handleJobFailure(job, e, jobMessage.getSessionId());
+        }
+    }
+
+    /**
+     * Process one chunk of a fanned-out job, on whichever node receives it.
+     * The chunk is claimed first so a redelivered or requeued message is not processed twice,
+     * and the node that completes the last chunk finishes the job.
+     */
+    @RabbitListener(id = RabbitMQConfig.BULK_JOB_CHUNKS_LISTENER_ID, queues = RabbitMQConfig.BULK_JOB_CHUNKS_QUEUE,
+            containerFactory = "bulkJobChunksListenerContainerFactory")
+    public void processJobChunk(JobMessagePublisher.ChunkMessage chunkMessage) {
+        log.info("Processing job chunk: jobId={}, chunk={}", chunkMessage.getJobId(), chunkMessage.getPartitionIndex());
+
+        Optional<BulkDisputeJob> jobOpt = jobRepository.findById(chunkMessage.getJobId());
+        if (jobOpt.isEmpty()) {
+            log.error("Job not found: {}", chunkMessage.getJobId());
+            return;
+        }
+        BulkDisputeJob job = jobOpt.get();
+        if (job.getStatus() != BulkDisputeJob.JobStatus.RUNNING) {
+            // The chunk stays pending and is published again when the job is resumed or retried
+            log.info("Skipping chunk {} of job {} in status {}", chunkMessage.getPartitionIndex(), job.getId(), job.getStatus());
+            return;
+        }
+        if (!partitionRepository.claim(chunkMessage.getPartitionId(), fanOutService.claimStaleBefore())) {
+            log.info("Chunk {} of job {} is already completed or claimed by another worker",
+                    chunkMessage.getPartitionIndex(), job.getId());
+            return;
+        }
+
+        try {
+            // Read after claiming so the checkpoint of a previous owner is picked up
+            BulkDisputeJobPartition partition = partitionRepository.findById(chunkMessage.getPartitionId())
+                    .orElseThrow(() -> new IllegalStateException("Job partition not found: " + chunkMessage.getPartitionId()));
+            Path path = Paths.get(chunkMessage.getFilePath());
+            List<String> headers = readHeaders(path);
+            SessionErrorIndex errorIndex = errorRepository.loadErrorIndex(chunkMessage.getSessionId());
+
+            try (ErrorReportWriter errorReport = new ErrorReportWriter(fileService.createErrorReportPath(chunkMessage.getSessionId()), "part" + partition.getPartitionIndex())) {
+                processPartition(job, chunkMessage, path, partition, headers, errorIndex, errorReport, () -> false);
+                partitionRepository.markCompleted(partition.getId(), errorReport.commit());
+            }
+            auditWriter.record(job.getId(), "CHUNK_COMPLETED", String.format("Chunk %d completed: rows %d-%d",
+                    partition.getPartitionIndex(), partition.getFirstRow(), partition.getLastRow()));
+
+            finishFannedOutJob(job.getId(), chunkMessage.getSessionId());
+        } catch (Exception e) {
+            log.error("Job chunk processing failed: jobId={}, chunk={}", job.getId(), chunkMessage.getPartitionIndex(), e);
+            partitionRepository.release(chunkMessage.getPartitionId());
+
+            // The first failing chunk pauses or fails the job; the other chunks finish and the rest wait for the re-run
+            Optional<BulkDisputeJob> current = jobRepository.findById(job.getId());
+            if (current.isPresent() && current.get().getStatus() == BulkDisputeJob.JobStatus.RUNNING) {
+                handleJobFailure(current.get(), e, chunkMessage.getSessionId());
+            }
+        }
+    }
+
+    /**
+     * Complete a fanned-out job once all its chunks are completed. Every node that completes a chunk
+     * checks and merges the chunk error reports into a report of its own; the status change from RUNNING,
+     * written together with the merged report, lets exactly one of them complete the job. A failed merge
+     * leaves the job RUNNING, unless another node completed it and removed the chunk reports meanwhile.
+     */
+    private void finishFannedOutJob(Long jobId, Long sessionId) throws IOException {
+        if (partitionRepository.countUnfinished(jobId) > 0) {
+            return;
+        }
+        partitionRepository.rollUpJobProgress(jobId);
+        Optional<BulkDisputeJob> jobOpt = jobRepository.findById(jobId);
+        if (jobOpt.isEmpty() || jobOpt.get().getStatus() != BulkDisputeJob.JobStatus.RUNNING) {
+            return;
+        }
+        BulkDisputeJob job = jobOpt.get();
+
+        List<BulkDisputeJobPartition> chunks = partitionRepository.findByJobId(jobId);
+        String errorReportPath;
+        try {
+            errorReportPath = mergePartitionReports(jobId, sessionId, chunks);
+        } catch (IOException e) {
+            Optional<BulkDisputeJob> current = jobRepository.findById(jobId);
+            if (current.isPresent() && current.get().getStatus() != BulkDisputeJob.JobStatus.RUNNING) {
+                log.info("Job {} was finished by another worker while merging its chunk reports", jobId);
+                return;
+            }
+            throw e;
+        }
+        LocalDateTime completedAt = LocalDateTime.now();
+        if (!atomicJobUpdater.completeJob(jobId, errorReportPath, completedAt)) {
+            // Another node completed the job first with its own copy of the report
+            discardMergedReport(errorReportPath);
+            return;
+        }
+        job.setStatus(BulkDisputeJob.JobStatus.COMPLETED);
+        if (errorReportPath != null) {
+            job.setErrorReportPath(errorReportPath);
+        }
+        job.setCompletedAt(completedAt);
+        deletePartitionReports(chunks);
+
+        enhancedJobProcessor.updateSessionStatus(sessionId, job);
+        auditWriter.record(jobId, "JOB_COMPLETED",
+                String.format("Job completed successfully. Processed: %d, Success: %d, Failed: %d",
+                        job.getProcessedRows(), job.getSuccessCount(), job.getFailureCount()));
+        log.info("Fanned-out job completed successfully: jobId={}, chunks={}", jobId, chunks.size());
+    }
+
+    /**
+     * Remove a merged report that lost the race to complete its job
+     */
+    private void discardMergedReport(String errorReportPath) {
+        if (errorReportPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(errorReportPath));
+        } catch (IOException e) {
+            log.warn("Failed to delete merged error report: {}", errorReportPath, e);
+        }
+    }
+
+    /**
+     * Pause, retry or fail the job depending on the kind of failure, and update the session status
+     */
+    private void handleJobFailure(BulkDisputeJob job, Exception e, Long sessionId) {
+        // Classify the failure
+        FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(e, e.getMessage());
+        String failureReason = e.getMessage();
+        String failureTypeStr = failureType.name();
+        
+        if (failureType == FailureClassifier.FailureType.INFRASTRUCTURE) {
+            // Pause job for infrastructure issues using the resume service
+            boolean paused = jobResumeService.pauseJob(job.getId(), "Infrastructure failure: " + failureReason);
+            if (paused) {
+                log.warn("Job paused due to infrastructure issue: jobId={}", job.getId());
+                // Store failure information for potential retry
+                job.setStatus(BulkDisputeJob.JobStatus.PAUSED);
                 job.setFailureReason(failureReason);
                 job.setFailureType(failureTypeStr);
                 jobRepository.save(job);
-                addAuditEntry(job.getId(), "JOB_FAILED_PERMANENT", "Job processing failed permanently: " + failureReason);
+                if (resumeEnabled) {
+                    jobRetryService.publishRetry(job, resumeDelayMs, true);
+                }
+            } else {
+                log.error("Failed to pause job {} for infrastructure issue", job.getId());
+                // Fallback to failed status with automatic retry
+                handleJobFailureWithRetry(job, failureReason, failureTypeStr);
             }
-            
-            // Update session status
-            enhancedJobProcessor.updateSessionStatus(jobMessage.getSessionId(), job);
+        } else if (failureType == FailureClassifier.FailureType.TRANSIENT) {
+            // Handle transient failures with automatic retry
+            handleJobFailureWithRetry(job, failureReason, failureTypeStr);
+        } else {
+            // Mark as permanently failed for business logic errors
+            job.setStatus(BulkDisputeJob.JobStatus.FAILED);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setFailureReason(failureReason);
+            job.setFailureType(failureTypeStr);
+            jobRepository.save(job);
+            auditWriter.record(job.getId(), "JOB_FAILED_PERMANENT", "Job processing failed permanently: " + failureReason);
         }
+        
+        // The saves above wrote this copy's counters, which for a partitioned job are older than its partitions'
+        partitionRepository.rollUpJobProgress(job.getId());
+        
+        // Update session status
+        enhancedJobProcessor.updateSessionStatus(sessionId, job);
     }
 
-    private void processCsvFile(BulkDisputeJob job, String filePath, JobMessagePublisher.JobMessage jobMessage) throws IOException {
+    /**
+     * Process the job's file on this node, or fan it out to chunk messages.
+     * Returns false if the job was fanned out and is finished by the node completing its last chunk.
+     */
+    private boolean processCsvFile(BulkDisputeJob job, String filePath, JobMessagePublisher.JobMessage jobMessage) throws IOException {
         Path path = Paths.get(filePath);
         if (!Files.exists(path)) {
             throw new IOException("File not found: " + filePath);
         }
 
-        List<String> failedRows = new ArrayList<>();
-        int processedRows = 0;
-        int successCount = 0;
-        int failureCount = 0;
+        // A partitioned job keeps its plan when it is resumed, whatever the current setting;
+        // a sequential job that already made progress stays sequential
+        List<BulkDisputeJobPartition> plan = partitionRepository.findByJobId(job.getId());
+        if (fanOutService.isEnabled() && job.getLastProcessedRow() == 0
+                && (!plan.isEmpty() || fanOutService.shouldFanOut(path))) {
+            if (fanOutService.dispatch(job, jobMessage) >= 0) {
+                // All chunks may already be completed when a fanned-out job is re-run
+                finishFannedOutJob(job.getId(), jobMessage.getSessionId());
+                return false;
+            }
+        }
+        if (plan.isEmpty() && partitions > 1 && job.getLastProcessedRow() == 0) {
+            plan = planPartitions(job, path);
+        }
+        if (!plan.isEmpty()) {
+            processPartitions(job, path, jobMessage, plan);
+            return true;
+        }
+
+        String errorReportPath;
         
-        // Resume from last processed row if job was paused
+        // Resume from last processed row if job was paused; counters were checkpointed with it
         int startRow = job.getLastProcessedRow();
+        ProgressTracker progress = new ProgressTracker(startRow, tracker -> saveJobCheckpoint(job, tracker));
         if (startRow > 0) {
             log.info("Resuming job from row: {}", startRow + 1);
+            progress.processedRows = job.getProcessedRows();
+            progress.successCount = job.getSuccessCount();
+            progress.failureCount = job.getFailureCount();
+            progress.markSafePoint(startRow);
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        // Load the rows with stored validation errors once instead of querying per row
+        SessionErrorIndex errorIndex = errorRepository.loadErrorIndex(jobMessage.getSessionId());
+
+        try (AppliedRowJournal journal = AppliedRowJournal.open(fileService.getAppliedRowsPath(jobMessage.getSessionId(), job.getId(), null));
+             CsvReader csv = new CsvReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+             ErrorReportWriter errorReport = new ErrorReportWriter(fileService.createErrorReportPath(jobMessage.getSessionId()))) {
+            progress.journal = journal;
+            if (!csv.nextRecord()) {
                 throw new IOException("File is empty");
             }
 
-            List<String> headers = CsvParser.parseCsvLine(headerLine);
-            String line;
-            int currentRow = 0;
+            List<String> headers = csv.getFields();
+            int lastRow = processRows(job, jobMessage, csv, headers, 1, errorIndex, errorReport, progress, () -> false);
             
-            while ((line = reader.readLine()) != null) {
-                currentRow++;
-                
-                // Skip rows that were already processed
-                if (currentRow <= startRow) {
-                    continue;
-                }
+            // Final checkpoint on completion
+            progress.markSafePoint(lastRow);
+            checkpointIfDue(progress, true);
+            
+            // Finalise the error report for failed rows, if any
+            errorReportPath = errorReport.commit();
+        } catch (IOException | RuntimeException e) {
+            // Record the last safe point before the job is paused or failed so resume continues from there
+            checkpointIfDue(progress, true);
+            throw e;
+        }
+
+        job.setProcessedRows(progress.processedRows);
+        job.setSuccessCount(progress.successCount);
+        job.setFailureCount(progress.failureCount);
+
+        if (errorReportPath != null) {
+            job.setErrorReportPath(errorReportPath);
+        }
+
+        jobRepository.save(job);
+        return true;
+    }
+
+    /**
+     * Process the data rows left in the reader, numbering them from firstRow and skipping those
+     * up to the tracker's start row. Stops early, at a record boundary, once stopRequested is true.
+     * Returns the number of the last row read.
+     */
+    private int processRows(BulkDisputeJob job, JobMessagePublisher.JobMessage jobMessage, CsvReader csv,
+                            List<String> headers, int firstRow, SessionErrorIndex errorIndex,
+                            ErrorReportWriter errorReport, ProgressTracker progress,
+                            BooleanSupplier stopRequested) throws IOException {
+        List<PendingRow> chunk = new ArrayList<>(Math.max(1, batchSize));
+        List<String> row = new ArrayList<>(headers.size());
+        int currentRow = firstRow - 1;
+        
+        while (!stopRequested.getAsBoolean() && csv.nextRecord()) {
+            currentRow++;
+            
+            // Skip rows that were already processed
+            if (currentRow <= progress.startRow) {
+                continue;
+            }
+            
+            // With no rows buffered, everything before this row is applied and counted
+            if (chunk.isEmpty()) {
+                progress.markSafePoint(currentRow - 1);
+                checkpointIfDue(progress, false);
+            }
+            
+            progress.processedRows++;
+            
+            // Check for stored validation errors from upload process FIRST
+            // Convert 0-based currentRow to 1-based row number for validation errors
+            int validationRowNumber = currentRow + 1;
+            boolean hasStoredValidationErrors = errorIndex.hasRowErrors(validationRowNumber);
+            log.debug("Row {} (validation row {}) stored validation check: hasErrors={}", currentRow, validationRowNumber, hasStoredValidationErrors);
+            
+            if (hasStoredValidationErrors) {
+                log.info("Skipping row {} due to stored validation errors", currentRow);
+                auditWriter.record(job.getId(), "ROW_SKIPPED", 
+                        String.format("Row %d skipped due to stored validation errors", currentRow));
                 
-                processedRows++;
+                // Get stored validation errors for this row
+                List<BulkDisputeSessionErrorRepository.SessionError> storedErrors = 
+                        errorIndex.getErrors(validationRowNumber);
                 
-                // Check for stored validation errors from upload process FIRST
-                // Convert 0-based currentRow to 1-based row number for validation errors
-                int validationRowNumber = currentRow + 1;
-                boolean hasStoredValidationErrors = errorRepository.hasRowErrors(jobMessage.getSessionId(), validationRowNumber);
-                log.debug("Row {} (validation row {}) stored validation check: hasErrors={}", currentRow, validationRowNumber, hasStoredValidationErrors);
+                // Format validation errors in a structured way
+                StringBuilder errorBuilder = new StringBuilder();
+                errorBuilder.append("VALIDATION_ERRORS: ");
                 
-                if (hasStoredValidationErrors) {
-                    log.info("Skipping row {} due to stored validation errors", currentRow);
-                    addAuditEntry(job.getId(), "ROW_SKIPPED", 
-                            String.format("Row %d skipped due to stored validation errors", currentRow));
-                    
-                    // Get stored validation errors for this row
-                    List<BulkDisputeSessionErrorRepository.SessionError> storedErrors = 
-                            errorRepository.getErrorsForRows(jobMessage.getSessionId(), List.of(validationRowNumber));
-                    
-                    // Format validation errors in a structured way
-                    StringBuilder errorBuilder = new StringBuilder();
-                    errorBuilder.append("VALIDATION_ERRORS: ");
-                    
-                    for (int i = 0; i < storedErrors.size(); i++) {
-                        BulkDisputeSessionErrorRepository.SessionError error = storedErrors.get(i);
-                        if (i > 0) {
-                            errorBuilder.append("; ");
-                        }
-                        errorBuilder.append("[").append(error.getColumnName()).append("] ").append(error.getErrorMessage());
+                for (int i = 0; i < storedErrors.size(); i++) {
+                    BulkDisputeSessionErrorRepository.SessionError error = storedErrors.get(i);
+                    if (i > 0) {
+                        errorBuilder.append("; ");
                     }
-                    
-                    failedRows.add(line + " // " + errorBuilder.toString());
-                    failureCount++;
-                    continue;
+                    errorBuilder.append("[").append(error.getColumnName()).append("] ").append(error.getErrorMessage());
                 }
                 
-                List<String> row = CsvParser.parseCsvLine(line);
-                
-                if (row.size() != headers.size()) {
-                    log.warn("Row {} has incorrect column count. Expected: {}, Got: {}", 
-                            processedRows, headers.size(), row.size());
-                    failedRows.add(line);
-                    failureCount++;
-                    continue;
-                }
-                
-                // Re-validate basic fields in real-time
-                List<String> realTimeValidationErrors = validateRow(row, headers, currentRow);
-                log.debug("Row {} real-time validation errors: {}", currentRow, realTimeValidationErrors);
+                errorReport.append(csv.getRawRecord() + " // " + errorBuilder.toString());
+                progress.failureCount++;
+                continue;
+            }
+            
+            csv.getFields(row);
+            
+            if (row.size() != headers.size()) {
+                log.warn("Row {} has incorrect column count. Expected: {}, Got: {}", 
+                        currentRow, headers.size(), row.size());
+                errorReport.append(csv.getRawRecord());
+                progress.failureCount++;
+                continue;
+            }
+            
+            // Re-validate basic fields in real-time
+            List<String> realTimeValidationErrors = validateRow(row, headers, currentRow);
+            log.debug("Row {} real-time validation errors: {}", currentRow, realTimeValidationErrors);
+            
+            if (!realTimeValidationErrors.isEmpty()) {
+                log.info("Skipping row {} due to real-time validation errors", currentRow);
+                auditWriter.record(job.getId(), "ROW_SKIPPED", 
+                        String.format("Row %d skipped due to real-time validation errors", currentRow));
                 
-                if (!realTimeValidationErrors.isEmpty()) {
-                    log.info("Skipping row {} due to real-time validation errors", currentRow);
-                    addAuditEntry(job.getId(), "ROW_SKIPPED", 
-                            String.format("Row %d skipped due to real-time validation errors", currentRow));
-                    
-                    String errorMessage = "VALIDATION_ERRORS: " + String.join("; ", realTimeValidationErrors);
-                    failedRows.add(line + " // " + errorMessage);
-                    failureCount++;
-                    continue;
-                }
+                String errorMessage = "VALIDATION_ERRORS: " + String.join("; ", realTimeValidationErrors);
+                errorReport.append(csv.getRawRecord() + " // " + errorMessage);
+                progress.failureCount++;
+                continue;
+            }
 
-                Map<String, String> rowMap = new HashMap<>();
-                for (int i = 0; i < headers.size(); i++) {
-                    rowMap.put(headers.get(i), row.get(i));
-                }
-                
-                // Pass session context to the dispute processor
-                rowMap.put("uploadedBy", jobMessage.getUploadedBy());
-                rowMap.put("sessionId", jobMessage.getSessionId().toString());
-                try {
-                    DisputeUpdater.ProcessingResult result = disputeUpdater.processRow(rowMap);
-                    if (result.isSuccess()) {
-                        successCount++;
-                    } else {
-                        // Classify the failure
-                        FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(
-                            new RuntimeException(result.getErrorMessage()), result.getErrorMessage());
-                        
-                        log.warn("Row {} processing failed: {} (Type: {})", currentRow, result.getErrorMessage(), failureType);
-                        failedRows.add(line + " // PROCESSING_ERROR: " + result.getErrorMessage() + " // Type: " + failureType);
-                        failureCount++;
+            Map<String, String> rowMap = new HashMap<>();
+            for (int i = 0; i < headers.size(); i++) {
+                rowMap.put(headers.get(i), row.get(i));
+            }
+            
+            // Pass session context to the dispute processor
+            rowMap.put("uploadedBy", jobMessage.getUploadedBy());
+            rowMap.put("sessionId", jobMessage.getSessionId().toString());
+            if (progress.journal.contains(currentRow)) {
+                rowMap.put(DisputeUpdater.REPLAYED_ROW, "true");
+            }
+            chunk.add(new PendingRow(currentRow, csv.getRawRecord(), rowMap));
+            
+            if (chunk.size() >= Math.max(1, batchSize)) {
+                processChunk(chunk, errorReport, progress);
+            }
+        }
+        
+        // Flush the final partial chunk
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, errorReport, progress);
+        }
+        return currentRow;
+    }
+
+    /**
+     * Split the file into partitions of whole records and store the plan.
+     * Returns an empty plan if the file is too small for more than one partition.
+     */
+    private List<BulkDisputeJobPartition> planPartitions(BulkDisputeJob job, Path path) throws IOException {
+        long targetBytes = Math.max(MIN_PARTITION_BYTES, Files.size(path) / partitions + 1);
+        // Rows of each partition are counted in parallel so they can be numbered as in a sequential run
+        List<BulkDisputeJobPartition> plan = partitionPlanner.plan(job.getId(), path, targetBytes,
+                partitionPool != null ? partitionPool : Runnable::run);
+        if (plan.isEmpty()) {
+            return plan;
+        }
+
+        plan = partitionRepository.saveAll(job.getId(), plan);
+        int rows = plan.get(plan.size() - 1).getLastRow();
+        auditWriter.record(job.getId(), "JOB_PARTITIONED",
+                String.format("Job split into %d partitions covering %d rows", plan.size(), rows));
+        log.info("Job {} split into {} partitions covering {} rows", job.getId(), plan.size(), rows);
+        return plan;
+    }
+
+    /**
+     * Run the unfinished partitions of a job concurrently and merge their counts and error reports.
+     * Each partition commits its own error report along with its completion, so the failed rows of
+     * finished partitions survive a pause or failure of the job and are merged once all are done.
+     * If a partition fails the others stop at their next row and checkpoint, and the first
+     * failure is rethrown so the job is paused or failed as a whole.
+     */
+    private void processPartitions(BulkDisputeJob job, Path path, JobMessagePublisher.JobMessage jobMessage,
+                                   List<BulkDisputeJobPartition> plan) throws IOException {
+        List<String> headers = readHeaders(path);
+
+        // Load the rows with stored validation errors once instead of querying per row
+        SessionErrorIndex errorIndex = errorRepository.loadErrorIndex(jobMessage.getSessionId());
+
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<Void>> tasks = new ArrayList<>(plan.size());
+        for (BulkDisputeJobPartition partition : plan) {
+            if (partition.getStatus() == BulkDisputeJobPartition.PartitionStatus.COMPLETED) {
+                continue;
+            }
+            SessionErrorIndex partitionErrorIndex = errorIndex.copy();
+            tasks.add(submitPartitionTask(() -> {
+                try (ErrorReportWriter errorReport = new ErrorReportWriter(fileService.createErrorReportPath(jobMessage.getSessionId()), "part" + partition.getPartitionIndex())) {
+                    if (processPartition(job, jobMessage, path, partition, headers, partitionErrorIndex, errorReport, aborted::get)) {
+                        String reportPath = errorReport.commit();
+                        partitionRepository.markCompleted(partition.getId(), reportPath);
+                        partition.setErrorReportPath(reportPath);
                     }
-                } catch (Exception e) {
-                    // Classify the failure
-                    FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(e, e.getMessage());
-                    
-                    log.error("Error processing row {}: {} (Type: {})", currentRow, e.getMessage(), failureType, e);
-                    failedRows.add(line + " // PROCESSING_ERROR: " + e.getMessage() + " // Type: " + failureType);
-                    failureCount++;
+                    return null;
+                } catch (IOException | RuntimeException e) {
+                    aborted.set(true);
+                    throw e;
                 }
-                
-                // Atomically update last processed row to prevent race conditions
-                if (!atomicJobUpdater.updateLastProcessedRow(job.getId(), currentRow)) {
-                    log.warn("Failed to update lastProcessedRow for job {} at row {} - another worker may have processed this row", 
-                            job.getId(), currentRow);
-                    // Continue processing but be aware of potential race condition
+            }));
+        }
+        log.info("Processing job {}: {} of {} partitions left", job.getId(), tasks.size(), plan.size());
+
+        Exception failure = null;
+        for (Future<Void> task : tasks) {
+            try {
+                awaitPartitionTask(task);
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
                 }
             }
         }
+        partitionRepository.rollUpJobProgress(job.getId());
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+
+        // Finalise the error report for failed rows of all partitions, including those finished by an earlier run
+        String errorReportPath = mergePartitionReports(job.getId(), jobMessage.getSessionId(), plan);
 
+        // Merge the counts of all partitions, including those finished by an earlier run
+        int processedRows = 0;
+        int successCount = 0;
+        int failureCount = 0;
+        for (BulkDisputeJobPartition partition : plan) {
+            processedRows += partition.getProcessedRows();
+            successCount += partition.getSuccessCount();
+            failureCount += partition.getFailureCount();
+        }
         job.setProcessedRows(processedRows);
         job.setSuccessCount(successCount);
         job.setFailureCount(failureCount);
 
-        // Generate error report for failed rows
-        if (!failedRows.isEmpty()) {
-            String errorReportPath = createErrorReport(job.getSessionId(), failedRows);
+        if (errorReportPath != null) {
             job.setErrorReportPath(errorReportPath);
         }
 
         jobRepository.save(job);
+        deletePartitionReports(plan);
+    }
+
+    /**
+     * Merge the error reports of a job's partitions or chunks, in row order, into one report for the job.
+     * Each merge writes a report and temp file of its own, as nodes finishing the last chunks together
+     * may merge the same job in the same second. Returns the merged report path, or null if no rows failed.
+     */
+    private String mergePartitionReports(Long jobId, Long sessionId, List<BulkDisputeJobPartition> partitions) throws IOException {
+        String nameSuffix = "job" + jobId + "_" + UUID.randomUUID();
+        try (ErrorReportWriter errorReport = new ErrorReportWriter(fileService.createErrorReportPath(sessionId), nameSuffix)) {
+            for (BulkDisputeJobPartition partition : partitions) {
+                if (partition.getErrorReportPath() != null) {
+                    errorReport.appendReport(Paths.get(partition.getErrorReportPath()));
+                }
+            }
+            return errorReport.commit();
+        }
+    }
+
+    /**
+     * Remove the partition or chunk reports once they are merged into the job's report
+     */
+    private void deletePartitionReports(List<BulkDisputeJobPartition> partitions) {
+        for (BulkDisputeJobPartition partition : partitions) {
+            if (partition.getErrorReportPath() != null) {
+                try {
+                    Files.deleteIfExists(Paths.get(partition.getErrorReportPath()));
+                } catch (IOException e) {
+                    log.warn("Failed to delete partition error report: {}", partition.getErrorReportPath(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Process one partition from its checkpoint to its end, or until stopRequested is true.
+     * Returns true if the partition was processed to its end; the caller records its completion.
+     */
+    private boolean processPartition(BulkDisputeJob job, JobMessagePublisher.JobMessage jobMessage, Path path,
+                                     BulkDisputeJobPartition partition, List<String> headers, SessionErrorIndex errorIndex,
+                                     ErrorReportWriter errorReport, BooleanSupplier stopRequested) throws IOException {
+        int startRow = Math.max(partition.getLastProcessedRow(), partition.getFirstRow() - 1);
+        ProgressTracker progress = new ProgressTracker(startRow, tracker -> savePartitionCheckpoint(job, partition, tracker));
+        progress.processedRows = partition.getProcessedRows();
+        progress.successCount = partition.getSuccessCount();
+        progress.failureCount = partition.getFailureCount();
+        progress.markSafePoint(startRow);
+
+        int lastRow;
+        try (AppliedRowJournal journal = AppliedRowJournal.open(
+                     fileService.getAppliedRowsPath(jobMessage.getSessionId(), job.getId(), partition.getPartitionIndex()));
+             CsvReader csv = JobPartitionPlanner.openPartition(path, partition)) {
+            progress.journal = journal;
+            if (partition.getPartitionIndex() == 0) {
+                // Skip the header
+                csv.nextRecord();
+            }
+            lastRow = processRows(job, jobMessage, csv, headers, partition.getFirstRow(), errorIndex, errorReport,
+                    progress, stopRequested);
+            progress.markSafePoint(lastRow);
+            checkpointIfDue(progress, true);
+        } catch (IOException | RuntimeException e) {
+            // Record the last safe point so resume continues this partition from there
+            checkpointIfDue(progress, true);
+            throw e;
+        }
+
+        if (lastRow < partition.getLastRow()) {
+            return false;
+        }
+        partition.setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        log.debug("Job {} partition {} completed at row {}", job.getId(), partition.getPartitionIndex(), lastRow);
+        return true;
     }
 
-    private String createErrorReport(Long sessionId, List<String> failedRows) throws IOException {
-        String errorReportPath = "uploads/" + sessionId + "_errors_" + 
-                LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv";
+    private static List<String> readHeaders(Path path) throws IOException {
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            if (!csv.nextRecord()) {
+                throw new IOException("File is empty");
+            }
+            return csv.getFields();
+        }
+    }
+
+    /**
+     * Run a task on the partition pool, or on the calling thread if the pool is not started
+     * (partitioning disabled while a partitioned job is resumed)
+     */
+    private <T> Future<T> submitPartitionTask(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        if (partitionPool != null) {
+            partitionPool.execute(future);
+        } else {
+            future.run();
+        }
+        return future;
+    }
+
+    private static <T> T awaitPartitionTask(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for job partition", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Send a chunk of parsed rows to the dispute updater as one batch and record per-row outcomes.
+     * Clears the chunk and adds its successes and failures to the progress counters.
+     */
+    private void processChunk(List<PendingRow> chunk, ErrorReportWriter errorReport, ProgressTracker progress) throws IOException {
+        List<Map<String, String>> rowMaps = new ArrayList<>(chunk.size());
+        for (PendingRow pendingRow : chunk) {
+            rowMaps.add(pendingRow.rowMap);
+        }
+        
+        List<DisputeUpdater.ProcessingResult> results;
+        try {
+            results = disputeUpdater.processRows(rowMaps);
+        } catch (Exception e) {
+            // Classify the failure
+            FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(e, e.getMessage());
+            
+            log.error("Error processing rows {}-{}: {} (Type: {})", chunk.get(0).rowNumber, 
+                    chunk.get(chunk.size() - 1).rowNumber, e.getMessage(), failureType, e);
+            results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(DisputeUpdater.ProcessingResult.failure(e.getMessage()));
+            }
+        }
+        
+        // Journal the applied rows before anything else can fail, so a re-run recognises them
+        List<Integer> appliedRows = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                appliedRows.add(chunk.get(i).rowNumber);
+            }
+        }
+        progress.journal.record(appliedRows);
+        
+        int successes = appliedRows.size();
+        for (int i = 0; i < chunk.size(); i++) {
+            PendingRow pendingRow = chunk.get(i);
+            DisputeUpdater.ProcessingResult result = results.get(i);
+            if (!result.isSuccess()) {
+                // Classify the failure
+                FailureClassifier.FailureType failureType = failureClassifier.classifyFailure(
+                    new RuntimeException(result.getErrorMessage()), result.getErrorMessage());
+                
+                log.warn("Row {} processing failed: {} (Type: {})", pendingRow.rowNumber, result.getErrorMessage(), failureType);
+                errorReport.append(pendingRow.line + " // PROCESSING_ERROR: " + result.getErrorMessage() + " // Type: " + failureType);
+            }
+        }
+        
+        progress.successCount += successes;
+        progress.failureCount += chunk.size() - successes;
+        chunk.clear();
+    }
+
+    /**
+     * Persist the last safe point if enough rows or time have passed since the previous checkpoint, or if forced.
+     * Rows after the checkpoint may be replayed on resume; the dispute update guard makes that idempotent,
+     * and replayed rows the journal recorded as applied by this job are counted as successes again.
+     * The journal drops the rows the checkpoint covers.
+     */
+    private void checkpointIfDue(ProgressTracker progress, boolean force) {
+        int pendingRows = progress.safeRow - progress.checkpointedRow;
+        long elapsedMs = System.currentTimeMillis() - progress.checkpointedAt;
+        if (pendingRows <= 0 && !force) {
+            return;
+        }
+        if (!force && pendingRows < Math.max(1, checkpointRows) && elapsedMs < checkpointIntervalMs) {
+            return;
+        }
         
-        Path path = Paths.get(errorReportPath);
-        Files.createDirectories(path.getParent());
+        progress.checkpointWriter.accept(progress);
         
-        try (var writer = Files.newBufferedWriter(path)) {
-            writer.write("dispute_id,action,reason,notes,error_message");
-            writer.newLine();
-            for (String row : failedRows) {
-                writer.write(row);
-                writer.newLine();
+        progress.checkpointedRow = progress.safeRow;
+        progress.checkpointedAt = System.currentTimeMillis();
+        
+        if (progress.journal != null) {
+            try {
+                progress.journal.checkpoint(progress.safeRow);
+            } catch (IOException e) {
+                // Rows up to the checkpoint are skipped on resume, so stale entries are never read
+                log.warn("Failed to trim the applied row journal at row {}: {}", progress.safeRow, e.getMessage());
             }
         }
+    }
+
+    private void saveJobCheckpoint(BulkDisputeJob job, ProgressTracker progress) {
+        // Atomically update last processed row and counters to prevent race conditions
+        if (!atomicJobUpdater.checkpointProgress(job.getId(), progress.safeRow,
+                progress.safeProcessed, progress.safeSuccess, progress.safeFailure)) {
+            log.warn("Checkpoint for job {} at row {} was not applied - the job is gone or another worker has checkpointed past this row",
+                    job.getId(), progress.safeRow);
+            // Continue processing but be aware of potential race condition
+        }
+        log.debug("Checkpointed job {} at row {}: processed={}, success={}, failed={}", job.getId(), progress.safeRow,
+                progress.safeProcessed, progress.safeSuccess, progress.safeFailure);
         
-        return path.toString();
+        // Keep the in-memory job in step so a later save does not roll the checkpoint back
+        job.setLastProcessedRow(progress.safeRow);
+        job.setProcessedRows(progress.safeProcessed);
+        job.setSuccessCount(progress.safeSuccess);
+        job.setFailureCount(progress.safeFailure);
     }
 
+    private void savePartitionCheckpoint(BulkDisputeJob job, BulkDisputeJobPartition partition, ProgressTracker progress) {
+        if (!partitionRepository.checkpoint(partition.getId(), progress.safeRow,
+                progress.safeProcessed, progress.safeSuccess, progress.safeFailure)) {
+            log.warn("Checkpoint for job {} partition {} at row {} was not applied", 
+                    job.getId(), partition.getPartitionIndex(), progress.safeRow);
+        }
+        log.debug("Checkpointed job {} partition {} at row {}: processed={}, success={}, failed={}", job.getId(),
+                partition.getPartitionIndex(), progress.safeRow, progress.safeProcessed, progress.safeSuccess, progress.safeFailure);
+        
+        // Counters merged at the end of the job come from the partitions
+        partition.setLastProcessedRow(progress.safeRow);
+        partition.setProcessedRows(progress.safeProcessed);
+        partition.setSuccessCount(progress.safeSuccess);
+        partition.setFailureCount(progress.safeFailure);
+        
+        // Keep the job's progress counters current for status polling
+        partitionRepository.rollUpJobProgress(job.getId());
+    }
 
     /**
      * Handle job failure with automatic retry logic
@@ -318,7 +909,7 @@ public class BulkJobWorker {
                 boolean scheduled = jobRetryService.scheduleJobForRetry(job.getId(), failureReason, failureType);
                 if (scheduled) {
                     log.info("Job {} scheduled for automatic retry (attempt {})", job.getId(), job.getRetryCount() + 1);
-                    addAuditEntry(job.getId(), "AUTO_RETRY_SCHEDULED", 
+                    auditWriter.record(job.getId(), "AUTO_RETRY_SCHEDULED", 
                         String.format("Job scheduled for automatic retry: %s", failureReason));
                 } else {
                     log.warn("Failed to schedule job {} for automatic retry", job.getId());
@@ -328,7 +919,7 @@ public class BulkJobWorker {
                     job.setFailureReason(failureReason);
                     job.setFailureType(failureType);
                     jobRepository.save(job);
-                    addAuditEntry(job.getId(), "JOB_FAILED_NO_RETRY", "Job failed and retry scheduling failed: " + failureReason);
+                    auditWriter.record(job.getId(), "JOB_FAILED_NO_RETRY", "Job failed and retry scheduling failed: " + failureReason);
                 }
             } else {
                 // Max retries exceeded, mark as permanently failed
@@ -337,7 +928,7 @@ public class BulkJobWorker {
                 job.setFailureReason(failureReason);
                 job.setFailureType(failureType);
                 jobRepository.save(job);
-                addAuditEntry(job.getId(), "JOB_FAILED_MAX_RETRIES", 
+                auditWriter.record(job.getId(), "JOB_FAILED_MAX_RETRIES", 
                     String.format("Job failed after %d retry attempts: %s", job.getRetryCount(), failureReason));
                 log.warn("Job {} failed after maximum retry attempts", job.getId());
             }
@@ -352,16 +943,6 @@ public class BulkJobWorker {
         }
     }
 
-    private void addAuditEntry(Long jobId, String action, String message) {
-        BulkDisputeJobAudit audit = BulkDisputeJobAudit.builder()
-                .jobId(jobId)
-                .action(action)
-                .message(message)
-                .createdAt(LocalDateTime.now())
-                .build();
-        auditRepository.save(audit);
-    }
-    
     /**
      * Validate a single row using the same validation logic as the upload process
      */
@@ -404,4 +985,57 @@ public class BulkJobWorker {
         
         return errors;
     }
+    
+    /**
+     * Running counters for a job or partition plus the last safe point, where no rows are buffered in an unflushed chunk
+     */
+    private static class ProgressTracker {
+        private final int startRow;
+        private final Consumer<ProgressTracker> checkpointWriter;
+        
+        // Rows applied since the last checkpoint, by this run or an earlier one
+        private AppliedRowJournal journal;
+        
+        private int processedRows;
+        private int successCount;
+        private int failureCount;
+        
+        private int safeRow;
+        private int safeProcessed;
+        private int safeSuccess;
+        private int safeFailure;
+        
+        private int checkpointedRow;
+        private long checkpointedAt;
+        
+        ProgressTracker(int startRow, Consumer<ProgressTracker> checkpointWriter) {
+            this.startRow = startRow;
+            this.checkpointWriter = checkpointWriter;
+            this.safeRow = startRow;
+            this.checkpointedRow = startRow;
+            this.checkpointedAt = System.currentTimeMillis();
+        }
+        
+        void markSafePoint(int row) {
+            this.safeRow = row;
+            this.safeProcessed = processedRows;
+            this.safeSuccess = successCount;
+            this.safeFailure = failureCount;
+        }
+    }
+
+    /**
+     * A parsed row waiting to be sent to the dispute updater with the rest of its chunk
+     */
+    private static class PendingRow {
+        private final int rowNumber;
+        private final String line;
+        private final Map<String, String> rowMap;
+        
+        PendingRow(int rowNumber, String line, Map<String, String> rowMap) {
+            this.rowNumber = rowNumber;
+            this.line = line;
+            this.rowMap = rowMap;
+        }
+    }
 }
@@ -0,0 +1,144 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.worker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Streams failed rows of a job to its error report as they occur.
+ * The file is opened lazily on the first failure and written to a temp file,
+ * which is moved into place by {@link #commit()}. Closing without committing discards it.
+ * Appends are synchronized so the partitions of a job can share one report; the chunks of a
+ * fanned-out job each write their own, which are merged with {@link #appendReport(Path)}.
+ */
+@Slf4j
+public class ErrorReportWriter implements Closeable {
+
+    private static final String HEADER = "dispute_id,action,reason,notes,error_message";
+
+    private final Path reportPath;
+    private Path tempPath;
+    private BufferedWriter writer;
+    private int failedRows;
+
+    /**
+     * Writer for the report at the given path, as created by {@code FileService.createErrorReportPath}
+     */
+    public ErrorReportWriter(String reportPath) {
+        this(reportPath, null);
+    }
+
+    /**
+     * Writer whose report name ends with the given suffix, e.g. for one chunk of a job
+     */
+    public ErrorReportWriter(String reportPath, String nameSuffix) {
+        Path path = Paths.get(reportPath);
+        if (nameSuffix != null) {
+            String fileName = path.getFileName().toString();
+            int extension = fileName.lastIndexOf('.');
+            path = extension > 0
+                    ? path.resolveSibling(fileName.substring(0, extension) + "_" + nameSuffix + fileName.substring(extension))
+                    : path.resolveSibling(fileName + "_" + nameSuffix);
+        }
+        this.reportPath = path;
+    }
+
+    /**
+     * Append a failed row to the report, opening it on first use
+     */
+    public synchronized void append(String row) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        writer.write(row);
+        writer.newLine();
+        failedRows++;
+    }
+
+    /**
+     * Append the failed rows of another report, without its header
+     */
+    public synchronized void appendReport(Path report) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(report)) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                append(line);
+            }
+        }
+    }
+
+    public synchronized int getFailedRows() {
+        return failedRows;
+    }
+
+    /**
+     * Finish the report and atomically move it to its final location.
+     * Returns the report path, or null if no rows failed.
+     */
+    public synchronized String commit() throws IOException {
+        if (writer == null) {
+            return null;
+        }
+
+        writer.close();
+        writer = null;
+        try {
+            Files.move(tempPath, reportPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteTempFile();
+            throw e;
+        }
+        tempPath = null;
+
+        log.info("Wrote error report with {} failed rows: {}", failedRows, reportPath);
+        return reportPath.toString();
+    }
+
+    /**
+     * Discard the report if it was not committed
+     */
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close error report writer: {}", tempPath, e);
+            }
+            writer = null;
+        }
+        deleteTempFile();
+    }
+
+    private void open() throws IOException {
+        Path directory = reportPath.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        // Write to temp file first, then atomically move to final location
+        tempPath = reportPath.resolveSibling(reportPath.getFileName() + ".tmp");
+        writer = Files.newBufferedWriter(tempPath);
+        writer.write(HEADER);
+        writer.newLine();
+    }
+
+    private void deleteTempFile() {
+        if (tempPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempPath);
+        } catch (IOException cleanupException) {
+            log.warn("Failed to clean up temp file: {}", tempPath, cleanupException);
+        }
+        tempPath = null;
+    }
+}
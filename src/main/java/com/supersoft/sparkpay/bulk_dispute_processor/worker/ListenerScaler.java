@@ -0,0 +1,91 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.worker;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.config.RabbitMQConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scales the consumers of the job and chunk queues by queue depth.
+ * Jobs run for minutes, so the container's own activity-based scaling would react far too slowly;
+ * instead a consumer is added for every message waiting in the queue, up to the maximum, and one is
+ * removed per interval once the queue is empty. A removed consumer finishes its current message first.
+ */
+@Slf4j
+@Component
+public class ListenerScaler {
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Value("${bulk.listener.jobs.concurrency:1}")
+    private int jobsConcurrency;
+
+    @Value("${bulk.listener.jobs.max-concurrency:1}")
+    private int jobsMaxConcurrency;
+
+    @Value("${bulk.listener.chunks.concurrency:1}")
+    private int chunksConcurrency;
+
+    @Value("${bulk.listener.chunks.max-concurrency:1}")
+    private int chunksMaxConcurrency;
+
+    // Current consumer count per listener, as set by the scaler
+    private final Map<String, Integer> consumers = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${bulk.listener.scale-interval-ms:10000}")
+    public void scaleListeners() {
+        scale(RabbitMQConfig.BULK_JOBS_LISTENER_ID, RabbitMQConfig.BULK_JOBS_QUEUE, jobsConcurrency, jobsMaxConcurrency);
+        scale(RabbitMQConfig.BULK_JOB_CHUNKS_LISTENER_ID, RabbitMQConfig.BULK_JOB_CHUNKS_QUEUE, chunksConcurrency, chunksMaxConcurrency);
+    }
+
+    /**
+     * Set the listener's consumer count from the number of messages ready in its queue
+     * @return The consumer count after scaling
+     */
+    int scale(String listenerId, String queueName, int minConsumers, int maxConsumers) {
+        int min = Math.max(1, minConsumers);
+        if (maxConsumers <= min) {
+            return min;
+        }
+
+        MessageListenerContainer listener = listenerRegistry.getListenerContainer(listenerId);
+        if (!(listener instanceof SimpleMessageListenerContainer) || !listener.isRunning()) {
+            return consumers.getOrDefault(listenerId, min);
+        }
+
+        int current = consumers.getOrDefault(listenerId, min);
+        try {
+            QueueInformation queue = amqpAdmin.getQueueInfo(queueName);
+            if (queue == null) {
+                return current;
+            }
+
+            // Busy consumers hold their message unacknowledged, so ready messages are the ones nobody can take
+            int waiting = queue.getMessageCount();
+            int target = waiting > 0 ? Math.min(maxConsumers, current + waiting) : Math.max(min, current - 1);
+            if (target != current) {
+                ((SimpleMessageListenerContainer) listener).setConcurrentConsumers(target);
+                consumers.put(listenerId, target);
+                log.info("Scaled {} consumers from {} to {} ({} messages waiting)", queueName, current, target, waiting);
+            }
+            return target;
+        } catch (Exception e) {
+            log.warn("Failed to scale consumers of {}: {}", queueName, e.getMessage());
+            return current;
+        }
+    }
+}
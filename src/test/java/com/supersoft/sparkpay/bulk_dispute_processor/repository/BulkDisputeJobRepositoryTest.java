@@ -0,0 +1,71 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.KeysetCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkDisputeJobRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private BulkDisputeJobRepository jobRepository;
+
+    @Test
+    void testCursorPageSeeksAfterLastJob() {
+        BulkDisputeJob last = BulkDisputeJob.builder().id(457L).status(BulkDisputeJob.JobStatus.COMPLETED)
+                .createdAt(LocalDateTime.of(2025, 10, 10, 14, 59, 30)).build();
+        KeysetCursor cursor = KeysetCursor.parse(BulkDisputeJobRepository.cursorOf(last, "createdAt", "desc").encode(),
+                BulkDisputeJobRepository.jobOrdering("created_at", "DESC"));
+
+        jobRepository.findJobsAfter(cursor, 20, "COMPLETED", null, null, null, "createdAt", "desc");
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class),
+                eq("COMPLETED"), eq(Timestamp.valueOf(last.getCreatedAt())), eq(Timestamp.valueOf(last.getCreatedAt())), eq(457L), eq(20));
+        assertFalse(sql.getValue().contains("SELECT *"));
+        assertFalse(sql.getValue().contains("OFFSET"));
+        assertTrue(sql.getValue().contains("AND (created_at < ? OR (created_at = ? AND id < ?))"));
+        assertTrue(sql.getValue().endsWith("ORDER BY created_at DESC, id DESC LIMIT ?"));
+    }
+
+    @Test
+    void testCursorAfterJobWithoutSortValue() {
+        // Jobs that have not completed sort last when descending, so the next page only holds more of them
+        BulkDisputeJob running = BulkDisputeJob.builder().id(12L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+        KeysetCursor cursor = BulkDisputeJobRepository.cursorOf(running, "completedAt", "desc");
+
+        jobRepository.findJobsAfter(cursor, 10, null, null, null, null, "completedAt", "desc");
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), eq(12L), eq(10));
+        assertTrue(sql.getValue().contains("AND (completed_at IS NULL AND id < ?)"));
+    }
+
+    @Test
+    void testStatusCursorComparesEnumPosition() {
+        BulkDisputeJob paused = BulkDisputeJob.builder().id(3L).status(BulkDisputeJob.JobStatus.PAUSED).build();
+
+        jobRepository.findJobsAfter(BulkDisputeJobRepository.cursorOf(paused, "status", "asc"), 10,
+                null, null, null, null, "status", "asc");
+
+        verify(jdbcTemplate).query(contains("AND (status > ? OR (status = ? AND id > ?))"), any(RowMapper.class),
+                eq(3), eq(3), eq(3L), eq(10));
+    }
+}
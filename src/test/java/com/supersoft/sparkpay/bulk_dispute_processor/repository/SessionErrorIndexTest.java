@@ -0,0 +1,50 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionErrorIndexTest {
+
+    @Test
+    void testPagesWithErrorsForAnyPageSize() {
+        // Row 1 is the header, so page 0 holds rows 2-51 at 50 rows per page
+        SessionErrorIndex index = new SessionErrorIndex(new int[] {0, 3, 51, 52, 120, 1_000_000}, rows -> List.of());
+
+        assertTrue(index.hasErrors());
+        assertEquals(List.of(0, 1, 2, 19_999), index.getPagesWithErrors(50));
+        assertEquals(List.of(0, 1, 9_999), index.getPagesWithErrors(100));
+        assertEquals(List.of(), new SessionErrorIndex(new int[0], rows -> List.of()).getPagesWithErrors(50));
+    }
+
+    @Test
+    void testFailedMessageLoadIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        SessionErrorIndex index = new SessionErrorIndex(new int[] {3, 5}, rows -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new QueryTimeoutException("Lock wait timeout exceeded");
+            }
+            return List.of(new BulkDisputeSessionErrorRepository.SessionError(5, "Action", "Action is required"));
+        });
+
+        assertThrows(QueryTimeoutException.class, () -> index.getErrors(3));
+
+        assertEquals("Action is required", index.getErrors(5).get(0).getErrorMessage());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testEncodedRowsRoundTrip() {
+        int[] rows = {0, 1, 127, 128, 16_511, 2_000_000, Integer.MAX_VALUE};
+
+        byte[] encoded = SessionErrorIndex.encodeRows(rows);
+
+        assertArrayEquals(rows, SessionErrorIndex.decodeRows(encoded, rows.length));
+        // Close rows take one byte each
+        assertEquals(3, SessionErrorIndex.encodeRows(new int[] {10, 11, 12}).length);
+    }
+}
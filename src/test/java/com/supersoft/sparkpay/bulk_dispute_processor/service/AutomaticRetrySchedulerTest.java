@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -15,6 +16,7 @@ import java.util.Collections;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -54,4 +56,17 @@ class AutomaticRetrySchedulerTest {
         // Test that all dependencies are properly injected
         assert automaticRetryScheduler != null;
     }
+
+    @Test
+    void testOverdueRetriesAreRepublished() {
+        ReflectionTestUtils.setField(automaticRetryScheduler, "safetyNetGraceMs", 600000L);
+        ReflectionTestUtils.setField(automaticRetryScheduler, "safetyNetBatchSize", 100);
+        BulkDisputeJob job = BulkDisputeJob.builder().id(1L).sessionId(2L).status(BulkDisputeJob.JobStatus.PENDING).build();
+        when(jobRepository.findOverdueRetries(any(LocalDateTime.class), eq(100))).thenReturn(Collections.singletonList(job));
+        when(jobRetryService.publishRetry(job, 0, false)).thenReturn(true);
+
+        automaticRetryScheduler.republishOverdueRetries();
+
+        verify(jobRetryService).publishRetry(job, 0, false);
+    }
 }
@@ -0,0 +1,88 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeSession;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SessionErrorIndex;
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BulkDisputeSessionServiceImplTest {
+
+    @Mock
+    private BulkDisputeSessionRepository sessionRepository;
+
+    @Mock
+    private BulkDisputeSessionErrorRepository errorRepository;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private LiveStatusService liveStatusService;
+
+    @InjectMocks
+    private BulkDisputeSessionServiceImpl sessionService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("1.csv"), "Unique Key,Action\nk1,ACCEPT\nk2,ACCEPT\nk3,ACCEPT\nk4,BAD\n");
+        BulkDisputeSession session = BulkDisputeSession.builder().id(1L).filePath(file.toString()).totalRows(4).build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(fileService.getRowIndex(file)).thenReturn(CsvRowIndex.build(file, 2));
+        when(liveStatusService.getLiveStatuses(anyList())).thenReturn(Map.of());
+
+        // Validation numbers the header as row 1, so k4 is row 5
+        when(errorRepository.loadErrorIndex(1L)).thenReturn(new SessionErrorIndex(new int[] {5}, rows -> List.of()));
+        when(errorRepository.getErrorsForRows(1L, List.of(5))).thenReturn(
+                List.of(new BulkDisputeSessionErrorRepository.SessionError(5, "Action", "Invalid action")));
+    }
+
+    @Test
+    void testPreviewErrorsLandOnTheirDataRow() {
+        BulkDisputeSessionService.SessionPreviewResult result = sessionService.getSessionPreview(1L, 2, 2, true);
+
+        assertTrue(result.isSuccess());
+        List<Map<String, String>> preview = result.getPreview();
+        assertEquals("k3", preview.get(0).get("Unique Key"));
+        assertEquals("false", preview.get(0).get("hasErrors"));
+        assertEquals("k4", preview.get(1).get("Unique Key"));
+        assertEquals("true", preview.get(1).get("hasErrors"));
+        assertEquals("Invalid action", preview.get(1).get("errors"));
+        assertEquals(List.of(1), result.getPagesWithErrors());
+    }
+
+    @Test
+    void testPreviewPageWithoutErrorRows() {
+        BulkDisputeSessionService.SessionPreviewResult result = sessionService.getSessionPreview(1L, 2, 0, true);
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("k1", "k2"), result.getPreview().stream().map(row -> row.get("Unique Key")).toList());
+        assertTrue(result.getPreview().stream().allMatch(row -> "false".equals(row.get("hasErrors"))));
+        verify(errorRepository, never()).getErrorsForRows(eq(1L), argThat(rows -> !rows.isEmpty()));
+    }
+}
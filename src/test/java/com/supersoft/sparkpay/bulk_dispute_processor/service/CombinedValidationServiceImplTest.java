@@ -0,0 +1,92 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CombinedValidationServiceImplTest {
+
+    private CombinedValidationServiceImpl validationService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        validationService = new CombinedValidationServiceImpl();
+        ReflectionTestUtils.setField(validationService, "maxSizeMb", 10);
+        ReflectionTestUtils.setField(validationService, "allowedExtensions", "pdf,jpg,jpeg,png,doc,docx");
+        ReflectionTestUtils.setField(validationService, "parallelChunkSizeKb", 1);
+        ReflectionTestUtils.setField(validationService, "parallelism", 4);
+        validationService.startValidationPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        validationService.stopValidationPool();
+    }
+
+    @Test
+    void testParallelValidationMatchesSequential() throws IOException {
+        StringBuilder csv = new StringBuilder("\uFEFFUnique Key,Action,Notes\r\n");
+        List<MultipartFile> proofFiles = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Keys repeat across chunks, some rows are invalid and some notes span lines
+            String key = "KEY" + (i % 1500);
+            String action = i % 3 == 0 ? "Reject" : (i % 97 == 0 ? "Hold" : "Accept");
+            String notes = i % 50 == 0 ? "\"Line one\nLine \"\"two\"\", with comma\"" : "note " + i;
+            csv.append(i % 211 == 0 ? "bad-key" : key).append(',').append(action).append(',').append(notes).append("\r\n");
+            if (i % 3 == 0 && i % 7 != 0) {
+                proofFiles.add(new MockMultipartFile("proofFiles", key + ".pdf", "application/pdf", new byte[] {1}));
+            }
+        }
+        byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path csvPath = tempDir.resolve("disputes.csv");
+        Files.write(csvPath, content);
+
+        CombinedValidationService.CombinedValidationResult sequential = validationService.validateCsvWithProofs(
+                new MockMultipartFile("file", "disputes.csv", "text/csv", content), proofFiles);
+        CombinedValidationService.CombinedValidationResult parallel = validationService.validateCsvWithProofsInParallel(csvPath, proofFiles);
+
+        assertFalse(sequential.isValid());
+        assertEquals(describeErrors(sequential), describeErrors(parallel));
+        assertEquals(sequential.isValid(), parallel.isValid());
+        assertEquals(sequential.getHeaders(), parallel.getHeaders());
+        assertEquals(2000, parallel.getTotalRows());
+        assertEquals(sequential.toResponseMap().get("accepted"), parallel.toResponseMap().get("accepted"));
+        assertEquals(sequential.toResponseMap().get("rejected"), parallel.toResponseMap().get("rejected"));
+        assertEquals(sequential.getValidRows(), parallel.getValidRows());
+        assertEquals(sequential.getInvalidRows(), parallel.getInvalidRows());
+    }
+
+    @Test
+    void testParallelValidationReportsMissingColumns() throws IOException {
+        Path csvPath = tempDir.resolve("disputes.csv");
+        Files.writeString(csvPath, "Unique Key,Notes\nKEY1,note\n");
+
+        CombinedValidationService.CombinedValidationResult result = validationService.validateCsvWithProofsInParallel(csvPath, List.of());
+
+        assertFalse(result.isFormatValid());
+        assertEquals(List.of("0|HEADER|Missing required column: action"), describeErrors(result));
+    }
+
+    private static List<String> describeErrors(CombinedValidationService.CombinedValidationResult result) {
+        return result.getErrors().stream()
+                .map(error -> error.getRow() + "|" + error.getColumn() + "|" + error.getReason())
+                .collect(Collectors.toList());
+    }
+}
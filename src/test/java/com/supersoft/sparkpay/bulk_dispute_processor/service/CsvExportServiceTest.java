@@ -0,0 +1,84 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository.SessionError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CsvExportServiceTest {
+
+    @Mock
+    private BulkDisputeSessionErrorRepository errorRepository;
+
+    @InjectMocks
+    private CsvExportService csvExportService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testErrorsAreMergedIntoRowsInOrder() throws IOException {
+        Path file = tempDir.resolve("session.csv");
+        Files.writeString(file, "dispute_id,action\nD1,ACCEPT\n\"D2\nmore\",REJECT\nD3,ACCEPT\nD4,REJECT\n");
+        List<SessionError> errors = List.of(
+                new SessionError(0, null, "File-level error"),
+                new SessionError(3, "action", "Proof required"),
+                new SessionError(3, "dispute_id", "Duplicate"),
+                new SessionError(5, "action", "Bad action"),
+                new SessionError(9, "action", "Row not in file"));
+        doAnswer(invocation -> {
+            errors.forEach(invocation.<Consumer<SessionError>>getArgument(1));
+            return null;
+        }).when(errorRepository).forEachErrorBySessionId(eq(1L), any(Consumer.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExportService.exportCsvWithErrors(1L, file.toString(), out);
+
+        assertEquals("dispute_id,action,Errors\n"
+                + "D1,ACCEPT,No errors\n"
+                + "\"D2\nmore\",REJECT,Proof required | Duplicate\n"
+                + "D3,ACCEPT,No errors\n"
+                + "D4,REJECT,Bad action", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFirstDataRowCarriesTheErrorsOfValidationRowTwo() throws IOException {
+        Path file = tempDir.resolve("session.csv");
+        Files.writeString(file, "dispute_id,action\nD1,ACCEPT\nD2,REJECT\n");
+        List<SessionError> errors = List.of(
+                new SessionError(2, "action", "First data row"),
+                new SessionError(3, "action", "Last data row"));
+        doAnswer(invocation -> {
+            errors.forEach(invocation.<Consumer<SessionError>>getArgument(1));
+            return null;
+        }).when(errorRepository).forEachErrorBySessionId(eq(1L), any(Consumer.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExportService.exportCsvWithErrors(1L, file.toString(), out);
+
+        // The header is row 1, as in validation; the baseline export shifted every error one row up
+        assertEquals("dispute_id,action,Errors\n"
+                + "D1,ACCEPT,First data row\n"
+                + "D2,REJECT,Last data row", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CsvValidationServiceTest {
@@ -81,4 +84,36 @@ class CsvValidationServiceTest {
         assertFalse(result.isValid());
         assertTrue(result.getErrorSummary().contains("Invalid Unique Key format"));
     }
+
+    @Test
+    void testRowConsumerReceivesEveryRecordInOnePass() {
+        String csvContent = "Unique Key,Action\n" +
+                "9070NMN,Accept\n" +
+                "9070KS1W,\"Accept\"";
+        
+        MultipartFile file = new MockMultipartFile("test.csv", "test.csv", "text/csv", csvContent.getBytes());
+        List<String> received = new ArrayList<>();
+        
+        CsvValidationService.ValidationResult result = validationService.validateCsv(file,
+                (rowNumber, fields) -> received.add(rowNumber + ":" + String.join("|", fields)));
+        
+        assertTrue(result.isValid());
+        assertEquals(2, result.getTotalRows());
+        assertEquals(List.of("1:Unique Key|Action", "2:9070NMN|Accept", "3:9070KS1W|Accept"), received);
+    }
+
+    @Test
+    void testRowConsumerStillReceivesRowsWhenFormatInvalid() {
+        String csvContent = "Unique Key,Proof(Optional)\n" +
+                "9070NMN,7.96E+13";
+        
+        MultipartFile file = new MockMultipartFile("test.csv", "test.csv", "text/csv", csvContent.getBytes());
+        List<Integer> rows = new ArrayList<>();
+        
+        CsvValidationService.ValidationResult result = validationService.validateCsv(file,
+                (rowNumber, fields) -> rows.add(rowNumber));
+        
+        assertFalse(result.isFormatValid());
+        assertEquals(List.of(1, 2), rows);
+    }
 }
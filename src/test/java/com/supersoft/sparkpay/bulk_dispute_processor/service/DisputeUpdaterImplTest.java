@@ -5,8 +5,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,6 +22,9 @@ class DisputeUpdaterImplTest {
     @Mock
     private DisputeRepository disputeRepository;
 
+    @Mock
+    private LiveStatusService liveStatusService;
+
     private DisputeUpdaterImpl disputeUpdater;
 
     @BeforeEach
@@ -26,6 +33,7 @@ class DisputeUpdaterImplTest {
         disputeUpdater = new DisputeUpdaterImpl();
         // We need to inject the mock repository manually since we're not using Spring context
         disputeUpdater.disputeRepository = disputeRepository;
+        disputeUpdater.liveStatusService = liveStatusService;
     }
 
     @Test
@@ -151,4 +159,130 @@ class DisputeUpdaterImplTest {
         result = disputeUpdater.processRow(rejectRow);
         assertTrue(result.isSuccess());
     }
+
+    @Test
+    void testProcessRowsBatchReportsPerRowResults() {
+        Map<String, String> matched = acceptRow("9070NMN");
+        Map<String, String> unmatched = acceptRow("INVALID123");
+        Map<String, String> missingKey = new HashMap<>();
+        missingKey.put("Action", "ACCEPT");
+        missingKey.put("uploadedBy", "testuser");
+        
+        when(disputeRepository.batchUpdateDisputeStatus(anyList())).thenReturn(new int[]{1, 0});
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(List.of(matched, missingKey, unmatched));
+        
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Unique Key is required", results.get(1).getErrorMessage());
+        assertEquals("No matching dispute found or already processed", results.get(2).getErrorMessage());
+        verify(disputeRepository, times(1)).batchUpdateDisputeStatus(anyList());
+        verify(disputeRepository, never()).updateDisputeStatus(anyString(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testProcessRowsFallsBackToSingleRowsWhenBatchStatementFails() {
+        when(disputeRepository.batchUpdateDisputeStatus(anyList()))
+                .thenThrow(new DataIntegrityViolationException("batch failed", new BatchUpdateException()));
+        when(disputeRepository.updateDisputeStatus(eq("9070NMN"), anyString(), anyInt(), anyInt(), any())).thenReturn(1);
+        when(disputeRepository.updateDisputeStatus(eq("9070KS1W"), anyString(), anyInt(), anyInt(), any()))
+                .thenThrow(new RuntimeException("Data truncation"));
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(List.of(acceptRow("9070NMN"), acceptRow("9070KS1W")));
+        
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Database error: Data truncation", results.get(1).getErrorMessage());
+    }
+
+    @Test
+    void testProcessRowsRetriesOnlyStatementsAfterThePartialBatchFailure() {
+        // The first statement was applied before the second failed and the driver stopped the batch
+        BatchUpdateException stoppedBatch = new BatchUpdateException("Data truncation", new int[]{1});
+        when(disputeRepository.batchUpdateDisputeStatus(anyList()))
+                .thenThrow(new DataIntegrityViolationException("batch failed", stoppedBatch));
+        when(disputeRepository.updateDisputeStatus(eq("9070KS1W"), anyString(), anyInt(), anyInt(), any()))
+                .thenThrow(new RuntimeException("Data truncation"));
+        when(disputeRepository.updateDisputeStatus(eq("9070ABC"), anyString(), anyInt(), anyInt(), any())).thenReturn(1);
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(
+                List.of(acceptRow("9070NMN"), acceptRow("9070KS1W"), acceptRow("9070ABC")));
+        
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Database error: Data truncation", results.get(1).getErrorMessage());
+        assertTrue(results.get(2).isSuccess());
+        verify(disputeRepository, never()).updateDisputeStatus(eq("9070NMN"), anyString(), anyInt(), anyInt(), any());
+        verify(liveStatusService).invalidate(List.of("9070NMN"));
+    }
+
+    @Test
+    void testProcessRowsRetriesOnlyFailedStatementsWhenTheBatchContinued() {
+        // The driver ran the whole batch and marked the failed statement
+        BatchUpdateException continuedBatch = new BatchUpdateException("Data truncation",
+                new int[]{1, Statement.EXECUTE_FAILED, 0});
+        when(disputeRepository.batchUpdateDisputeStatus(anyList()))
+                .thenThrow(new DataIntegrityViolationException("batch failed", continuedBatch));
+        when(disputeRepository.updateDisputeStatus(eq("9070KS1W"), anyString(), anyInt(), anyInt(), any())).thenReturn(1);
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(
+                List.of(acceptRow("9070NMN"), acceptRow("9070KS1W"), acceptRow("INVALID123")));
+        
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("No matching dispute found or already processed", results.get(2).getErrorMessage());
+        verify(disputeRepository, times(1)).updateDisputeStatus(anyString(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testProcessRowsFailsWholeChunkOnConnectionError() {
+        when(disputeRepository.batchUpdateDisputeStatus(anyList()))
+                .thenThrow(new RuntimeException("Database connection failed"));
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(List.of(acceptRow("9070NMN"), acceptRow("9070KS1W")));
+        
+        assertTrue(results.stream().noneMatch(DisputeUpdater.ProcessingResult::isSuccess));
+        assertEquals("Database error: Database connection failed", results.get(0).getErrorMessage());
+        verify(disputeRepository, never()).updateDisputeStatus(anyString(), anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testReplayedRowsAlreadyAppliedCountAsSuccess() {
+        Map<String, String> applied = acceptRow("9070NMN");
+        applied.put(DisputeUpdater.REPLAYED_ROW, "true");
+        Map<String, String> resolvedByOther = acceptRow("9070KS1W");
+        resolvedByOther.put(DisputeUpdater.REPLAYED_ROW, "true");
+        Map<String, String> notReplayed = acceptRow("9070ABC");
+        
+        when(disputeRepository.batchUpdateDisputeStatus(anyList())).thenReturn(new int[]{0, 0, 0});
+        when(disputeRepository.findDisputeStatuses(List.of("9070NMN", "9070KS1W"))).thenReturn(Map.of(
+                "9070NMN", new DisputeRepository.DisputeStatusInfo("9070NMN", 0, 0, "testuser", null, null),
+                "9070KS1W", new DisputeRepository.DisputeStatusInfo("9070KS1W", 0, 0, "otheruser", null, null)));
+        
+        List<DisputeUpdater.ProcessingResult> results = disputeUpdater.processRows(List.of(applied, resolvedByOther, notReplayed));
+        
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("No matching dispute found or already processed", results.get(1).getErrorMessage());
+        assertEquals("No matching dispute found or already processed", results.get(2).getErrorMessage());
+        verify(disputeRepository, times(1)).findDisputeStatuses(anyList());
+    }
+
+    @Test
+    void testReplayedRowKeepsFailureWhenStatusLookupFails() {
+        Map<String, String> row = acceptRow("9070NMN");
+        row.put(DisputeUpdater.REPLAYED_ROW, "true");
+        
+        when(disputeRepository.updateDisputeStatus(anyString(), anyString(), anyInt(), anyInt(), any())).thenReturn(0);
+        when(disputeRepository.findDisputeStatuses(anyList())).thenThrow(new RuntimeException("Database connection failed"));
+        
+        DisputeUpdater.ProcessingResult result = disputeUpdater.processRow(row);
+        
+        assertEquals("No matching dispute found or already processed", result.getErrorMessage());
+    }
+
+    private Map<String, String> acceptRow(String uniqueKey) {
+        Map<String, String> row = new HashMap<>();
+        row.put("Unique Key", uniqueKey);
+        row.put("Action", "ACCEPT");
+        row.put("uploadedBy", "testuser");
+        return row;
+    }
 }
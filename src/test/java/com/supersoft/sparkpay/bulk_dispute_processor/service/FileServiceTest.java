@@ -1,5 +1,6 @@
 package com.supersoft.sparkpay.bulk_dispute_processor.service;
 
+import com.supersoft.sparkpay.bulk_dispute_processor.util.CsvRowIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -7,8 +8,12 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -86,4 +91,59 @@ class FileServiceTest {
         fileService.deleteSessionFile(1L);
         assertFalse(fileService.sessionFileExists(1L));
     }
+
+    @Test
+    void testSaveSessionUploadCopiesWhatWasRead() throws IOException {
+        String content = "Unique Key,Action\n9070NMN,Accept\n9070KS1W,Reject\n";
+        MockMultipartFile file = new MockMultipartFile("test.csv", "test.csv", "text/csv", content.getBytes());
+        
+        String filePath;
+        try (SessionFileUpload upload = fileService.beginSessionUpload(file)) {
+            // Read only part of the upload, the rest is copied when it is saved
+            InputStream in = upload.getInputStream();
+            assertEquals(10, in.readNBytes(new byte[10], 0, 10));
+            in.close();
+            
+            filePath = fileService.saveSessionUpload(1L, upload);
+        }
+        
+        assertEquals(content, Files.readString(Path.of(filePath)));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(Path.of(filePath), Path.of(filePath + ".idx")), files.sorted().collect(Collectors.toList()));
+        }
+        
+        // Indexed as it was copied
+        CsvRowIndex index = CsvRowIndex.read(Path.of(filePath + ".idx"));
+        assertEquals(2, index.getRowCount());
+        assertTrue(index.isCurrent(Path.of(filePath)));
+    }
+
+    @Test
+    void testRowIndexRebuiltWhenFileChanged() throws IOException {
+        ReflectionTestUtils.setField(fileService, "indexIntervalRows", 1);
+        MockMultipartFile file = new MockMultipartFile("test.csv", "test.csv", "text/csv", "Unique Key,Action\n9070NMN,Accept\n".getBytes());
+        Path filePath = Path.of(fileService.saveSessionFile(1L, file));
+        assertEquals(1, fileService.getRowIndex(filePath).getRowCount());
+        
+        Files.writeString(filePath, "Unique Key,Action\n9070NMN,Accept\n9070KS1W,Reject\n9070KS1X,Accept\n");
+        assertEquals(3, fileService.getRowIndex(filePath).getRowCount());
+        assertEquals(3, CsvRowIndex.read(Path.of(filePath + ".idx")).getRowCount());
+        
+        fileService.deleteSessionFile(1L);
+        assertFalse(Files.exists(Path.of(filePath + ".idx")));
+    }
+
+    @Test
+    void testSessionUploadDiscardedWhenNotSaved() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("test.csv", "test.csv", "text/csv", "Unique Key,Action\n".getBytes());
+        
+        try (SessionFileUpload upload = fileService.beginSessionUpload(file)) {
+            upload.getInputStream().readAllBytes();
+        }
+        
+        assertFalse(fileService.sessionFileExists(1L));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
 }
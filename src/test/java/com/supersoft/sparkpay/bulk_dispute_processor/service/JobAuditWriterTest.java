@@ -0,0 +1,111 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobAudit;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobAuditRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobAuditWriterTest {
+
+    @Mock
+    private BulkDisputeJobAuditRepository auditRepository;
+
+    @InjectMocks
+    private JobAuditWriter auditWriter;
+
+    private final List<BulkDisputeJobAudit> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditWriter, "queueCapacity", 100);
+        ReflectionTestUtils.setField(auditWriter, "batchSize", 10);
+        ReflectionTestUtils.setField(auditWriter, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(auditWriter, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(auditWriter, "writeAttempts", 2);
+        ReflectionTestUtils.setField(auditWriter, "retryBackoffMs", 1L);
+        ReflectionTestUtils.setField(auditWriter, "maxRequeues", 3);
+    }
+
+    @Test
+    void testEntriesAreWrittenInBatchesAndDrainedOnShutdown() {
+        when(auditRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<BulkDisputeJobAudit> batch = invocation.getArgument(0);
+            synchronized (written) {
+                written.addAll(batch);
+            }
+            return batch.size();
+        });
+        auditWriter.start();
+
+        for (int i = 0; i < 25; i++) {
+            auditWriter.record(1L, "ROW_SKIPPED", "Row " + i + " skipped");
+        }
+        auditWriter.shutdown();
+
+        assertEquals(25, written.size());
+        assertEquals("Row 0 skipped", written.get(0).getMessage());
+        assertEquals("Row 24 skipped", written.get(24).getMessage());
+        verify(auditRepository, atMost(25)).saveAll(anyList());
+    }
+
+    @Test
+    void testEntriesOfAFailedBatchAreRetriedOneByOneAndKeepTheirRecordTime() {
+        // Every write holding "Row 1" fails four times: both batch attempts and both single attempts
+        AtomicInteger failuresLeft = new AtomicInteger(4);
+        when(auditRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<BulkDisputeJobAudit> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(audit -> "Row 1 skipped".equals(audit.getMessage())) && failuresLeft.getAndDecrement() > 0) {
+                throw new RuntimeException("Deadlock found when trying to get lock");
+            }
+            synchronized (written) {
+                written.addAll(batch);
+            }
+            return batch.size();
+        });
+        auditWriter.start();
+
+        for (int i = 0; i < 3; i++) {
+            auditWriter.record(1L, "ROW_SKIPPED", "Row " + i + " skipped");
+        }
+        LocalDateTime recorded = LocalDateTime.now();
+        auditWriter.shutdown();
+
+        assertEquals(List.of("Row 0 skipped", "Row 1 skipped", "Row 2 skipped"),
+                written.stream().map(BulkDisputeJobAudit::getMessage).sorted().toList());
+        assertTrue(written.stream().noneMatch(audit -> audit.getCreatedAt().isAfter(recorded)));
+    }
+
+    @Test
+    void testEntriesAreWrittenDirectlyAfterShutdown() {
+        auditWriter.start();
+        auditWriter.shutdown();
+
+        auditWriter.record(2L, "JOB_PAUSED", "Job paused");
+
+        verify(auditRepository).saveAll(argThat(batch -> batch.size() == 1 && "JOB_PAUSED".equals(batch.get(0).getAction())));
+    }
+
+    @Test
+    void testWriteFailureIsNotPropagated() {
+        when(auditRepository.saveAll(anyList())).thenThrow(new RuntimeException("Database unavailable"));
+        auditWriter.start();
+        auditWriter.shutdown();
+
+        assertDoesNotThrow(() -> auditWriter.record(3L, "JOB_STARTED", "Job processing started"));
+    }
+}
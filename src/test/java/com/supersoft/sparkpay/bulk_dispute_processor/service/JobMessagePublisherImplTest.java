@@ -0,0 +1,53 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.config.RabbitMQConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobMessagePublisherImplTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @InjectMocks
+    private JobMessagePublisherImpl messagePublisher;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(messagePublisher, "initialDelayMs", 30000L);
+        ReflectionTestUtils.setField(messagePublisher, "retryMultiplier", 2.0);
+        ReflectionTestUtils.setField(messagePublisher, "maxDelayMs", 300000L);
+    }
+
+    @Test
+    void testRetryTiersFollowTheBackoff() {
+        assertEquals(List.of(30000L, 60000L, 120000L, 240000L, 300000L), RabbitMQConfig.retryDelayTiers(30000, 2.0, 300000));
+        assertEquals(List.of(30000L), RabbitMQConfig.retryDelayTiers(30000, 1.0, 300000));
+    }
+
+    @Test
+    void testDelayedMessageGoesToTheTierThatWaitsLongEnough() {
+        JobMessagePublisher.JobMessage jobMessage = new JobMessagePublisher.JobMessage(1L, 2L, "uploads/2.csv", "tester");
+
+        messagePublisher.publishDelayedJobMessage(jobMessage, 45000);
+        verify(rabbitTemplate).convertAndSend(RabbitMQConfig.BULK_JOBS_EXCHANGE, "retry.60000", jobMessage);
+
+        // Longer than the last tier waits the last tier; no delay goes straight to bulk.jobs
+        messagePublisher.publishDelayedJobMessage(jobMessage, 900000);
+        verify(rabbitTemplate).convertAndSend(RabbitMQConfig.BULK_JOBS_EXCHANGE, "retry.300000", jobMessage);
+        messagePublisher.publishDelayedJobMessage(jobMessage, 0);
+        verify(rabbitTemplate).convertAndSend(RabbitMQConfig.BULK_JOBS_EXCHANGE, "job", jobMessage);
+    }
+}
@@ -0,0 +1,111 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveStatusServiceTest {
+
+    @Mock
+    private DisputeRepository disputeRepository;
+
+    @InjectMocks
+    private LiveStatusService liveStatusService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(liveStatusService, "maxEntries", 100);
+        ReflectionTestUtils.setField(liveStatusService, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void testRepeatedPreviewIsServedFromCache() {
+        when(disputeRepository.findDisputeStatuses(anyList())).thenReturn(Map.of("A", status("A", -1)));
+
+        Map<String, DisputeRepository.DisputeStatusInfo> first = liveStatusService.getLiveStatuses(List.of("A", "B"));
+        Map<String, DisputeRepository.DisputeStatusInfo> second = liveStatusService.getLiveStatuses(List.of("A", "B"));
+
+        assertEquals(first.keySet(), second.keySet());
+        assertFalse(second.containsKey("B"));
+        verify(disputeRepository, times(1)).findDisputeStatuses(anyList());
+        assertEquals(2, liveStatusService.getCacheStats().getHits());
+        assertEquals(2, liveStatusService.getCacheStats().getMisses());
+    }
+
+    @Test
+    void testUpdatedDisputeIsReloaded() {
+        when(disputeRepository.findDisputeStatuses(List.of("A")))
+                .thenReturn(Map.of("A", status("A", -1)))
+                .thenReturn(Map.of("A", status("A", 0)));
+
+        assertEquals(-1, liveStatusService.getLiveStatus("A").getStatus());
+        liveStatusService.invalidate(List.of("A"));
+        assertEquals(0, liveStatusService.getLiveStatus("A").getStatus());
+        assertEquals(0, liveStatusService.getLiveStatus("A").getStatus());
+
+        verify(disputeRepository, times(2)).findDisputeStatuses(List.of("A"));
+    }
+
+    @Test
+    void testConcurrentPreviewsShareOneQuery() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(disputeRepository.findDisputeStatuses(anyList())).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            assertTrue(releaseQuery.await(5, TimeUnit.SECONDS));
+            return Map.of("A", status("A", -1));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, DisputeRepository.DisputeStatusInfo>> first =
+                    executor.submit(() -> liveStatusService.getLiveStatuses(List.of("A")));
+            assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+            Future<Map<String, DisputeRepository.DisputeStatusInfo>> second =
+                    executor.submit(() -> liveStatusService.getLiveStatuses(List.of("A")));
+
+            // The second preview finds the key loading and waits for it
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+            releaseQuery.countDown();
+
+            assertTrue(first.get(5, TimeUnit.SECONDS).containsKey("A"));
+            assertTrue(second.get(5, TimeUnit.SECONDS).containsKey("A"));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(disputeRepository, times(1)).findDisputeStatuses(anyList());
+    }
+
+    @Test
+    void testFailedLookupIsNotCached() {
+        when(disputeRepository.findDisputeStatuses(List.of("A")))
+                .thenThrow(new RuntimeException("Database connection failed"))
+                .thenReturn(Map.of("A", status("A", -1)));
+
+        assertTrue(liveStatusService.getLiveStatuses(List.of("A")).isEmpty());
+        assertTrue(liveStatusService.getLiveStatuses(List.of("A")).containsKey("A"));
+    }
+
+    private static DisputeRepository.DisputeStatusInfo status(String uniqueKey, int status) {
+        return new DisputeRepository.DisputeStatusInfo(uniqueKey, status, 0, null, null, null);
+    }
+}
@@ -0,0 +1,169 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.DisputeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProofServiceImplTest {
+
+    private ProofServiceImpl proofService;
+
+    private DisputeRepository disputeRepository;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.write(tempDir.resolve("ABC123_20250101_101500.pdf"), new byte[] {1});
+        Files.write(tempDir.resolve("ABC123_20250102_090000.pdf"), new byte[] {2});
+
+        disputeRepository = mock(DisputeRepository.class);
+        proofService = new ProofServiceImpl();
+        ReflectionTestUtils.setField(proofService, "disputeRepository", disputeRepository);
+        ReflectionTestUtils.setField(proofService, "basePath", tempDir.toString());
+        ReflectionTestUtils.setField(proofService, "maxSizeMb", 10);
+        ReflectionTestUtils.setField(proofService, "allowedExtensions", "pdf,jpg,jpeg,png,doc,docx");
+        ReflectionTestUtils.setField(proofService, "replaceExisting", true);
+        proofService.buildProofIndex();
+    }
+
+    @Test
+    void testExistingProofsAreIndexedAtStartup() {
+        assertTrue(proofService.proofExists("ABC123"));
+        assertEquals(tempDir.resolve("ABC123_20250102_090000.pdf").toString(), proofService.getProofFilePath("ABC123"));
+        assertFalse(proofService.proofExists("ABC12"));
+    }
+
+    @Test
+    void testUploadAndDeleteKeepIndexCurrent() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "receipt.pdf", "application/pdf", new byte[] {3});
+
+        String filePath = proofService.uploadProof("DEF456", file);
+
+        assertEquals(filePath, proofService.getProofFilePath("DEF456"));
+        assertTrue(proofService.deleteProof("DEF456"));
+        assertFalse(proofService.proofExists("DEF456"));
+        assertFalse(Files.exists(Path.of(filePath)));
+    }
+
+    @Test
+    void testProofResourceFollowsMovedFile() throws IOException {
+        Path shardDir = ProofIndex.shardDirectory(tempDir, "ABC123");
+        Files.createDirectories(shardDir);
+        Files.move(tempDir.resolve("ABC123_20250102_090000.pdf"), shardDir.resolve("ABC123_20250102_090000.pdf"));
+
+        // The stale entry is looked up again on disk without waiting for the rescan
+        Resource proof = proofService.getProofResource("ABC123");
+        assertEquals("ABC123_20250102_090000.pdf", proof.getFilename());
+        assertEquals(1, proof.contentLength());
+        assertThrows(IOException.class, () -> proofService.getProofResource("XYZ999"));
+    }
+
+    @Test
+    void testProofWrittenByAnotherNodeIsFoundBeforeTheRescan() throws IOException {
+        Path shardDir = ProofIndex.shardDirectory(tempDir, "JKL012");
+        Files.createDirectories(shardDir);
+        Files.write(shardDir.resolve("JKL012_20250104_080000.pdf"), new byte[] {5});
+
+        assertTrue(proofService.proofExists("JKL012"));
+        assertArrayEquals(new byte[] {5}, proofService.getProofResource("JKL012").getContentAsByteArray());
+
+        // Flat-layout nodes write to the base directory, which is listed when this node does too
+        Files.write(tempDir.resolve("MNO345_20250104_080000.pdf"), new byte[] {6});
+        assertTrue(proofService.proofExists("MNO345"));
+
+        Files.delete(shardDir.resolve("JKL012_20250104_080000.pdf"));
+        assertFalse(proofService.proofExists("JKL012"));
+        assertFalse(proofService.deleteProof("JKL012"));
+    }
+
+    @Test
+    void testRescanPicksUpExternalChanges() throws IOException {
+        Files.write(tempDir.resolve("GHI789_20250103_120000.png"), new byte[] {4});
+        Files.delete(tempDir.resolve("ABC123_20250102_090000.pdf"));
+
+        proofService.reconcileProofIndex();
+
+        assertTrue(proofService.proofExists("GHI789"));
+        assertEquals(tempDir.resolve("ABC123_20250101_101500.pdf").toString(), proofService.getProofFilePath("ABC123"));
+    }
+
+    @Test
+    void testFlatProofsMigrateIntoShardDirectories() throws IOException {
+        ReflectionTestUtils.setField(proofService, "shardedLayout", true);
+        Path shardDir = ProofIndex.shardDirectory(tempDir, "ABC123");
+        Path flatFile = tempDir.resolve("ABC123_20250102_090000.pdf");
+
+        assertEquals(1, proofService.migrateFlatProofs(1));
+        assertEquals(1, proofService.migrateFlatProofs(10));
+        // With no grace period, the flat copies go on the next run
+        assertEquals(0, proofService.migrateFlatProofs(10));
+
+        assertEquals(shardDir.resolve("ABC123_20250102_090000.pdf").toString(), proofService.getProofFilePath("ABC123"));
+        assertArrayEquals(new byte[] {2}, proofService.getProofResource("ABC123").getContentAsByteArray());
+        assertFalse(Files.exists(tempDir.resolve("ABC123_20250101_101500.pdf")));
+        assertFalse(Files.exists(flatFile));
+        // Stored proof paths are moved along, and again before the flat copy is removed
+        verify(disputeRepository, times(2)).updateProofUri("ABC123", flatFile.toString(),
+                shardDir.resolve("ABC123_20250102_090000.pdf").toString());
+
+        // New uploads go straight to their shard and the rescan understands the layout
+        String filePath = proofService.uploadProof("DEF456",
+                new MockMultipartFile("file", "receipt.pdf", "application/pdf", new byte[] {3}));
+        assertEquals(ProofIndex.shardDirectory(tempDir, "DEF456"), Path.of(filePath).getParent());
+        proofService.buildProofIndex();
+        assertEquals(filePath, proofService.getProofFilePath("DEF456"));
+        assertTrue(proofService.proofExists("ABC123"));
+    }
+
+    @Test
+    void testMigratedFlatCopyStaysReadableDuringTheGracePeriod() throws IOException {
+        ReflectionTestUtils.setField(proofService, "shardedLayout", true);
+        ReflectionTestUtils.setField(proofService, "flatCopyGraceMs", 600000L);
+        Path flatFile = tempDir.resolve("ABC123_20250102_090000.pdf");
+        Path shardFile = ProofIndex.shardDirectory(tempDir, "ABC123").resolve("ABC123_20250102_090000.pdf");
+
+        assertEquals(2, proofService.migrateFlatProofs(10));
+        assertEquals(0, proofService.migrateFlatProofs(10));
+
+        // Paths stored before the move, and other nodes' indexes, still resolve
+        assertTrue(Files.exists(flatFile));
+        assertEquals(shardFile.toString(), proofService.getProofFilePath("ABC123"));
+        verify(disputeRepository).updateProofUri("ABC123", flatFile.toString(), shardFile.toString());
+
+        // A node rescanning meanwhile switches to the shard copy
+        ProofIndex otherNode = new ProofIndex(tempDir);
+        otherNode.put("ABC123", flatFile);
+        otherNode.reconcile();
+        assertEquals(shardFile, otherNode.get("ABC123"));
+    }
+
+    @Test
+    void testFlatDirectoryIsListedAtMostOncePerRecheckInterval() throws IOException {
+        ProofIndex index = new ProofIndex(tempDir, 600000L);
+        index.reconcile();
+
+        // Codes without a proof do not list the directory again within the interval, even once it changes
+        Files.write(tempDir.resolve("PQR678_20250105_100000.pdf"), new byte[] {7});
+        assertNull(index.find("PQR678", true));
+        assertNull(index.get("PQR678"));
+
+        // Without an interval the changed directory is listed on the next miss and its proofs indexed
+        ProofIndex unlimited = new ProofIndex(tempDir, 0);
+        assertEquals(tempDir.resolve("PQR678_20250105_100000.pdf"), unlimited.find("PQR678", true));
+        assertEquals(tempDir.resolve("ABC123_20250102_090000.pdf"), unlimited.get("ABC123"));
+        assertNull(unlimited.find("STU901", true));
+    }
+}
@@ -0,0 +1,229 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.RetentionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SchedulerLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetentionServiceTest {
+
+    @Mock
+    private RetentionRepository retentionRepository;
+
+    @Mock
+    private SchedulerLeaseRepository leaseRepository;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private ProofService proofService;
+
+    @InjectMocks
+    private RetentionService retentionService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(retentionService, "basePath", tempDir.toString());
+        ReflectionTestUtils.setField(retentionService, "sessionTtlDays", 7);
+        ReflectionTestUtils.setField(retentionService, "auditDays", 90);
+        ReflectionTestUtils.setField(retentionService, "backupDays", 7);
+        ReflectionTestUtils.setField(retentionService, "staleFileHours", 24);
+        ReflectionTestUtils.setField(retentionService, "batchSize", 2);
+        ReflectionTestUtils.setField(retentionService, "batchPauseMs", 0L);
+        ReflectionTestUtils.setField(retentionService, "leaseSeconds", 60L);
+    }
+
+    @Test
+    void testRunIsSkippedWhileAnotherNodeHoldsTheLease() {
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(false);
+
+        assertNull(retentionService.run(false));
+
+        verifyNoInteractions(retentionRepository);
+        verify(leaseRepository, never()).release(anyString(), anyString());
+        assertEquals(1, retentionService.getStats().getSkippedRuns());
+    }
+
+    @Test
+    void testSecondRunOnTheSameNodeIsRefusedWhileOneIsActive() {
+        ReflectionTestUtils.setField(retentionService, "sessionTtlDays", 0);
+        ReflectionTestUtils.setField(retentionService, "auditDays", 0);
+        RetentionService.RunResult[] nested = new RetentionService.RunResult[1];
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenAnswer(invocation -> {
+            // A dry-run request arriving while the scheduled purge holds the lease
+            nested[0] = retentionService.run(true);
+            return true;
+        });
+
+        assertNotNull(retentionService.run(false));
+
+        assertNull(nested[0]);
+        verify(leaseRepository, times(1)).tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L));
+        verify(leaseRepository, times(1)).release(eq(RetentionService.LEASE_NAME), anyString());
+        assertEquals(1, retentionService.getStats().getSkippedRuns());
+    }
+
+    @Test
+    void testEachRunTakesTheLeaseUnderItsOwnOwner() {
+        ReflectionTestUtils.setField(retentionService, "sessionTtlDays", 0);
+        ReflectionTestUtils.setField(retentionService, "auditDays", 0);
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(true);
+
+        retentionService.run(true);
+        retentionService.run(true);
+
+        ArgumentCaptor<String> owners = ArgumentCaptor.forClass(String.class);
+        verify(leaseRepository, times(2)).tryAcquire(eq(RetentionService.LEASE_NAME), owners.capture(), eq(60L));
+        assertNotEquals(owners.getAllValues().get(0), owners.getAllValues().get(1));
+        verify(leaseRepository).release(RetentionService.LEASE_NAME, owners.getAllValues().get(0));
+        verify(leaseRepository).release(RetentionService.LEASE_NAME, owners.getAllValues().get(1));
+    }
+
+    @Test
+    void testExpiredSessionIsPurgedInBatches() throws IOException {
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(true);
+        Path reportFile = expiredSession(RetentionRepository.SessionKind.UNCONFIRMED, 1L);
+        when(retentionRepository.deleteSessionErrors(eq(RetentionRepository.SessionKind.UNCONFIRMED), eq(1L), any(LocalDateTime.class), eq(2)))
+                .thenReturn(2, 2, 1);
+        when(retentionRepository.deleteSession(eq(RetentionRepository.SessionKind.UNCONFIRMED), eq(1L), any(LocalDateTime.class))).thenReturn(true);
+        when(retentionRepository.deleteAuditBefore(any(LocalDateTime.class), eq(2))).thenReturn(1);
+
+        RetentionService.RunResult result = retentionService.run(false);
+
+        assertEquals(1, result.getSessions());
+        assertEquals(5, result.getSessionErrors());
+        assertEquals(1, result.getAuditRows());
+        assertEquals(3, result.getFiles());
+        assertFalse(Files.exists(tempDir.resolve("1.csv")));
+        assertFalse(Files.exists(tempDir.resolve("1.csv.idx")));
+        assertFalse(Files.exists(reportFile));
+        // The lease is renewed after each full batch and released at the end
+        verify(leaseRepository, times(3)).tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L));
+        verify(leaseRepository).release(eq(RetentionService.LEASE_NAME), anyString());
+        assertEquals(1, retentionService.getStats().getSessionsPurged());
+        assertEquals(5, retentionService.getStats().getSessionErrorsDeleted());
+        // A session that was never confirmed has no job audit to delete
+        verify(retentionRepository, never()).deleteSessionAudit(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    void testConfirmedSessionIsKeptWithItsJobsForTheAuditRetention() throws IOException {
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(true);
+        expiredSession(RetentionRepository.SessionKind.FINISHED, 1L);
+        when(retentionRepository.deleteSessionAudit(eq(1L), any(LocalDateTime.class), eq(2))).thenReturn(2, 1);
+        when(retentionRepository.deleteSession(eq(RetentionRepository.SessionKind.FINISHED), eq(1L), any(LocalDateTime.class))).thenReturn(true);
+
+        RetentionService.RunResult result = retentionService.run(false);
+
+        assertEquals(1, result.getSessions());
+        assertEquals(3, result.getAuditRows());
+        ArgumentCaptor<LocalDateTime> ttlCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> auditCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(retentionRepository).findExpiredSessions(eq(RetentionRepository.SessionKind.UNCONFIRMED), ttlCutoff.capture(), isNull(), eq(2));
+        verify(retentionRepository).findExpiredSessions(eq(RetentionRepository.SessionKind.FINISHED), auditCutoff.capture(), isNull(), eq(2));
+        // Sessions with job history expire with the audit, not with the session TTL
+        assertTrue(ttlCutoff.getValue().isAfter(LocalDateTime.now().minusDays(8)));
+        assertTrue(auditCutoff.getValue().isBefore(LocalDateTime.now().minusDays(89)));
+    }
+
+    @Test
+    void testDryRunOnlyCounts() throws IOException {
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(true);
+        Path reportFile = expiredSession(RetentionRepository.SessionKind.FINISHED, 1L);
+        when(retentionRepository.countSessionErrors(1L)).thenReturn(5L);
+        when(retentionRepository.countSessionAudit(1L)).thenReturn(3L);
+        when(retentionRepository.countAuditBefore(any(LocalDateTime.class))).thenReturn(10L);
+
+        RetentionService.RunResult result = retentionService.run(true);
+
+        assertTrue(result.isDryRun());
+        assertEquals(1, result.getSessions());
+        assertEquals(5, result.getSessionErrors());
+        assertEquals(13, result.getAuditRows());
+        assertEquals(3, result.getFiles());
+        assertTrue(Files.exists(tempDir.resolve("1.csv")));
+        assertTrue(Files.exists(reportFile));
+        verify(retentionRepository, never()).deleteSessionErrors(any(), anyLong(), any(), anyInt());
+        verify(retentionRepository, never()).deleteSession(any(), anyLong(), any());
+        verify(retentionRepository, never()).deleteAuditBefore(any(), anyInt());
+        assertEquals(0, retentionService.getStats().getSessionsPurged());
+        assertSame(result, retentionService.getStats().getLastRun());
+    }
+
+    @Test
+    void testSweepRemovesOldBackupsTempFilesAndFilesOfDeletedSessions() throws IOException {
+        ReflectionTestUtils.setField(retentionService, "sessionTtlDays", 0);
+        ReflectionTestUtils.setField(retentionService, "auditDays", 0);
+        when(leaseRepository.tryAcquire(eq(RetentionService.LEASE_NAME), anyString(), eq(60L))).thenReturn(true);
+        when(retentionRepository.findExistingSessionIds(anyCollection())).thenReturn(Set.of(6L));
+
+        Path oldBackup = file("5_backup_20240101_000000.csv", Duration.ofDays(10));
+        Path liveReport = file("6_errors_20240101_000000.csv", Duration.ofDays(10));
+        Path orphanFile = file("7.csv", Duration.ofDays(2));
+        Path orphanIndex = file("7.csv.idx", Duration.ofDays(2));
+        Path abandonedUpload = file("upload_abc.csv.tmp", Duration.ofDays(2));
+        Path activeUpload = file("upload_def.csv.tmp", Duration.ofMinutes(5));
+        Path otherFile = file("notes.txt", Duration.ofDays(30));
+
+        RetentionService.RunResult result = retentionService.run(false);
+
+        assertEquals(4, result.getFiles());
+        assertFalse(Files.exists(oldBackup));
+        assertFalse(Files.exists(orphanFile));
+        assertFalse(Files.exists(orphanIndex));
+        assertFalse(Files.exists(abandonedUpload));
+        assertTrue(Files.exists(liveReport));
+        assertTrue(Files.exists(activeUpload));
+        assertTrue(Files.exists(otherFile));
+    }
+
+    /**
+     * Stub one expired session of the given kind with a file, row index and job error report
+     * @return The error report file
+     */
+    private Path expiredSession(RetentionRepository.SessionKind kind, Long sessionId) throws IOException {
+        Path sessionFile = file(sessionId + ".csv", Duration.ofDays(8));
+        file(sessionId + ".csv.idx", Duration.ofDays(8));
+        Path reportFile = file(sessionId + "_errors_20240101_000000_chunk1.csv", Duration.ofDays(8));
+        // The other kind finds nothing
+        lenient().when(retentionRepository.findExpiredSessions(any(), any(LocalDateTime.class), isNull(), eq(2))).thenReturn(List.of());
+        when(retentionRepository.findExpiredSessions(eq(kind), any(LocalDateTime.class), isNull(), eq(2)))
+                .thenReturn(List.of(new RetentionRepository.ExpiredSession(sessionId, LocalDateTime.now().minusDays(8))));
+        when(fileService.getSessionFilePath(sessionId)).thenReturn(sessionFile);
+        when(retentionRepository.findErrorReportPaths(sessionId)).thenReturn(List.of(reportFile.toString()));
+        lenient().when(retentionRepository.findExistingSessionIds(anyCollection())).thenReturn(Set.of(sessionId));
+        return reportFile;
+    }
+
+    private Path file(String name, Duration age) throws IOException {
+        Path file = Files.writeString(tempDir.resolve(name), "data");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+}
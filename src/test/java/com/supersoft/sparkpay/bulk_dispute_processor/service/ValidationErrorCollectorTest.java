@@ -0,0 +1,30 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationErrorCollectorTest {
+
+    @Test
+    void testErrorsAreIndexedByRowAndColumn() {
+        CombinedValidationService.CombinedValidationResult result = new CombinedValidationService.CombinedValidationResult();
+        result.addError(2, "Unique Key", "Invalid format");
+        result.addError(2, "Proof", "Proof file is mandatory");
+        result.addError(5, "Action", "Missing required value");
+        result.addError(0, "PROOF_FILES", "Some proof files failed to save");
+
+        ValidationErrorCollector<CombinedValidationService.ValidationError> errors = result.getErrors();
+        assertEquals(4, errors.size());
+        assertEquals("Action", errors.get(2).getColumn());
+        assertTrue(result.hasError(2, "Proof"));
+        assertFalse(result.hasError(5, "Proof"));
+        assertFalse(errors.hasErrors(3));
+        assertEquals(2, errors.getErrors(2).size());
+        assertEquals(List.of(), errors.getErrors(3));
+        assertEquals(3, errors.getErrorRowCount());
+        assertFalse(result.isValid());
+    }
+}
@@ -0,0 +1,42 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvChunkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testChunksHoldWholeRecords() throws IOException {
+        String content = "Unique Key,Action,Notes\n" +
+                "ABC123,ACCEPT,\"first\nsecond\nthird\"\n" +
+                "DEF456,REJECT,plain\n" +
+                "GHI789,ACCEPT,\"He said \"\"ok\"\"\"\n";
+        Path file = tempDir.resolve("chunks.csv");
+        Files.writeString(file, content);
+
+        // Every line feed is a candidate, except the ones inside the quoted notes
+        List<CsvChunker.Chunk> chunks = CsvChunker.split(file, 1);
+
+        List<String> keys = new ArrayList<>();
+        for (CsvChunker.Chunk chunk : chunks) {
+            try (CsvReader csv = new CsvReader(CsvChunker.openChunk(file, chunk))) {
+                assertTrue(csv.nextRecord());
+                keys.add(csv.getField(0));
+                assertFalse(csv.nextRecord());
+            }
+        }
+        assertEquals(List.of("Unique Key", "ABC123", "DEF456", "GHI789"), keys);
+        assertEquals(Files.size(file), chunks.get(chunks.size() - 1).getEnd());
+    }
+}
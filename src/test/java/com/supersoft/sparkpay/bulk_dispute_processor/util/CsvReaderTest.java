@@ -0,0 +1,83 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void testQuotedFieldsWithCommasNewlinesAndEscapedQuotes() throws IOException {
+        String content = "Unique Key,Action,Notes\r\n" +
+                "ABC123,ACCEPT,\"Refund, partial\"\n" +
+                "DEF456,REJECT,\"Line one\nLine two\"\n" +
+                "GHI789,ACCEPT,\"He said \"\"ok\"\"\"\n";
+
+        try (CsvReader csv = new CsvReader(new StringReader(content))) {
+            assertTrue(csv.nextRecord());
+            assertEquals(List.of("Unique Key", "Action", "Notes"), csv.getFields());
+
+            assertTrue(csv.nextRecord());
+            assertEquals(List.of("ABC123", "ACCEPT", "Refund, partial"), csv.getFields());
+
+            assertTrue(csv.nextRecord());
+            assertEquals("Line one\nLine two", csv.getField(2));
+            assertEquals("DEF456,REJECT,\"Line one\nLine two\"", csv.getRawRecord());
+
+            assertTrue(csv.nextRecord());
+            assertEquals("He said \"ok\"", csv.field(2).toString());
+            assertEquals(4, csv.getRecordNumber());
+
+            assertFalse(csv.nextRecord());
+        }
+    }
+
+    @Test
+    void testBomIsStrippedAndFieldsAreTrimmed() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("\uFEFFUnique Key , Action\n ABC123 ,ACCEPT"))) {
+            assertTrue(csv.nextRecord());
+            assertEquals(List.of("Unique Key", "Action"), csv.getFields());
+            assertTrue(csv.nextRecord());
+            assertEquals(List.of("ABC123", "ACCEPT"), csv.getFields());
+            assertFalse(csv.nextRecord());
+        }
+    }
+
+    @Test
+    void testEmptyLineIsSingleEmptyField() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("a,b\n\nc,d\n"))) {
+            assertTrue(csv.nextRecord());
+            assertTrue(csv.nextRecord());
+            assertEquals(1, csv.getFieldCount());
+            assertEquals("", csv.getField(0));
+            assertTrue(csv.nextRecord());
+            assertEquals(List.of("c", "d"), csv.getFields());
+            assertFalse(csv.nextRecord());
+        }
+    }
+
+    @Test
+    void testFormatCsvLineRoundTrips() {
+        List<String> fields = List.of("ABC123", "Refund, partial", "He said \"ok\"");
+        String line = CsvParser.formatCsvLine(fields);
+
+        assertEquals("ABC123,\"Refund, partial\",\"He said \"\"ok\"\"\"", line);
+        assertEquals(fields, CsvParser.parseCsvLine(line));
+    }
+
+    @Test
+    void testParseCsvLineMatchesTheReader() throws IOException {
+        for (String line : List.of("\uFEFF ABC123 ,\"Refund, partial\",,\"He said \"\"ok\"\"\"", "", "a,\"Line one\nLine two\"\nb,c")) {
+            try (CsvReader csv = new CsvReader(new StringReader(line))) {
+                List<String> expected = csv.nextRecord() ? csv.getFields() : List.of("");
+                assertEquals(expected, CsvParser.parseCsvLine(line));
+            }
+        }
+        assertEquals(List.of("ABC123", "Refund, partial", "", "He said \"ok\""),
+                CsvParser.parseCsvLine("\uFEFF ABC123 ,\"Refund, partial\",,\"He said \"\"ok\"\"\""));
+    }
+}
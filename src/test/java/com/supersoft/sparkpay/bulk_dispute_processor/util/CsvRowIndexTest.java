@@ -0,0 +1,76 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRowIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSeeksToIndexedRows() throws IOException {
+        StringBuilder content = new StringBuilder("\uFEFFUnique Key,Action,Notes\r\n");
+        for (int i = 0; i < 25; i++) {
+            if (i % 4 == 0) {
+                content.append("KEY").append(i).append(",ACCEPT,\"line one\r\nline \"\"two\"\"\"\r\n");
+            } else {
+                content.append("KEY").append(i).append(",REJECT,plain\n");
+            }
+        }
+        Path file = tempDir.resolve("rows.csv");
+        Files.writeString(file, content);
+
+        CsvRowIndex index = CsvRowIndex.build(file, 10);
+        assertEquals(25, index.getRowCount());
+        assertEquals(Files.size(file), index.getFileSize());
+        assertTrue(index.isCurrent(file));
+
+        assertEquals(20, index.indexedRowBefore(23));
+        assertEquals(20, index.indexedRowBefore(500));
+        for (int row : new int[] {0, 10, 20}) {
+            try (CsvReader csv = new CsvReader(index.openAt(file, row))) {
+                assertTrue(csv.nextRecord());
+                assertEquals("KEY" + row, csv.getField(0));
+            }
+        }
+    }
+
+    @Test
+    void testBuiltWhileWrittenMatchesScan() throws IOException {
+        byte[] content = "Unique Key,Action\r1,A\r2,B\n\n3,C\r\n4,\"D\rE\"\r\n5,F".getBytes(StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("written.csv");
+        Files.write(file, content);
+
+        // Fed one byte at a time, so CRLF pairs are split across updates
+        CsvRowIndex.Builder builder = new CsvRowIndex.Builder(2);
+        for (byte b : content) {
+            builder.update(new byte[] {b}, 0, 1);
+        }
+        CsvRowIndex written = builder.build(file);
+        CsvRowIndex scanned = CsvRowIndex.build(file, 2);
+
+        // The blank line is a record to the reader as well
+        assertEquals(6, written.getRowCount());
+        assertEquals(scanned.getRowCount(), written.getRowCount());
+        try (CsvReader csv = new CsvReader(written.openAt(file, 4))) {
+            assertTrue(csv.nextRecord());
+            assertEquals("4", csv.getField(0));
+            assertEquals("D\rE", csv.getField(1));
+        }
+
+        Path indexFile = tempDir.resolve("written.csv.idx");
+        written.write(indexFile);
+        CsvRowIndex read = CsvRowIndex.read(indexFile);
+        assertEquals(6, read.getRowCount());
+        assertTrue(read.isCurrent(file));
+        assertEquals(4, read.indexedRowBefore(5));
+    }
+}
@@ -0,0 +1,36 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testCursorRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 10, 9, 15, 30), 124L);
+
+        String token = cursor.encode();
+        KeysetCursor parsed = KeysetCursor.parse(token);
+
+        // URL-safe without padding, so it can be passed as a query parameter as is
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertEquals(cursor.getCreatedAt(), parsed.getCreatedAt());
+        assertEquals(124L, parsed.getId());
+    }
+
+    @Test
+    void testInvalidCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.parse("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.parse("bm8tc2VwYXJhdG9y"));
+
+        // A cursor only fits the ordering it was made for
+        String token = new KeysetCursor("jobs:completed_at:DESC", null, 7L).encode();
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.parse(token, "jobs:completed_at:ASC"));
+        KeysetCursor parsed = KeysetCursor.parse(token, "jobs:completed_at:DESC");
+        assertNull(parsed.getValue());
+        assertEquals(7L, parsed.getId());
+    }
+}
@@ -0,0 +1,478 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.worker;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJob;
+import com.supersoft.sparkpay.bulk_dispute_processor.domain.BulkDisputeJobPartition;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobPartitionRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeJobRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.BulkDisputeSessionErrorRepository;
+import com.supersoft.sparkpay.bulk_dispute_processor.repository.SessionErrorIndex;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.AtomicJobUpdater;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.DisputeUpdater;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.EnhancedJobProcessor;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.FailureClassifier;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.FileService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobAuditWriter;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobFanOutService;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobMessagePublisher;
+import com.supersoft.sparkpay.bulk_dispute_processor.service.JobPartitionPlanner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BulkJobWorkerTest {
+
+    private static final int ROWS = 100_000;
+
+    @Mock
+    private BulkDisputeJobRepository jobRepository;
+
+    @Mock
+    private BulkDisputeJobPartitionRepository partitionRepository;
+
+    @Mock
+    private JobAuditWriter auditWriter;
+
+    @Mock
+    private DisputeUpdater disputeUpdater;
+
+    @Mock
+    private FailureClassifier failureClassifier;
+
+    @Mock
+    private BulkDisputeSessionErrorRepository errorRepository;
+
+    @Mock
+    private AtomicJobUpdater atomicJobUpdater;
+
+    @Mock
+    private EnhancedJobProcessor enhancedJobProcessor;
+
+    @Mock
+    private JobFanOutService fanOutService;
+
+    @Mock
+    private FileService fileService;
+
+    @Spy
+    private JobPartitionPlanner partitionPlanner;
+
+    @InjectMocks
+    private BulkJobWorker worker;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private final AtomicInteger updatedRows = new AtomicInteger();
+    private final AtomicInteger reportNames = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = tempDir.resolve("disputes.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("Unique Key,Action\n");
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(String.format("%026d,ACCEPT\n", i));
+            }
+        }
+
+        ReflectionTestUtils.setField(worker, "batchSize", 500);
+        ReflectionTestUtils.setField(worker, "checkpointRows", 1000);
+        ReflectionTestUtils.setField(worker, "checkpointIntervalMs", 5000L);
+        ReflectionTestUtils.setField(worker, "partitions", 4);
+        worker.startPartitionPool();
+
+        when(fileService.createErrorReportPath(anyLong())).thenAnswer(invocation ->
+                tempDir.resolve(invocation.getArgument(0) + "_errors_" + reportNames.incrementAndGet() + ".csv").toString());
+        when(fileService.getAppliedRowsPath(anyLong(), anyLong(), any())).thenAnswer(invocation -> tempDir.resolve(
+                invocation.getArgument(0) + "_applied_job" + invocation.getArgument(1)
+                        + (invocation.getArgument(2) != null ? "_part" + invocation.getArgument(2) : "") + ".log"));
+        when(errorRepository.loadErrorIndex(1L)).thenReturn(new SessionErrorIndex(new int[0], rows -> List.of()));
+        when(partitionRepository.checkpoint(anyLong(), anyInt(), anyInt(), anyInt(), anyInt())).thenReturn(true);
+        when(disputeUpdater.processRows(anyList())).thenAnswer(invocation -> {
+            List<Map<String, String>> rows = invocation.getArgument(0);
+            updatedRows.addAndGet(rows.size());
+            List<DisputeUpdater.ProcessingResult> results = new ArrayList<>();
+            rows.forEach(row -> results.add(DisputeUpdater.ProcessingResult.success()));
+            return results;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.stopPartitionPool();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLargeFileIsProcessedInPartitions() {
+        when(partitionRepository.findByJobId(1L)).thenReturn(List.of());
+        when(partitionRepository.saveAll(eq(1L), anyList())).thenAnswer(invocation -> withIds(invocation.getArgument(1)));
+
+        BulkDisputeJob job = processCsvFile();
+
+        ArgumentCaptor<List<BulkDisputeJobPartition>> plan = ArgumentCaptor.forClass(List.class);
+        verify(partitionRepository).saveAll(eq(1L), plan.capture());
+        assertTrue(plan.getValue().size() > 1);
+        int nextRow = 1;
+        for (BulkDisputeJobPartition partition : plan.getValue()) {
+            assertEquals(nextRow, partition.getFirstRow());
+            assertEquals(BulkDisputeJobPartition.PartitionStatus.COMPLETED, partition.getStatus());
+            nextRow = partition.getLastRow() + 1;
+        }
+        assertEquals(ROWS + 1, nextRow);
+
+        assertEquals(ROWS, updatedRows.get());
+        assertEquals(ROWS, job.getProcessedRows());
+        assertEquals(ROWS, job.getSuccessCount());
+        assertEquals(0, job.getFailureCount());
+        verify(partitionRepository, times(plan.getValue().size())).markCompleted(anyLong(), isNull());
+    }
+
+    @Test
+    void testResumeRestartsOnlyUnfinishedPartitions() {
+        List<BulkDisputeJobPartition> plan = new ArrayList<>();
+        int rowsPerPartition = ROWS / 4;
+        for (int i = 0; i < 4; i++) {
+            plan.add(BulkDisputeJobPartition.builder()
+                    .id(i + 1L)
+                    .partitionIndex(i)
+                    .firstRow(i * rowsPerPartition + 1)
+                    .lastRow((i + 1) * rowsPerPartition)
+                    .lastProcessedRow(i * rowsPerPartition)
+                    .status(BulkDisputeJobPartition.PartitionStatus.PENDING)
+                    .build());
+        }
+        // Byte offsets of the partitions: every data row has the same length
+        long headerBytes = "Unique Key,Action\n".length();
+        long rowBytes = String.format("%026d,ACCEPT\n", 0).length();
+        for (BulkDisputeJobPartition partition : plan) {
+            partition.setStartOffset(partition.getPartitionIndex() == 0 ? 0 : headerBytes + (partition.getFirstRow() - 1) * rowBytes);
+            partition.setEndOffset(headerBytes + partition.getLastRow() * rowBytes);
+        }
+        // The first partition finished, the second got 100 rows in before the job was paused
+        plan.get(0).setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        plan.get(0).setLastProcessedRow(rowsPerPartition);
+        plan.get(0).setProcessedRows(rowsPerPartition);
+        plan.get(0).setSuccessCount(rowsPerPartition);
+        plan.get(1).setLastProcessedRow(rowsPerPartition + 100);
+        plan.get(1).setProcessedRows(100);
+        plan.get(1).setSuccessCount(100);
+        when(partitionRepository.findByJobId(1L)).thenReturn(plan);
+
+        BulkDisputeJob job = processCsvFile();
+
+        verify(partitionRepository, never()).saveAll(anyLong(), anyList());
+        verify(partitionRepository, never()).markCompleted(eq(1L), any());
+        assertEquals(ROWS - rowsPerPartition - 100, updatedRows.get());
+        assertEquals(ROWS, job.getProcessedRows());
+        assertEquals(ROWS, job.getSuccessCount());
+    }
+
+    @Test
+    void testFailedRowsOfFinishedPartitionsReachTheJobReport() throws IOException {
+        String lastKey = String.format("%026d", ROWS - 1);
+        when(disputeUpdater.processRows(anyList())).thenAnswer(invocation -> {
+            List<Map<String, String>> rows = invocation.getArgument(0);
+            List<DisputeUpdater.ProcessingResult> results = new ArrayList<>();
+            rows.forEach(row -> results.add(lastKey.equals(row.get("Unique Key"))
+                    ? DisputeUpdater.ProcessingResult.failure("No matching dispute found or already processed")
+                    : DisputeUpdater.ProcessingResult.success()));
+            return results;
+        });
+        // The first partition finished with a failed row in an earlier run that was then paused
+        List<BulkDisputeJobPartition> plan = withIds(partitionPlanner.plan(1L, file, 1024 * 1024));
+        Path firstReport = Files.writeString(tempDir.resolve("1_errors_20250101_000000_part0.csv"),
+                "dispute_id,action,reason,notes,error_message\nfirst partition failure\n");
+        plan.get(0).setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        plan.get(0).setLastProcessedRow(plan.get(0).getLastRow());
+        plan.get(0).setErrorReportPath(firstReport.toString());
+        when(partitionRepository.findByJobId(1L)).thenReturn(plan);
+
+        BulkDisputeJob job = processCsvFile();
+
+        BulkDisputeJobPartition lastPartition = plan.get(plan.size() - 1);
+        verify(partitionRepository).markCompleted(eq(lastPartition.getId()), notNull());
+        Path jobReport = Path.of(job.getErrorReportPath());
+        assertEquals(tempDir, jobReport.getParent());
+        List<String> lines = Files.readAllLines(jobReport);
+        assertEquals(3, lines.size());
+        assertEquals("first partition failure", lines.get(1));
+        assertTrue(lines.get(2).startsWith(lastKey + ",ACCEPT // PROCESSING_ERROR"));
+        // Partition reports are removed once merged
+        assertFalse(Files.exists(firstReport));
+        assertFalse(Files.exists(Path.of(lastPartition.getErrorReportPath())));
+    }
+
+    @Test
+    void testFailureOfPartitionedJobKeepsPartitionCounters() {
+        when(failureClassifier.classifyFailure(any(), any())).thenReturn(FailureClassifier.FailureType.PERMANENT);
+        BulkDisputeJob job = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+
+        ReflectionTestUtils.invokeMethod(worker, "handleJobFailure", job, new IllegalStateException("Bad file"), 1L);
+
+        // The counters of the saved copy are replaced by the sum of the partition checkpoints
+        InOrder inOrder = inOrder(jobRepository, partitionRepository);
+        inOrder.verify(jobRepository).save(job);
+        inOrder.verify(partitionRepository).rollUpJobProgress(1L);
+        assertEquals(BulkDisputeJob.JobStatus.FAILED, job.getStatus());
+    }
+
+    @Test
+    void testLargeFileIsFannedOutToChunkMessages() throws IOException {
+        when(partitionRepository.findByJobId(1L)).thenReturn(List.of());
+        when(fanOutService.isEnabled()).thenReturn(true);
+        when(fanOutService.shouldFanOut(file)).thenReturn(true);
+        when(fanOutService.dispatch(any(), any())).thenReturn(4);
+        when(partitionRepository.countUnfinished(1L)).thenReturn(4);
+
+        BulkDisputeJob job = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+        JobMessagePublisher.JobMessage jobMessage = new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester");
+        Boolean finished = ReflectionTestUtils.invokeMethod(worker, "processCsvFile", job, file.toString(), jobMessage);
+
+        assertEquals(Boolean.FALSE, finished);
+        assertEquals(0, updatedRows.get());
+        verify(fanOutService).dispatch(job, jobMessage);
+        verify(atomicJobUpdater, never()).updateJobStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void testLastChunkCompletesFannedOutJob() throws IOException {
+        List<BulkDisputeJobPartition> plan = partitionPlanner.plan(1L, file, 1024 * 1024);
+        withIds(plan);
+        for (BulkDisputeJobPartition partition : plan) {
+            partition.setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        }
+        BulkDisputeJobPartition lastChunk = plan.get(plan.size() - 1);
+        lastChunk.setStatus(BulkDisputeJobPartition.PartitionStatus.RUNNING);
+
+        BulkDisputeJob job = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(partitionRepository.claim(eq(lastChunk.getId()), any())).thenReturn(true);
+        when(partitionRepository.findById(lastChunk.getId())).thenReturn(Optional.of(lastChunk));
+        when(partitionRepository.countUnfinished(1L)).thenReturn(0);
+        when(partitionRepository.findByJobId(1L)).thenReturn(plan);
+        when(atomicJobUpdater.completeJob(eq(1L), isNull(), any())).thenReturn(true);
+
+        worker.processJobChunk(new JobMessagePublisher.ChunkMessage(
+                new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester"), lastChunk.getId(), lastChunk.getPartitionIndex()));
+
+        assertEquals(lastChunk.getLastRow() - lastChunk.getFirstRow() + 1, updatedRows.get());
+        verify(partitionRepository).markCompleted(lastChunk.getId(), null);
+        verify(partitionRepository, atLeastOnce()).rollUpJobProgress(1L);
+        verify(enhancedJobProcessor).updateSessionStatus(1L, job);
+        assertEquals(BulkDisputeJob.JobStatus.COMPLETED, job.getStatus());
+        assertNotNull(job.getCompletedAt());
+    }
+
+    @Test
+    void testFailedMergeLeavesFannedOutJobToFailureHandling() throws IOException {
+        when(failureClassifier.classifyFailure(any(), any())).thenReturn(FailureClassifier.FailureType.PERMANENT);
+        List<BulkDisputeJobPartition> plan = withIds(partitionPlanner.plan(1L, file, 1024 * 1024));
+        for (BulkDisputeJobPartition partition : plan) {
+            partition.setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        }
+        // The report of an earlier chunk has gone missing
+        plan.get(0).setErrorReportPath(tempDir.resolve("1_errors_20250101_000000_part0.csv").toString());
+        BulkDisputeJobPartition lastChunk = plan.get(plan.size() - 1);
+        lastChunk.setStatus(BulkDisputeJobPartition.PartitionStatus.RUNNING);
+
+        BulkDisputeJob job = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(partitionRepository.claim(eq(lastChunk.getId()), any())).thenReturn(true);
+        when(partitionRepository.findById(lastChunk.getId())).thenReturn(Optional.of(lastChunk));
+        when(partitionRepository.countUnfinished(1L)).thenReturn(0);
+        when(partitionRepository.findByJobId(1L)).thenReturn(plan);
+
+        worker.processJobChunk(new JobMessagePublisher.ChunkMessage(
+                new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester"), lastChunk.getId(), lastChunk.getPartitionIndex()));
+
+        // The job is not completed without its report but failed like any other job
+        verify(atomicJobUpdater, never()).completeJob(anyLong(), any(), any());
+        assertEquals(BulkDisputeJob.JobStatus.FAILED, job.getStatus());
+        verify(jobRepository).save(job);
+    }
+
+    @Test
+    void testMergeLosingToAnotherFinisherLeavesJobAlone() throws IOException {
+        List<BulkDisputeJobPartition> plan = withIds(partitionPlanner.plan(1L, file, 1024 * 1024));
+        for (BulkDisputeJobPartition partition : plan) {
+            partition.setStatus(BulkDisputeJobPartition.PartitionStatus.COMPLETED);
+        }
+        // The node that completed the job has already removed this chunk report
+        plan.get(0).setErrorReportPath(tempDir.resolve("1_errors_20250101_000000_part0.csv").toString());
+        BulkDisputeJobPartition lastChunk = plan.get(plan.size() - 1);
+        lastChunk.setStatus(BulkDisputeJobPartition.PartitionStatus.RUNNING);
+
+        BulkDisputeJob running = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.RUNNING).build();
+        BulkDisputeJob completed = BulkDisputeJob.builder().id(1L).sessionId(1L).status(BulkDisputeJob.JobStatus.COMPLETED).build();
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(running), Optional.of(running), Optional.of(completed));
+        when(partitionRepository.claim(eq(lastChunk.getId()), any())).thenReturn(true);
+        when(partitionRepository.findById(lastChunk.getId())).thenReturn(Optional.of(lastChunk));
+        when(partitionRepository.countUnfinished(1L)).thenReturn(0);
+        when(partitionRepository.findByJobId(1L)).thenReturn(plan);
+
+        worker.processJobChunk(new JobMessagePublisher.ChunkMessage(
+                new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester"), lastChunk.getId(), lastChunk.getPartitionIndex()));
+
+        verify(atomicJobUpdater, never()).completeJob(anyLong(), any(), any());
+        verify(partitionRepository, never()).release(anyLong());
+        verify(jobRepository, never()).save(any());
+        assertEquals(BulkDisputeJob.JobStatus.RUNNING, running.getStatus());
+    }
+
+    @Test
+    void testMergedReportsOfOneSessionGetDistinctNames() throws IOException {
+        when(fileService.createErrorReportPath(anyLong())).thenReturn(tempDir.resolve("1_errors_20250101_000000.csv").toString());
+        List<BulkDisputeJobPartition> plan = withIds(partitionPlanner.plan(1L, file, 1024 * 1024));
+        plan.get(0).setErrorReportPath(Files.writeString(tempDir.resolve("1_errors_20250101_000000_part0.csv"),
+                "dispute_id,action,reason,notes,error_message\nfailure\n").toString());
+
+        String first = ReflectionTestUtils.invokeMethod(worker, "mergePartitionReports", 1L, 1L, plan);
+        String second = ReflectionTestUtils.invokeMethod(worker, "mergePartitionReports", 1L, 1L, plan);
+
+        assertNotEquals(first, second);
+        assertEquals(List.of("dispute_id,action,reason,notes,error_message", "failure"), Files.readAllLines(Path.of(first)));
+        assertEquals(Files.readAllLines(Path.of(first)), Files.readAllLines(Path.of(second)));
+    }
+
+    @Test
+    void testRowsAppliedAfterTheCheckpointOfAFailedRunAreMarkedReplayedOnResume() throws IOException {
+        ReflectionTestUtils.setField(worker, "partitions", 1);
+        when(partitionRepository.findByJobId(1L)).thenReturn(List.of());
+        AtomicInteger batches = new AtomicInteger();
+        when(disputeUpdater.processRows(anyList())).thenAnswer(invocation -> {
+            List<Map<String, String>> rows = invocation.getArgument(0);
+            List<DisputeUpdater.ProcessingResult> results = new ArrayList<>();
+            rows.forEach(row -> results.add(DisputeUpdater.ProcessingResult.success()));
+            if (batches.incrementAndGet() == 5) {
+                // Rows 2001-2499 are applied, then the run dies on the last row of the batch
+                results.set(rows.size() - 1, DisputeUpdater.ProcessingResult.failure("boom"));
+            }
+            return results;
+        });
+        when(failureClassifier.classifyFailure(any(), eq("boom"))).thenThrow(new IllegalStateException("worker died"));
+        BulkDisputeJob job = BulkDisputeJob.builder()
+                .id(1L)
+                .sessionId(1L)
+                .status(BulkDisputeJob.JobStatus.RUNNING)
+                .build();
+        JobMessagePublisher.JobMessage jobMessage = new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester");
+
+        assertThrows(IllegalStateException.class,
+                () -> ReflectionTestUtils.invokeMethod(worker, "processCsvFile", job, file.toString(), jobMessage));
+
+        // The checkpoint covers row 2000; the journal keeps the applied rows after it
+        assertEquals(2000, job.getLastProcessedRow());
+        Path journal = tempDir.resolve("1_applied_job1.log");
+        List<String> journaled = Files.readAllLines(journal);
+        assertEquals(499, journaled.size());
+        assertEquals("2001", journaled.get(0));
+        assertEquals("2499", journaled.get(498));
+
+        List<Integer> replayedRows = new ArrayList<>();
+        when(disputeUpdater.processRows(anyList())).thenAnswer(invocation -> {
+            List<Map<String, String>> rows = invocation.getArgument(0);
+            rows.forEach(row -> {
+                if ("true".equals(row.get(DisputeUpdater.REPLAYED_ROW))) {
+                    replayedRows.add(Integer.parseInt(row.get("Unique Key")) + 1);
+                }
+            });
+            return rows.stream().map(row -> DisputeUpdater.ProcessingResult.success()).toList();
+        });
+
+        ReflectionTestUtils.invokeMethod(worker, "processCsvFile", job, file.toString(), jobMessage);
+
+        // Only the rows the failed run recorded are replayed, and the journal goes with the final checkpoint
+        assertEquals(499, replayedRows.size());
+        assertEquals(2001, replayedRows.get(0));
+        assertEquals(2499, replayedRows.get(498));
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    void testRowsOfAFirstRunAreNotMarkedReplayed() {
+        ReflectionTestUtils.setField(worker, "partitions", 1);
+        when(partitionRepository.findByJobId(1L)).thenReturn(List.of());
+        when(disputeUpdater.processRows(anyList())).thenAnswer(invocation -> {
+            List<Map<String, String>> rows = invocation.getArgument(0);
+            assertTrue(rows.stream().noneMatch(row -> row.containsKey(DisputeUpdater.REPLAYED_ROW)));
+            return rows.stream().map(row -> DisputeUpdater.ProcessingResult.success()).toList();
+        });
+
+        BulkDisputeJob job = processCsvFile();
+
+        assertEquals(ROWS, job.getSuccessCount());
+        assertFalse(Files.exists(tempDir.resolve("1_applied_job1.log")));
+    }
+
+    private BulkDisputeJob processCsvFile() {
+        BulkDisputeJob job = BulkDisputeJob.builder()
+                .id(1L)
+                .sessionId(1L)
+                .status(BulkDisputeJob.JobStatus.RUNNING)
+                .build();
+        JobMessagePublisher.JobMessage jobMessage = new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester");
+        ReflectionTestUtils.invokeMethod(worker, "processCsvFile", job, file.toString(), jobMessage);
+        return job;
+    }
+
+    @Test
+    void testDelayedResumeMessageResumesPausedJob() {
+        BulkDisputeJob paused = BulkDisputeJob.builder()
+                .id(1L)
+                .sessionId(1L)
+                .status(BulkDisputeJob.JobStatus.PAUSED)
+                .lastProcessedRow(0)
+                .build();
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(paused));
+        when(atomicJobUpdater.updateJobStatus(1L, BulkDisputeJob.JobStatus.PENDING, BulkDisputeJob.JobStatus.PAUSED)).thenReturn(true);
+        when(atomicJobUpdater.claimJobForProcessing(1L)).thenReturn(false);
+
+        // An ordinary message leaves a paused job alone
+        worker.processJob(new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester"));
+        verify(atomicJobUpdater, never()).updateJobStatus(anyLong(), any(), any());
+
+        JobMessagePublisher.JobMessage resumeMessage = new JobMessagePublisher.JobMessage(1L, 1L, file.toString(), "tester");
+        resumeMessage.setResume(true);
+        worker.processJob(resumeMessage);
+
+        verify(atomicJobUpdater).updateJobStatus(1L, BulkDisputeJob.JobStatus.PENDING, BulkDisputeJob.JobStatus.PAUSED);
+        verify(auditWriter).record(eq(1L), eq("AUTO_RESUMED"), anyString());
+        verify(atomicJobUpdater, times(2)).claimJobForProcessing(1L);
+    }
+
+    private static List<BulkDisputeJobPartition> withIds(List<BulkDisputeJobPartition> partitions) {
+        for (int i = 0; i < partitions.size(); i++) {
+            partitions.get(i).setId(i + 1L);
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,63 @@
+package com.supersoft.sparkpay.bulk_dispute_processor.worker;
+
+import com.supersoft.sparkpay.bulk_dispute_processor.config.RabbitMQConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ListenerScalerTest {
+
+    @Mock
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private AmqpAdmin amqpAdmin;
+
+    @Mock
+    private SimpleMessageListenerContainer container;
+
+    @InjectMocks
+    private ListenerScaler listenerScaler;
+
+    @BeforeEach
+    void setUp() {
+        when(listenerRegistry.getListenerContainer(RabbitMQConfig.BULK_JOBS_LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true);
+    }
+
+    @Test
+    void testConsumersFollowQueueDepth() {
+        // Three jobs waiting: one consumer per waiting job, capped at the maximum
+        when(amqpAdmin.getQueueInfo(RabbitMQConfig.BULK_JOBS_QUEUE)).thenReturn(new QueueInformation(RabbitMQConfig.BULK_JOBS_QUEUE, 3, 1));
+        assertEquals(4, scale());
+        verify(container).setConcurrentConsumers(4);
+
+        when(amqpAdmin.getQueueInfo(RabbitMQConfig.BULK_JOBS_QUEUE)).thenReturn(new QueueInformation(RabbitMQConfig.BULK_JOBS_QUEUE, 5, 4));
+        assertEquals(6, scale());
+        verify(container).setConcurrentConsumers(6);
+
+        // Queue drained: step back down one consumer at a time, never below the minimum
+        when(amqpAdmin.getQueueInfo(RabbitMQConfig.BULK_JOBS_QUEUE)).thenReturn(new QueueInformation(RabbitMQConfig.BULK_JOBS_QUEUE, 0, 6));
+        assertEquals(5, scale());
+        for (int i = 0; i < 10; i++) {
+            scale();
+        }
+        assertEquals(1, scale());
+        verify(container, times(1)).setConcurrentConsumers(1);
+    }
+
+    private int scale() {
+        return listenerScaler.scale(RabbitMQConfig.BULK_JOBS_LISTENER_ID, RabbitMQConfig.BULK_JOBS_QUEUE, 1, 6);
+    }
+}